@@ -1,16 +1,42 @@
 package com.bot;
 
+import com.bot.discord.ArmazemAvatares;
+import com.bot.discord.AttributeUpgradeCoalescer;
 import com.bot.discord.ComandosListener;
 import com.bot.discord.ComandosRegister;
+import com.bot.discord.DespachanteInteracoes;
+import com.bot.discord.EmbedCache;
+import com.bot.discord.EmbedManager;
+import com.bot.discord.ImageGenerator;
+import com.bot.discord.LimitadorTaxa;
+import com.bot.discord.MedidorInteracoes;
+import com.bot.discord.RenderCache;
+import com.bot.discord.RenderScheduler;
+import com.bot.discord.RetratoCache;
+import com.bot.discord.games.GameManager;
 import com.bot.discord.games.WebSocketServerManager;
+import com.bot.metricas.GravacaoJfr;
+import com.bot.metricas.Metricas;
+import com.bot.service.ArquivoPersonagemRepository;
+import com.bot.service.CompactoPersonagemRepository;
+import com.bot.service.ConnectionPool;
+import com.bot.service.MemoriaPersonagemRepository;
+import com.bot.service.MotorFormulas;
+import com.bot.service.PersonagemCache;
+import com.bot.service.PersonagemRepository;
 import com.bot.service.PersonagemService;
+import com.bot.service.PostgresPersonagemRepository;
+import com.bot.service.WriteBehindPersonagemRepository;
 import io.github.cdimascio.dotenv.Dotenv;
 import net.dv8tion.jda.api.JDA;
 import net.dv8tion.jda.api.JDABuilder;
 import net.dv8tion.jda.api.entities.Activity;
 import net.dv8tion.jda.api.requests.GatewayIntent;
+import net.dv8tion.jda.internal.utils.IOUtil;
 
 import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
@@ -21,6 +47,8 @@ public class Bot {
 
     public static final ExecutorService EXECUTOR = Executors.newCachedThreadPool();
     private static WebSocketServerManager wsServer;
+    private static PersonagemRepository repositorio;
+    private static ServidorHttp servidorHttp;
     public static String APP_URL;
 
     private Bot() {}
@@ -34,7 +62,17 @@ public class Bot {
 
         // Hook para garantir o desligamento limpo dos nossos serviços.
         Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            DespachanteInteracoes.get().desligar();
+            AttributeUpgradeCoalescer.descarregarPendentes();
             EXECUTOR.shutdown();
+            RenderScheduler.get().desligar();
+            if (servidorHttp != null) {
+                servidorHttp.parar();
+            }
+            if (repositorio != null) {
+                // Com a escrita adiada, grava os personagens pendentes antes de fechar o backend.
+                repositorio.close();
+            }
             try {
                 if (wsServer != null) {
                     wsServer.stop();
@@ -52,20 +90,73 @@ public class Bot {
         APP_URL = dotenv.get("APP_URL");
 
         String discordToken = dotenv.get("DISCORD_TOKEN");
-        String dbUrl = dotenv.get("DB_URL");
-        String dbUser = dotenv.get("DB_USER");
-        String dbPass = dotenv.get("DB_PASS");
-
-        if (discordToken == null || dbUrl == null || dbUser == null || dbPass == null) {
+        if (discordToken == null) {
             System.err.println("ERRO FATAL: Uma ou mais variáveis essenciais não foram encontradas no arquivo .env.");
             return;
         }
 
-        PersonagemService personagemService = new PersonagemService(dbUrl, dbUser, dbPass);
+        repositorio = criarRepositorio(dotenv);
+        if (repositorio == null) {
+            return;
+        }
+        long escritaAdiadaMs = Long.parseLong(dotenv.get("DB_WRITE_BEHIND_MS", "0").trim());
+        if (escritaAdiadaMs > 0) {
+            repositorio = new WriteBehindPersonagemRepository(repositorio, escritaAdiadaMs,
+                    Integer.parseInt(dotenv.get("DB_WRITE_BEHIND_BATCH", "100").trim()));
+        }
+
+        String renderMode = dotenv.get("RENDER_MODE");
+        if (renderMode != null && !renderMode.isBlank()) {
+            try {
+                ImageGenerator.setRenderMode(ImageGenerator.RenderMode.valueOf(renderMode.trim().toUpperCase()));
+            } catch (IllegalArgumentException e) {
+                System.err.println("RENDER_MODE inválido ('" + renderMode + "'). Usando o modo padrão.");
+            }
+        }
+        ImageGenerator.setCartao(Boolean.parseBoolean(dotenv.get("FICHA_CARTAO", "false").trim()));
+
+        configurarCacheDeFichas(dotenv);
+        configurarFormulas(dotenv);
+        configurarServidorHttp(dotenv);
+        configurarGravacaoJfr(dotenv);
+
+        // Vazio (como no .env.example) vale o padrão: um thread por núcleo.
+        String renderThreadsConfig = dotenv.get("RENDER_THREADS", "").trim();
+        int renderThreads = renderThreadsConfig.isEmpty()
+                ? Runtime.getRuntime().availableProcessors() : Integer.parseInt(renderThreadsConfig);
+        int renderFilaMax = Integer.parseInt(dotenv.get("RENDER_QUEUE_MAX", "64").trim());
+        RenderScheduler.configurar(new RenderScheduler(renderThreads, renderFilaMax));
+        DespachanteInteracoes.configurar(new DespachanteInteracoes(
+                Integer.parseInt(dotenv.get("INTERACOES_FILA_MAX", "16").trim())));
+        LimitadorTaxa.configurar(new LimitadorTaxa(
+                new LimitadorTaxa.Limite(Integer.parseInt(dotenv.get("LIMITE_USUARIO_FICHAS", "15").trim()),
+                        Double.parseDouble(dotenv.get("LIMITE_USUARIO_POR_MINUTO", "30").trim())),
+                new LimitadorTaxa.Limite(Integer.parseInt(dotenv.get("LIMITE_SERVIDOR_FICHAS", "100").trim()),
+                        Double.parseDouble(dotenv.get("LIMITE_SERVIDOR_POR_MINUTO", "600").trim()))));
+
+        PersonagemCache personagemCache = new PersonagemCache(
+                Integer.parseInt(dotenv.get("PERSONAGEM_CACHE_MAX", "1000").trim()),
+                Long.parseLong(dotenv.get("PERSONAGEM_CACHE_IDLE_MS", "600000").trim()));
+        PersonagemService personagemService = new PersonagemService(repositorio, personagemCache);
+
+        EmbedCache embedCache = new EmbedCache(Integer.parseInt(dotenv.get("EMBED_CACHE_MAX", "1000").trim()));
+        EmbedManager.configurarCache(embedCache);
+        personagemService.aoAlterar(userId -> {
+            if (userId == null) {
+                embedCache.limpar();
+            } else {
+                embedCache.invalidar(userId);
+            }
+        });
+        registrarMetricas(personagemService);
+        personagemService.carregarRanking();
+        System.out.println("Ranking carregado: " + personagemService.getRanking().tamanho() + " personagens.");
 
         JDA jda = JDABuilder.createDefault(discordToken)
                 .enableIntents(GatewayIntent.GUILD_MEMBERS, GatewayIntent.GUILD_MESSAGES, GatewayIntent.MESSAGE_CONTENT, GatewayIntent.GUILD_MESSAGE_REACTIONS)
                 .setActivity(Activity.playing("RPG de Mesa"))
+                // Observa as respostas às interações para medir a confirmação e a resposta final.
+                .setHttpClientBuilder(IOUtil.newHttpClientBuilder().addInterceptor(MedidorInteracoes.interceptor()))
                 .addEventListeners(new ComandosListener(personagemService))
                 .build()
                 .awaitReady();
@@ -78,4 +169,212 @@ public class Bot {
 
         System.out.println("Bot iniciado e pronto para receber comandos!");
     }
-}
\ No newline at end of file
+
+    /**
+     * Cria o repositório de personagens escolhido por REPOSITORIO no .env:
+     * postgres (padrão), memoria, compacto ou arquivo.
+     *
+     * @return O repositório, ou {@code null} se a configuração for inválida (o erro já foi exibido).
+     */
+    private static PersonagemRepository criarRepositorio(Dotenv dotenv) {
+        String tipo = dotenv.get("REPOSITORIO", "postgres").trim().toLowerCase();
+        switch (tipo) {
+            case "memoria" -> {
+                System.out.println("AVISO: usando o repositório em memória; os personagens serão perdidos ao desligar.");
+                return new MemoriaPersonagemRepository();
+            }
+            case "compacto" -> {
+                System.out.println("AVISO: usando o repositório compacto em memória; os personagens serão perdidos ao desligar.");
+                return new CompactoPersonagemRepository(Integer.parseInt(dotenv.get("REPOSITORIO_COMPACTO_CAPACIDADE", "100000").trim()));
+            }
+            case "arquivo" -> {
+                String caminho = dotenv.get("REPOSITORIO_ARQUIVO", "dados/personagens.log").trim();
+                try {
+                    return new ArquivoPersonagemRepository(Path.of(caminho));
+                } catch (IOException e) {
+                    System.err.println("ERRO FATAL: Não foi possível abrir o repositório em arquivo (" + caminho + ").");
+                    e.printStackTrace();
+                    return null;
+                }
+            }
+            case "postgres" -> {
+                String dbUrl = dotenv.get("DB_URL");
+                String dbUser = dotenv.get("DB_USER");
+                String dbPass = dotenv.get("DB_PASS");
+                if (dbUrl == null || dbUser == null || dbPass == null) {
+                    System.err.println("ERRO FATAL: Uma ou mais variáveis essenciais não foram encontradas no arquivo .env.");
+                    return null;
+                }
+                ConnectionPool.Configuracao poolConfig = new ConnectionPool.Configuracao(
+                        Integer.parseInt(dotenv.get("DB_POOL_MIN", "2").trim()),
+                        Integer.parseInt(dotenv.get("DB_POOL_MAX", "10").trim()),
+                        Long.parseLong(dotenv.get("DB_POOL_TIMEOUT_MS", "5000").trim()),
+                        Long.parseLong(dotenv.get("DB_POOL_MAX_LIFETIME_MS", "1800000").trim()));
+                return new PostgresPersonagemRepository(new ConnectionPool(dbUrl, dbUser, dbPass, poolConfig));
+            }
+            default -> {
+                System.err.println("ERRO FATAL: REPOSITORIO inválido ('" + tipo + "'). Use postgres, memoria, compacto ou arquivo.");
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Configura o cache de imagens da ficha a partir do .env.
+     * RENDER_CACHE_MAX define quantas imagens ficam em memória; RENDER_CACHE_DIR, se presente,
+     * ativa o nível em disco, que sobrevive a reinícios, limitado a RENDER_CACHE_DIR_MAX_MB.
+     * RETRATOS_CACHE_MAX define quantos retratos prontos para o cartão ficam em memória.
+     */
+    private static void configurarCacheDeFichas(Dotenv dotenv) {
+        RetratoCache.configurar(new RetratoCache(Integer.parseInt(dotenv.get("RETRATOS_CACHE_MAX", "512").trim())));
+
+        int capacidade = Integer.parseInt(dotenv.get("RENDER_CACHE_MAX", "1024").trim());
+        String diretorio = dotenv.get("RENDER_CACHE_DIR");
+        try {
+            Path caminho = diretorio == null || diretorio.isBlank() ? null : Path.of(diretorio.trim());
+            long maxBytesDisco = Long.parseLong(dotenv.get("RENDER_CACHE_DIR_MAX_MB", "256").trim()) * 1024 * 1024;
+            ImageGenerator.configurarCache(new RenderCache(capacidade, caminho, maxBytesDisco));
+        } catch (IOException e) {
+            System.err.println("Não foi possível criar o diretório do cache de fichas (" + diretorio + "). Usando apenas memória.");
+            ImageGenerator.configurarCache(new RenderCache(capacidade));
+        }
+    }
+
+    /**
+     * Configura as fórmulas dos sub-atributos a partir do .env.
+     * Sem FORMULAS_ARQUIVO, valem as fórmulas padrão embutidas no jar. Com ele, as fórmulas são lidas
+     * desse arquivo (criado com as padrão se não existir) e recarregadas sempre que ele for alterado.
+     */
+    private static void configurarFormulas(Dotenv dotenv) {
+        String arquivo = dotenv.get("FORMULAS_ARQUIVO");
+        if (arquivo == null || arquivo.isBlank()) {
+            return;
+        }
+        try {
+            MotorFormulas motor = MotorFormulas.deArquivo(Path.of(arquivo.trim()));
+            MotorFormulas.configurar(motor);
+            motor.observar();
+            System.out.println("Fórmulas dos sub-atributos carregadas de " + arquivo.trim() + ".");
+        } catch (IOException | MotorFormulas.FormulaException e) {
+            System.err.println("Não foi possível carregar as fórmulas de " + arquivo.trim() + " (" + e.getMessage() + "). Usando as fórmulas padrão.");
+        }
+    }
+
+    /**
+     * Inicia o servidor HTTP embutido (HTTP_PORTA) e configura o armazém de avatares a partir do .env.
+     * O servidor também expõe as métricas no formato do Prometheus, a menos que METRICAS seja false.
+     * As fotos só passam a ser servidas localmente com AVATARES_URL_PUBLICA, o endereço pelo qual
+     * o Discord alcança esse servidor; sem ele, ou se o servidor não puder ser aberto, os personagens
+     * continuam usando as URLs externas.
+     */
+    private static void configurarServidorHttp(Dotenv dotenv) {
+        String porta = dotenv.get("HTTP_PORTA", "").trim();
+        if (!porta.isEmpty()) {
+            try {
+                servidorHttp = new ServidorHttp(Integer.parseInt(porta));
+            } catch (IOException e) {
+                System.err.println("Não foi possível abrir o servidor HTTP na porta " + porta + ": " + e.getMessage());
+            }
+        }
+
+        String urlPublica = dotenv.get("AVATARES_URL_PUBLICA", "").trim();
+        if (servidorHttp == null && !urlPublica.isEmpty()) {
+            System.err.println("AVATARES_URL_PUBLICA exige HTTP_PORTA; as fotos continuarão usando as URLs externas.");
+            urlPublica = "";
+        }
+        ArmazemAvatares avatares = new ArmazemAvatares(
+                Path.of(dotenv.get("AVATARES_DIR", "dados/avatares").trim()),
+                urlPublica,
+                Integer.parseInt(dotenv.get("AVATARES_LADO", "256").trim()),
+                Integer.parseInt(dotenv.get("AVATARES_CACHE_MAX", "256").trim()));
+        ArmazemAvatares.configurar(avatares);
+
+        if (servidorHttp != null) {
+            servidorHttp.registrar(ArmazemAvatares.CAMINHO_HTTP, avatares.handler());
+            if (Boolean.parseBoolean(dotenv.get("METRICAS", "true").trim())) {
+                servidorHttp.registrar(Metricas.CAMINHO_HTTP, Metricas.get().handler());
+            }
+            servidorHttp.iniciar();
+            System.out.println("Servidor HTTP iniciado na porta " + servidorHttp.getPorta() + ".");
+        }
+    }
+
+    /**
+     * Configura a gravação do Java Flight Recorder a partir do .env: a janela mantida (JFR_JANELA_MIN),
+     * o tamanho máximo (JFR_TAMANHO_MAX_MB) e onde o /gravacao salva os arquivos (JFR_DIR).
+     * Com JFR_GRAVACAO=true, a gravação já começa com o bot; senão, só quando um administrador a iniciar.
+     */
+    private static void configurarGravacaoJfr(Dotenv dotenv) {
+        GravacaoJfr gravacao = new GravacaoJfr(
+                Duration.ofMinutes(Long.parseLong(dotenv.get("JFR_JANELA_MIN", "10").trim())),
+                Long.parseLong(dotenv.get("JFR_TAMANHO_MAX_MB", "64").trim()) * 1024 * 1024,
+                Path.of(dotenv.get("JFR_DIR", "dados/jfr").trim()));
+        GravacaoJfr.configurar(gravacao);
+        if (Boolean.parseBoolean(dotenv.get("JFR_GRAVACAO", "false").trim())) {
+            try {
+                gravacao.iniciar();
+                System.out.println("Gravação do JFR iniciada (janela de " + dotenv.get("JFR_JANELA_MIN", "10").trim() + " min).");
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Não foi possível iniciar a gravação do JFR: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Expõe nas métricas os contadores que os componentes já mantêm nas suas estatísticas.
+     * Os valores são lidos a cada coleta, sempre do componente configurado no momento.
+     */
+    private static void registrarMetricas(PersonagemService service) {
+        Metricas m = Metricas.get();
+        m.medidor("bot_websocket_conexoes", "Conexões WebSocket abertas com o servidor de mini-jogos.",
+                () -> wsServer != null ? wsServer.getConnections().size() : 0);
+        m.medidor("bot_websocket_conexoes_autenticadas", "Usuários com uma conexão WebSocket autenticada.",
+                WebSocketServerManager::getConexoesAutenticadas);
+        m.medidor("bot_reflexo_sessoes_ativas", "Jogos de reflexo em andamento.", GameManager.activeReflexGames::size);
+
+        m.contadorLido("bot_render_total", "Renderizações executadas pelo agendador.",
+                () -> RenderScheduler.get().getEstatisticas().executadas());
+        m.contadorLido("bot_render_recusadas_total", "Renderizações recusadas por fila cheia.",
+                () -> RenderScheduler.get().getEstatisticas().recusadas());
+        m.medidor("bot_render_fila", "Renderizações aguardando no agendador.", () -> RenderScheduler.get().getEstatisticas().naFila());
+        m.contadorLido("bot_render_cache_acertos_total", "Fichas servidas pelo cache de imagens (memória ou disco).", () -> {
+            RenderCache.Estatisticas e = ImageGenerator.getRenderCache().getEstatisticas();
+            return e.acertosMemoria() + e.acertosDisco();
+        });
+        m.contadorLido("bot_render_cache_faltas_total", "Fichas não encontradas no cache de imagens.",
+                () -> ImageGenerator.getRenderCache().getEstatisticas().faltas());
+        m.contadorLido("bot_embed_cache_acertos_total", "Embeds servidos pelo cache.",
+                () -> EmbedManager.getEmbedCache().getEstatisticas().acertos());
+        m.contadorLido("bot_embed_cache_faltas_total", "Embeds não encontrados no cache.",
+                () -> EmbedManager.getEmbedCache().getEstatisticas().faltas());
+        m.contadorLido("bot_retrato_cache_acertos_total", "Retratos do cartão servidos pelo cache.",
+                () -> RetratoCache.get().getEstatisticas().acertos());
+        m.contadorLido("bot_retrato_cache_faltas_total", "Retratos do cartão não encontrados no cache.",
+                () -> RetratoCache.get().getEstatisticas().faltas());
+        m.contadorLido("bot_personagem_cache_acertos_total", "Personagens servidos pelo cache.",
+                () -> service.getCache().getEstatisticas().acertos());
+        m.contadorLido("bot_personagem_cache_faltas_total", "Personagens buscados no repositório.",
+                () -> service.getCache().getEstatisticas().faltas());
+
+        m.contadorLido("bot_interacoes_total", "Interações tratadas pelo despachante.",
+                () -> DespachanteInteracoes.get().getEstatisticas().executadas());
+        m.contadorLido("bot_interacoes_recusadas_total", "Interações recusadas por caixa do usuário cheia.",
+                () -> DespachanteInteracoes.get().getEstatisticas().recusadas());
+        m.medidor("bot_interacoes_em_execucao", "Interações sendo tratadas neste momento.",
+                () -> DespachanteInteracoes.get().getEstatisticas().emExecucao());
+        m.contadorLido("bot_limite_usuario_total", "Interações recusadas pelo limite de uso do usuário.",
+                () -> LimitadorTaxa.get().getEstatisticas().limitadasUsuario());
+        m.contadorLido("bot_limite_servidor_total", "Interações recusadas pelo limite de uso do servidor.",
+                () -> LimitadorTaxa.get().getEstatisticas().limitadasServidor());
+
+        PersonagemRepository destino = repositorio instanceof WriteBehindPersonagemRepository adiada
+                ? adiada.getDestino() : repositorio;
+        if (destino instanceof PostgresPersonagemRepository postgres) {
+            ConnectionPool pool = postgres.getPool();
+            m.medidor("bot_db_conexoes_em_uso", "Conexões do pool emprestadas.", () -> pool.getEstatisticas().emUso());
+            m.medidor("bot_db_conexoes_ociosas", "Conexões do pool disponíveis.", () -> pool.getEstatisticas().ociosas());
+            m.contadorLido("bot_db_timeouts_total", "Esperas por conexão que estouraram o tempo limite.",
+                    () -> pool.getEstatisticas().timeouts());
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.bot;
+
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Servidor HTTP embutido do bot (o {@link HttpServer} do próprio JDK), onde cada módulo registra
+ * os seus caminhos. Cada requisição é atendida em uma thread virtual.
+ */
+public final class ServidorHttp {
+
+    private final HttpServer servidor;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    /**
+     * @param porta A porta TCP a escutar, em todas as interfaces.
+     * @throws IOException Se a porta não puder ser aberta.
+     */
+    public ServidorHttp(int porta) throws IOException {
+        this.servidor = HttpServer.create(new InetSocketAddress(porta), 0);
+        this.servidor.setExecutor(executor);
+    }
+
+    /**
+     * Registra um handler para todas as requisições cujo caminho começa com {@code prefixo}.
+     */
+    public void registrar(String prefixo, HttpHandler handler) {
+        servidor.createContext(prefixo, handler);
+    }
+
+    public void iniciar() {
+        servidor.start();
+    }
+
+    public int getPorta() {
+        return servidor.getAddress().getPort();
+    }
+
+    /**
+     * Para de aceitar conexões e espera até um segundo pelas requisições em andamento.
+     */
+    public void parar() {
+        servidor.stop(1);
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,544 @@
+package com.bot.discord;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Armazém local das fotos dos personagens, endereçado pelo conteúdo.
+ * <p>
+ * Cada imagem é baixada uma única vez, validada, reduzida para caber em {@code lado x lado} pixels,
+ * recodificada em PNG e gravada em {@code <diretorio>/<2 primeiros dígitos>/<sha256>.png}. Uploads
+ * idênticos geram o mesmo PNG e, portanto, o mesmo arquivo. A origem de cada imagem baixada
+ * (URL → hash) fica registrada em {@code origens.tsv}, para que a mesma URL nunca seja baixada de novo,
+ * nem após um reinício.
+ * <p>
+ * O campo {@code foto_url} do personagem passa a guardar a referência {@code avatar:<sha256>},
+ * que {@link #urlPublica} traduz para o endereço do {@link #handler() servidor HTTP} do bot
+ * ({@code AVATARES_URL_PUBLICA}). URLs externas antigas (anexos do Discord, fotos padrão) continuam
+ * aceitas: na primeira exibição são importadas em segundo plano e, dali em diante, servidas localmente.
+ * <p>
+ * Na frente do disco há um LRU das imagens já decodificadas, usado por quem desenha com elas.
+ */
+public final class ArmazemAvatares {
+
+    /**
+     * Prefixo das referências a imagens do armazém guardadas em {@code foto_url}.
+     */
+    public static final String PREFIXO = "avatar:";
+    /**
+     * Caminho, no servidor HTTP, sob o qual as imagens são servidas.
+     */
+    public static final String CAMINHO_HTTP = "/avatares/";
+
+    private static final Pattern HASH = Pattern.compile("[0-9a-f]{64}");
+    private static final int BYTES_MAXIMOS = 10 * 1024 * 1024;
+    // Limite contra "bombas de descompressão": imagens pequenas em bytes e enormes em pixels.
+    private static final long PIXELS_MAXIMOS = 40_000_000L;
+    private static final long NOVA_TENTATIVA_MS = 60 * 60_000;
+
+    /**
+     * A imagem baixada ou enviada não pôde ser aceita (não é imagem, grande demais, formato não suportado).
+     */
+    public static final class ImagemInvalidaException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        public ImagemInvalidaException(String mensagem) {
+            super(mensagem);
+        }
+    }
+
+    /**
+     * Fotografia dos contadores do armazém.
+     *
+     * @param downloads   Imagens baixadas de URLs externas.
+     * @param gravadas    Imagens novas gravadas no disco.
+     * @param duplicadas  Imagens recebidas que já existiam no armazém.
+     * @param recusadas   Downloads ou imagens recusados.
+     */
+    public record Estatisticas(long downloads, long gravadas, long duplicadas, long recusadas,
+                               long acertosMemoria, long faltasMemoria, int imagensMemoria, int capacidadeMemoria, int origens) {}
+
+    private static volatile ArmazemAvatares instancia = new ArmazemAvatares(Path.of("dados", "avatares"), null, 256, 256);
+
+    private final Path diretorio;
+    private final String urlPublica;
+    private final int lado;
+    private final int capacidadeMemoria;
+    private final HttpClient http;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final Map<String, String> origens = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<String>> emAndamento = new ConcurrentHashMap<>();
+    private final Map<String, Long> falhas = new ConcurrentHashMap<>();
+    private final Map<String, BufferedImage> memoria;
+
+    private final LongAdder downloads = new LongAdder();
+    private final LongAdder gravadas = new LongAdder();
+    private final LongAdder duplicadas = new LongAdder();
+    private final LongAdder recusadas = new LongAdder();
+    private final LongAdder acertosMemoria = new LongAdder();
+    private final LongAdder faltasMemoria = new LongAdder();
+
+    /**
+     * @param diretorio         Diretório das imagens (criado na primeira gravação).
+     * @param urlPublica        Endereço público do servidor HTTP do bot (ex: {@code https://bot.exemplo.com}),
+     *                          ou {@code null} se as imagens não forem servidas.
+     * @param lado              Lado máximo, em pixels, das imagens guardadas.
+     * @param capacidadeMemoria Quantidade de imagens decodificadas mantidas em memória.
+     */
+    public ArmazemAvatares(Path diretorio, String urlPublica, int lado, int capacidadeMemoria) {
+        this.diretorio = diretorio;
+        this.urlPublica = urlPublica == null || urlPublica.isBlank() ? null : urlPublica.trim().replaceAll("/+$", "");
+        this.lado = Math.max(16, lado);
+        this.capacidadeMemoria = Math.max(1, capacidadeMemoria);
+        this.http = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(5))
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .executor(executor)
+                .build();
+        // LinkedHashMap em ordem de acesso: a entrada mais antiga é a menos usada recentemente.
+        this.memoria = new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, BufferedImage> eldest) {
+                return size() > ArmazemAvatares.this.capacidadeMemoria;
+            }
+        };
+        carregarOrigens();
+    }
+
+    public static ArmazemAvatares get() {
+        return instancia;
+    }
+
+    public static void configurar(ArmazemAvatares armazem) {
+        instancia = armazem;
+    }
+
+    /**
+     * @return {@code true} se as imagens são servidas pelo bot e podem ser referenciadas nos embeds.
+     */
+    public boolean isPublicado() {
+        return urlPublica != null;
+    }
+
+    /**
+     * @return A referência a guardar em {@code foto_url} para uma imagem do armazém.
+     */
+    public static String referencia(String hash) {
+        return PREFIXO + hash;
+    }
+
+    /**
+     * @return O hash de uma referência {@code avatar:<sha256>}, ou {@code null} se o texto não for uma.
+     */
+    public static String hashDaReferencia(String fotoUrl) {
+        if (fotoUrl == null || !fotoUrl.startsWith(PREFIXO)) {
+            return null;
+        }
+        String hash = fotoUrl.substring(PREFIXO.length());
+        return HASH.matcher(hash).matches() ? hash : null;
+    }
+
+    /**
+     * @return O hash da imagem de um {@code foto_url}, se ela já estiver no armazém (referência
+     * {@code avatar:} ou URL externa já importada); senão, {@code null}. Não faz nenhum download.
+     */
+    public String hashConhecido(String fotoUrl) {
+        String hash = hashDaReferencia(fotoUrl);
+        return hash != null || fotoUrl == null ? hash : origens.get(fotoUrl);
+    }
+
+    /**
+     * Traduz o {@code foto_url} de um personagem para a URL a usar no embed.
+     * <p>
+     * Referências do armazém viram o endereço do servidor HTTP do bot. URLs externas já importadas
+     * também; as ainda não importadas são devolvidas como estão e importadas em segundo plano.
+     *
+     * @return A URL, ou {@code null} se não houver imagem a exibir.
+     */
+    public String urlPublica(String fotoUrl) {
+        if (fotoUrl == null || fotoUrl.isBlank()) {
+            return null;
+        }
+        String hash = hashDaReferencia(fotoUrl);
+        if (hash != null) {
+            return urlPublica == null ? null : urlPublica + CAMINHO_HTTP + hash + ".png";
+        }
+        if (urlPublica == null || !(fotoUrl.startsWith("https://") || fotoUrl.startsWith("http://"))) {
+            return fotoUrl;
+        }
+        hash = origens.get(fotoUrl);
+        if (hash != null) {
+            return urlPublica + CAMINHO_HTTP + hash + ".png";
+        }
+        importarAsync(fotoUrl).exceptionally(ex -> null);
+        return fotoUrl;
+    }
+
+    /**
+     * Importa uma imagem de uma URL em uma thread virtual.
+     * Importações simultâneas da mesma URL compartilham o mesmo download.
+     *
+     * @return O hash da imagem; falha com {@link ImagemInvalidaException} (dentro de uma
+     * {@link CompletionException}) se a imagem for recusada.
+     */
+    public CompletableFuture<String> importarAsync(String url) {
+        String conhecido = origens.get(url);
+        if (conhecido != null) {
+            return CompletableFuture.completedFuture(conhecido);
+        }
+        return emAndamento.computeIfAbsent(url, u -> CompletableFuture.supplyAsync(() -> {
+            try {
+                return importar(u);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            } finally {
+                emAndamento.remove(u);
+            }
+        }, executor));
+    }
+
+    /**
+     * Baixa, valida e guarda a imagem de uma URL. Uma URL já importada não é baixada de novo,
+     * e uma que falhou só é tentada novamente depois de uma hora.
+     *
+     * @return O hash da imagem.
+     */
+    public String importar(String url) throws IOException {
+        String conhecido = origens.get(url);
+        if (conhecido != null) {
+            return conhecido;
+        }
+        Long falha = falhas.get(url);
+        if (falha != null && System.currentTimeMillis() - falha < NOVA_TENTATIVA_MS) {
+            throw new IOException("O download de " + url + " falhou há pouco; tentando de novo mais tarde.");
+        }
+        try {
+            String hash = guardar(baixar(url));
+            registrarOrigem(url, hash);
+            falhas.remove(url);
+            return hash;
+        } catch (IOException e) {
+            falhas.put(url, System.currentTimeMillis());
+            throw e;
+        }
+    }
+
+    /**
+     * Valida, reduz e guarda uma imagem.
+     *
+     * @param original Os bytes da imagem em qualquer formato suportado pelo ImageIO (PNG, JPEG, GIF, BMP).
+     * @return O hash SHA-256 do PNG guardado.
+     */
+    public String guardar(byte[] original) throws IOException {
+        BufferedImage imagem = reduzir(decodificar(original), lado);
+        ByteArrayOutputStream saida = new ByteArrayOutputStream(32 * 1024);
+        ImageIO.write(imagem, "png", saida);
+        byte[] png = saida.toByteArray();
+        String hash = sha256(png);
+
+        Path destino = arquivo(hash);
+        if (Files.exists(destino)) {
+            duplicadas.increment();
+        } else {
+            Files.createDirectories(destino.getParent());
+            // Escreve em um arquivo temporário e move, para nunca expor um PNG pela metade.
+            Path temporario = Files.createTempFile(destino.getParent(), "avatar-", ".tmp");
+            Files.write(temporario, png);
+            try {
+                Files.move(temporario, destino, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporario, destino, StandardCopyOption.REPLACE_EXISTING);
+            }
+            gravadas.increment();
+        }
+        synchronized (memoria) {
+            memoria.put(hash, imagem);
+        }
+        return hash;
+    }
+
+    /**
+     * Devolve uma imagem do armazém já decodificada, da memória ou do disco.
+     * A imagem é compartilhada e não deve ser alterada.
+     *
+     * @return A imagem, ou {@code null} se o hash não estiver no armazém.
+     */
+    public BufferedImage imagem(String hash) throws IOException {
+        synchronized (memoria) {
+            BufferedImage imagem = memoria.get(hash);
+            if (imagem != null) {
+                acertosMemoria.increment();
+                return imagem;
+            }
+        }
+        faltasMemoria.increment();
+        byte[] png = bytes(hash);
+        if (png == null) {
+            return null;
+        }
+        BufferedImage imagem = ImageIO.read(new ByteArrayInputStream(png));
+        if (imagem != null) {
+            synchronized (memoria) {
+                memoria.put(hash, imagem);
+            }
+        }
+        return imagem;
+    }
+
+    /**
+     * @return Os bytes do PNG guardado, ou {@code null} se o hash não estiver no armazém.
+     */
+    public byte[] bytes(String hash) throws IOException {
+        if (!HASH.matcher(hash).matches()) {
+            return null;
+        }
+        try {
+            return Files.readAllBytes(arquivo(hash));
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Atende {@code GET /avatares/<sha256>.png}. Como o conteúdo de um endereço nunca muda,
+     * a resposta pode ser guardada indefinidamente pelo proxy de mídia do Discord e pelos navegadores.
+     */
+    public HttpHandler handler() {
+        return this::atender;
+    }
+
+    private void atender(HttpExchange troca) throws IOException {
+        try (troca) {
+            String metodo = troca.getRequestMethod();
+            if (!metodo.equals("GET") && !metodo.equals("HEAD")) {
+                troca.sendResponseHeaders(405, -1);
+                return;
+            }
+            String nome = troca.getRequestURI().getPath().substring(CAMINHO_HTTP.length());
+            String hash = nome.endsWith(".png") ? nome.substring(0, nome.length() - 4) : nome;
+            byte[] png = bytes(hash);
+            if (png == null) {
+                troca.sendResponseHeaders(404, -1);
+                return;
+            }
+            String etag = '"' + hash + '"';
+            troca.getResponseHeaders().set("Content-Type", "image/png");
+            troca.getResponseHeaders().set("Cache-Control", "public, max-age=31536000, immutable");
+            troca.getResponseHeaders().set("ETag", etag);
+            if (etag.equals(troca.getRequestHeaders().getFirst("If-None-Match"))) {
+                troca.sendResponseHeaders(304, -1);
+                return;
+            }
+            if (metodo.equals("HEAD")) {
+                troca.sendResponseHeaders(200, -1);
+                return;
+            }
+            troca.sendResponseHeaders(200, png.length);
+            try (OutputStream corpo = troca.getResponseBody()) {
+                corpo.write(png);
+            }
+        }
+    }
+
+    public Estatisticas getEstatisticas() {
+        int emMemoria;
+        synchronized (memoria) {
+            emMemoria = memoria.size();
+        }
+        return new Estatisticas(downloads.sum(), gravadas.sum(), duplicadas.sum(), recusadas.sum(),
+                acertosMemoria.sum(), faltasMemoria.sum(), emMemoria, capacidadeMemoria, origens.size());
+    }
+
+    // --- Download e processamento ---
+
+    private byte[] baixar(String url) throws IOException {
+        URI uri;
+        try {
+            uri = URI.create(url);
+        } catch (IllegalArgumentException e) {
+            recusadas.increment();
+            throw new ImagemInvalidaException("URL inválida: " + url);
+        }
+        if (!"https".equals(uri.getScheme()) && !"http".equals(uri.getScheme())) {
+            recusadas.increment();
+            throw new ImagemInvalidaException("Apenas URLs http(s) podem ser importadas.");
+        }
+        HttpRequest pedido = HttpRequest.newBuilder(uri).timeout(Duration.ofSeconds(15)).GET().build();
+        HttpResponse<InputStream> resposta;
+        try {
+            resposta = http.send(pedido, HttpResponse.BodyHandlers.ofInputStream());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Download interrompido: " + url, e);
+        }
+        try (InputStream corpo = resposta.body()) {
+            if (resposta.statusCode() != 200) {
+                recusadas.increment();
+                throw new IOException("O download de " + url + " respondeu HTTP " + resposta.statusCode() + ".");
+            }
+            long declarado = resposta.headers().firstValueAsLong("Content-Length").orElse(-1);
+            if (declarado > BYTES_MAXIMOS) {
+                recusadas.increment();
+                throw new ImagemInvalidaException("A imagem passa do limite de " + BYTES_MAXIMOS / (1024 * 1024) + " MB.");
+            }
+            // Lê no máximo um byte além do limite, mesmo que o tamanho não tenha sido declarado.
+            byte[] dados = corpo.readNBytes(BYTES_MAXIMOS + 1);
+            if (dados.length > BYTES_MAXIMOS) {
+                recusadas.increment();
+                throw new ImagemInvalidaException("A imagem passa do limite de " + BYTES_MAXIMOS / (1024 * 1024) + " MB.");
+            }
+            downloads.increment();
+            return dados;
+        }
+    }
+
+    /**
+     * Decodifica o primeiro quadro da imagem, conferindo as dimensões antes de alocar os pixels.
+     */
+    private BufferedImage decodificar(byte[] dados) throws ImagemInvalidaException {
+        try (ImageInputStream entrada = ImageIO.createImageInputStream(new ByteArrayInputStream(dados))) {
+            Iterator<ImageReader> leitores = entrada == null ? null : ImageIO.getImageReaders(entrada);
+            if (leitores == null || !leitores.hasNext()) {
+                recusadas.increment();
+                throw new ImagemInvalidaException("O arquivo não é uma imagem suportada (use PNG, JPEG ou GIF).");
+            }
+            ImageReader leitor = leitores.next();
+            try {
+                leitor.setInput(entrada, true, true);
+                long pixels = (long) leitor.getWidth(0) * leitor.getHeight(0);
+                if (pixels > PIXELS_MAXIMOS || pixels <= 0) {
+                    recusadas.increment();
+                    throw new ImagemInvalidaException("A imagem tem dimensões inválidas ou grandes demais.");
+                }
+                return leitor.read(0);
+            } finally {
+                leitor.dispose();
+            }
+        } catch (ImagemInvalidaException e) {
+            throw e;
+        } catch (IOException | RuntimeException e) {
+            recusadas.increment();
+            throw new ImagemInvalidaException("A imagem está corrompida ou em um formato não suportado.");
+        }
+    }
+
+    /**
+     * Reduz a imagem para caber em {@code lado x lado}, mantendo a proporção. Reduções sucessivas
+     * pela metade, com interpolação bilinear, dão qualidade próxima da bicúbica a um custo baixo.
+     */
+    static BufferedImage reduzir(BufferedImage origem, int lado) {
+        int largura = origem.getWidth();
+        int altura = origem.getHeight();
+        double escala = Math.min(1.0, (double) lado / Math.max(largura, altura));
+        int larguraFinal = Math.max(1, (int) Math.round(largura * escala));
+        int alturaFinal = Math.max(1, (int) Math.round(altura * escala));
+
+        BufferedImage atual = redimensionar(origem, largura, altura);
+        while (atual.getWidth() / 2 >= larguraFinal && atual.getHeight() / 2 >= alturaFinal) {
+            atual = redimensionar(atual, atual.getWidth() / 2, atual.getHeight() / 2);
+        }
+        if (atual.getWidth() != larguraFinal || atual.getHeight() != alturaFinal) {
+            atual = redimensionar(atual, larguraFinal, alturaFinal);
+        }
+        return atual;
+    }
+
+    /**
+     * Desenha a imagem em uma nova imagem ARGB do tamanho pedido (também normaliza o tipo de pixel).
+     */
+    private static BufferedImage redimensionar(BufferedImage origem, int largura, int altura) {
+        BufferedImage destino = new BufferedImage(largura, altura, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = destino.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.drawImage(origem, 0, 0, largura, altura, null);
+        } finally {
+            g.dispose();
+        }
+        return destino;
+    }
+
+    private static String sha256(byte[] dados) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(dados));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponível", e);
+        }
+    }
+
+    private Path arquivo(String hash) {
+        return diretorio.resolve(hash.substring(0, 2)).resolve(hash + ".png");
+    }
+
+    // --- Registro de origens (URL → hash) ---
+
+    private Path arquivoOrigens() {
+        return diretorio.resolve("origens.tsv");
+    }
+
+    private void carregarOrigens() {
+        try {
+            for (String linha : Files.readAllLines(arquivoOrigens(), StandardCharsets.UTF_8)) {
+                int tab = linha.lastIndexOf('\t');
+                if (tab > 0 && HASH.matcher(linha.substring(tab + 1)).matches()
+                        && Files.exists(arquivo(linha.substring(tab + 1)))) {
+                    origens.put(linha.substring(0, tab), linha.substring(tab + 1));
+                }
+            }
+        } catch (NoSuchFileException e) {
+            // Armazém novo.
+        } catch (IOException e) {
+            System.err.println("Erro ao ler o registro de origens dos avatares: " + e.getMessage());
+        }
+    }
+
+    private synchronized void registrarOrigem(String url, String hash) {
+        if (origens.putIfAbsent(url, hash) != null || url.indexOf('\n') >= 0 || url.indexOf('\t') >= 0) {
+            return;
+        }
+        try {
+            Files.writeString(arquivoOrigens(), url + '\t' + hash + '\n', StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            System.err.println("Erro ao registrar a origem de um avatar: " + e.getMessage());
+        }
+    }
+}
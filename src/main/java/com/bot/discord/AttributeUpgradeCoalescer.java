@@ -0,0 +1,360 @@
+package com.bot.discord;
+
+import com.bot.Bot;
+import com.bot.model.Personagem;
+import com.bot.service.PersonagemService;
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.entities.MessageEmbed;
+import net.dv8tion.jda.api.entities.User;
+import net.dv8tion.jda.api.events.interaction.component.ButtonInteractionEvent;
+import net.dv8tion.jda.api.interactions.InteractionHook;
+import net.dv8tion.jda.api.interactions.components.ActionRow;
+import net.dv8tion.jda.api.requests.restaction.WebhookMessageEditAction;
+import net.dv8tion.jda.api.utils.FileUpload;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Agrupa cliques rápidos nos botões de atributo de uma mesma mensagem em um único
+ * salvamento e uma única re-renderização.
+ * <p>
+ * Cada clique é confirmado imediatamente ({@code deferEdit}) e aplicado a um estado em memória,
+ * validado com {@link PersonagemService#podeAumentarAtributo}. O salvamento no banco e a edição
+ * da mensagem com a nova imagem só acontecem quando os cliques param por {@link #ESPERA_MS}
+ * (ou, em cliques contínuos, no máximo {@link #ESPERA_MAXIMA_MS} após o primeiro clique pendente),
+ * sempre com o estado mais recente.
+ * <p>
+ * O salvamento envia apenas os pontos gastos desde o último salvamento, por meio de
+ * {@link PersonagemService#gastarPontos}, que revalida saldo e regra de equilíbrio no próprio banco.
+ * Se o banco recusar (por exemplo, pontos gastos em outra mensagem) ou o salvamento falhar, a sessão
+ * volta ao estado real, relido do banco, e a ficha é re-renderizada com ele.
+ * <p>
+ * Cada estado exibível recebe uma versão, guardada por usuário e mensagem e não por sessão: uma
+ * renderização atrasada de uma sessão já encerrada nunca sobrescreve a de uma sessão mais nova
+ * da mesma mensagem.
+ */
+public final class AttributeUpgradeCoalescer {
+
+    static final long ESPERA_MS = 750;
+    static final long ESPERA_MAXIMA_MS = 3000;
+
+    /**
+     * Estado acumulado dos cliques de uma mensagem. Todo acesso é sincronizado na própria sessão.
+     */
+    private static final class Sessao {
+        final String chave;
+        final String chaveVersao;
+        final PersonagemService service;
+        // Estado exibido: o último estado confirmado pelo banco mais os pontos pendentes.
+        Personagem personagem;
+        // Pontos gastos por atributo ainda não enviados ao banco, na ordem de PersonagemService.ATRIBUTOS.
+        final int[] pendentes = new int[PersonagemService.ATRIBUTOS.size()];
+        // Serializa os salvamentos da sessão, para que um resultado antigo nunca sobrescreva um mais novo.
+        final Object escrita = new Object();
+        User user;
+        InteractionHook hook;
+        List<ActionRow> botoes;
+        long versao;
+        long primeiroPendenteEm;
+        ScheduledFuture<?> descarga;
+        boolean encerrada;
+
+        Sessao(String chave, PersonagemService service, Personagem personagem) {
+            this.chave = chave;
+            this.chaveVersao = personagem.getUserId() + ":" + chave;
+            this.service = service;
+            this.personagem = personagem;
+        }
+
+        /**
+         * Marca o estado atual como o mais recente da mensagem.
+         */
+        void novaVersao() {
+            versao = sequenciaVersoes.incrementAndGet();
+            ultimasVersoes.put(chaveVersao, versao);
+        }
+
+        /**
+         * Retira os pontos pendentes para envio ao banco.
+         */
+        int[] retirarPendentes() {
+            int[] deltas = pendentes.clone();
+            Arrays.fill(pendentes, 0);
+            return deltas;
+        }
+    }
+
+    private static final Map<String, Sessao> sessoes = new ConcurrentHashMap<>();
+    // Versão mais recente de cada "usuário:mensagem"; a entrada sai quando essa versão é exibida.
+    private static final Map<String, Long> ultimasVersoes = new ConcurrentHashMap<>();
+    private static final AtomicLong sequenciaVersoes = new AtomicLong();
+
+    private static final ScheduledExecutorService agendador = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "coalescer-atributos");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private AttributeUpgradeCoalescer() {}
+
+    /**
+     * Registra um clique em um botão de atributo.
+     *
+     * @param event     O evento do clique.
+     * @param service   O serviço de personagem.
+     * @param userId    O ID do dono do personagem.
+     * @param atributo  O atributo a ser aumentado (ex: "corpo").
+     * @return Um futuro completado quando o clique foi aplicado à sessão da mensagem. Não espera o
+     *         salvamento agrupado, para que os cliques seguintes do usuário continuem entrando na mesma sessão.
+     */
+    public static CompletableFuture<Void> registrarClique(ButtonInteractionEvent event, PersonagemService service, String userId, String atributo) {
+        event.deferEdit().queue();
+
+        if (aplicarEmSessaoExistente(event, atributo)) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        // Primeiro clique da rajada: é o único que lê o banco, fora da thread de eventos.
+        return service.buscarPorUsuarioAsync(userId).thenAccept(personagemOpt -> {
+            if (personagemOpt.isEmpty()) {
+                event.getHook().editOriginal("Erro: Personagem não encontrado.")
+                        .setComponents(Collections.emptyList()).queue();
+                return;
+            }
+            String chave = event.getMessageId();
+            while (!aplicarEmSessaoExistente(event, atributo)) {
+                Sessao nova = new Sessao(chave, service, personagemOpt.get());
+                synchronized (nova) {
+                    if (sessoes.putIfAbsent(chave, nova) == null) {
+                        nova.novaVersao();
+                        aplicarClique(nova, event, atributo);
+                        return;
+                    }
+                }
+                // Outro clique criou a sessão enquanto o banco era consultado; usa a dele.
+            }
+        });
+    }
+
+    /**
+     * Aplica o clique à sessão ativa da mensagem, se houver.
+     *
+     * @return {@code false} se não há sessão ativa (ou ela acabou de ser encerrada).
+     */
+    private static boolean aplicarEmSessaoExistente(ButtonInteractionEvent event, String atributo) {
+        Sessao sessao = sessoes.get(event.getMessageId());
+        if (sessao == null) {
+            return false;
+        }
+        synchronized (sessao) {
+            if (sessao.encerrada) {
+                return false;
+            }
+            aplicarClique(sessao, event, atributo);
+            return true;
+        }
+    }
+
+    private static void aplicarClique(Sessao sessao, ButtonInteractionEvent event, String atributo) {
+        Personagem p = sessao.personagem;
+        sessao.user = event.getUser();
+        sessao.hook = event.getHook();
+        sessao.botoes = event.getMessage().getActionRows();
+
+        int indice = PersonagemService.indiceAtributo(atributo);
+        if (indice >= 0 && p.getPontosDisponiveis() > 0 && sessao.service.podeAumentarAtributo(p, atributo)) {
+            somar(p, indice, 1);
+            sessao.pendentes[indice]++;
+            sessao.novaVersao();
+        }
+
+        long agora = System.currentTimeMillis();
+        if (sessao.descarga == null) {
+            sessao.primeiroPendenteEm = agora;
+        } else {
+            sessao.descarga.cancel(false);
+        }
+        long espera = Math.min(ESPERA_MS, Math.max(0, sessao.primeiroPendenteEm + ESPERA_MAXIMA_MS - agora));
+        sessao.descarga = agendador.schedule(() -> Bot.EXECUTOR.execute(() -> descarregar(sessao)), espera, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Salva os pontos pendentes da sessão e edita a mensagem com a nova ficha.
+     */
+    private static void descarregar(Sessao sessao) {
+        Personagem snapshot;
+        long versao;
+        InteractionHook hook;
+        User user;
+        List<ActionRow> botoes;
+        synchronized (sessao.escrita) {
+            String userId;
+            int[] deltas;
+            synchronized (sessao) {
+                sessao.descarga = null;
+                userId = sessao.personagem.getUserId();
+                deltas = sessao.retirarPendentes();
+            }
+
+            Personagem confirmado = null;
+            boolean recusado = false;
+            boolean falhou = false;
+            if (temAlgum(deltas)) {
+                try {
+                    confirmado = gastar(sessao.service, userId, deltas).orElse(null);
+                } catch (RuntimeException e) {
+                    // Não se sabe se o gasto chegou ao banco; os pontos não podem ser reenviados às cegas.
+                    System.err.println("Erro ao salvar os pontos de atributo de " + userId + ": " + e.getMessage());
+                    e.printStackTrace();
+                }
+                if (confirmado == null) {
+                    // O banco recusou o gasto (ou ele falhou): volta ao estado real do personagem.
+                    recusado = true;
+                    try {
+                        confirmado = sessao.service.buscarPorUsuario(userId).orElse(null);
+                    } catch (RuntimeException e) {
+                        falhou = true;
+                        System.err.println("Erro ao reler o personagem de " + userId + ": " + e.getMessage());
+                        e.printStackTrace();
+                    }
+                }
+            }
+
+            synchronized (sessao) {
+                if (recusado && confirmado == null) {
+                    // O personagem não existe mais, ou o estado real não pôde ser lido: os pontos
+                    // exibidos não são confiáveis, então a ficha sai da tela.
+                    sessao.encerrada = true;
+                    sessoes.remove(sessao.chave, sessao);
+                    ultimasVersoes.remove(sessao.chaveVersao, sessao.versao);
+                    if (sessao.descarga != null) {
+                        sessao.descarga.cancel(false);
+                    }
+                    String mensagem = falhou
+                            ? "Ocorreu um erro ao salvar os pontos. Abra a ficha novamente para ver os valores atuais."
+                            : "Erro: Personagem não encontrado.";
+                    sessao.hook.editOriginal(mensagem)
+                            .setEmbeds(Collections.emptyList()).setComponents(Collections.emptyList()).queue();
+                    return;
+                }
+                if (confirmado != null) {
+                    // Reaplica sobre o estado confirmado os cliques que chegaram durante o salvamento;
+                    // eles serão validados pelo banco na próxima descarga.
+                    for (int i = 0; i < sessao.pendentes.length; i++) {
+                        somar(confirmado, i, sessao.pendentes[i]);
+                    }
+                    sessao.personagem = confirmado;
+                    if (recusado) {
+                        sessao.novaVersao();
+                    }
+                }
+                versao = sessao.versao;
+                snapshot = new Personagem(sessao.personagem);
+                hook = sessao.hook;
+                user = sessao.user;
+                botoes = sessao.botoes;
+                // Sem cliques novos desde o salvamento: a sessão pode ser descartada.
+                if (sessao.descarga == null && !temAlgum(sessao.pendentes)) {
+                    sessao.encerrada = true;
+                    sessoes.remove(sessao.chave, sessao);
+                }
+            }
+        }
+
+        RenderScheduler.get().renderizar(snapshot, RenderScheduler.Faixa.INTERATIVO).whenComplete((imagem, ex) -> {
+            Long ultima = ultimasVersoes.get(sessao.chaveVersao);
+            if (ultima == null || ultima != versao) {
+                return; // Já existe um estado mais novo, desta sessão ou de outra; a descarga dele fará a edição.
+            }
+            ultimasVersoes.remove(sessao.chaveVersao, versao);
+
+            WebhookMessageEditAction<Message> editAction;
+            if (ex == null) {
+                MessageEmbed embed = EmbedManager.buildPersonagemEmbedWithImage(snapshot, user);
+                editAction = hook.editOriginalAttachments(FileUpload.fromData(imagem, "ficha_atributos.png"))
+                        .setEmbeds(embed);
+            } else if (RenderScheduler.isRecusa(ex)) {
+                // Fila de renderização cheia: atualiza a ficha apenas com texto.
+                editAction = hook.editOriginalAttachments(Collections.emptyList())
+                        .setEmbeds(EmbedManager.buildPersonagemEmbedTextOnly(snapshot, user));
+            } else {
+                System.err.println("Erro ao re-gerar imagem de atributos: " + ex.getMessage());
+                ex.printStackTrace();
+                hook.sendMessage("Ocorreu um erro ao atualizar a ficha.").setEphemeral(true).queue();
+                return;
+            }
+
+            // Se os pontos acabaram, remove os botões; caso contrário, mantém os da mensagem.
+            editAction.setComponents(snapshot.getPontosDisponiveis() <= 0 ? Collections.emptyList() : botoes);
+            editAction.queue();
+        });
+    }
+
+    /**
+     * Salva imediatamente os pontos pendentes de todas as sessões, sem re-renderizar.
+     * Chamado no desligamento do bot para não perder pontos gastos nos últimos instantes.
+     */
+    public static void descarregarPendentes() {
+        for (Sessao sessao : sessoes.values()) {
+            synchronized (sessao.escrita) {
+                String userId;
+                int[] deltas;
+                synchronized (sessao) {
+                    if (sessao.descarga != null) {
+                        sessao.descarga.cancel(false);
+                        sessao.descarga = null;
+                    }
+                    userId = sessao.personagem.getUserId();
+                    deltas = sessao.retirarPendentes();
+                    sessao.encerrada = true;
+                    sessoes.remove(sessao.chave, sessao);
+                    ultimasVersoes.remove(sessao.chaveVersao);
+                }
+                if (temAlgum(deltas)) {
+                    try {
+                        gastar(sessao.service, userId, deltas);
+                    } catch (RuntimeException e) {
+                        System.err.println("Erro ao salvar os pontos de atributo de " + userId + " no desligamento: " + e.getMessage());
+                    }
+                }
+            }
+        }
+        agendador.shutdown();
+    }
+
+    private static Optional<Personagem> gastar(PersonagemService service, String userId, int[] deltas) {
+        return service.gastarPontos(userId, deltas[0], deltas[1], deltas[2], deltas[3]);
+    }
+
+    private static boolean temAlgum(int[] deltas) {
+        for (int d : deltas) {
+            if (d != 0) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Soma {@code pontos} ao atributo de índice {@code indice}, descontando-os dos pontos disponíveis.
+     */
+    private static void somar(Personagem p, int indice, int pontos) {
+        if (pontos == 0) return;
+        p.setPontosDisponiveis(p.getPontosDisponiveis() - pontos);
+        switch (PersonagemService.ATRIBUTOS.get(indice)) {
+            case "corpo" -> p.setCorpo(p.getCorpo() + pontos);
+            case "destreza" -> p.setDestreza(p.getDestreza() + pontos);
+            case "mente" -> p.setMente(p.getMente() + pontos);
+            case "vontade" -> p.setVontade(p.getVontade() + pontos);
+        }
+    }
+}
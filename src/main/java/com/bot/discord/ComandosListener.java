@@ -1,22 +1,43 @@
 package com.bot.discord;
 
 import com.bot.discord.comandos.ICommand;
+import com.bot.metricas.Eventos;
 import com.bot.service.PersonagemService;
 import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
 import net.dv8tion.jda.api.events.interaction.component.ButtonInteractionEvent;
 import net.dv8tion.jda.api.hooks.ListenerAdapter;
+import net.dv8tion.jda.api.interactions.callbacks.IReplyCallback;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
  * Ouve os eventos do Discord e os delega para os handlers apropriados.
  * A responsabilidade desta classe é puramente de despachar eventos.
+ * <p>
+ * Os handlers não rodam na thread de eventos da JDA: cada interação vai para a caixa do usuário
+ * no {@link DespachanteInteracoes}, que as executa em ordem por usuário e em paralelo entre usuários.
+ * Antes disso, o {@link LimitadorTaxa} cobra o custo da interação; se o usuário ou o servidor
+ * tiverem excedido o limite, a interação é respondida na hora, sem tocar no banco.
+ * Cada handler devolve o futuro de todo o seu trabalho; uma falha que chega a esse futuro (e não foi
+ * tratada pelo próprio handler) é registrada aqui.
+ * <p>
+ * A chegada de cada interação admitida é registrada no {@link MedidorInteracoes}, que mede o tempo
+ * até a confirmação e até a resposta final, além do tempo de execução do handler (até o futuro
+ * devolvido por ele completar, sem a espera na fila do usuário), que também é emitido como evento
+ * do JFR ({@link Eventos.Interacao}) durante uma gravação.
  */
 public class ComandosListener extends ListenerAdapter {
 
+    private static final String MENSAGEM_LIMITE_USUARIO = "⏳ Devagar! Você poderá fazer isso de novo em %d s.";
+    private static final String MENSAGEM_LIMITE_SERVIDOR = "⏳ O bot está recebendo muitos pedidos deste servidor. Tente de novo em %d s.";
+    private static final String MENSAGEM_OCUPADO = "Você tem muitas ações em andamento. Aguarde um instante e tente novamente.";
+
     private final PersonagemService service;
     private final Map<String, ICommand> commandMap;
 
@@ -41,12 +62,16 @@ public class ComandosListener extends ListenerAdapter {
      */
     @Override
     public void onSlashCommandInteraction(SlashCommandInteractionEvent event) {
+        long chegada = System.nanoTime();
         ICommand command = commandMap.get(event.getName());
-        if (command != null) {
-            command.execute(event, service);
-        } else {
+        if (command == null) {
             event.reply("Erro: O comando '" + event.getName() + "' não foi encontrado.").setEphemeral(true).queue();
+            return;
+        }
+        if (!admitir(event, command.getCusto())) {
+            return;
         }
+        despachar(event, command.getName(), chegada, () -> command.execute(event, service));
     }
 
     /**
@@ -57,6 +82,77 @@ public class ComandosListener extends ListenerAdapter {
      */
     @Override
     public void onButtonInteraction(ButtonInteractionEvent event) {
-        InteractionManager.handleButtonInteraction(event, service);
+        long chegada = System.nanoTime();
+        if (!admitir(event, InteractionManager.custo(event.getComponentId()))) {
+            return;
+        }
+        despachar(event, nomeDoBotao(event.getComponentId()), chegada,
+                () -> InteractionManager.handleButtonInteraction(event, service));
+    }
+
+    /**
+     * Coloca o handler na caixa do usuário, medindo a interação, ou responde que o usuário está ocupado.
+     */
+    private static void despachar(IReplyCallback event, String nome, long chegada,
+                                  Supplier<? extends CompletionStage<?>> handler) {
+        MedidorInteracoes.Medidas medidas = MedidorInteracoes.medidas(nome);
+        MedidorInteracoes.iniciar(event.getToken(), medidas, chegada);
+        boolean aceita = DespachanteInteracoes.get().despachar(event.getUser().getId(), () -> {
+            Eventos.Interacao evento = new Eventos.Interacao();
+            evento.begin();
+            long inicio = System.nanoTime();
+            CompletionStage<?> etapa;
+            try {
+                etapa = handler.get();
+            } catch (Throwable t) {
+                // Uma exceção antes de o handler devolver o futuro é tratada como uma falha dele.
+                etapa = CompletableFuture.failedFuture(t);
+            }
+            return etapa.whenComplete((r, ex) -> {
+                boolean falhou = ex != null;
+                medidas.registrarExecucao(inicio, falhou);
+                evento.end();
+                if (evento.shouldCommit()) {
+                    evento.interacao = nome;
+                    evento.usuario = event.getUser().getId();
+                    evento.servidor = event.getGuild() != null ? event.getGuild().getId() : null;
+                    evento.falhou = falhou;
+                    evento.commit();
+                }
+                if (falhou) {
+                    System.err.println("Erro inesperado na interação '" + nome + "': " + ex.getMessage());
+                    ex.printStackTrace();
+                }
+            });
+        });
+        if (!aceita) {
+            event.reply(MENSAGEM_OCUPADO).setEphemeral(true).queue();
+        }
+    }
+
+    /**
+     * As medidas de um botão são agrupadas pela ação (o prefixo do ID, ex: "attr-add"), não pelo ID inteiro.
+     */
+    private static String nomeDoBotao(String componentId) {
+        int fim = componentId.indexOf(':');
+        return "botao:" + (fim < 0 ? componentId : componentId.substring(0, fim));
+    }
+
+    /**
+     * Cobra o custo da interação no {@link LimitadorTaxa} e, se ela for recusada,
+     * responde ao usuário com o tempo de espera.
+     *
+     * @return {@code true} se a interação pode prosseguir.
+     */
+    private static boolean admitir(IReplyCallback event, int custo) {
+        String guildId = event.getGuild() != null ? event.getGuild().getId() : null;
+        LimitadorTaxa.Decisao decisao = LimitadorTaxa.get().consumir(event.getUser().getId(), guildId, custo);
+        if (decisao.permitida()) {
+            return true;
+        }
+        long segundos = Math.max(1, (decisao.esperaMs() + 999) / 1000);
+        String mensagem = String.format(decisao.porServidor() ? MENSAGEM_LIMITE_SERVIDOR : MENSAGEM_LIMITE_USUARIO, segundos);
+        event.reply(mensagem).setEphemeral(true).queue();
+        return false;
     }
-}
\ No newline at end of file
+}
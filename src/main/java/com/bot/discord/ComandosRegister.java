@@ -32,11 +32,18 @@ public final class ComandosRegister {
                 new DeletarCommand(),
                 new MostrarCommand(),
                 new ReflexoCommand(),
+                new RankingCommand(),
                 new ConectarClienteCommand(),
 
                 // Comandos de Administrador
                 new VerCommand(),
-                new UparCommand()
+                new UparCommand(),
+                new UparGrupoCommand(),
+                new CacheFichaCommand(),
+                new StatusBancoCommand(),
+                new GravacaoCommand(),
+                new ExportarCommand(),
+                new ImportarCommand()
         );
     }
 
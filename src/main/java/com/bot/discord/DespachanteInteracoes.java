@@ -0,0 +1,221 @@
+package com.bot.discord;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Tira o tratamento das interações (comandos e botões) da thread de eventos da JDA.
+ * <p>
+ * Cada usuário tem uma caixa de entrada: as interações dele são executadas uma de cada vez, na ordem
+ * de chegada, em uma thread virtual, enquanto as de usuários diferentes rodam em paralelo. Assim, uma
+ * consulta lenta ao banco ou uma renderização não atrasam os outros servidores, e dois cliques do mesmo
+ * usuário nunca são tratados ao mesmo tempo. O handler devolve o {@link CompletionStage} de todo o
+ * trabalho que encadeia (banco, renderização, respostas ao Discord), e a próxima interação do usuário
+ * só começa quando ele completa. Enquanto espera, a caixa não prende nenhuma thread. Um handler que não
+ * completa em {@link #LIMITE_EXECUCAO_MS} libera a caixa mesmo assim, para que um futuro esquecido
+ * não trave o usuário para sempre.
+ * <p>
+ * A caixa tem tamanho limitado: quando está cheia, a interação é recusada e o chamador responde ao
+ * usuário. Uma caixa é removida assim que esvazia, então usuários inativos não ocupam memória.
+ */
+public final class DespachanteInteracoes {
+
+    /**
+     * Fotografia dos contadores do despachante.
+     *
+     * @param caixasAtivas Usuários com interações na fila ou em execução.
+     * @param emExecucao   Interações sendo tratadas neste momento.
+     */
+    public record Estatisticas(long executadas, long recusadas, long falhas, int caixasAtivas, int emExecucao,
+                               int capacidadeCaixa, double esperaMediaMs, double esperaMaximaMs) {}
+
+    private record Tarefa(Supplier<? extends CompletionStage<?>> acao, long enfileiradaEm) {}
+
+    static final long LIMITE_EXECUCAO_MS = 60_000;
+
+    private static volatile DespachanteInteracoes instancia = new DespachanteInteracoes(16);
+
+    private final int capacidadeCaixa;
+    // A caixa existe enquanto houver tarefas dela; toda alteração passa pelo compute do mapa.
+    private final Map<String, ArrayDeque<Tarefa>> caixas = new ConcurrentHashMap<>();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final LongAdder executadas = new LongAdder();
+    private final LongAdder recusadas = new LongAdder();
+    private final LongAdder falhas = new LongAdder();
+    private final AtomicInteger emExecucao = new AtomicInteger();
+    private final LongAdder esperaTotalNanos = new LongAdder();
+    private final AtomicLong esperaMaximaNanos = new AtomicLong();
+
+    /**
+     * @param capacidadeCaixa Quantidade máxima de interações aguardando por usuário.
+     */
+    public DespachanteInteracoes(int capacidadeCaixa) {
+        this.capacidadeCaixa = Math.max(1, capacidadeCaixa);
+    }
+
+    public static DespachanteInteracoes get() {
+        return instancia;
+    }
+
+    /**
+     * Substitui o despachante global, desligando o anterior.
+     */
+    public static void configurar(DespachanteInteracoes novo) {
+        DespachanteInteracoes antigo = instancia;
+        instancia = novo;
+        antigo.desligar();
+    }
+
+    /**
+     * Coloca uma interação na caixa do usuário.
+     *
+     * @param userId O usuário que disparou a interação.
+     * @param acao   O tratamento da interação, que devolve o futuro de todo o trabalho encadeado por ele.
+     * @return {@code false} se a caixa do usuário estiver cheia (ou o despachante desligado) e a interação foi recusada.
+     */
+    public boolean despachar(String userId, Supplier<? extends CompletionStage<?>> acao) {
+        Tarefa tarefa = new Tarefa(acao, System.nanoTime());
+        boolean[] iniciar = {false};
+        boolean[] aceita = {false};
+        caixas.compute(userId, (id, caixa) -> {
+            if (caixa == null) {
+                caixa = new ArrayDeque<>(4);
+                iniciar[0] = true;
+            }
+            if (caixa.size() < capacidadeCaixa) {
+                caixa.add(tarefa);
+                aceita[0] = true;
+            }
+            return caixa;
+        });
+        if (!aceita[0]) {
+            recusadas.increment();
+            return false;
+        }
+        if (iniciar[0]) {
+            try {
+                executor.execute(() -> drenar(userId));
+            } catch (RejectedExecutionException e) {
+                caixas.remove(userId);
+                recusadas.increment();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public Estatisticas getEstatisticas() {
+        long total = executadas.sum();
+        double media = total == 0 ? 0 : esperaTotalNanos.sum() / (double) total / 1_000_000;
+        return new Estatisticas(total, recusadas.sum(), falhas.sum(), caixas.size(), emExecucao.get(),
+                capacidadeCaixa, media, esperaMaximaNanos.get() / 1_000_000.0);
+    }
+
+    /**
+     * Para de aceitar interações e aguarda brevemente as que estão na fila.
+     */
+    public void desligar() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Executa as tarefas do usuário em ordem até a caixa esvaziar; a caixa vazia é removida
+     * no mesmo passo atômico em que se descobre que ela acabou.
+     * <p>
+     * Enquanto os handlers completam na hora, o laço segue na mesma thread. Quando um deles devolve
+     * um futuro ainda pendente, a thread é liberada e a drenagem continua quando ele completar.
+     */
+    private void drenar(String userId) {
+        Tarefa[] proxima = new Tarefa[1];
+        while (true) {
+            proxima[0] = null;
+            caixas.computeIfPresent(userId, (id, caixa) -> {
+                proxima[0] = caixa.poll();
+                return proxima[0] == null ? null : caixa;
+            });
+            Tarefa tarefa = proxima[0];
+            if (tarefa == null) {
+                return;
+            }
+            CompletableFuture<Void> concluida = executar(tarefa);
+            if (!concluida.isDone()) {
+                concluida.whenComplete((ok, ex) -> retomar(userId));
+                return;
+            }
+        }
+    }
+
+    /**
+     * Continua a drenagem da caixa em uma nova thread virtual. Se o despachante já foi desligado,
+     * as interações que restavam na caixa são descartadas.
+     */
+    private void retomar(String userId) {
+        try {
+            executor.execute(() -> drenar(userId));
+        } catch (RejectedExecutionException e) {
+            caixas.remove(userId);
+        }
+    }
+
+    /**
+     * Inicia o handler e devolve um futuro que completa (sem falhar) quando o trabalho dele termina
+     * ou quando o limite de execução se esgota. As falhas do handler são contadas aqui; quem as
+     * registra é o próprio handler (veja {@link ComandosListener}).
+     */
+    private CompletableFuture<Void> executar(Tarefa tarefa) {
+        long espera = System.nanoTime() - tarefa.enfileiradaEm();
+        esperaTotalNanos.add(espera);
+        esperaMaximaNanos.accumulateAndGet(espera, Math::max);
+        emExecucao.incrementAndGet();
+        CompletionStage<?> etapa;
+        try {
+            etapa = tarefa.acao().get();
+        } catch (Throwable t) {
+            System.err.println("Erro inesperado ao tratar uma interação:");
+            t.printStackTrace();
+            etapa = CompletableFuture.failedFuture(t);
+        }
+        CompletableFuture<Object> fim = new CompletableFuture<>();
+        if (etapa == null) {
+            fim.complete(null);
+        } else {
+            etapa.whenComplete((r, ex) -> {
+                if (ex != null) {
+                    fim.completeExceptionally(ex);
+                } else {
+                    fim.complete(r);
+                }
+            });
+        }
+        return fim.orTimeout(LIMITE_EXECUCAO_MS, TimeUnit.MILLISECONDS).handle((r, ex) -> {
+            emExecucao.decrementAndGet();
+            executadas.increment();
+            if (ex != null) {
+                falhas.increment();
+                if (ex instanceof TimeoutException) {
+                    System.err.println("Uma interação não terminou em " + LIMITE_EXECUCAO_MS / 1000
+                            + " s; a caixa do usuário foi liberada.");
+                }
+            }
+            return null;
+        });
+    }
+}
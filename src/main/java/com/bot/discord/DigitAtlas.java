@@ -0,0 +1,87 @@
+package com.bot.discord;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+
+/**
+ * Atlas de sprites com os dígitos (e o sinal de menos) pré-renderizados em uma
+ * única fonte e cor.
+ * <p>
+ * Os glifos são desenhados uma única vez na construção; cada renderização da ficha
+ * apenas copia os sprites prontos para a imagem final, sem rasterizar texto.
+ */
+final class DigitAtlas {
+
+    private static final String GLIFOS = "0123456789-";
+
+    // Margem lateral de cada sprite, para não cortar glifos que passam do avanço.
+    private static final int MARGEM = 2;
+
+    private final BufferedImage[] sprites = new BufferedImage[GLIFOS.length()];
+    private final int[] avancos = new int[GLIFOS.length()];
+    private final int ascent;
+
+    /**
+     * Pré-renderiza todos os glifos do atlas.
+     *
+     * @param fonte A fonte já no tamanho final de exibição.
+     * @param cor   A cor de preenchimento dos glifos.
+     */
+    DigitAtlas(Font fonte, Color cor) {
+        BufferedImage medidor = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D gm = medidor.createGraphics();
+        FontMetrics fm = gm.getFontMetrics(fonte);
+        this.ascent = fm.getAscent();
+        int altura = fm.getAscent() + fm.getDescent();
+        gm.dispose();
+
+        for (int i = 0; i < GLIFOS.length(); i++) {
+            char c = GLIFOS.charAt(i);
+            avancos[i] = fm.charWidth(c);
+
+            BufferedImage sprite = new BufferedImage(avancos[i] + MARGEM * 2, altura, BufferedImage.TYPE_INT_ARGB);
+            Graphics2D g = sprite.createGraphics();
+            g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            g.setRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS, RenderingHints.VALUE_FRACTIONALMETRICS_ON);
+            g.setFont(fonte);
+            g.setColor(cor);
+            g.drawString(String.valueOf(c), MARGEM, ascent);
+            g.dispose();
+            sprites[i] = sprite;
+        }
+    }
+
+    /**
+     * Desenha um número inteiro alinhado em relação a {@code ancoraX}, com a linha de base
+     * em {@code baseline} (equivalente ao {@code text-anchor} do SVG).
+     */
+    void desenhar(Graphics2D g, int valor, float ancoraX, float baseline, FichaTemplate.Alinhamento alinhamento) {
+        String texto = Integer.toString(valor);
+
+        int largura = 0;
+        for (int i = 0; i < texto.length(); i++) {
+            largura += avancos[indiceDe(texto.charAt(i))];
+        }
+
+        float inicio = switch (alinhamento) {
+            case INICIO -> ancoraX;
+            case MEIO -> ancoraX - largura / 2f;
+            case FIM -> ancoraX - largura;
+        };
+        int x = Math.round(inicio);
+        int y = Math.round(baseline) - ascent;
+        for (int i = 0; i < texto.length(); i++) {
+            int indice = indiceDe(texto.charAt(i));
+            g.drawImage(sprites[indice], x - MARGEM, y, null);
+            x += avancos[indice];
+        }
+    }
+
+    private static int indiceDe(char c) {
+        return c == '-' ? GLIFOS.length() - 1 : c - '0';
+    }
+}
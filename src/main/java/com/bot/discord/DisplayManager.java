@@ -1,6 +1,6 @@
 package com.bot.discord;
 
-import com.bot.Bot;
+import com.bot.metricas.Eventos;
 import com.bot.model.Personagem;
 import com.bot.service.PersonagemService;
 import net.dv8tion.jda.api.entities.MessageEmbed;
@@ -8,10 +8,10 @@ import net.dv8tion.jda.api.entities.User;
 import net.dv8tion.jda.api.interactions.InteractionHook;
 import net.dv8tion.jda.api.interactions.components.ActionRow;
 import net.dv8tion.jda.api.interactions.components.buttons.Button;
+import net.dv8tion.jda.api.requests.restaction.MessageEditAction;
 import net.dv8tion.jda.api.utils.FileUpload;
 
 import java.util.Collections;
-import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 
 /**
@@ -30,48 +30,79 @@ public class DisplayManager {
      * @param service A instância do PersonagemService.
      * @param showButtons Se true, os botões de upgrade serão exibidos se houver pontos.
      * @param initialMessage O texto inicial a ser exibido na resposta.
+     * @return Um futuro completado quando a ficha final (com imagem e botões) foi enviada ao Discord.
      */
-    public static void displayCharacterSheet(InteractionHook hook, User user, PersonagemService service, boolean showButtons, String initialMessage) {
-        Optional<Personagem> personagemOpt = service.buscarPorUsuario(user.getId());
+    public static CompletableFuture<Void> displayCharacterSheet(InteractionHook hook, User user, PersonagemService service, boolean showButtons, String initialMessage) {
+        return service.buscarPorUsuarioAsync(user.getId()).thenCompose(personagemOpt -> {
+            if (personagemOpt.isEmpty()) {
+                return hook.editOriginal("Você não possui um personagem. Use `/criar` para começar sua jornada!")
+                        .submit().<Void>thenApply(message -> null);
+            }
+            Personagem personagem = personagemOpt.get();
 
-        personagemOpt.ifPresentOrElse(
-                personagem -> {
-                    // Etapa 1: Resposta imediata com o texto
-                    MessageEmbed textOnlyEmbed = EmbedManager.buildPersonagemEmbedTextOnly(personagem, user);
+            // Etapa 1: Resposta imediata com o texto
+            MessageEmbed textOnlyEmbed = EmbedManager.buildPersonagemEmbedTextOnly(personagem, user);
 
-                    hook.editOriginal(initialMessage).setEmbeds(textOnlyEmbed).queue(message -> {
-                        // Etapa 2: Geração da imagem em background
-                        CompletableFuture.supplyAsync(() -> {
-                            try {
-                                return ImageGenerator.generatePersonagemAttributesImage(personagem);
-                            } catch (Exception e) {
-                                throw new RuntimeException(e);
-                            }
-                        }, Bot.EXECUTOR).thenAccept(imageBytes -> {
-                            // Etapa 3: Edição final com a imagem e botões
-                            MessageEmbed finalEmbed = EmbedManager.buildPersonagemEmbedWithImage(personagem, user);
+            return hook.editOriginal(initialMessage).setEmbeds(textOnlyEmbed).submit().thenCompose(message ->
+                    // Etapa 2: Geração da imagem no agendador de renderização
+                    RenderScheduler.get().renderizar(personagem, RenderScheduler.Faixa.INTERATIVO)
+                            .handle((imageBytes, ex) -> {
+                                // Etapa 3: Edição final com a imagem e botões
+                                MessageEditAction editAction;
+                                if (ex == null) {
+                                    MessageEmbed finalEmbed = EmbedManager.buildPersonagemEmbedWithImage(personagem, user);
+                                    editAction = message.editMessageEmbeds(finalEmbed)
+                                            .setFiles(FileUpload.fromData(imageBytes, "ficha_atributos.png"));
+                                } else {
+                                    // Sem imagem (fila cheia ou erro): mantém o embed de texto, mas entrega os botões.
+                                    if (!RenderScheduler.isRecusa(ex)) {
+                                        System.err.println("Erro ao gerar imagem em background:");
+                                        ex.printStackTrace();
+                                    }
+                                    editAction = message.editMessageEmbeds(textOnlyEmbed);
+                                }
 
-                            var editAction = message.editMessageEmbeds(finalEmbed)
-                                    .setFiles(FileUpload.fromData(imageBytes, "ficha_atributos.png"));
+                                if (showButtons && personagem.getPontosDisponiveis() > 0) {
+                                    Button corpoBtn = Button.secondary("attr-add:" + user.getId() + ":corpo", "💪 Corpo");
+                                    Button destrezaBtn = Button.secondary("attr-add:" + user.getId() + ":destreza", "👟 Destreza");
+                                    Button menteBtn = Button.secondary("attr-add:" + user.getId() + ":mente", "🧠 Mente");
+                                    Button vontadeBtn = Button.secondary("attr-add:" + user.getId() + ":vontade", "🌊 Vontade");
+                                    editAction.setComponents(ActionRow.of(corpoBtn, destrezaBtn, menteBtn, vontadeBtn));
+                                } else {
+                                    editAction.setComponents(Collections.emptyList());
+                                }
+                                return enviarEdicao(editAction, user.getId(), ex == null ? imageBytes.length : -1);
+                            })
+                            .thenCompose(edicao -> edicao));
+        });
+    }
+
+    /**
+     * Envia a edição final da ficha, emitindo o tempo até a resposta do Discord como evento do JFR.
+     *
+     * @param bytes O tamanho da imagem anexada, ou {@code -1} se a edição for sem imagem.
+     * @return Um futuro completado quando o Discord responde; uma falha na edição é registrada aqui e não o propaga.
+     */
+    private static CompletableFuture<Void> enviarEdicao(MessageEditAction editAction, String userId, long bytes) {
+        Eventos.EdicaoFicha evento = new Eventos.EdicaoFicha();
+        evento.begin();
+        return editAction.submit().handle((ok, erro) -> {
+            concluirEdicao(evento, userId, bytes, erro != null);
+            if (erro != null) {
+                System.err.println("Erro ao editar a ficha com a imagem: " + erro.getMessage());
+            }
+            return null;
+        });
+    }
 
-                            if (showButtons && personagem.getPontosDisponiveis() > 0) {
-                                Button corpoBtn = Button.secondary("attr-add:" + user.getId() + ":corpo", "💪 Corpo");
-                                Button destrezaBtn = Button.secondary("attr-add:" + user.getId() + ":destreza", "👟 Destreza");
-                                Button menteBtn = Button.secondary("attr-add:" + user.getId() + ":mente", "🧠 Mente");
-                                Button vontadeBtn = Button.secondary("attr-add:" + user.getId() + ":vontade", "🌊 Vontade");
-                                editAction.setComponents(ActionRow.of(corpoBtn, destrezaBtn, menteBtn, vontadeBtn));
-                            } else {
-                                editAction.setComponents(Collections.emptyList());
-                            }
-                            editAction.queue();
-                        }).exceptionally(ex -> {
-                            System.err.println("Erro ao gerar imagem em background:");
-                            ex.printStackTrace();
-                            return null;
-                        });
-                    });
-                },
-                () -> hook.editOriginal("Você não possui um personagem. Use `/criar` para começar sua jornada!").queue()
-        );
+    private static void concluirEdicao(Eventos.EdicaoFicha evento, String userId, long bytes, boolean falhou) {
+        evento.end();
+        if (evento.shouldCommit()) {
+            evento.usuario = userId;
+            evento.comImagem = bytes >= 0;
+            evento.bytes = Math.max(0, bytes);
+            evento.falhou = falhou;
+            evento.commit();
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,121 @@
+package com.bot.discord;
+
+import com.bot.model.Personagem;
+import net.dv8tion.jda.api.entities.MessageEmbed;
+import net.dv8tion.jda.api.entities.User;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Cache dos embeds da ficha já montados, um par (só texto, com imagem) por personagem.
+ * <p>
+ * A entrada de um usuário guarda a {@link Assinatura} de tudo o que aparece no embed: os campos
+ * do personagem, o nome e o avatar do usuário do Discord, a versão das fórmulas dos sub-atributos
+ * e se a imagem anexada é o cartão com o retrato.
+ * Ela só é reaproveitada se a assinatura atual for igual, então um valor desatualizado nunca é
+ * exibido, mesmo que uma invalidação se perca. As entradas são descartadas por tamanho (LRU) e
+ * invalidadas pelo {@code PersonagemService} a cada alteração do personagem.
+ * <p>
+ * {@link MessageEmbed} é imutável, então os mesmos objetos são compartilhados entre as exibições.
+ */
+public final class EmbedCache {
+
+    /**
+     * Fotografia dos contadores do cache.
+     */
+    public record Estatisticas(long acertos, long faltas, long invalidacoes, int entradas, int capacidade) {
+
+        /**
+         * @return A fração de buscas atendidas pelo cache, entre 0 e 1.
+         */
+        public double taxaAcerto() {
+            long total = acertos + faltas;
+            return total == 0 ? 0 : (double) acertos / total;
+        }
+    }
+
+    /**
+     * Tudo o que determina o conteúdo do embed da ficha.
+     */
+    record Assinatura(String nome, int nivel, String fotoUrl, int corpo, int destreza, int mente, int vontade,
+                      int pontosDisponiveis, String nomeUsuario, String avatarUrl, long versaoFormulas, boolean cartao) {
+
+        static Assinatura de(Personagem p, String fotoUrl, User user, long versaoFormulas, boolean cartao) {
+            return new Assinatura(p.getNome(), p.getNivel(), fotoUrl, p.getCorpo(), p.getDestreza(),
+                    p.getMente(), p.getVontade(), p.getPontosDisponiveis(),
+                    user.getName(), user.getEffectiveAvatarUrl(), versaoFormulas, cartao);
+        }
+    }
+
+    /**
+     * As duas variantes do embed de uma ficha.
+     */
+    record Fichas(MessageEmbed textoApenas, MessageEmbed comImagem) {}
+
+    private record Entrada(Assinatura assinatura, Fichas fichas) {}
+
+    private final int capacidade;
+    private final Map<String, Entrada> entradas;
+
+    private final LongAdder acertos = new LongAdder();
+    private final LongAdder faltas = new LongAdder();
+    private final LongAdder invalidacoes = new LongAdder();
+
+    /**
+     * @param capacidade Quantidade máxima de fichas mantidas em memória.
+     */
+    public EmbedCache(int capacidade) {
+        this.capacidade = Math.max(1, capacidade);
+        // LinkedHashMap em ordem de acesso: a entrada mais antiga é a menos usada recentemente.
+        this.entradas = new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entrada> eldest) {
+                return size() > EmbedCache.this.capacidade;
+            }
+        };
+    }
+
+    /**
+     * Devolve os embeds guardados para o usuário se a assinatura coincidir; senão, monta-os
+     * com {@code montar} (fora do lock) e os guarda.
+     */
+    Fichas buscar(String userId, Assinatura assinatura, Supplier<Fichas> montar) {
+        synchronized (this) {
+            Entrada entrada = entradas.get(userId);
+            if (entrada != null && entrada.assinatura().equals(assinatura)) {
+                acertos.increment();
+                return entrada.fichas();
+            }
+        }
+        faltas.increment();
+        Fichas fichas = montar.get();
+        synchronized (this) {
+            entradas.put(userId, new Entrada(assinatura, fichas));
+        }
+        return fichas;
+    }
+
+    /**
+     * Descarta a ficha de um usuário (após o personagem ser alterado ou deletado).
+     */
+    public synchronized void invalidar(String userId) {
+        if (entradas.remove(userId) != null) {
+            invalidacoes.increment();
+        }
+    }
+
+    /**
+     * Descarta todas as fichas (ex: após uma importação em massa).
+     */
+    public synchronized void limpar() {
+        invalidacoes.add(entradas.size());
+        entradas.clear();
+    }
+
+    public synchronized Estatisticas getEstatisticas() {
+        return new Estatisticas(acertos.sum(), faltas.sum(), invalidacoes.sum(), entradas.size(), capacidade);
+    }
+}
@@ -2,12 +2,15 @@ package com.bot.discord;
 
 import com.bot.model.Personagem;
 import com.bot.service.CalculadoraAtributos;
+import com.bot.service.MotorFormulas;
+import com.bot.service.RankingPersonagens;
+import com.bot.service.SubAtributos;
 import net.dv8tion.jda.api.EmbedBuilder;
 import net.dv8tion.jda.api.entities.MessageEmbed;
 import net.dv8tion.jda.api.entities.User;
 
 import java.awt.Color;
-import java.util.Map;
+import java.util.List;
 
 /**
  * Classe utilitária para construir e padronizar todas as mensagens Embed do bot.
@@ -16,36 +19,87 @@ public final class EmbedManager {
 
     private EmbedManager() {}
 
+    private static final SubAtributos.Campo[] CAMPOS_SUB_ATRIBUTOS = SubAtributos.Campo.values();
+    // "**Força:** ", "**Vida:** ", ... montados uma única vez, na ordem de CAMPOS_SUB_ATRIBUTOS.
+    private static final String[] ROTULOS_SUB_ATRIBUTOS = new String[CAMPOS_SUB_ATRIBUTOS.length];
+
+    static {
+        for (SubAtributos.Campo campo : CAMPOS_SUB_ATRIBUTOS) {
+            ROTULOS_SUB_ATRIBUTOS[campo.ordinal()] = "**" + campo.rotulo() + ":** ";
+        }
+    }
+
+    private static volatile EmbedCache embedCache = new EmbedCache(1000);
+
+    /**
+     * Substitui o cache de embeds da ficha (ex: para usar a capacidade configurada no .env).
+     *
+     * @param cache O novo cache.
+     */
+    public static void configurarCache(EmbedCache cache) {
+        embedCache = cache;
+    }
+
+    /**
+     * @return O cache de embeds da ficha em uso, para invalidação e consulta das estatísticas.
+     */
+    public static EmbedCache getEmbedCache() {
+        return embedCache;
+    }
+
+    /**
+     * Busca no cache as duas variantes do embed da ficha, montando-as se o personagem, o usuário
+     * ou as fórmulas tiverem mudado desde a última exibição.
+     */
+    private static EmbedCache.Fichas buscarFichas(Personagem p, User user) {
+        // A foto entra já resolvida na assinatura: quando uma URL externa termina de ser importada
+        // para o armazém de avatares, a ficha passa a apontar para a cópia local.
+        String foto = ArmazemAvatares.get().urlPublica(p.getFotoUrl());
+        boolean cartao = ImageGenerator.isCartao();
+        EmbedCache.Assinatura assinatura = EmbedCache.Assinatura.de(p, foto, user, MotorFormulas.get().getVersao(), cartao);
+        return embedCache.buscar(p.getUserId(), assinatura, () -> {
+            EmbedBuilder eb = buildPersonagemEmbedBase(p, foto, user);
+            MessageEmbed textoApenas = eb.build();
+            // Adiciona a referência à imagem que será enviada como anexo.
+            eb.setImage("attachment://ficha_atributos.png");
+            if (cartao) {
+                // O cartão já traz o retrato; a thumbnail só fica na variante sem imagem.
+                eb.setThumbnail(null);
+            }
+            return new EmbedCache.Fichas(textoApenas, eb.build());
+        });
+    }
+
     /**
      * Método base privado que constrói o corpo principal (apenas texto) do embed da ficha.
      * É reutilizado pelos métodos públicos para garantir consistência.
      *
      * @param p    O objeto Personagem com os dados.
+     * @param foto A URL da foto do personagem, já resolvida pelo {@link ArmazemAvatares}, ou {@code null}.
      * @param user O usuário do Discord associado.
      * @return Um {@link EmbedBuilder} pré-configurado com todas as informações textuais.
      */
-    private static EmbedBuilder buildPersonagemEmbedBase(Personagem p, User user) {
+    private static EmbedBuilder buildPersonagemEmbedBase(Personagem p, String foto, User user) {
         EmbedBuilder eb = new EmbedBuilder();
         eb.setAuthor("Ficha de " + user.getName(), null, user.getEffectiveAvatarUrl());
         eb.setTitle(p.getNome() + "  |  Nível " + p.getNivel());
         eb.setColor(Color.CYAN);
         eb.setFooter("ID do Personagem (Usuário): " + p.getUserId());
 
-        // A foto customizada do personagem continua como thumbnail.
-        if (p.getFotoUrl() != null && !p.getFotoUrl().trim().isEmpty()) {
-            eb.setThumbnail(p.getFotoUrl());
+        // A foto customizada do personagem vai como thumbnail (o cartão com retrato a dispensa).
+        if (foto != null && !foto.trim().isEmpty()) {
+            eb.setThumbnail(foto);
         }
 
-        Map<String, Integer> subAtributos = CalculadoraAtributos.calcularSubAtributos(p);
-        StringBuilder subAtributosStr = new StringBuilder();
-        for (Map.Entry<String, Integer> entry : subAtributos.entrySet()) {
-            subAtributosStr.append(String.format("**%s:** %d\n", entry.getKey(), entry.getValue()));
+        SubAtributos subAtributos = CalculadoraAtributos.calcularSubAtributos(p);
+        StringBuilder subAtributosStr = new StringBuilder(192);
+        for (SubAtributos.Campo campo : CAMPOS_SUB_ATRIBUTOS) {
+            subAtributosStr.append(ROTULOS_SUB_ATRIBUTOS[campo.ordinal()]).append(campo.valor(subAtributos)).append('\n');
         }
         eb.addField("Atributos Secundários", subAtributosStr.toString(), false);
 
         if (p.getPontosDisponiveis() > 0) {
-            String pontosTexto = String.format("✨ **Você tem %d pontos disponíveis para gastar!** ✨", p.getPontosDisponiveis());
-            eb.addField("", pontosTexto, false);
+            eb.addField("", "✨ **Você tem " + p.getPontosDisponiveis() + " pontos disponíveis para gastar!** ✨", false);
         }
         return eb;
     }
@@ -59,7 +113,7 @@ public final class EmbedManager {
      * @return Um {@link MessageEmbed} contendo apenas as informações textuais da ficha.
      */
     public static MessageEmbed buildPersonagemEmbedTextOnly(Personagem p, User user) {
-        return buildPersonagemEmbedBase(p, user).build();
+        return buscarFichas(p, user).textoApenas();
     }
 
     /**
@@ -71,10 +125,7 @@ public final class EmbedManager {
      * @return Um {@link MessageEmbed} completo, com a referência para a imagem de atributos.
      */
     public static MessageEmbed buildPersonagemEmbedWithImage(Personagem p, User user) {
-        EmbedBuilder eb = buildPersonagemEmbedBase(p, user);
-        // Adiciona a referência à imagem que será enviada como anexo.
-        eb.setImage("attachment://ficha_atributos.png");
-        return eb.build();
+        return buscarFichas(p, user).comImagem();
     }
 
     /**
@@ -90,4 +141,85 @@ public final class EmbedManager {
         eb.setFooter("Lembre-se: um atributo não pode ter 3 ou mais pontos de diferença dos outros.");
         return eb.build();
     }
-}
\ No newline at end of file
+
+    /**
+     * Constrói o Embed de resumo do /upar-grupo.
+     *
+     * @param alvo    A descrição do grupo upado (menção do cargo ou "todo o servidor").
+     * @param niveis  Os níveis adicionados a cada personagem.
+     * @param upados  Os personagens upados, já com os valores novos.
+     * @param membros Quantos membros (sem bots) o grupo tinha.
+     */
+    public static MessageEmbed buildUparGrupoEmbed(String alvo, int niveis, List<Personagem> upados, int membros) {
+        EmbedBuilder eb = new EmbedBuilder();
+        eb.setTitle("Nível concedido em grupo");
+        eb.setColor(upados.isEmpty() ? Color.ORANGE : Color.GREEN);
+
+        StringBuilder descricao = new StringBuilder(String.format(
+                "**%d** personagens de %s subiram **%d** nível(is) e receberam **%d** pontos de atributo cada.\n",
+                upados.size(), alvo, niveis, niveis * 3));
+        for (int i = 0; i < upados.size(); i++) {
+            Personagem p = upados.get(i);
+            String linha = String.format("\n<@%s> — %s (Nível %d)", p.getUserId(), p.getNome(), p.getNivel());
+            // Limite de 4096 caracteres da descrição de um embed.
+            if (descricao.length() + linha.length() > MessageEmbed.DESCRIPTION_MAX_LENGTH - 32) {
+                descricao.append("\n... e mais ").append(upados.size() - i);
+                break;
+            }
+            descricao.append(linha);
+        }
+        eb.setDescription(descricao.toString());
+
+        int semPersonagem = membros - upados.size();
+        if (semPersonagem > 0) {
+            eb.setFooter(semPersonagem + " membro(s) sem personagem foram ignorados.");
+        }
+        return eb.build();
+    }
+
+    /**
+     * Constrói o Embed do /ranking com os primeiros colocados de um critério.
+     *
+     * @param criterio O critério de ordenação.
+     * @param topo     Os primeiros colocados, em ordem.
+     * @param total    Quantos personagens participam do ranking.
+     */
+    public static MessageEmbed buildRankingEmbed(RankingPersonagens.Criterio criterio, List<RankingPersonagens.Posicao> topo, int total) {
+        EmbedBuilder eb = new EmbedBuilder();
+        eb.setTitle("🏆 Ranking — " + criterio.descricao());
+        eb.setColor(Color.ORANGE);
+
+        if (topo.isEmpty()) {
+            eb.setDescription("Ainda não há personagens no ranking.");
+        } else {
+            StringBuilder descricao = new StringBuilder();
+            for (RankingPersonagens.Posicao p : topo) {
+                String medalha = switch (p.posicao()) {
+                    case 1 -> "🥇";
+                    case 2 -> "🥈";
+                    case 3 -> "🥉";
+                    default -> "**#" + p.posicao() + "**";
+                };
+                descricao.append(String.format("%s %s — <@%s> · **%d**\n", medalha, p.nome(), p.userId(), p.pontuacao()));
+            }
+            eb.setDescription(descricao.toString());
+        }
+        eb.setFooter(total + " personagens no ranking");
+        return eb.build();
+    }
+
+    /**
+     * Constrói o Embed de erro, para operações que falharam sem que se saiba o resultado
+     * (ex: o banco fora do ar), em vez de exibir um resumo que pareça bem-sucedido.
+     *
+     * @param mensagem O que não pôde ser feito.
+     */
+    public static MessageEmbed buildErroEmbed(String mensagem) {
+        EmbedBuilder eb = new EmbedBuilder();
+        eb.setTitle("❌ Ocorreu um erro");
+        eb.setColor(Color.RED);
+        eb.setDescription(mensagem);
+        eb.setFooter("Tente novamente em instantes.");
+        return eb.build();
+    }
+}
@@ -0,0 +1,144 @@
+package com.bot.discord;
+
+import org.apache.batik.transcoder.TranscoderException;
+import org.apache.batik.transcoder.TranscoderInput;
+import org.apache.batik.transcoder.TranscoderOutput;
+import org.apache.batik.transcoder.image.ImageTranscoder;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Representação já processada do template da ficha: o fundo estático rasterizado
+ * e a posição/estilo de cada placeholder de texto.
+ * <p>
+ * Pode ser obtida de duas formas: compilando o SVG original com o Batik ({@link #deSvg(String)}),
+ * ou decodificando o asset binário gerado no build pelo {@link FichaTemplateCompiler}
+ * (veja {@link FichaTemplateLoader}).
+ */
+public final class FichaTemplate {
+
+    /**
+     * Alinhamento horizontal do texto em relação à âncora, equivalente ao {@code text-anchor} do SVG.
+     */
+    public enum Alinhamento {
+        INICIO,
+        MEIO,
+        FIM
+    }
+
+    /**
+     * Posição e estilo de um placeholder de texto do template (ex: {@code _MENTE_}).
+     *
+     * @param placeholder  O texto do placeholder no SVG.
+     * @param x            A coordenada X da âncora.
+     * @param y            A coordenada Y da linha de base.
+     * @param tamanhoFonte O tamanho da fonte, em pixels.
+     * @param alinhamento  O alinhamento do texto em relação a X.
+     */
+    public record AncoraTexto(String placeholder, float x, float y, float tamanhoFonte, Alinhamento alinhamento) {}
+
+    private static final Pattern TEXT_ELEMENT = Pattern.compile("<text([^>]*)>(_[A-Z]+_)</text>");
+    private static final Pattern ATTR_X = Pattern.compile("\\sx=\"([0-9.]+)\"");
+    private static final Pattern ATTR_Y = Pattern.compile("\\sy=\"([0-9.]+)\"");
+    private static final Pattern FONT_SIZE = Pattern.compile("font-size:([0-9.]+)px");
+    private static final Pattern TEXT_ANCHOR = Pattern.compile("text-anchor:(start|middle|end)");
+
+    private final BufferedImage fundo;
+    private final List<AncoraTexto> ancoras;
+
+    public FichaTemplate(BufferedImage fundo, List<AncoraTexto> ancoras) {
+        this.fundo = fundo;
+        this.ancoras = List.copyOf(ancoras);
+    }
+
+    /**
+     * @return O fundo da ficha, sem os textos. Não deve ser modificado; copie o raster antes de desenhar.
+     */
+    public BufferedImage getFundo() {
+        return fundo;
+    }
+
+    public List<AncoraTexto> getAncoras() {
+        return ancoras;
+    }
+
+    /**
+     * Busca a âncora de um placeholder.
+     *
+     * @param placeholder O texto do placeholder (ex: {@code _CORPO_}).
+     * @return A âncora, ou vazio se o template não contiver o placeholder.
+     */
+    public Optional<AncoraTexto> buscarAncora(String placeholder) {
+        return ancoras.stream().filter(a -> a.placeholder().equals(placeholder)).findFirst();
+    }
+
+    /**
+     * Processa o SVG original: extrai as âncoras dos elementos {@code <text>} com placeholders
+     * e rasteriza o restante do documento com o Batik.
+     *
+     * @param svg O conteúdo completo do SVG.
+     * @return O template processado.
+     * @throws IOException Se algum placeholder estiver malformado ou a rasterização falhar.
+     */
+    public static FichaTemplate deSvg(String svg) throws IOException {
+        List<AncoraTexto> ancoras = new ArrayList<>();
+        Matcher texto = TEXT_ELEMENT.matcher(svg);
+        while (texto.find()) {
+            String atributos = texto.group(1);
+            String placeholder = texto.group(2);
+            float x = Float.parseFloat(extrair(ATTR_X, atributos, placeholder));
+            float y = Float.parseFloat(extrair(ATTR_Y, atributos, placeholder));
+            float tamanho = Float.parseFloat(extrair(FONT_SIZE, atributos, placeholder));
+
+            Matcher anchor = TEXT_ANCHOR.matcher(atributos);
+            Alinhamento alinhamento = !anchor.find() ? Alinhamento.INICIO : switch (anchor.group(1)) {
+                case "middle" -> Alinhamento.MEIO;
+                case "end" -> Alinhamento.FIM;
+                default -> Alinhamento.INICIO;
+            };
+            ancoras.add(new AncoraTexto(placeholder, x, y, tamanho, alinhamento));
+        }
+
+        try {
+            BufferedImage fundo = rasterizar(TEXT_ELEMENT.matcher(svg).replaceAll(""));
+            return new FichaTemplate(fundo, ancoras);
+        } catch (TranscoderException e) {
+            throw new IOException("Falha ao rasterizar o template SVG.", e);
+        }
+    }
+
+    private static String extrair(Pattern pattern, String atributos, String placeholder) throws IOException {
+        Matcher m = pattern.matcher(atributos);
+        if (!m.find()) {
+            throw new IOException("Atributo '" + pattern.pattern() + "' ausente no texto " + placeholder + ".");
+        }
+        return m.group(1);
+    }
+
+    /**
+     * Rasteriza um documento SVG com o Batik diretamente para um {@link BufferedImage}.
+     */
+    private static BufferedImage rasterizar(String svg) throws TranscoderException {
+        BufferedImage[] resultado = new BufferedImage[1];
+        ImageTranscoder transcoder = new ImageTranscoder() {
+            @Override
+            public BufferedImage createImage(int width, int height) {
+                return new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+            }
+
+            @Override
+            public void writeImage(BufferedImage img, TranscoderOutput output) {
+                resultado[0] = img;
+            }
+        };
+        transcoder.transcode(new TranscoderInput(new StringReader(svg)), new TranscoderOutput());
+        return resultado[0];
+    }
+}
@@ -0,0 +1,137 @@
+package com.bot.discord;
+
+import java.awt.image.BufferedImage;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Ferramenta de build que compila o {@code ficha_template.svg} no asset binário
+ * compacto lido pelo {@link FichaTemplateLoader}.
+ * <p>
+ * O SVG exportado pelo Inkscape descreve cada pixel como um {@code <path>} separado, o que
+ * o torna enorme e lento de processar. Esta ferramenta o rasteriza uma vez com o Batik e grava:
+ * <ul>
+ *     <li>a paleta de cores ARGB usada pelo fundo;</li>
+ *     <li>cada linha de pixels codificada em run-length (índice da paleta + comprimento);</li>
+ *     <li>a posição, tamanho de fonte e alinhamento de cada placeholder de texto.</li>
+ * </ul>
+ * É executada automaticamente pelo Maven na fase {@code process-classes} (veja o {@code pom.xml}).
+ * O SVG continua sendo a fonte editável do template.
+ */
+public final class FichaTemplateCompiler {
+
+    private FichaTemplateCompiler() {}
+
+    /**
+     * Ponto de entrada usado pelo build.
+     *
+     * @param args {@code <entrada.svg> <saida.bin>}
+     * @throws IOException Se a leitura, a rasterização ou a escrita falharem.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Uso: FichaTemplateCompiler <entrada.svg> <saida.bin>");
+            System.exit(1);
+        }
+        Path entrada = Path.of(args[0]);
+        Path saida = Path.of(args[1]);
+
+        // Evita repetir a rasterização (alguns segundos) quando o SVG não mudou.
+        if (Files.exists(saida) && Files.getLastModifiedTime(saida).compareTo(Files.getLastModifiedTime(entrada)) >= 0) {
+            System.out.println("Template compilado já está atualizado: " + saida);
+            return;
+        }
+
+        FichaTemplate template = FichaTemplate.deSvg(Files.readString(entrada, StandardCharsets.UTF_8));
+
+        Files.createDirectories(saida.toAbsolutePath().getParent());
+        try (OutputStream os = Files.newOutputStream(saida)) {
+            escrever(template, os);
+        }
+        System.out.println("Template compilado: " + entrada + " (" + Files.size(entrada) + " bytes) -> "
+                + saida + " (" + Files.size(saida) + " bytes)");
+    }
+
+    /**
+     * Serializa o template no formato descrito em {@link FichaTemplateLoader}.
+     *
+     * @param template O template já rasterizado.
+     * @param os       O destino. Não é fechado por este método.
+     * @throws IOException Se a escrita falhar ou a paleta exceder 65536 cores.
+     */
+    public static void escrever(FichaTemplate template, OutputStream os) throws IOException {
+        BufferedImage fundo = template.getFundo();
+        int largura = fundo.getWidth();
+        int altura = fundo.getHeight();
+
+        int[] pixels = fundo.getRGB(0, 0, largura, altura, null, 0, largura);
+        Map<Integer, Integer> paleta = new LinkedHashMap<>();
+        for (int i = 0; i < pixels.length; i++) {
+            // Pixels totalmente transparentes são equivalentes, independente do RGB.
+            if ((pixels[i] >>> 24) == 0) {
+                pixels[i] = 0;
+            }
+            paleta.putIfAbsent(pixels[i], paleta.size());
+        }
+        if (paleta.size() > 0x10000) {
+            throw new IOException("Paleta com " + paleta.size() + " cores excede o limite do formato.");
+        }
+        boolean indiceCurto = paleta.size() <= 0x100;
+
+        DataOutputStream cabecalho = new DataOutputStream(os);
+        cabecalho.writeInt(FichaTemplateLoader.MAGIC);
+        cabecalho.writeByte(FichaTemplateLoader.VERSAO);
+        cabecalho.flush();
+
+        DeflaterOutputStream deflater = new DeflaterOutputStream(os);
+        DataOutputStream out = new DataOutputStream(deflater);
+
+        out.writeShort(largura);
+        out.writeShort(altura);
+
+        out.writeByte(template.getAncoras().size());
+        for (FichaTemplate.AncoraTexto ancora : template.getAncoras()) {
+            out.writeUTF(ancora.placeholder());
+            out.writeFloat(ancora.x());
+            out.writeFloat(ancora.y());
+            out.writeFloat(ancora.tamanhoFonte());
+            out.writeByte(ancora.alinhamento().ordinal());
+        }
+
+        out.writeShort(paleta.size() - 1);
+        for (int cor : paleta.keySet()) {
+            out.writeInt(cor);
+        }
+
+        // Cada linha é codificada de forma independente; um run nunca atravessa linhas.
+        for (int y = 0; y < altura; y++) {
+            int linha = y * largura;
+            int x = 0;
+            while (x < largura) {
+                int cor = pixels[linha + x];
+                int comprimento = 1;
+                while (x + comprimento < largura && comprimento < 0xFF && pixels[linha + x + comprimento] == cor) {
+                    comprimento++;
+                }
+                int indice = paleta.get(cor);
+                if (indiceCurto) {
+                    out.writeByte(indice);
+                } else {
+                    out.writeShort(indice);
+                }
+                out.writeByte(comprimento);
+                x += comprimento;
+            }
+        }
+
+        out.flush();
+        deflater.finish();
+    }
+}
@@ -0,0 +1,117 @@
+package com.bot.discord;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Decodifica o asset binário do template da ficha gerado pelo {@link FichaTemplateCompiler}.
+ * <p>
+ * Formato (big-endian):
+ * <pre>
+ * int    MAGIC ("FICH")
+ * byte   VERSAO
+ * --- restante comprimido com deflate ---
+ * short  largura, short altura
+ * byte   quantidade de âncoras; para cada uma:
+ *        UTF placeholder, float x, float y, float tamanhoFonte, byte alinhamento
+ * short  tamanho da paleta - 1; seguido de cada cor como int ARGB
+ * linhas em run-length: pares (índice da paleta, comprimento 1..255), até completar a largura.
+ *        O índice ocupa 1 byte se a paleta tiver até 256 cores, ou 2 bytes caso contrário.
+ * </pre>
+ * Os pixels são escritos diretamente no {@code int[]} que sustenta o {@link BufferedImage},
+ * sem imagens ou buffers intermediários.
+ */
+public final class FichaTemplateLoader {
+
+    static final int MAGIC = 0x46494348; // "FICH"
+    static final int VERSAO = 1;
+
+    private FichaTemplateLoader() {}
+
+    /**
+     * Carrega um template compilado a partir do classpath.
+     *
+     * @param caminho O caminho do recurso (ex: {@code /images/ficha_template.bin}).
+     * @return O template decodificado.
+     * @throws IOException Se o recurso não existir ou estiver corrompido.
+     */
+    public static FichaTemplate carregarDoClasspath(String caminho) throws IOException {
+        try (InputStream is = FichaTemplateLoader.class.getResourceAsStream(caminho)) {
+            if (is == null) {
+                throw new IOException("Template compilado não encontrado: " + caminho);
+            }
+            return carregar(is);
+        }
+    }
+
+    /**
+     * Decodifica um template compilado.
+     *
+     * @param is O fluxo com o asset. Não é fechado por este método.
+     * @return O template decodificado.
+     * @throws IOException Se o conteúdo não estiver no formato esperado.
+     */
+    public static FichaTemplate carregar(InputStream is) throws IOException {
+        DataInputStream cabecalho = new DataInputStream(is);
+        if (cabecalho.readInt() != MAGIC) {
+            throw new IOException("Asset não é um template de ficha compilado.");
+        }
+        int versao = cabecalho.readUnsignedByte();
+        if (versao != VERSAO) {
+            throw new IOException("Versão de template não suportada: " + versao);
+        }
+
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new InflaterInputStream(is)));
+
+        int largura = in.readUnsignedShort();
+        int altura = in.readUnsignedShort();
+
+        int quantidadeAncoras = in.readUnsignedByte();
+        List<FichaTemplate.AncoraTexto> ancoras = new ArrayList<>(quantidadeAncoras);
+        FichaTemplate.Alinhamento[] alinhamentos = FichaTemplate.Alinhamento.values();
+        for (int i = 0; i < quantidadeAncoras; i++) {
+            String placeholder = in.readUTF();
+            float x = in.readFloat();
+            float y = in.readFloat();
+            float tamanho = in.readFloat();
+            int alinhamento = in.readUnsignedByte();
+            if (alinhamento >= alinhamentos.length) {
+                throw new IOException("Alinhamento inválido para " + placeholder + ": " + alinhamento);
+            }
+            ancoras.add(new FichaTemplate.AncoraTexto(placeholder, x, y, tamanho, alinhamentos[alinhamento]));
+        }
+
+        int[] paleta = new int[in.readUnsignedShort() + 1];
+        for (int i = 0; i < paleta.length; i++) {
+            paleta[i] = in.readInt();
+        }
+        boolean indiceCurto = paleta.length <= 0x100;
+
+        BufferedImage fundo = new BufferedImage(largura, altura, BufferedImage.TYPE_INT_ARGB);
+        int[] pixels = ((DataBufferInt) fundo.getRaster().getDataBuffer()).getData();
+
+        for (int y = 0; y < altura; y++) {
+            int posicao = y * largura;
+            int fimLinha = posicao + largura;
+            while (posicao < fimLinha) {
+                int indice = indiceCurto ? in.readUnsignedByte() : in.readUnsignedShort();
+                int comprimento = in.readUnsignedByte();
+                if (indice >= paleta.length || comprimento == 0 || posicao + comprimento > fimLinha) {
+                    throw new IOException("Run inválido na linha " + y + " do template.");
+                }
+                Arrays.fill(pixels, posicao, posicao + comprimento, paleta[indice]);
+                posicao += comprimento;
+            }
+        }
+
+        return new FichaTemplate(fundo, ancoras);
+    }
+}
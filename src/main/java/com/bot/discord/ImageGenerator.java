@@ -1,74 +1,619 @@
 package com.bot.discord;
 
+import com.bot.metricas.Eventos;
 import com.bot.model.Personagem;
+import com.bot.service.PersonagemService;
 import org.apache.batik.transcoder.TranscoderInput;
 import org.apache.batik.transcoder.TranscoderOutput;
 import org.apache.batik.transcoder.image.PNGTranscoder;
 
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontFormatException;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.StringReader;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.function.ToIntFunction;
+import java.util.zip.CRC32;
 
 /**
  * Classe utilitária para gerar imagens dinâmicas da ficha do personagem
- * usando um template SVG e a biblioteca Apache Batik.
+ * a partir de um template SVG.
  * <p>
- * ESTA VERSÃO implementa um cache estático para o conteúdo do template SVG,
- * lendo o arquivo do disco apenas uma vez na inicialização para otimizar a performance.
+ * Existem dois modos de renderização ({@link RenderMode}):
+ * <ul>
+ *     <li>{@code CAMADAS} (padrão): o fundo estático da ficha vem do template compilado no build
+ *     ({@link FichaTemplateLoader}), carregado uma única vez. Cada renderização apenas copia esse fundo e
+ *     desenha os quatro valores de atributo por cima com Java2D, usando sprites de dígitos
+ *     pré-renderizados com a fonte Montserrat Bold.</li>
+ *     <li>{@code BATIK}: o modo original, que preenche os placeholders no SVG e o transcodifica
+ *     inteiro a cada chamada. Mantido como alternativa caso o modo em camadas não possa ser iniciado.
+ *     O SVG (3 MB) só é lido para a memória se este modo for usado, e é pré-dividido em segmentos
+ *     ({@link SvgTemplate}) para que o preenchimento não copie o documento.</li>
+ * </ul>
+ * <p>
+ * Por padrão, a ficha é apenas o bloco de atributos. No modo em camadas, ela pode ser exibida como
+ * um cartão ({@link #setCartao}, variável {@code FICHA_CARTAO}): o retrato do personagem numa moldura,
+ * o nome e o nível no cabeçalho e o bloco de atributos ao lado. O retrato vem já decodificado e
+ * redimensionado do {@link RetratoCache}, então montar o cartão continua sendo só cópia de pixels na
+ * CPU. No modo Batik, apenas o bloco de atributos é gerado.
  */
 public final class ImageGenerator {
 
+    /**
+     * Estratégias disponíveis para renderizar a ficha.
+     */
+    public enum RenderMode {
+        CAMADAS,
+        BATIK
+    }
+
+    /**
+     * Descreve um atributo exibido na ficha: o placeholder do template, a cor do valor
+     * e como extrair o valor do personagem.
+     */
+    private record SlotAtributo(String placeholder, String corHex, ToIntFunction<Personagem> valor) {}
+
+    /**
+     * Um atributo já posicionado sobre o fundo rasterizado, com seu atlas de dígitos na cor certa.
+     */
+    private record CamadaAtributo(SlotAtributo slot, FichaTemplate.AncoraTexto ancora, DigitAtlas atlas) {}
+
     private static final String SVG_TEMPLATE_PATH = "/images/ficha_template.svg";
+    private static final String COMPILED_TEMPLATE_PATH = "/images/ficha_template.bin";
+    private static final String FONT_PATH = "/fonts/Montserrat-Bold.ttf";
+
+    // Qualidade 0.75 equivale a um deflate rápido: ~30% mais rápido que o padrão e ~1 KB maior.
+    private static final float PNG_COMPRESSION_QUALITY = 0.75f;
 
-    // Cache para o conteúdo do template SVG, para evitar leituras repetidas do disco.
-    private static final String svgTemplateContent;
+    private static final int CACHE_CAPACIDADE_PADRAO = 1024;
+
+    // Layout do cartão: cabeçalho com nome e nível, e a moldura do retrato à esquerda do bloco de atributos.
+    private static final int MARGEM = 12;
+    private static final int CABECALHO = 28;
+    private static final int BORDA = 3;
+    private static final int MOLDURA = RetratoCache.LADO + 2 * BORDA;
+    private static final Color COR_FUNDO = new Color(0x2b2d31);
+    private static final Color COR_MOLDURA = new Color(0x4e5058);
+    private static final Color COR_VAZIO = new Color(0x1e1f22);
+    private static final Color COR_NOME = Color.WHITE;
+    private static final Color COR_NIVEL = new Color(0xf0b232);
+    private static final Color COR_INICIAL = new Color(0x80848e);
+    // Muda sempre que o layout do cartão mudar, para não reaproveitar cartões antigos do cache em disco.
+    private static final String VERSAO_CARTAO = "cartao1";
+    private static final String[] ATRIBUTOS = {"corpo", "destreza", "mente", "vontade"};
+
+    private static final List<SlotAtributo> SLOTS = List.of(
+            new SlotAtributo("_MENTE_", "#d9a066", Personagem::getMente),
+            new SlotAtributo("_CORPO_", "#d85762", Personagem::getCorpo),
+            new SlotAtributo("_VONTADE_", "#639bff", Personagem::getVontade),
+            new SlotAtributo("_DESTREZA_", "#37946e", Personagem::getDestreza)
+    );
+
+    private static final List<String> PLACEHOLDERS = SLOTS.stream().map(SlotAtributo::placeholder).toList();
+    private static final String[] CORES = SLOTS.stream().map(SlotAtributo::corHex).toArray(String[]::new);
+
+    // Cache do template SVG já dividido em segmentos, carregado apenas se o modo BATIK for usado.
+    private static final class SvgTemplateHolder {
+        private static final SvgTemplate TEMPLATE = compilarSvg();
+    }
+
+    // Estado do modo em camadas. Ficam nulos se a inicialização falhar.
+    private static final BufferedImage fundoFicha;
+    private static final List<CamadaAtributo> camadas;
+
+    // Identifica o fundo e as âncoras em uso, para separar imagens de templates diferentes no cache em disco.
+    private static final String assinaturaCamadas;
+
+    // Estado do cartão: o fundo com a moldura, o cabeçalho e o bloco de atributos já compostos, e as fontes do texto.
+    private static final BufferedImage fundoCartao;
+    private static final Font fonteNome;
+    private static final Font fonteNivel;
+    private static final Font fonteInicial;
+
+    private static volatile RenderMode renderMode = RenderMode.CAMADAS;
+    private static volatile boolean cartao = false;
+    private static volatile RenderCache renderCache = new RenderCache(CACHE_CAPACIDADE_PADRAO);
 
     /**
      * Bloco estático que é executado uma única vez quando a classe é carregada pela JVM.
-     * Ele lê o arquivo de template SVG e o armazena na variável estática 'svgTemplateContent'.
+     * Ele carrega o template compilado no build (ou, na falta dele, rasteriza o SVG original)
+     * e prepara os atlas de dígitos do modo em camadas.
      */
     static {
-        String content;
-        try (InputStream is = ImageGenerator.class.getResourceAsStream(SVG_TEMPLATE_PATH)) {
-            if (is == null) {
-                throw new IOException("Template SVG não encontrado: " + SVG_TEMPLATE_PATH);
-            }
-            content = new String(is.readAllBytes(), StandardCharsets.UTF_8);
-            System.out.println("Template SVG '" + SVG_TEMPLATE_PATH + "' carregado para o cache com sucesso!");
+        FichaTemplate template = null;
+        try {
+            template = FichaTemplateLoader.carregarDoClasspath(COMPILED_TEMPLATE_PATH);
+            System.out.println("Template compilado '" + COMPILED_TEMPLATE_PATH + "' carregado com sucesso!");
         } catch (IOException e) {
-            System.err.println("ERRO FATAL: Não foi possível carregar o template SVG para o cache.");
-            e.printStackTrace();
-            content = null;
+            // Acontece ao rodar direto da IDE, sem a etapa de build que compila o template.
+            System.err.println("Template compilado indisponível (" + e.getMessage() + "). Rasterizando o SVG com o Batik.");
+            String svg = carregarSvg();
+            if (svg != null) {
+                try {
+                    template = FichaTemplate.deSvg(svg);
+                } catch (IOException ex) {
+                    System.err.println("Não foi possível rasterizar o template SVG.");
+                    ex.printStackTrace();
+                }
+            }
+        }
+
+        List<CamadaAtributo> camadasCarregadas = null;
+        Font fonte = null;
+        if (template != null) {
+            try {
+                fonte = carregarFonte();
+                camadasCarregadas = criarCamadas(template, fonte);
+            } catch (Exception e) {
+                System.err.println("Não foi possível preparar o modo em camadas; usando o Batik a cada renderização.");
+                e.printStackTrace();
+            }
         }
-        svgTemplateContent = content;
+        fundoFicha = camadasCarregadas != null ? template.getFundo() : null;
+        camadas = camadasCarregadas;
+        assinaturaCamadas = fundoFicha != null ? calcularAssinatura(template) : null;
+
+        fundoCartao = fundoFicha != null ? criarFundoCartao(fundoFicha) : null;
+        fonteNome = fonte != null ? fonte.deriveFont(18f) : null;
+        fonteNivel = fonte != null ? fonte.deriveFont(14f) : null;
+        fonteInicial = fonte != null ? fonte.deriveFont(56f) : null;
+    }
+
+    private ImageGenerator() {}
+
+    /**
+     * Define o modo de renderização usado pelas próximas chamadas.
+     *
+     * @param mode O novo modo. Se for {@code CAMADAS} e o modo não puder ser iniciado,
+     *             as renderizações continuam usando o Batik.
+     */
+    public static void setRenderMode(RenderMode mode) {
+        renderMode = mode;
+        renderCache.limparMemoria();
+    }
+
+    /**
+     * Liga ou desliga o cartão com retrato, nome e nível. Desligado (o padrão), a imagem contém apenas o
+     * bloco de atributos.
+     * <p>
+     * Com o cartão, cada imagem depende também do nome, do nível e do retrato: o cache passa a guardar
+     * uma imagem por personagem em vez de uma por combinação de atributos, quase nunca é compartilhado
+     * entre usuários e não pode ser pré-aquecido ({@link #preaquecerCache}).
+     */
+    public static void setCartao(boolean ativo) {
+        cartao = ativo;
+        renderCache.limparMemoria();
+    }
+
+    /**
+     * @return {@code true} se as imagens geradas são cartões (modo em camadas disponível e cartão ligado).
+     */
+    public static boolean isCartao() {
+        return cartao && renderMode == RenderMode.CAMADAS && fundoCartao != null;
+    }
+
+    /**
+     * Substitui o cache de imagens renderizadas (ex: para alterar a capacidade ou ativar o nível em disco).
+     * As imagens em disco de templates anteriores, que nunca mais seriam lidas, são apagadas.
+     *
+     * @param cache O novo cache.
+     */
+    public static void configurarCache(RenderCache cache) {
+        int obsoletas = cache.descartarAssinaturasExceto(assinaturasValidas());
+        if (obsoletas > 0) {
+            System.out.println("Cache de fichas: " + obsoletas + " imagens de templates anteriores apagadas do disco.");
+        }
+        renderCache = cache;
+    }
+
+    /**
+     * @return O cache de imagens em uso, para consulta das estatísticas.
+     */
+    public static RenderCache getRenderCache() {
+        return renderCache;
     }
 
     /**
      * Gera uma imagem da ficha do personagem com os atributos preenchidos.
+     * <p>
+     * O resultado é servido do {@link RenderCache} sempre que a mesma imagem já tiver sido renderizada.
+     * Nunca espera pelo retrato do cartão: se ele ainda não estiver no {@link RetratoCache}, o carregamento
+     * é disparado em segundo plano e esta imagem sai com a moldura vazia. Quem precisa do retrato deve usar
+     * {@link RenderScheduler#renderizar}, que aguarda o retrato antes de entrar na fila, sem ocupar um thread
+     * de renderização. O array retornado pode ser compartilhado e não deve ser modificado.
      *
      * @param personagem O objeto Personagem com os atributos.
      * @return Um array de bytes representando a imagem PNG gerada.
      * @throws Exception Se o template SVG não estiver carregado ou se ocorrer um erro na renderização.
      */
     public static byte[] generatePersonagemAttributesImage(Personagem personagem) throws Exception {
-        if (svgTemplateContent == null) {
-            throw new Exception("O template SVG não está carregado. Verifique os logs de inicialização.");
+        RetratoCache.Retrato retrato = RetratoCache.SEM_RETRATO;
+        if (isCartao()) {
+            RetratoCache.Retrato pronto = RetratoCache.get().buscar(personagem.getFotoUrl());
+            retrato = pronto != null ? pronto : RetratoCache.SEM_RETRATO;
+        }
+        byte[] png = buscarImagemEmCache(personagem, retrato);
+        return png != null ? png : renderizarParaCache(personagem, retrato);
+    }
+
+    /**
+     * Consulta o cache sem renderizar. Usado pelo {@link RenderScheduler} para não enfileirar
+     * imagens que já estão prontas.
+     *
+     * @param retrato O retrato a exibir no cartão (ignorado se o cartão estiver desligado).
+     * @return Os bytes do PNG, ou {@code null} se a imagem não estiver no cache.
+     */
+    static byte[] buscarImagemEmCache(Personagem personagem, RetratoCache.Retrato retrato) {
+        byte[] png = renderCache.buscar(chave(personagem, retrato), assinaturaAtual());
+        if (png != null) {
+            Eventos.Render evento = new Eventos.Render();
+            if (evento.shouldCommit()) {
+                evento.usuario = personagem.getUserId();
+                evento.modo = modoAtual();
+                evento.acertoCache = true;
+                evento.bytes = png.length;
+                evento.commit();
+            }
+        }
+        return png;
+    }
+
+    /**
+     * Renderiza a ficha e guarda o resultado no cache, sem consultá-lo antes.
+     *
+     * @param retrato O retrato a exibir no cartão (ignorado se o cartão estiver desligado).
+     */
+    static byte[] renderizarParaCache(Personagem personagem, RetratoCache.Retrato retrato) throws Exception {
+        byte[] png = renderizar(personagem, retrato);
+        renderCache.guardar(chave(personagem, retrato), assinaturaAtual(), png);
+        return png;
+    }
+
+    /**
+     * Renderiza antecipadamente todas as combinações de atributos alcançáveis pelas regras do jogo
+     * até uma soma máxima de pontos, preenchendo o cache.
+     * <p>
+     * As combinações são enumeradas a partir da ficha zerada, aplicando um ponto por vez
+     * e respeitando a regra de {@link PersonagemService#podeAumentarAtributo}.
+     * <p>
+     * As renderizações passam pelo {@link RenderScheduler} na faixa {@link RenderScheduler.Faixa#PREAQUECIMENTO},
+     * no máximo uma por thread do pool de cada vez: as fichas pedidas pelos usuários passam na frente e
+     * a fila continua com espaço para elas. Quem chama fica bloqueado até o fim e não deve ser um thread
+     * de renderização.
+     * <p>
+     * Só se aplica às imagens apenas com os atributos: com o cartão ligado ({@link #isCartao()}),
+     * cada imagem também depende do nome, do nível e do retrato, e nada é pré-renderizado.
+     *
+     * @param somaMaxima A soma máxima dos quatro atributos a ser coberta.
+     * @param service    O serviço que define a regra de distribuição de pontos.
+     * @return A quantidade de imagens efetivamente renderizadas (as que já estavam no cache são puladas).
+     * @throws Exception Se alguma renderização falhar.
+     */
+    public static int preaquecerCache(int somaMaxima, PersonagemService service) throws Exception {
+        if (isCartao()) {
+            return 0;
+        }
+        RenderCache cache = renderCache;
+        String assinatura = assinaturaAtual();
+        RenderScheduler agendador = RenderScheduler.get();
+        int janela = agendador.getEstatisticas().threads();
+        Deque<CompletableFuture<byte[]>> emAndamento = new ArrayDeque<>();
+        Set<Long> visitados = new HashSet<>();
+        Deque<Personagem> fila = new ArrayDeque<>();
+        fila.add(new Personagem());
+        visitados.add(RenderCache.chave(0, 0, 0, 0));
+
+        int renderizadas = 0;
+        while (!fila.isEmpty()) {
+            Personagem atual = fila.poll();
+            if (!cache.contem(RenderCache.chave(atual), assinatura)) {
+                if (emAndamento.size() >= janela) {
+                    emAndamento.poll().get();
+                }
+                emAndamento.add(agendarPreaquecimento(agendador, atual));
+                renderizadas++;
+            }
+
+            int soma = atual.getCorpo() + atual.getDestreza() + atual.getMente() + atual.getVontade();
+            if (soma >= somaMaxima) {
+                continue;
+            }
+            for (String atributo : ATRIBUTOS) {
+                if (!service.podeAumentarAtributo(atual, atributo)) {
+                    continue;
+                }
+                Personagem proximo = new Personagem();
+                proximo.setCorpo(atual.getCorpo() + ("corpo".equals(atributo) ? 1 : 0));
+                proximo.setDestreza(atual.getDestreza() + ("destreza".equals(atributo) ? 1 : 0));
+                proximo.setMente(atual.getMente() + ("mente".equals(atributo) ? 1 : 0));
+                proximo.setVontade(atual.getVontade() + ("vontade".equals(atributo) ? 1 : 0));
+                if (visitados.add(RenderCache.chave(proximo))) {
+                    fila.add(proximo);
+                }
+            }
+        }
+        while (!emAndamento.isEmpty()) {
+            emAndamento.poll().get();
+        }
+        return renderizadas;
+    }
+
+    /**
+     * Agenda uma renderização do pré-aquecimento, esperando um pouco e tentando de novo enquanto a fila
+     * do agendador estiver cheia (o pré-aquecimento nunca é descartado, só adiado).
+     */
+    private static CompletableFuture<byte[]> agendarPreaquecimento(RenderScheduler agendador, Personagem personagem)
+            throws InterruptedException {
+        while (true) {
+            CompletableFuture<byte[]> futuro = agendador.renderizar(personagem, RenderScheduler.Faixa.PREAQUECIMENTO);
+            if (futuro.state() != Future.State.FAILED || !RenderScheduler.isRecusa(futuro.exceptionNow())) {
+                return futuro;
+            }
+            Thread.sleep(100);
+        }
+    }
+
+    private static byte[] renderizar(Personagem personagem, RetratoCache.Retrato retrato) throws Exception {
+        Eventos.Render evento = new Eventos.Render();
+        evento.begin();
+        String modo = modoAtual();
+        byte[] png = switch (modo) {
+            case "cartao" -> renderizarCartao(personagem, retrato);
+            case "camadas" -> renderizarEmCamadas(personagem);
+            default -> renderizarComBatik(personagem);
+        };
+        evento.end();
+        if (evento.shouldCommit()) {
+            evento.usuario = personagem.getUserId();
+            evento.modo = modo;
+            evento.bytes = png.length;
+            evento.commit();
+        }
+        return png;
+    }
+
+    /**
+     * @return O modo de renderização efetivo: {@code cartao}, {@code camadas} ou {@code batik}.
+     */
+    private static String modoAtual() {
+        if (isCartao()) {
+            return "cartao";
+        }
+        return renderMode == RenderMode.CAMADAS && fundoFicha != null ? "camadas" : "batik";
+    }
+
+    private static long chave(Personagem personagem, RetratoCache.Retrato retrato) {
+        return isCartao() ? RenderCache.chaveCartao(personagem, retrato.hash()) : RenderCache.chave(personagem);
+    }
+
+    /**
+     * @return As assinaturas que o template atual pode gerar, em qualquer modo.
+     */
+    private static Set<String> assinaturasValidas() {
+        Set<String> validas = new HashSet<>();
+        validas.add("batik");
+        if (assinaturaCamadas != null) {
+            validas.add(assinaturaCamadas);
+            validas.add(assinaturaCamadas + "-" + VERSAO_CARTAO);
+        }
+        return validas;
+    }
+
+    private static String assinaturaAtual() {
+        if (isCartao()) {
+            return assinaturaCamadas + "-" + VERSAO_CARTAO;
+        }
+        return renderMode == RenderMode.CAMADAS && fundoFicha != null ? assinaturaCamadas : "batik";
+    }
+
+    /**
+     * Calcula um CRC dos pixels do fundo e das âncoras do template.
+     */
+    private static String calcularAssinatura(FichaTemplate template) {
+        CRC32 crc = new CRC32();
+        BufferedImage fundo = template.getFundo();
+        ByteBuffer linha = ByteBuffer.allocate(fundo.getWidth() * Integer.BYTES);
+        for (int y = 0; y < fundo.getHeight(); y++) {
+            linha.clear();
+            linha.asIntBuffer().put(fundo.getRGB(0, y, fundo.getWidth(), 1, null, 0, fundo.getWidth()));
+            crc.update(linha.array());
+        }
+        for (FichaTemplate.AncoraTexto ancora : template.getAncoras()) {
+            crc.update(ancora.toString().getBytes(StandardCharsets.UTF_8));
         }
+        return "camadas" + Long.toHexString(crc.getValue());
+    }
+
+    /**
+     * Copia o fundo pré-rasterizado e desenha os valores dos atributos por cima.
+     */
+    private static byte[] renderizarEmCamadas(Personagem personagem) throws IOException {
+        BufferedImage imagem = new BufferedImage(fundoFicha.getColorModel(), fundoFicha.copyData(null),
+                fundoFicha.isAlphaPremultiplied(), null);
 
+        Graphics2D g = imagem.createGraphics();
+        try {
+            for (CamadaAtributo camada : camadas) {
+                int valor = camada.slot().valor().applyAsInt(personagem);
+                FichaTemplate.AncoraTexto ancora = camada.ancora();
+                camada.atlas().desenhar(g, valor, ancora.x(), ancora.y(), ancora.alinhamento());
+            }
+        } finally {
+            g.dispose();
+        }
+
+        return codificarPng(imagem);
+    }
+
+    /**
+     * Monta o cartão: copia o fundo já composto, desenha o retrato (ou a inicial do nome, se não houver),
+     * o nome e o nível, e os valores dos atributos nas âncoras deslocadas para a posição do bloco.
+     */
+    private static byte[] renderizarCartao(Personagem personagem, RetratoCache.Retrato retrato) throws IOException {
+        BufferedImage imagem = new BufferedImage(fundoCartao.getColorModel(), fundoCartao.copyData(null),
+                fundoCartao.isAlphaPremultiplied(), null);
+        int larguraCartao = imagem.getWidth();
+        int xMoldura = MARGEM;
+        int yMoldura = yMoldura(fundoFicha);
+
+        Graphics2D g = imagem.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            g.setRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS, RenderingHints.VALUE_FRACTIONALMETRICS_ON);
+
+            String nome = personagem.getNome() == null ? "" : personagem.getNome();
+            if (retrato.imagem() != null) {
+                g.drawImage(retrato.imagem(), xMoldura + BORDA, yMoldura + BORDA, null);
+            } else if (!nome.isBlank()) {
+                String inicial = nome.strip().substring(0, nome.strip().offsetByCodePoints(0, 1)).toUpperCase();
+                g.setFont(fonteInicial);
+                g.setColor(COR_INICIAL);
+                FontMetrics fm = g.getFontMetrics();
+                g.drawString(inicial, xMoldura + (MOLDURA - fm.stringWidth(inicial)) / 2f,
+                        yMoldura + (MOLDURA - fm.getHeight()) / 2f + fm.getAscent());
+            }
+
+            String nivel = "Nível " + personagem.getNivel();
+            g.setFont(fonteNivel);
+            g.setColor(COR_NIVEL);
+            FontMetrics fmNivel = g.getFontMetrics();
+            int larguraNivel = fmNivel.stringWidth(nivel);
+            int baseline = MARGEM + CABECALHO - 8;
+            g.drawString(nivel, larguraCartao - MARGEM - larguraNivel, baseline);
+
+            g.setFont(fonteNome);
+            g.setColor(COR_NOME);
+            g.drawString(abreviar(nome, g.getFontMetrics(), larguraCartao - 3 * MARGEM - larguraNivel), MARGEM, baseline);
+
+            float dx = xBloco();
+            float dy = yBloco();
+            for (CamadaAtributo camada : camadas) {
+                int valor = camada.slot().valor().applyAsInt(personagem);
+                FichaTemplate.AncoraTexto ancora = camada.ancora();
+                camada.atlas().desenhar(g, valor, ancora.x() + dx, ancora.y() + dy, ancora.alinhamento());
+            }
+        } finally {
+            g.dispose();
+        }
+
+        return codificarPng(imagem);
+    }
+
+    /**
+     * Corta o texto com reticências para caber na largura disponível.
+     */
+    private static String abreviar(String texto, FontMetrics fm, int larguraMaxima) {
+        if (fm.stringWidth(texto) <= larguraMaxima) {
+            return texto;
+        }
+        int fim = texto.length();
+        while (fim > 0 && fm.stringWidth(texto.substring(0, fim) + "…") > larguraMaxima) {
+            fim = texto.offsetByCodePoints(fim, -1);
+        }
+        return texto.substring(0, fim).stripTrailing() + "…";
+    }
+
+    private static int xBloco() {
+        return MARGEM + MOLDURA + MARGEM;
+    }
+
+    private static int yBloco() {
+        return MARGEM + CABECALHO + MARGEM / 2;
+    }
+
+    /**
+     * A moldura fica centralizada na altura do bloco de atributos.
+     */
+    private static int yMoldura(BufferedImage fundo) {
+        return yBloco() + Math.max(0, fundo.getHeight() - MOLDURA) / 2;
+    }
+
+    /**
+     * Pré-compõe as partes fixas do cartão: o fundo arredondado, a linha sob o cabeçalho,
+     * a moldura vazia do retrato e o fundo da ficha de atributos.
+     */
+    private static BufferedImage criarFundoCartao(BufferedImage fundo) {
+        int largura = xBloco() + fundo.getWidth() + MARGEM;
+        int altura = yBloco() + Math.max(fundo.getHeight(), MOLDURA) + MARGEM;
+        BufferedImage cartao = new BufferedImage(largura, altura, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = cartao.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g.setColor(COR_FUNDO);
+            g.fillRoundRect(0, 0, largura, altura, 16, 16);
+
+            g.setColor(COR_MOLDURA);
+            g.fillRect(MARGEM, MARGEM + CABECALHO - 1, largura - 2 * MARGEM, 1);
+
+            int yMoldura = yMoldura(fundo);
+            g.fillRoundRect(MARGEM, yMoldura, MOLDURA, MOLDURA, 6, 6);
+            g.setColor(COR_VAZIO);
+            g.fillRect(MARGEM + BORDA, yMoldura + BORDA, RetratoCache.LADO, RetratoCache.LADO);
+
+            g.drawImage(fundo, xBloco(), yBloco(), null);
+        } finally {
+            g.dispose();
+        }
+        return cartao;
+    }
+
+    /**
+     * Codifica a imagem em PNG com um nível de compressão mais leve que o padrão do ImageIO.
+     * A codificação domina o custo do modo em camadas, e a diferença de tamanho é de poucos KB.
+     */
+    private static byte[] codificarPng(BufferedImage imagem) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("png").next();
+        try {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(PNG_COMPRESSION_QUALITY);
+
+            ByteArrayOutputStream ostream = new ByteArrayOutputStream(20 * 1024);
+            try (ImageOutputStream ios = ImageIO.createImageOutputStream(ostream)) {
+                writer.setOutput(ios);
+                writer.write(null, new IIOImage(imagem, null, null), param);
+            }
+            return ostream.toByteArray();
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    private static byte[] renderizarComBatik(Personagem personagem) throws Exception {
         // Usa a versão em cache do SVG em vez de ler o arquivo novamente.
-        String svgContent = svgTemplateContent;
+        SvgTemplate svgTemplate = SvgTemplateHolder.TEMPLATE;
+        if (svgTemplate == null) {
+            throw new Exception("O template SVG não está carregado. Verifique os logs de inicialização.");
+        }
 
-        svgContent = setAttributeValueAndColor(svgContent, "_MENTE_", personagem.getMente(), "#d9a066");
-        svgContent = setAttributeValueAndColor(svgContent, "_CORPO_", personagem.getCorpo(), "#d85762");
-        svgContent = setAttributeValueAndColor(svgContent, "_VONTADE_", personagem.getVontade(), "#639bff");
-        svgContent = setAttributeValueAndColor(svgContent, "_DESTREZA_", personagem.getDestreza(), "#37946e");
+        int[] valores = new int[SLOTS.size()];
+        for (int i = 0; i < valores.length; i++) {
+            valores[i] = SLOTS.get(i).valor().applyAsInt(personagem);
+        }
 
+        // O documento preenchido é lido em fluxo pelo transcoder, direto dos segmentos do template.
         PNGTranscoder transcoder = new PNGTranscoder();
-        TranscoderInput input = new TranscoderInput(new StringReader(svgContent));
+        TranscoderInput input = new TranscoderInput(svgTemplate.abrir(CORES, valores));
         ByteArrayOutputStream ostream = new ByteArrayOutputStream();
         TranscoderOutput output = new TranscoderOutput(ostream);
 
@@ -77,18 +622,47 @@ public final class ImageGenerator {
         return ostream.toByteArray();
     }
 
-    private static String setAttributeValueAndColor(String svg, String placeholder, int value, String hexColor) {
-        Pattern pattern = Pattern.compile("(<(text|tspan)[^>]*>)" + placeholder + "</\\2>");
-        Matcher matcher = pattern.matcher(svg);
+    private static SvgTemplate compilarSvg() {
+        String svg = carregarSvg();
+        return svg == null ? null : SvgTemplate.compilar(svg, PLACEHOLDERS);
+    }
 
-        if (matcher.find()) {
-            String openingTag = matcher.group(1);
-            String newStyleTag = openingTag.replaceAll("fill:#[0-9a-fA-F]{6};?", "")
-                    .replaceAll("fill-opacity:[0-9.]+;?", "")
-                    .replace("style=\"", "style=\"fill:" + hexColor + ";");
-            String replacement = newStyleTag + value + "</" + matcher.group(2) + ">";
-            return matcher.replaceFirst(Matcher.quoteReplacement(replacement));
+    private static String carregarSvg() {
+        try (InputStream is = ImageGenerator.class.getResourceAsStream(SVG_TEMPLATE_PATH)) {
+            if (is == null) {
+                throw new IOException("Template SVG não encontrado: " + SVG_TEMPLATE_PATH);
+            }
+            String content = new String(is.readAllBytes(), StandardCharsets.UTF_8);
+            System.out.println("Template SVG '" + SVG_TEMPLATE_PATH + "' carregado para o cache com sucesso!");
+            return content;
+        } catch (IOException e) {
+            System.err.println("ERRO FATAL: Não foi possível carregar o template SVG para o cache.");
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    private static Font carregarFonte() throws IOException, FontFormatException {
+        try (InputStream is = ImageGenerator.class.getResourceAsStream(FONT_PATH)) {
+            if (is == null) {
+                throw new IOException("Fonte não encontrada: " + FONT_PATH);
+            }
+            return Font.createFont(Font.TRUETYPE_FONT, is);
+        }
+    }
+
+    /**
+     * Associa cada atributo à sua âncora no template e cria o atlas de dígitos
+     * no tamanho de fonte e na cor correspondentes.
+     */
+    private static List<CamadaAtributo> criarCamadas(FichaTemplate template, Font fonteBase) throws IOException {
+        List<CamadaAtributo> resultado = new ArrayList<>();
+        for (SlotAtributo slot : SLOTS) {
+            FichaTemplate.AncoraTexto ancora = template.buscarAncora(slot.placeholder())
+                    .orElseThrow(() -> new IOException("Placeholder " + slot.placeholder() + " não encontrado no template."));
+            DigitAtlas atlas = new DigitAtlas(fonteBase.deriveFont(ancora.tamanhoFonte()), Color.decode(slot.corHex()));
+            resultado.add(new CamadaAtributo(slot, ancora, atlas));
         }
-        return svg;
+        return List.copyOf(resultado);
     }
-}
\ No newline at end of file
+}
@@ -1,15 +1,11 @@
 package com.bot.discord;
 
-import com.bot.model.Personagem;
 import com.bot.service.PersonagemService;
-import net.dv8tion.jda.api.entities.MessageEmbed;
-import net.dv8tion.jda.api.entities.User;
 import net.dv8tion.jda.api.events.interaction.component.ButtonInteractionEvent;
-import net.dv8tion.jda.api.requests.restaction.WebhookMessageEditAction;
-import net.dv8tion.jda.api.utils.FileUpload;
 
 import java.util.Collections;
-import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 
 /**
  * Classe utilitária para tratar eventos de interação de componentes, como botões.
@@ -20,6 +16,18 @@ public final class InteractionManager {
 
     private InteractionManager() {}
 
+    /**
+     * Retorna quantas fichas do {@link LimitadorTaxa} um clique consome, a partir do ID do botão.
+     * Cada ponto de atributo grava o personagem e re-renderiza a ficha (agrupados pelo
+     * {@link AttributeUpgradeCoalescer}); confirmar ou cancelar uma exclusão não custa nada.
+     *
+     * @param componentId O ID customizado do botão (ex: "attr-add:123:corpo").
+     * @return O custo em fichas.
+     */
+    public static int custo(String componentId) {
+        return componentId.startsWith("attr-add:") ? 1 : 0;
+    }
+
     /**
      * Processa todos os eventos de clique em botão ({@link ButtonInteractionEvent}).
      * <p>
@@ -30,8 +38,9 @@ public final class InteractionManager {
      *
      * @param event O objeto do evento de interação de botão.
      * @param service A instância do {@link PersonagemService} para executar ações de negócio.
+     * @return Um futuro completado quando a ação do botão termina.
      */
-    public static void handleButtonInteraction(ButtonInteractionEvent event, PersonagemService service) {
+    public static CompletionStage<?> handleButtonInteraction(ButtonInteractionEvent event, PersonagemService service) {
         String[] parts = event.getComponentId().split(":");
         String action = parts[0];
         String targetUserId = parts[1];
@@ -39,90 +48,46 @@ public final class InteractionManager {
         // Medida de segurança: Apenas o usuário que pode interagir com os botões.
         if (!event.getUser().getId().equals(targetUserId)) {
             event.reply("Você não pode interagir com os botões de outro usuário.").setEphemeral(true).queue();
-            return;
+            return CompletableFuture.completedFuture(null);
         }
 
         // Roteia a ação com base na primeira parte do ID do botão.
         switch (action) {
             case "delete-confirm", "delete-cancel":
                 event.deferEdit().queue();
-                handleDeleteConfirmation(event, service, action, targetUserId);
-                break;
+                return handleDeleteConfirmation(event, service, action, targetUserId);
 
             case "attr-add":
-                // deferEdit() é chamado dentro do método auxiliar
+                // O clique é confirmado na hora; salvamento e re-renderização são agrupados
+                // com os cliques seguintes pelo AttributeUpgradeCoalescer.
                 String attributeToUpgrade = parts[2];
-                handleAttributeUpgrade(event, service, targetUserId, attributeToUpgrade);
-                break;
+                return AttributeUpgradeCoalescer.registrarClique(event, service, targetUserId, attributeToUpgrade);
+
+            default:
+                return CompletableFuture.completedFuture(null);
         }
     }
 
     /**
      * Lida com a confirmação (ou cancelamento) da exclusão de um personagem.
      */
-    private static void handleDeleteConfirmation(ButtonInteractionEvent event, PersonagemService service, String action, String userId) {
+    private static CompletionStage<?> handleDeleteConfirmation(ButtonInteractionEvent event, PersonagemService service, String action, String userId) {
         if ("delete-confirm".equals(action)) {
-            service.deletar(userId);
-            event.getHook().editOriginal("Personagem deletado com sucesso.")
-                    .setComponents(Collections.emptyList()).queue();
-        } else {
-            event.getHook().editOriginal("Ação cancelada.")
-                    .setComponents(Collections.emptyList()).queue();
-        }
-    }
-
-
-    /**
-     * Lida com a lógica de upgrade de atributos após um clique no botão.
-     * Atualiza o personagem, gera uma nova imagem/embed e edita a mensagem original.
-     */
-    private static void handleAttributeUpgrade(ButtonInteractionEvent event, PersonagemService service, String userId, String attributeToUpgrade) {
-        event.deferEdit().queue();
-        User user = event.getUser();
-        Optional<Personagem> personagemOpt = service.buscarPorUsuario(userId);
-
-        if (personagemOpt.isEmpty()) {
-            event.getHook().editOriginal("Erro: Personagem não encontrado.")
-                    .setComponents(Collections.emptyList()).queue();
-            return;
-        }
-
-        Personagem p = personagemOpt.get();
-
-        if (p.getPontosDisponiveis() > 0 && service.podeAumentarAtributo(p, attributeToUpgrade)) {
-            p.setPontosDisponiveis(p.getPontosDisponiveis() - 1);
-            switch (attributeToUpgrade) {
-                case "corpo" -> p.setCorpo(p.getCorpo() + 1);
-                case "destreza" -> p.setDestreza(p.getDestreza() + 1);
-                case "mente" -> p.setMente(p.getMente() + 1);
-                case "vontade" -> p.setVontade(p.getVontade() + 1);
-            }
-            service.salvar(p);
-        }
-
-        try {
-            byte[] newImageBytes = ImageGenerator.generatePersonagemAttributesImage(p);
-            MessageEmbed newEmbed = EmbedManager.buildPersonagemEmbedWithImage(p, user);
-
-            WebhookMessageEditAction editAction = event.getHook()
-                    .editOriginalAttachments(FileUpload.fromData(newImageBytes, "ficha_atributos.png"))
-                    .setEmbeds(newEmbed);
-
-            // Se os pontos acabarem após o upgrade, remove os botões.
-            // Caso contrário, mantém os botões para o próximo clique.
-            if (p.getPontosDisponiveis() <= 0) {
-                editAction.setComponents(Collections.emptyList());
-            } else {
-                // Pega a fileira de botões da mensagem original para mantê-la
-                editAction.setComponents(event.getMessage().getActionRows());
-            }
-
-            editAction.queue();
-
-        } catch (Exception e) {
-            System.err.println("Erro ao re-gerar imagem de atributos: " + e.getMessage());
-            e.printStackTrace();
-            event.getHook().sendMessage("Ocorreu um erro ao atualizar a ficha.").setEphemeral(true).queue();
+            return service.deletarAsync(userId).handle((ok, ex) -> {
+                if (ex != null) {
+                    System.err.println("Erro ao deletar personagem: " + ex.getMessage());
+                    ex.printStackTrace();
+                    event.getHook().editOriginal("Ocorreu um erro ao deletar o personagem.")
+                            .setComponents(Collections.emptyList()).queue();
+                    return null;
+                }
+                event.getHook().editOriginal("Personagem deletado com sucesso.")
+                        .setComponents(Collections.emptyList()).queue();
+                return null;
+            });
         }
+        event.getHook().editOriginal("Ação cancelada.")
+                .setComponents(Collections.emptyList()).queue();
+        return CompletableFuture.completedFuture(null);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,209 @@
+package com.bot.discord;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Controle de admissão das interações por balde de fichas (token bucket): um balde por usuário
+ * e um por servidor.
+ * <p>
+ * Cada interação custa algumas fichas ({@code ICommand#getCusto()}, ou o custo do botão em
+ * {@link InteractionManager#custo}); os baldes se reenchem continuamente até a capacidade. Se um
+ * dos dois baldes não tiver fichas suficientes, a interação é recusada antes de qualquer acesso ao
+ * banco ou renderização, e o chamador responde com o tempo de espera.
+ * <p>
+ * Os baldes são criados sob demanda em um {@link ConcurrentHashMap}, que trava apenas o compartimento
+ * da chave em cada atualização. Um balde que já se reencheu por completo é equivalente a nenhum balde,
+ * então esses são descartados periodicamente, pela própria thread que chama, a cada minuto.
+ */
+public final class LimitadorTaxa {
+
+    /**
+     * Configuração de um balde.
+     *
+     * @param capacidade Fichas acumuláveis (a rajada máxima). Zero ou menos desliga o limite.
+     * @param porMinuto  Fichas repostas por minuto.
+     */
+    public record Limite(int capacidade, double porMinuto) {
+
+        boolean ativo() {
+            return capacidade > 0 && porMinuto > 0;
+        }
+
+        private double porNano() {
+            return porMinuto / TimeUnit.MINUTES.toNanos(1);
+        }
+    }
+
+    /**
+     * Resultado de uma tentativa de admissão.
+     *
+     * @param permitida   Se a interação pode prosseguir.
+     * @param porServidor Se a recusa veio do balde do servidor (e não do usuário).
+     * @param esperaMs    Tempo até haver fichas suficientes, se recusada.
+     */
+    public record Decisao(boolean permitida, boolean porServidor, long esperaMs) {
+        static final Decisao PERMITIDA = new Decisao(true, false, 0);
+    }
+
+    /**
+     * Fotografia dos contadores do limitador.
+     *
+     * @param descartados Baldes removidos por estarem cheios (usuários ou servidores inativos).
+     */
+    public record Estatisticas(long permitidas, long limitadasUsuario, long limitadasServidor,
+                               int baldesUsuario, int baldesServidor, long descartados,
+                               Limite limiteUsuario, Limite limiteServidor) {}
+
+    private static final long INTERVALO_LIMPEZA_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    /**
+     * Estado de um balde. Só é lido e alterado dentro de um {@code compute} do mapa, que o protege.
+     */
+    private static final class Balde {
+        private double fichas;
+        private long atualizadoEm;
+
+        private Balde(double fichas, long agora) {
+            this.fichas = fichas;
+            this.atualizadoEm = agora;
+        }
+
+        private void reencher(Limite limite, long agora) {
+            // Threads concorrentes podem chegar com instantes fora de ordem; o tempo do balde nunca volta.
+            if (agora - atualizadoEm > 0) {
+                fichas = Math.min(limite.capacidade(), fichas + (agora - atualizadoEm) * limite.porNano());
+                atualizadoEm = agora;
+            }
+        }
+    }
+
+    private static volatile LimitadorTaxa instancia = new LimitadorTaxa(new Limite(15, 30), new Limite(100, 600));
+
+    private final Limite limiteUsuario;
+    private final Limite limiteServidor;
+    private final Map<String, Balde> usuarios = new ConcurrentHashMap<>();
+    private final Map<String, Balde> servidores = new ConcurrentHashMap<>();
+    private final AtomicLong proximaLimpeza;
+
+    private final LongAdder permitidas = new LongAdder();
+    private final LongAdder limitadasUsuario = new LongAdder();
+    private final LongAdder limitadasServidor = new LongAdder();
+    private final LongAdder descartados = new LongAdder();
+
+    public LimitadorTaxa(Limite limiteUsuario, Limite limiteServidor) {
+        this.limiteUsuario = limiteUsuario;
+        this.limiteServidor = limiteServidor;
+        this.proximaLimpeza = new AtomicLong(System.nanoTime() + INTERVALO_LIMPEZA_NANOS);
+    }
+
+    public static LimitadorTaxa get() {
+        return instancia;
+    }
+
+    public static void configurar(LimitadorTaxa limitador) {
+        instancia = limitador;
+    }
+
+    /**
+     * Tenta retirar {@code custo} fichas do balde do usuário e do balde do servidor.
+     * Se o servidor recusar, as fichas do usuário são devolvidas.
+     *
+     * @param guildId O servidor da interação, ou {@code null} em mensagens diretas.
+     * @param custo   As fichas a retirar; zero ou menos sempre é permitido.
+     */
+    public Decisao consumir(String userId, String guildId, int custo) {
+        if (custo <= 0) {
+            return Decisao.PERMITIDA;
+        }
+        long agora = System.nanoTime();
+        limparSeNecessario(agora);
+
+        long espera = retirar(usuarios, userId, limiteUsuario, custo, agora);
+        if (espera > 0) {
+            limitadasUsuario.increment();
+            return new Decisao(false, false, espera);
+        }
+        if (guildId != null) {
+            espera = retirar(servidores, guildId, limiteServidor, custo, agora);
+            if (espera > 0) {
+                devolver(usuarios, userId, limiteUsuario, custo);
+                limitadasServidor.increment();
+                return new Decisao(false, true, espera);
+            }
+        }
+        permitidas.increment();
+        return Decisao.PERMITIDA;
+    }
+
+    public Estatisticas getEstatisticas() {
+        return new Estatisticas(permitidas.sum(), limitadasUsuario.sum(), limitadasServidor.sum(),
+                usuarios.size(), servidores.size(), descartados.sum(), limiteUsuario, limiteServidor);
+    }
+
+    /**
+     * @return Zero se as fichas foram retiradas; senão, os milissegundos até haver fichas suficientes.
+     */
+    private static long retirar(Map<String, Balde> baldes, String chave, Limite limite, int custo, long agora) {
+        if (!limite.ativo()) {
+            return 0;
+        }
+        // Um custo maior que a capacidade nunca seria atendido; cobra-se o balde inteiro.
+        double necessario = Math.min(custo, limite.capacidade());
+        long[] espera = {0};
+        baldes.compute(chave, (k, balde) -> {
+            if (balde == null) {
+                balde = new Balde(limite.capacidade(), agora);
+            } else {
+                balde.reencher(limite, agora);
+            }
+            if (balde.fichas >= necessario) {
+                balde.fichas -= necessario;
+            } else {
+                long nanos = (long) Math.ceil((necessario - balde.fichas) / limite.porNano());
+                espera[0] = Math.max(1, TimeUnit.NANOSECONDS.toMillis(nanos));
+            }
+            return balde;
+        });
+        return espera[0];
+    }
+
+    private static void devolver(Map<String, Balde> baldes, String chave, Limite limite, int custo) {
+        if (!limite.ativo()) {
+            return;
+        }
+        double devolvido = Math.min(custo, limite.capacidade());
+        baldes.computeIfPresent(chave, (k, balde) -> {
+            balde.fichas = Math.min(limite.capacidade(), balde.fichas + devolvido);
+            return balde;
+        });
+    }
+
+    /**
+     * Uma vez por minuto, a primeira thread a passar aqui descarta os baldes que já se reencheram.
+     */
+    private void limparSeNecessario(long agora) {
+        long prevista = proximaLimpeza.get();
+        if (agora - prevista < 0 || !proximaLimpeza.compareAndSet(prevista, agora + INTERVALO_LIMPEZA_NANOS)) {
+            return;
+        }
+        descartarCheios(usuarios, limiteUsuario, agora);
+        descartarCheios(servidores, limiteServidor, agora);
+    }
+
+    private void descartarCheios(Map<String, Balde> baldes, Limite limite, long agora) {
+        for (String chave : baldes.keySet()) {
+            baldes.computeIfPresent(chave, (k, balde) -> {
+                balde.reencher(limite, agora);
+                if (balde.fichas >= limite.capacidade()) {
+                    descartados.increment();
+                    return null;
+                }
+                return balde;
+            });
+        }
+    }
+}
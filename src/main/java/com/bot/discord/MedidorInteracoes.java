@@ -0,0 +1,168 @@
+package com.bot.discord;
+
+import com.bot.metricas.Histograma;
+import com.bot.metricas.Metricas;
+import okhttp3.Interceptor;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Mede, para cada comando e botão, o tempo até a interação ser confirmada ao Discord (o
+ * {@code deferReply}/{@code reply}) e o tempo até a última resposta (a edição final da mensagem).
+ * <p>
+ * Os comandos não precisam saber disso: o {@link ComandosListener} registra a chegada de cada interação
+ * ({@link #iniciar}) e um {@link Interceptor} no cliente HTTP da JDA ({@link #interceptor()}) observa as
+ * respostas do Discord às requisições daquele token de interação. A confirmação é a primeira resposta ao
+ * {@code /interactions/<id>/<token>/callback}; as edições e mensagens seguintes vão para
+ * {@code /webhooks/<aplicação>/<token>}. Como não há como saber qual edição é a última, a interação é
+ * consolidada quando fica {@value #QUIETO_SEGUNDOS} s sem novas respostas (ou na coleta seguinte a isso).
+ */
+public final class MedidorInteracoes {
+
+    /**
+     * As séries de uma interação (um comando ou uma ação de botão). Obtidas uma única vez por nome.
+     */
+    public static final class Medidas {
+        private final Histograma confirmacao;
+        private final Histograma respostaFinal;
+        private final Histograma execucao;
+        private final LongAdder falhas;
+
+        private Medidas(String nome) {
+            this.confirmacao = CONFIRMACAO.com(nome);
+            this.respostaFinal = RESPOSTA_FINAL.com(nome);
+            this.execucao = EXECUCAO.com(nome);
+            this.falhas = FALHAS.com(nome);
+        }
+
+        /**
+         * Registra o tempo do handler, da saída da fila do {@link DespachanteInteracoes} até o futuro
+         * devolvido por ele completar (incluindo banco, renderização e respostas encadeadas).
+         */
+        public void registrarExecucao(long inicioNanos, boolean falhou) {
+            execucao.registrarDesde(inicioNanos);
+            if (falhou) {
+                falhas.increment();
+            }
+        }
+    }
+
+    private static final class Acompanhamento {
+        private final Medidas medidas;
+        private final long inicio;
+        private volatile long ultimaResposta;
+        private volatile boolean confirmada;
+
+        private Acompanhamento(Medidas medidas, long inicio) {
+            this.medidas = medidas;
+            this.inicio = inicio;
+        }
+    }
+
+    private static final long QUIETO_SEGUNDOS = 10;
+    private static final long QUIETO_NANOS = TimeUnit.SECONDS.toNanos(QUIETO_SEGUNDOS);
+    // O token de uma interação vale por 15 minutos; depois disso nenhuma resposta pode mais chegar.
+    private static final long VALIDADE_NANOS = TimeUnit.MINUTES.toNanos(15);
+    private static final long INTERVALO_CONSOLIDACAO_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    private static final Metricas.Familia<Histograma> CONFIRMACAO = Metricas.get().histogramas(
+            "bot_interacao_confirmacao_segundos", "Tempo entre a chegada da interação e a confirmação aceita pelo Discord.", "interacao");
+    private static final Metricas.Familia<Histograma> RESPOSTA_FINAL = Metricas.get().histogramas(
+            "bot_interacao_resposta_final_segundos", "Tempo entre a chegada da interação e a última resposta ou edição aceita pelo Discord.", "interacao");
+    private static final Metricas.Familia<Histograma> EXECUCAO = Metricas.get().histogramas(
+            "bot_interacao_execucao_segundos", "Tempo de execução do handler da interação, sem a espera na fila do usuário.", "interacao");
+    private static final Metricas.Familia<LongAdder> FALHAS = Metricas.get().contadores(
+            "bot_interacao_falhas_total", "Handlers de interação cujo futuro terminou com exceção.", "interacao");
+
+    private static final Map<String, Medidas> medidasPorNome = new ConcurrentHashMap<>();
+    private static final Map<String, Acompanhamento> emAndamento = new ConcurrentHashMap<>();
+    private static final AtomicLong proximaConsolidacao = new AtomicLong(System.nanoTime());
+
+    static {
+        Metricas.get().medidor("bot_interacoes_acompanhadas", "Interações aguardando a última resposta para serem consolidadas.",
+                emAndamento::size);
+        Metricas.get().antesDaColeta(() -> consolidar(System.nanoTime()));
+    }
+
+    private MedidorInteracoes() {}
+
+    /**
+     * @return As séries de uma interação. Guarde o resultado; a consulta é feita uma vez por nome.
+     */
+    public static Medidas medidas(String nome) {
+        Medidas medidas = medidasPorNome.get(nome);
+        return medidas != null ? medidas : medidasPorNome.computeIfAbsent(nome, Medidas::new);
+    }
+
+    /**
+     * Começa a acompanhar as respostas de uma interação que acabou de chegar.
+     *
+     * @param token       O token da interação ({@code event.getToken()}).
+     * @param inicioNanos O instante de chegada, de {@link System#nanoTime()}.
+     */
+    public static void iniciar(String token, Medidas medidas, long inicioNanos) {
+        emAndamento.put(token, new Acompanhamento(medidas, inicioNanos));
+        long prevista = proximaConsolidacao.get();
+        if (inicioNanos - prevista >= 0 && proximaConsolidacao.compareAndSet(prevista, inicioNanos + INTERVALO_CONSOLIDACAO_NANOS)) {
+            consolidar(inicioNanos);
+        }
+    }
+
+    /**
+     * @return O interceptor a instalar no cliente HTTP da JDA ({@code JDABuilder#setHttpClientBuilder}).
+     */
+    public static Interceptor interceptor() {
+        return MedidorInteracoes::interceptar;
+    }
+
+    private static Response interceptar(Interceptor.Chain cadeia) throws IOException {
+        Response resposta = cadeia.proceed(cadeia.request());
+        if (resposta.isSuccessful() && !emAndamento.isEmpty()) {
+            registrarResposta(cadeia.request().url().pathSegments(), System.nanoTime());
+        }
+        return resposta;
+    }
+
+    private static void registrarResposta(List<String> segmentos, long agora) {
+        // .../interactions/<id>/<token>/callback ou .../webhooks/<aplicação>/<token>[/messages/...]
+        for (int i = 0; i + 2 < segmentos.size(); i++) {
+            String segmento = segmentos.get(i);
+            boolean callback = segmento.equals("interactions");
+            if (!callback && !segmento.equals("webhooks")) {
+                continue;
+            }
+            Acompanhamento a = emAndamento.get(segmentos.get(i + 2));
+            if (a == null) {
+                return;
+            }
+            if (!a.confirmada) {
+                a.confirmada = true;
+                a.medidas.confirmacao.registrar(agora - a.inicio);
+            }
+            a.ultimaResposta = agora;
+            return;
+        }
+    }
+
+    /**
+     * Registra a resposta final das interações que ficaram quietas e descarta as que expiraram sem resposta.
+     */
+    private static void consolidar(long agora) {
+        emAndamento.entrySet().removeIf(e -> {
+            Acompanhamento a = e.getValue();
+            long ultima = a.ultimaResposta;
+            if (ultima != 0 && agora - ultima >= QUIETO_NANOS) {
+                a.medidas.respostaFinal.registrar(ultima - a.inicio);
+                return true;
+            }
+            return agora - a.inicio >= VALIDADE_NANOS;
+        });
+    }
+}
@@ -0,0 +1,422 @@
+package com.bot.discord;
+
+import com.bot.model.Personagem;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Cache das imagens PNG da ficha, endereçado pelo conteúdo.
+ * <p>
+ * A imagem só com os atributos depende apenas dos quatro atributos principais, então a chave é a
+ * tupla (corpo, destreza, mente, vontade) compactada em um {@code long}. O cartão completo também
+ * mostra o nome, o nível e o retrato, e usa como chave um hash de 64 bits de tudo isso
+ * ({@link #chaveCartao}). O cache tem dois níveis:
+ * <ol>
+ *     <li>Memória: um LRU limitado por quantidade de entradas. As entradas valem para uma única
+ *     assinatura do template/modo de renderização; quando a assinatura muda, a memória é esvaziada.</li>
+ *     <li>Disco (opcional): um arquivo PNG por tupla em um diretório configurável, para que o
+ *     cache sobreviva a reinícios. O nome do arquivo inclui a assinatura do template/modo
+ *     de renderização, de modo que uma mudança no template não reaproveita imagens antigas.
+ *     O diretório é limitado em bytes: os arquivos menos usados recentemente são apagados, e os
+ *     de assinaturas que não existem mais são removidos ao configurar o cache
+ *     ({@link #descartarAssinaturasExceto}).</li>
+ * </ol>
+ * Os arrays retornados são compartilhados entre chamadas e não devem ser modificados.
+ */
+public final class RenderCache {
+
+    /**
+     * Fotografia dos contadores do cache.
+     */
+    public record Estatisticas(long acertosMemoria, long acertosDisco, long faltas, int entradasMemoria, int capacidade) {
+
+        /**
+         * @return A fração de buscas atendidas por algum dos níveis, entre 0 e 1.
+         */
+        public double taxaAcerto() {
+            long total = acertosMemoria + acertosDisco + faltas;
+            return total == 0 ? 0 : (double) (acertosMemoria + acertosDisco) / total;
+        }
+    }
+
+    /**
+     * Valor de chave que indica que o personagem não pode ser cacheado
+     * (algum atributo fora do intervalo de 16 bits).
+     */
+    public static final long SEM_CHAVE = -1L;
+
+    /**
+     * Limite padrão do diretório do nível em disco.
+     */
+    public static final long MAX_BYTES_DISCO_PADRAO = 256L * 1024 * 1024;
+
+    private static final String PREFIXO = "ficha-";
+    private static final String EXTENSAO = ".png";
+
+    private final int capacidade;
+    private final Path diretorio;
+    private final long maxBytesDisco;
+    private final Map<Long, byte[]> memoria;
+    // A assinatura das imagens em memória; protegida pelo lock de memoria.
+    private String assinaturaMemoria;
+
+    // Arquivos do nível em disco (nome -> tamanho), em ordem de uso; protegido pelo próprio lock.
+    private final Map<String, Long> indiceDisco = new LinkedHashMap<>(64, 0.75f, true);
+    private long bytesDisco;
+
+    private final LongAdder acertosMemoria = new LongAdder();
+    private final LongAdder acertosDisco = new LongAdder();
+    private final LongAdder faltas = new LongAdder();
+
+    /**
+     * Cria um cache apenas em memória.
+     *
+     * @param capacidade Quantidade máxima de imagens mantidas em memória.
+     */
+    public RenderCache(int capacidade) {
+        this.capacidade = Math.max(1, capacidade);
+        this.diretorio = null;
+        this.maxBytesDisco = 0;
+        this.memoria = criarMapaLru();
+    }
+
+    /**
+     * Cria um cache com os níveis de memória e disco, com o disco limitado a {@link #MAX_BYTES_DISCO_PADRAO}.
+     *
+     * @param capacidade Quantidade máxima de imagens mantidas em memória.
+     * @param diretorio  Diretório do segundo nível em disco, ou {@code null} para desativá-lo.
+     * @throws IOException Se o diretório não puder ser criado ou lido.
+     */
+    public RenderCache(int capacidade, Path diretorio) throws IOException {
+        this(capacidade, diretorio, MAX_BYTES_DISCO_PADRAO);
+    }
+
+    /**
+     * Cria um cache com os níveis de memória e disco.
+     * <p>
+     * Os arquivos já presentes no diretório entram no índice do disco, do mais antigo para o mais
+     * recente (pela data de modificação), e o excesso sobre o limite é apagado.
+     *
+     * @param capacidade    Quantidade máxima de imagens mantidas em memória.
+     * @param diretorio     Diretório do segundo nível em disco, ou {@code null} para desativá-lo.
+     * @param maxBytesDisco Tamanho máximo do diretório, em bytes.
+     * @throws IOException Se o diretório não puder ser criado ou lido.
+     */
+    public RenderCache(int capacidade, Path diretorio, long maxBytesDisco) throws IOException {
+        this.capacidade = Math.max(1, capacidade);
+        this.diretorio = diretorio;
+        this.maxBytesDisco = Math.max(0, maxBytesDisco);
+        this.memoria = criarMapaLru();
+        if (diretorio != null) {
+            Files.createDirectories(diretorio);
+            indexarDisco();
+        }
+    }
+
+    private Map<Long, byte[]> criarMapaLru() {
+        // LinkedHashMap em ordem de acesso: a entrada mais antiga é a menos usada recentemente.
+        return new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, byte[]> eldest) {
+                return size() > capacidade;
+            }
+        };
+    }
+
+    /**
+     * Compacta os quatro atributos do personagem em uma chave.
+     *
+     * @return A chave, ou {@link #SEM_CHAVE} se algum atributo não couber em 16 bits.
+     */
+    public static long chave(Personagem p) {
+        return chave(p.getCorpo(), p.getDestreza(), p.getMente(), p.getVontade());
+    }
+
+    static long chave(int corpo, int destreza, int mente, int vontade) {
+        if (((corpo | destreza | mente | vontade) & ~0xFFFF) != 0) {
+            return SEM_CHAVE;
+        }
+        return ((long) corpo << 48) | ((long) destreza << 32) | ((long) mente << 16) | vontade;
+    }
+
+    /**
+     * Calcula a chave do cartão: um hash de 64 bits (FNV-1a seguido da mistura final do MurmurHash3)
+     * dos atributos, do nível, do nome e do hash do retrato desenhado. Colisões são tão improváveis
+     * quanto as de qualquer cache endereçado por conteúdo.
+     *
+     * @param retrato O hash do retrato desenhado no cartão, ou {@code null} se a moldura estiver vazia.
+     * @return A chave, ou {@link #SEM_CHAVE} se algum atributo não couber em 16 bits.
+     */
+    public static long chaveCartao(Personagem p, String retrato) {
+        long atributos = chave(p);
+        if (atributos == SEM_CHAVE) {
+            return SEM_CHAVE;
+        }
+        long h = 0xcbf29ce484222325L;
+        h = misturar(h, atributos);
+        h = misturar(h, p.getNivel());
+        String nome = p.getNome() == null ? "" : p.getNome();
+        h = misturar(h, nome.length());
+        for (int i = 0; i < nome.length(); i++) {
+            h = misturar(h, nome.charAt(i));
+        }
+        String r = retrato == null ? "" : retrato;
+        for (int i = 0; i < r.length(); i++) {
+            h = misturar(h, r.charAt(i));
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h == SEM_CHAVE ? 0 : h;
+    }
+
+    private static long misturar(long h, long valor) {
+        return (h ^ valor) * 0x100000001b3L;
+    }
+
+    /**
+     * Busca uma imagem em memória e, se não encontrada, no disco (promovendo-a para a memória).
+     *
+     * @param chave      A chave da tupla de atributos.
+     * @param assinatura Identifica o template e o modo de renderização que geraram a imagem.
+     * @return Os bytes do PNG, ou {@code null} em caso de falta.
+     */
+    public byte[] buscar(long chave, String assinatura) {
+        if (chave == SEM_CHAVE) {
+            return null;
+        }
+        byte[] png;
+        synchronized (memoria) {
+            usarAssinatura(assinatura);
+            png = memoria.get(chave);
+        }
+        if (png != null) {
+            acertosMemoria.increment();
+            return png;
+        }
+
+        if (diretorio != null) {
+            String nome = nomeArquivo(chave, assinatura);
+            try {
+                png = Files.readAllBytes(diretorio.resolve(nome));
+                acertosDisco.increment();
+                synchronized (indiceDisco) {
+                    indiceDisco.get(nome);
+                }
+                synchronized (memoria) {
+                    usarAssinatura(assinatura);
+                    memoria.put(chave, png);
+                }
+                return png;
+            } catch (NoSuchFileException e) {
+                // Falta também no disco (o arquivo pode ter sido apagado por fora).
+                removerDoIndice(nome);
+            } catch (IOException e) {
+                System.err.println("Erro ao ler imagem do cache em disco: " + e.getMessage());
+            }
+        }
+        faltas.increment();
+        return null;
+    }
+
+    /**
+     * Guarda uma imagem recém-renderizada nos dois níveis do cache.
+     */
+    public void guardar(long chave, String assinatura, byte[] png) {
+        if (chave == SEM_CHAVE) {
+            return;
+        }
+        synchronized (memoria) {
+            usarAssinatura(assinatura);
+            memoria.put(chave, png);
+        }
+        if (diretorio != null && png.length <= maxBytesDisco) {
+            String nome = nomeArquivo(chave, assinatura);
+            try {
+                // Escreve em um arquivo temporário e move, para nunca expor um PNG pela metade.
+                Path temporario = Files.createTempFile(diretorio, PREFIXO, ".tmp");
+                Files.write(temporario, png);
+                Path destino = diretorio.resolve(nome);
+                try {
+                    Files.move(temporario, destino, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temporario, destino, StandardCopyOption.REPLACE_EXISTING);
+                }
+                adicionarAoIndice(nome, png.length);
+            } catch (IOException e) {
+                System.err.println("Erro ao gravar imagem no cache em disco: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Verifica se a chave já está em algum dos níveis, sem contar como acerto ou falta.
+     */
+    public boolean contem(long chave, String assinatura) {
+        if (chave == SEM_CHAVE) {
+            return false;
+        }
+        synchronized (memoria) {
+            usarAssinatura(assinatura);
+            if (memoria.containsKey(chave)) {
+                return true;
+            }
+        }
+        if (diretorio == null) {
+            return false;
+        }
+        synchronized (indiceDisco) {
+            return indiceDisco.containsKey(nomeArquivo(chave, assinatura));
+        }
+    }
+
+    /**
+     * Apaga do disco as imagens de assinaturas que não estão em {@code validas} (templates ou modos
+     * que não existem mais), que nunca mais seriam lidas.
+     *
+     * @return A quantidade de arquivos apagados.
+     */
+    public int descartarAssinaturasExceto(Set<String> validas) {
+        if (diretorio == null) {
+            return 0;
+        }
+        List<String> obsoletos = new ArrayList<>();
+        synchronized (indiceDisco) {
+            for (String nome : indiceDisco.keySet()) {
+                if (!validas.contains(assinaturaDoArquivo(nome))) {
+                    obsoletos.add(nome);
+                }
+            }
+        }
+        for (String nome : obsoletos) {
+            removerDoIndice(nome);
+            apagar(nome);
+        }
+        return obsoletos.size();
+    }
+
+    /**
+     * Descarta as imagens em memória. Os arquivos em disco são mantidos, pois
+     * já são separados pela assinatura.
+     */
+    public void limparMemoria() {
+        synchronized (memoria) {
+            memoria.clear();
+        }
+    }
+
+    public Estatisticas getEstatisticas() {
+        int entradas;
+        synchronized (memoria) {
+            entradas = memoria.size();
+        }
+        return new Estatisticas(acertosMemoria.sum(), acertosDisco.sum(), faltas.sum(), entradas, capacidade);
+    }
+
+    /**
+     * As imagens em memória não guardam a assinatura: se ela mudou (outro template ou modo), o que está
+     * em memória é de outra versão e é descartado. Deve ser chamado com o lock de {@code memoria}.
+     */
+    private void usarAssinatura(String assinatura) {
+        if (!assinatura.equals(assinaturaMemoria)) {
+            memoria.clear();
+            assinaturaMemoria = assinatura;
+        }
+    }
+
+    private static String nomeArquivo(long chave, String assinatura) {
+        return PREFIXO + assinatura + "-" + Long.toHexString(chave) + EXTENSAO;
+    }
+
+    /**
+     * @return A assinatura no nome de um arquivo do cache (que pode conter hífens; a chave não contém).
+     */
+    private static String assinaturaDoArquivo(String nome) {
+        return nome.substring(PREFIXO.length(), nome.lastIndexOf('-'));
+    }
+
+    /**
+     * Carrega no índice os PNGs já presentes no diretório e apaga os temporários de gravações interrompidas.
+     */
+    private void indexarDisco() throws IOException {
+        record Arquivo(String nome, long tamanho, long modificadoEm) {}
+        List<Arquivo> arquivos = new ArrayList<>();
+        try (Stream<Path> caminhos = Files.list(diretorio)) {
+            for (Iterator<Path> it = caminhos.iterator(); it.hasNext(); ) {
+                Path caminho = it.next();
+                String nome = caminho.getFileName().toString();
+                if (!nome.startsWith(PREFIXO)) {
+                    continue;
+                }
+                if (nome.endsWith(".tmp")) {
+                    Files.deleteIfExists(caminho);
+                } else if (nome.endsWith(EXTENSAO) && nome.lastIndexOf('-') >= PREFIXO.length()) {
+                    BasicFileAttributes atributos = Files.readAttributes(caminho, BasicFileAttributes.class);
+                    arquivos.add(new Arquivo(nome, atributos.size(), atributos.lastModifiedTime().toMillis()));
+                }
+            }
+        }
+        arquivos.sort(Comparator.comparingLong(Arquivo::modificadoEm));
+        for (Arquivo arquivo : arquivos) {
+            adicionarAoIndice(arquivo.nome(), arquivo.tamanho());
+        }
+    }
+
+    /**
+     * Registra um arquivo no índice e apaga os menos usados enquanto o diretório passar do limite.
+     */
+    private void adicionarAoIndice(String nome, long tamanho) {
+        List<String> excedentes = new ArrayList<>();
+        synchronized (indiceDisco) {
+            Long anterior = indiceDisco.put(nome, tamanho);
+            bytesDisco += tamanho - (anterior != null ? anterior : 0);
+            Iterator<Map.Entry<String, Long>> it = indiceDisco.entrySet().iterator();
+            while (bytesDisco > maxBytesDisco && it.hasNext()) {
+                Map.Entry<String, Long> maisAntigo = it.next();
+                if (maisAntigo.getKey().equals(nome)) {
+                    continue;
+                }
+                bytesDisco -= maisAntigo.getValue();
+                excedentes.add(maisAntigo.getKey());
+                it.remove();
+            }
+        }
+        for (String excedente : excedentes) {
+            apagar(excedente);
+        }
+    }
+
+    private void removerDoIndice(String nome) {
+        synchronized (indiceDisco) {
+            Long tamanho = indiceDisco.remove(nome);
+            if (tamanho != null) {
+                bytesDisco -= tamanho;
+            }
+        }
+    }
+
+    private void apagar(String nome) {
+        try {
+            Files.deleteIfExists(diretorio.resolve(nome));
+        } catch (IOException e) {
+            System.err.println("Erro ao apagar imagem do cache em disco: " + e.getMessage());
+        }
+    }
+}
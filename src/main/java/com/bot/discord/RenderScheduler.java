@@ -0,0 +1,225 @@
+package com.bot.discord;
+
+import com.bot.metricas.Histograma;
+import com.bot.metricas.Metricas;
+import com.bot.model.Personagem;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Agendador dedicado às renderizações da ficha, com paralelismo e fila limitados.
+ * <p>
+ * As renderizações rodam em um pool fixo (por padrão, um thread por núcleo) e aguardam em uma
+ * fila de prioridade dividida em faixas ({@link Faixa}): visualizações interativas e efêmeras
+ * são atendidas antes das postagens públicas do /mostrar, que por sua vez passam na frente
+ * do /ver dos administradores; o pré-aquecimento do cache (/cache-ficha) fica por último.
+ * Dentro de uma faixa, a ordem de chegada é mantida.
+ * <p>
+ * Quando a fila está cheia, a renderização é recusada imediatamente: o futuro retornado falha com
+ * {@link RejectedExecutionException} e o chamador deve degradar para o embed apenas com texto
+ * ({@link EmbedManager#buildPersonagemEmbedTextOnly}). Imagens já presentes no {@link RenderCache}
+ * são devolvidas sem passar pela fila.
+ */
+public final class RenderScheduler {
+
+    /**
+     * Faixas de prioridade, da mais para a menos urgente.
+     */
+    public enum Faixa {
+        INTERATIVO,
+        PUBLICO,
+        ADMIN,
+        PREAQUECIMENTO
+    }
+
+    /**
+     * Fotografia da fila e dos tempos de espera.
+     */
+    public record Estatisticas(int threads, int naFila, int capacidade, long executadas, long recusadas,
+                               double esperaMediaMs, double esperaMaximaMs) {}
+
+    private static final Histograma TEMPO_RENDER = Metricas.get().histograma(
+            "bot_render_segundos", "Tempo de renderização de uma ficha no pool, incluindo a codificação do PNG.");
+    private static final Histograma TEMPO_ESPERA = Metricas.get().histograma(
+            "bot_render_espera_segundos", "Tempo que uma renderização aguardou na fila do agendador.");
+
+    private static volatile RenderScheduler instancia =
+            new RenderScheduler(Runtime.getRuntime().availableProcessors(), 64);
+
+    private final ThreadPoolExecutor executor;
+    private final int capacidade;
+    private final AtomicInteger pendentes = new AtomicInteger();
+    private final AtomicLong sequencia = new AtomicLong();
+
+    private final LongAdder executadas = new LongAdder();
+    private final LongAdder recusadas = new LongAdder();
+    private final LongAdder esperaTotalNanos = new LongAdder();
+    private final AtomicLong esperaMaximaNanos = new AtomicLong();
+
+    /**
+     * @param threads    Quantidade de renderizações simultâneas.
+     * @param capacidade Quantidade máxima de renderizações aguardando na fila.
+     */
+    public RenderScheduler(int threads, int capacidade) {
+        int tamanho = Math.max(1, threads);
+        this.capacidade = Math.max(1, capacidade);
+        AtomicInteger contador = new AtomicInteger();
+        ThreadFactory fabrica = r -> {
+            Thread t = new Thread(r, "render-" + contador.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+        this.executor = new ThreadPoolExecutor(tamanho, tamanho, 30, TimeUnit.SECONDS,
+                new PriorityBlockingQueue<>(), fabrica);
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * @return O agendador global usado pelos comandos.
+     */
+    public static RenderScheduler get() {
+        return instancia;
+    }
+
+    /**
+     * Substitui o agendador global, desligando o anterior.
+     */
+    public static void configurar(RenderScheduler novo) {
+        RenderScheduler antigo = instancia;
+        instancia = novo;
+        antigo.desligar();
+    }
+
+    /**
+     * Agenda a renderização da ficha de um personagem.
+     * <p>
+     * Os dados do personagem são copiados no momento da chamada; alterações posteriores no objeto
+     * não afetam a imagem gerada. Se o retrato do cartão ainda não estiver no {@link RetratoCache},
+     * a renderização só entra na fila depois que ele for carregado (em uma thread virtual, sem ocupar
+     * o pool), ou com a moldura vazia se o carregamento falhar ou demorar demais.
+     *
+     * @param personagem O personagem a renderizar.
+     * @param faixa      A prioridade da renderização.
+     * @return Um futuro com os bytes do PNG. Falha com {@link RejectedExecutionException} se a fila estiver cheia.
+     */
+    public CompletableFuture<byte[]> renderizar(Personagem personagem, Faixa faixa) {
+        Personagem copia = new Personagem(personagem);
+        if (!ImageGenerator.isCartao()) {
+            return enfileirar(copia, RetratoCache.SEM_RETRATO, faixa);
+        }
+        RetratoCache.Retrato retrato = RetratoCache.get().buscar(copia.getFotoUrl());
+        if (retrato != null) {
+            return enfileirar(copia, retrato, faixa);
+        }
+        return RetratoCache.get().carregar(copia.getFotoUrl())
+                .completeOnTimeout(RetratoCache.SEM_RETRATO, RetratoCache.ESPERA_MAXIMA_MS, TimeUnit.MILLISECONDS)
+                .exceptionally(ex -> RetratoCache.SEM_RETRATO)
+                .thenCompose(r -> enfileirar(copia, r, faixa));
+    }
+
+    private CompletableFuture<byte[]> enfileirar(Personagem copia, RetratoCache.Retrato retrato, Faixa faixa) {
+        byte[] emCache = ImageGenerator.buscarImagemEmCache(copia, retrato);
+        if (emCache != null) {
+            return CompletableFuture.completedFuture(emCache);
+        }
+
+        CompletableFuture<byte[]> futuro = new CompletableFuture<>();
+        if (pendentes.incrementAndGet() > capacidade) {
+            pendentes.decrementAndGet();
+            recusadas.increment();
+            futuro.completeExceptionally(new RejectedExecutionException("Fila de renderização cheia."));
+            return futuro;
+        }
+
+        try {
+            executor.execute(new Tarefa(copia, retrato, faixa, sequencia.incrementAndGet(), futuro));
+        } catch (RejectedExecutionException e) {
+            pendentes.decrementAndGet();
+            recusadas.increment();
+            futuro.completeExceptionally(e);
+        }
+        return futuro;
+    }
+
+    /**
+     * Indica se uma falha de renderização foi uma recusa por fila cheia (e não um erro real),
+     * caso em que o chamador deve apenas degradar para o embed de texto.
+     */
+    public static boolean isRecusa(Throwable t) {
+        for (Throwable atual = t; atual != null; atual = atual.getCause()) {
+            if (atual instanceof RejectedExecutionException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public Estatisticas getEstatisticas() {
+        long total = executadas.sum();
+        double media = total == 0 ? 0 : esperaTotalNanos.sum() / (double) total / 1_000_000;
+        return new Estatisticas(executor.getMaximumPoolSize(), executor.getQueue().size(), capacidade,
+                total, recusadas.sum(), media, esperaMaximaNanos.get() / 1_000_000.0);
+    }
+
+    /**
+     * Para de aceitar renderizações e aguarda brevemente as que estão em andamento.
+     */
+    public void desligar() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private final class Tarefa implements Runnable, Comparable<Tarefa> {
+        private final Personagem personagem;
+        private final RetratoCache.Retrato retrato;
+        private final Faixa faixa;
+        private final long ordem;
+        private final long enfileiradaEm = System.nanoTime();
+        private final CompletableFuture<byte[]> futuro;
+
+        private Tarefa(Personagem personagem, RetratoCache.Retrato retrato, Faixa faixa, long ordem,
+                       CompletableFuture<byte[]> futuro) {
+            this.personagem = personagem;
+            this.retrato = retrato;
+            this.faixa = faixa;
+            this.ordem = ordem;
+            this.futuro = futuro;
+        }
+
+        @Override
+        public void run() {
+            pendentes.decrementAndGet();
+            long inicio = System.nanoTime();
+            long espera = inicio - enfileiradaEm;
+            esperaTotalNanos.add(espera);
+            esperaMaximaNanos.accumulateAndGet(espera, Math::max);
+            TEMPO_ESPERA.registrar(espera);
+            executadas.increment();
+            try {
+                byte[] png = ImageGenerator.renderizarParaCache(personagem, retrato);
+                TEMPO_RENDER.registrarDesde(inicio);
+                futuro.complete(png);
+            } catch (Throwable t) {
+                futuro.completeExceptionally(t);
+            }
+        }
+
+        @Override
+        public int compareTo(Tarefa outra) {
+            int porFaixa = Integer.compare(faixa.ordinal(), outra.faixa.ordinal());
+            return porFaixa != 0 ? porFaixa : Long.compare(ordem, outra.ordem);
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package com.bot.discord;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache dos retratos dos personagens já decodificados e recortados no tamanho da moldura do cartão
+ * ({@value #LADO} x {@value #LADO} pixels), endereçado pelo hash da imagem no {@link ArmazemAvatares}.
+ * <p>
+ * A renderização do cartão nunca espera por disco ou rede: ela só usa retratos que já estão aqui
+ * ({@link #buscar}). Os que faltam são carregados em segundo plano ({@link #carregar}): a URL é
+ * importada para o armazém se ainda não estiver lá, a imagem é decodificada, recortada no centro
+ * e redimensionada uma única vez. O {@code /foto} dispara esse carregamento assim que a foto muda,
+ * para que a próxima ficha já saia com o retrato.
+ * <p>
+ * Como a chave é o hash do conteúdo, uma entrada nunca fica desatualizada; as entradas são
+ * descartadas apenas por tamanho (LRU).
+ */
+public final class RetratoCache {
+
+    /**
+     * Lado, em pixels, dos retratos guardados (e da moldura do cartão).
+     */
+    public static final int LADO = 128;
+
+    /**
+     * Tempo máximo que uma renderização espera pelo carregamento do retrato antes de sair com a moldura vazia.
+     */
+    static final long ESPERA_MAXIMA_MS = 2000;
+
+    /**
+     * Um retrato pronto para ser desenhado.
+     *
+     * @param hash   O hash da imagem no armazém, ou {@code null} se o personagem não tiver foto.
+     * @param imagem A imagem {@value #LADO} x {@value #LADO}, ou {@code null} se o personagem não tiver foto.
+     *               É compartilhada e não deve ser alterada.
+     */
+    public record Retrato(String hash, BufferedImage imagem) {}
+
+    /**
+     * Retrato de quem não tem foto: o cartão é desenhado com a moldura vazia.
+     */
+    public static final Retrato SEM_RETRATO = new Retrato(null, null);
+
+    /**
+     * Fotografia dos contadores do cache.
+     *
+     * @param carregados Retratos decodificados e redimensionados em segundo plano.
+     * @param falhas     Carregamentos que falharam (download recusado, imagem inválida).
+     */
+    public record Estatisticas(long acertos, long faltas, long carregados, long falhas, int entradas, int capacidade) {
+
+        /**
+         * @return A fração de buscas atendidas pelo cache, entre 0 e 1.
+         */
+        public double taxaAcerto() {
+            long total = acertos + faltas;
+            return total == 0 ? 0 : (double) acertos / total;
+        }
+    }
+
+    private static volatile RetratoCache instancia = new RetratoCache(512);
+
+    private final int capacidade;
+    private final Map<String, Retrato> retratos;
+    private final Map<String, CompletableFuture<Retrato>> emAndamento = new ConcurrentHashMap<>();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final LongAdder acertos = new LongAdder();
+    private final LongAdder faltas = new LongAdder();
+    private final LongAdder carregados = new LongAdder();
+    private final LongAdder falhas = new LongAdder();
+
+    /**
+     * @param capacidade Quantidade máxima de retratos mantidos em memória.
+     */
+    public RetratoCache(int capacidade) {
+        this.capacidade = Math.max(1, capacidade);
+        // LinkedHashMap em ordem de acesso: a entrada mais antiga é a menos usada recentemente.
+        this.retratos = new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Retrato> eldest) {
+                return size() > RetratoCache.this.capacidade;
+            }
+        };
+    }
+
+    public static RetratoCache get() {
+        return instancia;
+    }
+
+    public static void configurar(RetratoCache cache) {
+        instancia = cache;
+    }
+
+    /**
+     * Busca o retrato de um {@code foto_url} sem bloquear. Se ele ainda não estiver pronto,
+     * o carregamento é iniciado em segundo plano.
+     *
+     * @return O retrato ({@link #SEM_RETRATO} se não houver foto), ou {@code null} se ainda não estiver pronto.
+     */
+    public Retrato buscar(String fotoUrl) {
+        if (fotoUrl == null || fotoUrl.isBlank()) {
+            return SEM_RETRATO;
+        }
+        String hash = ArmazemAvatares.get().hashConhecido(fotoUrl);
+        if (hash != null) {
+            synchronized (this) {
+                Retrato retrato = retratos.get(hash);
+                if (retrato != null) {
+                    acertos.increment();
+                    return retrato;
+                }
+            }
+        }
+        faltas.increment();
+        preCarregar(fotoUrl);
+        return null;
+    }
+
+    /**
+     * Carrega o retrato de um {@code foto_url} em uma thread virtual, importando a imagem para o
+     * {@link ArmazemAvatares} se necessário. Carregamentos simultâneos da mesma foto são compartilhados.
+     *
+     * @return Um futuro com o retrato; falha se a imagem não puder ser obtida.
+     */
+    public CompletableFuture<Retrato> carregar(String fotoUrl) {
+        if (fotoUrl == null || fotoUrl.isBlank()) {
+            return CompletableFuture.completedFuture(SEM_RETRATO);
+        }
+        ArmazemAvatares armazem = ArmazemAvatares.get();
+        String hash = armazem.hashConhecido(fotoUrl);
+        if (hash != null) {
+            synchronized (this) {
+                Retrato retrato = retratos.get(hash);
+                if (retrato != null) {
+                    return CompletableFuture.completedFuture(retrato);
+                }
+            }
+        }
+        CompletableFuture<String> hashFuturo = hash != null
+                ? CompletableFuture.completedFuture(hash)
+                : armazem.importarAsync(fotoUrl);
+        return hashFuturo.thenCompose(h -> preparar(armazem, h));
+    }
+
+    /**
+     * Inicia o carregamento do retrato em segundo plano, ignorando falhas (o cartão sai com a moldura vazia).
+     */
+    public void preCarregar(String fotoUrl) {
+        carregar(fotoUrl).exceptionally(ex -> {
+            falhas.increment();
+            return null;
+        });
+    }
+
+    public synchronized Estatisticas getEstatisticas() {
+        return new Estatisticas(acertos.sum(), faltas.sum(), carregados.sum(), falhas.sum(), retratos.size(), capacidade);
+    }
+
+    private CompletableFuture<Retrato> preparar(ArmazemAvatares armazem, String hash) {
+        CompletableFuture<Retrato> futuro = emAndamento.computeIfAbsent(hash,
+                h -> CompletableFuture.supplyAsync(() -> decodificar(armazem, h), executor));
+        // Removido só depois de registrado, para que uma falha não fique guardada no mapa.
+        futuro.whenComplete((retrato, ex) -> emAndamento.remove(hash, futuro));
+        return futuro;
+    }
+
+    private Retrato decodificar(ArmazemAvatares armazem, String hash) {
+        BufferedImage original;
+        try {
+            original = armazem.imagem(hash);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (original == null) {
+            throw new IllegalStateException("Imagem " + hash + " não encontrada no armazém de avatares.");
+        }
+        Retrato retrato = new Retrato(hash, recortar(original));
+        synchronized (this) {
+            retratos.put(hash, retrato);
+        }
+        carregados.increment();
+        return retrato;
+    }
+
+    /**
+     * Recorta o quadrado central da imagem e o ajusta para {@value #LADO} x {@value #LADO}.
+     */
+    static BufferedImage recortar(BufferedImage original) {
+        int lado = Math.min(original.getWidth(), original.getHeight());
+        BufferedImage quadrado = original.getSubimage((original.getWidth() - lado) / 2,
+                (original.getHeight() - lado) / 2, lado, lado);
+        BufferedImage reduzida = ArmazemAvatares.reduzir(quadrado, LADO);
+        if (reduzida.getWidth() == LADO && reduzida.getHeight() == LADO) {
+            return reduzida;
+        }
+        // Imagens menores que a moldura são ampliadas uma única vez aqui, e não a cada renderização.
+        BufferedImage ajustada = new BufferedImage(LADO, LADO, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = ajustada.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.drawImage(reduzida, 0, 0, LADO, LADO, null);
+        } finally {
+            g.dispose();
+        }
+        return ajustada;
+    }
+}
@@ -0,0 +1,123 @@
+package com.bot.discord;
+
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * O template SVG da ficha pré-dividido em segmentos imutáveis, para o modo de renderização BATIK.
+ * <p>
+ * A divisão é feita uma única vez, na carga. Cada placeholder (ex: {@code _MENTE_}) gera dois
+ * slots: a cor de preenchimento, inserida no início do atributo {@code style} do elemento, e o
+ * valor, que substitui o texto do placeholder. O restante do documento fica em segmentos fixos.
+ * <p>
+ * A cada renderização, {@link #abrir(String[], int[])} devolve um {@link Reader} que percorre os
+ * segmentos e os valores dos slots em sequência, sem regex e sem montar uma cópia do documento.
+ */
+final class SvgTemplate {
+
+    private static final Pattern TEXT_PLACEHOLDER = Pattern.compile("(<(text|tspan)[^>]*>)(_[A-Z]+_)</\\2>");
+    private static final Pattern FILL = Pattern.compile("fill:#[0-9a-fA-F]{6};?");
+    private static final Pattern FILL_OPACITY = Pattern.compile("fill-opacity:[0-9.]+;?");
+    private static final String STYLE = "style=\"";
+
+    /**
+     * Um ponto variável do template: a cor ou o valor do placeholder de índice {@code indice}.
+     */
+    private record Slot(int indice, boolean cor) {}
+
+    // partes[i] é um segmento fixo (String) ou um Slot.
+    private final Object[] partes;
+
+    private SvgTemplate(Object[] partes) {
+        this.partes = partes;
+    }
+
+    /**
+     * Divide o SVG em segmentos fixos e slots.
+     *
+     * @param svg          O conteúdo completo do SVG.
+     * @param placeholders Os placeholders a localizar; a ordem define os índices usados em {@link #abrir}.
+     *                     Placeholders ausentes no documento são ignorados.
+     * @return O template compilado.
+     */
+    static SvgTemplate compilar(String svg, List<String> placeholders) {
+        List<Object> partes = new ArrayList<>();
+        Matcher m = TEXT_PLACEHOLDER.matcher(svg);
+        int posicao = 0;
+        while (m.find()) {
+            int indice = placeholders.indexOf(m.group(3));
+            if (indice < 0) {
+                continue;
+            }
+            partes.add(svg.substring(posicao, m.start()));
+
+            // A cor original é removida da tag de abertura e a nova é inserida logo após 'style="'.
+            String tagAbertura = FILL_OPACITY.matcher(FILL.matcher(m.group(1)).replaceAll("")).replaceAll("");
+            int inicioEstilo = tagAbertura.indexOf(STYLE);
+            if (inicioEstilo >= 0) {
+                int fimPrefixo = inicioEstilo + STYLE.length();
+                partes.add(tagAbertura.substring(0, fimPrefixo));
+                partes.add(new Slot(indice, true));
+                partes.add(tagAbertura.substring(fimPrefixo));
+            } else {
+                partes.add(tagAbertura);
+            }
+
+            partes.add(new Slot(indice, false));
+            partes.add("</" + m.group(2) + ">");
+            posicao = m.end();
+        }
+        partes.add(svg.substring(posicao));
+        return new SvgTemplate(partes.toArray());
+    }
+
+    /**
+     * Abre um leitor sobre o documento preenchido.
+     *
+     * @param cores   A cor hexadecimal (ex: {@code #d85762}) de cada placeholder, na ordem da compilação.
+     * @param valores O valor numérico de cada placeholder, na ordem da compilação.
+     * @return Um {@link Reader} de uso único sobre o SVG final.
+     */
+    Reader abrir(String[] cores, int[] valores) {
+        return new Reader() {
+            private int parte = -1;
+            private String atual = "";
+            private int posicao;
+
+            @Override
+            public int read(char[] cbuf, int off, int len) {
+                if (len == 0) {
+                    return 0;
+                }
+                while (posicao >= atual.length()) {
+                    if (++parte >= partes.length) {
+                        return -1;
+                    }
+                    atual = resolver(partes[parte]);
+                    posicao = 0;
+                }
+                int n = Math.min(len, atual.length() - posicao);
+                atual.getChars(posicao, posicao + n, cbuf, off);
+                posicao += n;
+                return n;
+            }
+
+            private String resolver(Object p) {
+                if (p instanceof Slot slot) {
+                    return slot.cor() ? "fill:" + cores[slot.indice()] + ";" : Integer.toString(valores[slot.indice()]);
+                }
+                return (String) p;
+            }
+
+            @Override
+            public void close() {
+                parte = partes.length;
+                atual = "";
+                posicao = 0;
+            }
+        };
+    }
+}
@@ -0,0 +1,121 @@
+package com.bot.discord.comandos;
+
+import com.bot.Bot;
+import com.bot.discord.EmbedCache;
+import com.bot.discord.EmbedManager;
+import com.bot.discord.ImageGenerator;
+import com.bot.discord.RenderCache;
+import com.bot.discord.RenderScheduler;
+import com.bot.discord.RetratoCache;
+import com.bot.service.PersonagemService;
+import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
+import net.dv8tion.jda.api.interactions.commands.OptionMapping;
+import net.dv8tion.jda.api.interactions.commands.OptionType;
+import net.dv8tion.jda.api.interactions.commands.build.OptionData;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Implementa a lógica para o comando /cache-ficha, que é restrito a administradores.
+ * <p>
+ * Permite consultar as estatísticas dos caches da ficha (imagens, retratos e embeds) e pré-aquecer o de imagens,
+ * renderizando antecipadamente todas as combinações de atributos válidas até uma soma máxima
+ * (só quando a ficha é exibida sem o cartão, veja {@link ImageGenerator#isCartao()}).
+ */
+public class CacheFichaCommand implements ICommand {
+
+    private static final int SOMA_MAXIMA_PADRAO = 30;
+
+    @Override
+    public String getName() {
+        return "cache-ficha";
+    }
+
+    @Override
+    public String getDescription() {
+        return "(Admin) Consulta ou pré-aquece o cache de imagens das fichas.";
+    }
+
+    @Override
+    public List<OptionData> getOptions() {
+        return List.of(
+                new OptionData(OptionType.STRING, "acao", "O que fazer com o cache.", true)
+                        .addChoice("Ver estatísticas", "estatisticas")
+                        .addChoice("Pré-aquecer", "aquecer"),
+                new OptionData(OptionType.INTEGER, "soma_maxima",
+                        "Soma máxima dos atributos a pré-renderizar (padrão: " + SOMA_MAXIMA_PADRAO + ").", false)
+                        .setRequiredRange(0, 200)
+        );
+    }
+
+    @Override
+    public boolean isAdminCommand() {
+        return true;
+    }
+
+    /**
+     * Executa a lógica do comando /cache-ficha.
+     * O pré-aquecimento roda em background, com as renderizações na faixa de menor prioridade do
+     * {@link RenderScheduler}, e a resposta é editada quando ele termina.
+     *
+     * @param event   O objeto do evento de interação.
+     * @param service A instância do serviço de personagem, que define a regra de distribuição de pontos.
+     */
+    @Override
+    public CompletionStage<?> execute(SlashCommandInteractionEvent event, PersonagemService service) {
+        event.deferReply(true).queue();
+
+        String acao = event.getOption("acao").getAsString();
+        if (!"aquecer".equals(acao)) {
+            event.getHook().editOriginal(formatarEstatisticas()).queue();
+            return CompletableFuture.completedFuture(null);
+        }
+
+        if (ImageGenerator.isCartao()) {
+            event.getHook().editOriginal("As fichas são exibidas como cartões com nome, nível e retrato, que não podem ser "
+                    + "pré-renderizados. O cache é preenchido a cada exibição.\n\n" + formatarEstatisticas()).queue();
+            return CompletableFuture.completedFuture(null);
+        }
+
+        int somaMaxima = event.getOption("soma_maxima", SOMA_MAXIMA_PADRAO, OptionMapping::getAsInt);
+        return CompletableFuture.supplyAsync(() -> {
+            long inicio = System.nanoTime();
+            try {
+                int renderizadas = ImageGenerator.preaquecerCache(somaMaxima, service);
+                long ms = (System.nanoTime() - inicio) / 1_000_000;
+                return String.format("Cache pré-aquecido até a soma %d: **%d** imagens renderizadas em %d ms.\n\n%s",
+                        somaMaxima, renderizadas, ms, formatarEstatisticas());
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        }, Bot.EXECUTOR).handle((mensagem, ex) -> {
+            if (ex != null) {
+                System.err.println("Erro ao pré-aquecer o cache de fichas:");
+                ex.printStackTrace();
+                event.getHook().editOriginal("Ocorreu um erro ao pré-aquecer o cache.").queue();
+            } else {
+                event.getHook().editOriginal(mensagem).queue();
+            }
+            return null;
+        });
+    }
+
+    private static String formatarEstatisticas() {
+        RenderCache.Estatisticas e = ImageGenerator.getRenderCache().getEstatisticas();
+        RenderScheduler.Estatisticas r = RenderScheduler.get().getEstatisticas();
+        EmbedCache.Estatisticas m = EmbedManager.getEmbedCache().getEstatisticas();
+        RetratoCache.Estatisticas t = RetratoCache.get().getEstatisticas();
+        return String.format(Locale.US,
+                "**Cache de fichas**\n> Em memória: %d / %d\n> Acertos (memória): %d\n> Acertos (disco): %d\n> Faltas: %d\n> Taxa de acerto: %.1f%%"
+                        + "\n\n**Cache de retratos**\n> Em memória: %d / %d\n> Acertos: %d\n> Faltas: %d\n> Carregados: %d\n> Falhas: %d\n> Taxa de acerto: %.1f%%"
+                        + "\n\n**Cache de embeds**\n> Em memória: %d / %d\n> Acertos: %d\n> Faltas: %d\n> Invalidações: %d\n> Taxa de acerto: %.1f%%"
+                        + "\n\n**Fila de renderização**\n> Threads: %d\n> Na fila: %d / %d\n> Executadas: %d\n> Recusadas: %d\n> Espera média: %.2f ms\n> Espera máxima: %.2f ms",
+                e.entradasMemoria(), e.capacidade(), e.acertosMemoria(), e.acertosDisco(), e.faltas(), e.taxaAcerto() * 100,
+                t.entradas(), t.capacidade(), t.acertos(), t.faltas(), t.carregados(), t.falhas(), t.taxaAcerto() * 100,
+                m.entradas(), m.capacidade(), m.acertos(), m.faltas(), m.invalidacoes(), m.taxaAcerto() * 100,
+                r.threads(), r.naFila(), r.capacidade(), r.executadas(), r.recusadas(), r.esperaMediaMs(), r.esperaMaximaMs());
+    }
+}
@@ -5,6 +5,9 @@ import com.bot.discord.games.WebSocketServerManager;
 import com.bot.service.PersonagemService;
 import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
 /**
  * Implementa a lógica para o comando /conectar-cliente.
  * Gera um token de uso único para que o cliente de jogo (.jar) possa se autenticar
@@ -25,7 +28,7 @@ public class ConectarClienteCommand implements ICommand {
      * Executa o comando, gerando um token e enviando-o por mensagem privada (efêmera).
      */
     @Override
-    public void execute(SlashCommandInteractionEvent event, PersonagemService service) {
+    public CompletionStage<?> execute(SlashCommandInteractionEvent event, PersonagemService service) {
         String userId = event.getUser().getId();
 
         // Gera um novo token e o associa a este usuário
@@ -45,5 +48,6 @@ public class ConectarClienteCommand implements ICommand {
 
         // Envia a resposta de forma privada para que apenas o jogador veja seu token
         event.reply(response).setEphemeral(true).queue();
+        return CompletableFuture.completedFuture(null);
     }
 }
\ No newline at end of file
@@ -17,6 +17,8 @@ import net.dv8tion.jda.api.utils.FileUpload;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 
 /**
  * Implementa a lógica para o comando /criar.
@@ -36,6 +38,16 @@ public class CriarCommand implements ICommand {
         return "Cria um novo personagem ou exibe o seu personagem existente.";
     }
 
+    /**
+     * Grava o personagem e renderiza a ficha com imagem.
+     *
+     * @return 3 fichas do limite de uso.
+     */
+    @Override
+    public int getCusto() {
+        return 3;
+    }
+
     @Override
     public List<OptionData> getOptions() {
         return List.of(
@@ -52,34 +64,33 @@ public class CriarCommand implements ICommand {
      * 2. Se sim, chama um método auxiliar para exibir a ficha do personagem existente.
      * 3. Se não, cria um novo personagem e então chama o mesmo método auxiliar para
      * exibir a ficha do personagem recém-criado.
+     * <p>
+     * Todo acesso ao banco é assíncrono; a thread de eventos apenas encadeia os passos.
      */
     @Override
-    public void execute(SlashCommandInteractionEvent event, PersonagemService service) {
+    public CompletionStage<?> execute(SlashCommandInteractionEvent event, PersonagemService service) {
         event.deferReply(true).queue();
 
         String userId = event.getUser().getId();
         User user = event.getUser();
-        Optional<Personagem> personagemOpt = service.buscarPorUsuario(userId);
+        String nome = Optional.ofNullable(event.getOption("nome")).map(OptionMapping::getAsString).orElse("Aventureiro");
+        int nivel = Optional.ofNullable(event.getOption("nivel")).map(OptionMapping::getAsInt).orElse(1);
 
-        if (personagemOpt.isPresent()) {
-            // Caso 1: Personagem já existe. Delega a exibição para o DisplayManager.
-            // Passamos 'false' para não mostrar os botões de upgrade aqui.
-            DisplayManager.displayCharacterSheet(event.getHook(), user, service, true, "Você já possui um personagem! Aqui está ele:");
-        } else {
-            // Caso 2: Personagem não existe. Cria e depois delega a exibição.
-            String nome = Optional.ofNullable(event.getOption("nome")).map(OptionMapping::getAsString).orElse("Aventureiro");
-            int nivel = Optional.ofNullable(event.getOption("nivel")).map(OptionMapping::getAsInt).orElse(1);
+        return service.buscarPorUsuarioAsync(userId).thenCompose(personagemOpt -> {
+            if (personagemOpt.isPresent()) {
+                // Caso 1: Personagem já existe. Delega a exibição para o DisplayManager.
+                return DisplayManager.displayCharacterSheet(event.getHook(), user, service, true, "Você já possui um personagem! Aqui está ele:");
+            }
 
+            // Caso 2: Personagem não existe. Cria e depois delega a exibição.
             if (nivel < 1) {
                 event.getHook().editOriginal("O nível não pode ser menor que 1.").queue();
-                return;
+                return CompletableFuture.completedFuture(null);
             }
 
-            // O service.criarPersonagem() continua aqui
-            service.criarPersonagem(userId, nome, nivel);
-
-            // Mas a resposta é delegada para o DisplayManager
-            DisplayManager.displayCharacterSheet(event.getHook(), user, service, true, "Personagem criado com sucesso! Aqui está sua ficha:");
-        }
+            return service.criarPersonagemAsync(userId, nome, nivel)
+                    .thenCompose(criado -> DisplayManager.displayCharacterSheet(event.getHook(), user, service, true,
+                            "Personagem criado com sucesso! Aqui está sua ficha:"));
+        });
     }
 }
\ No newline at end of file
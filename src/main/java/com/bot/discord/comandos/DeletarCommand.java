@@ -4,6 +4,8 @@ import com.bot.service.PersonagemService;
 import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
 import net.dv8tion.jda.api.interactions.components.buttons.Button;
 
+import java.util.concurrent.CompletionStage;
+
 /**
  * Implementa a lógica para o comando /deletar.
  * <p>
@@ -52,26 +54,28 @@ public class DeletarCommand implements ICommand {
      * @param service A instância do serviço de personagem para a lógica de negócio.
      */
     @Override
-    public void execute(SlashCommandInteractionEvent event, PersonagemService service) {
+    public CompletionStage<?> execute(SlashCommandInteractionEvent event, PersonagemService service) {
         // A resposta é efêmera, pois a confirmação deve ser privada para o usuário.
         event.deferReply(true).queue();
 
         String userId = event.getUser().getId();
 
         // Verifica se o personagem existe antes de prosseguir.
-        if (service.buscarPorUsuario(userId).isEmpty()) {
-            event.getHook().sendMessage("Você não possui um personagem para deletar.").queue();
-            return;
-        }
+        return service.buscarPorUsuarioAsync(userId).thenAccept(personagemOpt -> {
+            if (personagemOpt.isEmpty()) {
+                event.getHook().sendMessage("Você não possui um personagem para deletar.").queue();
+                return;
+            }
 
-        // Cria os botões de interação. Os IDs são estruturados como "ação:id_do_alvo"
-        // para serem processados de forma segura pelo InteractionManager.
-        Button confirmButton = Button.danger("delete-confirm:" + userId, "Sim, deletar permanentemente");
-        Button cancelButton = Button.secondary("delete-cancel:" + userId, "Cancelar");
+            // Cria os botões de interação. Os IDs são estruturados como "ação:id_do_alvo"
+            // para serem processados de forma segura pelo InteractionManager.
+            Button confirmButton = Button.danger("delete-confirm:" + userId, "Sim, deletar permanentemente");
+            Button cancelButton = Button.secondary("delete-cancel:" + userId, "Cancelar");
 
-        // Envia a mensagem de confirmação com os botões em uma ActionRow.
-        event.getHook().sendMessage("Você tem certeza que deseja deletar seu personagem? **Esta ação é irreversível.**")
-                .addActionRow(confirmButton, cancelButton)
-                .queue();
+            // Envia a mensagem de confirmação com os botões em uma ActionRow.
+            event.getHook().sendMessage("Você tem certeza que deseja deletar seu personagem? **Esta ação é irreversível.**")
+                    .addActionRow(confirmButton, cancelButton)
+                    .queue();
+        });
     }
 }
\ No newline at end of file
@@ -0,0 +1,126 @@
+package com.bot.discord.comandos;
+
+import com.bot.service.ExportacaoPersonagens;
+import com.bot.service.PersonagemService;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
+import net.dv8tion.jda.api.interactions.commands.OptionMapping;
+import net.dv8tion.jda.api.interactions.commands.OptionType;
+import net.dv8tion.jda.api.interactions.commands.build.OptionData;
+import net.dv8tion.jda.api.utils.FileUpload;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Implementa a lógica para o comando /exportar, que é restrito a administradores.
+ * <p>
+ * Gera uma cópia de segurança de todos os personagens em NDJSON ou CSV, compactada com gzip,
+ * e a envia como anexo. Os personagens vão do banco para um arquivo temporário em fluxo
+ * (cursor do servidor no Postgres), sem montar a lista inteira em memória.
+ */
+public class ExportarCommand implements ICommand {
+
+    @Override
+    public String getName() {
+        return "exportar";
+    }
+
+    @Override
+    public String getDescription() {
+        return "(Admin) Exporta todos os personagens para um arquivo.";
+    }
+
+    @Override
+    public List<OptionData> getOptions() {
+        return List.of(
+                new OptionData(OptionType.STRING, "formato", "O formato do arquivo (padrão: NDJSON).", false)
+                        .addChoice("NDJSON", "ndjson")
+                        .addChoice("CSV", "csv")
+        );
+    }
+
+    @Override
+    public boolean isAdminCommand() {
+        return true;
+    }
+
+    /**
+     * Executa a lógica do comando /exportar.
+     *
+     * @param event   O objeto do evento de interação.
+     * @param service A instância do serviço de personagem, que faz a exportação.
+     */
+    @Override
+    public CompletionStage<?> execute(SlashCommandInteractionEvent event, PersonagemService service) {
+        event.deferReply(true).queue();
+
+        ExportacaoPersonagens.Formato formato = ExportacaoPersonagens.Formato.valueOf(
+                event.getOption("formato", "ndjson", OptionMapping::getAsString).toUpperCase(Locale.ROOT));
+        String nome = "personagens-" + LocalDate.now() + "." + formato.extensao() + ".gz";
+        Path arquivo;
+        try {
+            arquivo = Files.createTempFile("personagens-", "." + formato.extensao() + ".gz");
+        } catch (IOException e) {
+            ICommand.registrarFalha(getName(), e);
+            event.getHook().sendMessage("Não foi possível criar o arquivo temporário da exportação.").queue();
+            return CompletableFuture.completedFuture(null);
+        }
+
+        Guild guild = event.getGuild();
+        long limite = guild != null ? guild.getMaxFileSize() : Message.MAX_FILE_SIZE;
+        return service.exportarAsync(formato, arquivo).handle((quantidade, ex) -> {
+            if (ex != null) {
+                ICommand.registrarFalha(getName(), ex);
+                event.getHook().sendMessage("Ocorreu um erro ao exportar os personagens. Nenhum arquivo foi gerado.").queue();
+                apagar(arquivo);
+                return CompletableFuture.<Void>completedFuture(null);
+            }
+            long tamanho = tamanho(arquivo);
+            if (tamanho > limite) {
+                event.getHook().sendMessage(String.format(
+                        "A exportação de %d personagens ficou com %d KB, acima do limite de anexos do servidor (%d KB).",
+                        quantidade, tamanho / 1024, limite / 1024)).queue();
+                apagar(arquivo);
+                return CompletableFuture.<Void>completedFuture(null);
+            }
+            // O comando só termina com o envio do anexo, que é quando o arquivo temporário pode ser apagado.
+            CompletableFuture<Void> enviado = new CompletableFuture<>();
+            event.getHook().sendMessage(String.format("**%d** personagens exportados (%s, %d KB).",
+                            quantidade, formato.name(), tamanho / 1024))
+                    .addFiles(FileUpload.fromData(arquivo.toFile(), nome))
+                    .queue(ok -> {
+                        apagar(arquivo);
+                        enviado.complete(null);
+                    }, erro -> {
+                        ICommand.registrarFalha(getName(), erro);
+                        apagar(arquivo);
+                        enviado.complete(null);
+                    });
+            return enviado;
+        }).thenCompose(f -> f);
+    }
+
+    private static long tamanho(Path arquivo) {
+        try {
+            return Files.size(arquivo);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static void apagar(Path arquivo) {
+        try {
+            Files.deleteIfExists(arquivo);
+        } catch (IOException e) {
+            System.err.println("Não foi possível apagar o arquivo temporário " + arquivo + ": " + e.getMessage());
+        }
+    }
+}
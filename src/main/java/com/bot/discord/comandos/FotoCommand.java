@@ -1,5 +1,7 @@
 package com.bot.discord.comandos;
 
+import com.bot.discord.ArmazemAvatares;
+import com.bot.discord.RetratoCache;
 import com.bot.model.Personagem;
 import com.bot.service.PersonagemService;
 import net.dv8tion.jda.api.EmbedBuilder;
@@ -10,7 +12,9 @@ import net.dv8tion.jda.api.interactions.commands.build.OptionData;
 
 import java.awt.Color;
 import java.util.List;
-import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
 
 /**
  * Implementa a lógica para o comando /foto.
@@ -18,6 +22,10 @@ import java.util.Optional;
  * Este comando permite que um usuário altere a imagem de perfil (avatar) do seu
  * personagem, enviando um arquivo de imagem como anexo. O comando valida se o
  * anexo é uma imagem antes de salvar a nova URL no banco de dados.
+ * <p>
+ * Com o {@link ArmazemAvatares} publicado, o anexo é baixado uma única vez, reduzido e guardado
+ * localmente, e o personagem passa a referenciar a cópia local em vez da URL do anexo, que expira.
+ * Em ambos os casos, o retrato do cartão da ficha é preparado no {@link RetratoCache} logo em seguida.
  */
 public class FotoCommand implements ICommand {
 
@@ -41,6 +49,16 @@ public class FotoCommand implements ICommand {
         return "Altera a foto do seu personagem.";
     }
 
+    /**
+     * Baixa, decodifica e recodifica a imagem enviada.
+     *
+     * @return 5 fichas do limite de uso.
+     */
+    @Override
+    public int getCusto() {
+        return 5;
+    }
+
     /**
      * Define as opções (argumentos) para o comando /foto.
      *
@@ -62,48 +80,86 @@ public class FotoCommand implements ICommand {
      * 2. Verifica se o usuário possui um personagem.
      * 3. Obtém o anexo da interação.
      * 4. Valida se o anexo é um tipo de imagem suportado pela JDA.
-     * 5. Se for válido, atualiza a URL da foto do personagem no banco de dados via serviço.
+     * 5. Se for válido, importa a imagem para o armazém de avatares (se publicado) e atualiza a foto do personagem via serviço.
      * 6. Envia uma mensagem Embed de confirmação exibindo a nova imagem.
      *
      * @param event   O objeto do evento de interação, contendo todas as informações da invocação.
      * @param service A instância do serviço de personagem para a lógica de negócio.
      */
     @Override
-    public void execute(SlashCommandInteractionEvent event, PersonagemService service) {
+    public CompletionStage<?> execute(SlashCommandInteractionEvent event, PersonagemService service) {
         event.deferReply(true).queue();
 
         String userId = event.getUser().getId();
-        Optional<Personagem> personagemOpt = service.buscarPorUsuario(userId);
+        // O anexo é lido ainda na thread de eventos. Como a opção é obrigatória, não precisamos verificar se é nulo.
+        Message.Attachment attachment = event.getOption("imagem").getAsAttachment();
 
-        // 1. Verifica se o personagem existe.
-        if (personagemOpt.isEmpty()) {
-            event.getHook().sendMessage("Você precisa ter um personagem para alterar a foto. Use `/criar`.")
-                    .setEphemeral(true).queue();
-            return;
-        }
+        return service.buscarPorUsuarioAsync(userId).thenCompose(personagemOpt -> {
+            // 1. Verifica se o personagem existe.
+            if (personagemOpt.isEmpty()) {
+                event.getHook().sendMessage("Você precisa ter um personagem para alterar a foto. Use `/criar`.")
+                        .setEphemeral(true).queue();
+                return CompletableFuture.<Void>completedFuture(null);
+            }
 
-        // 2. Obtém o anexo. Como a opção é obrigatória, não precisamos verificar se é nulo.
-        Message.Attachment attachment = event.getOption("imagem").getAsAttachment();
+            // 2. Valida se o anexo é uma imagem.
+            if (!attachment.isImage()) {
+                event.getHook().sendMessage("O arquivo enviado precisa ser uma imagem (ex: .png, .jpg, .gif).")
+                        .setEphemeral(true).queue();
+                return CompletableFuture.<Void>completedFuture(null);
+            }
 
-        // 3. Valida se o anexo é uma imagem.
-        if (!attachment.isImage()) {
-            event.getHook().sendMessage("O arquivo enviado precisa ser uma imagem (ex: .png, .jpg, .gif).")
-                    .setEphemeral(true).queue();
-            return;
-        }
+            ArmazemAvatares armazem = ArmazemAvatares.get();
+            if (!armazem.isPublicado()) {
+                // Sem servidor de avatares configurado: guarda a URL do anexo, como antes.
+                return salvarFoto(event, service, userId, attachment.getUrl(), attachment.getUrl());
+            }
 
-        Personagem personagem = personagemOpt.get();
-        // 4. Atualiza a URL da foto e salva.
-        personagem.setFotoUrl(attachment.getUrl());
-        service.salvar(personagem);
+            // 3. Baixa o anexo uma única vez para o armazém local (validado e reduzido) e guarda a referência.
+            return armazem.importarAsync(attachment.getUrl()).handle((hash, ex) -> {
+                if (ex == null) {
+                    String referencia = ArmazemAvatares.referencia(hash);
+                    return salvarFoto(event, service, userId, referencia, armazem.urlPublica(referencia));
+                }
+                Throwable causa = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+                if (causa instanceof ArmazemAvatares.ImagemInvalidaException) {
+                    event.getHook().sendMessage("Não foi possível usar essa imagem: " + causa.getMessage())
+                            .setEphemeral(true).queue();
+                } else {
+                    System.err.println("Erro ao baixar a foto de " + userId + ": " + causa.getMessage());
+                    event.getHook().sendMessage("Não foi possível baixar a imagem agora. Tente novamente em instantes.")
+                            .setEphemeral(true).queue();
+                }
+                return CompletableFuture.<Void>completedFuture(null);
+            }).thenCompose(f -> f);
+        });
+    }
 
-        // 5. Envia uma confirmação visual.
-        EmbedBuilder eb = new EmbedBuilder()
-                .setTitle("Foto do personagem atualizada!")
-                .setColor(Color.GREEN)
-                .setDescription("A nova foto de **" + personagem.getNome() + "** foi salva.")
-                .setImage(attachment.getUrl()); // Exibe a nova imagem diretamente no embed.
+    /**
+     * Grava só a nova foto (sem reescrever o resto da ficha) e envia a confirmação visual.
+     *
+     * @param fotoUrl   O valor a guardar no personagem (referência do armazém ou URL externa).
+     * @param exibicao  A URL a exibir na confirmação.
+     */
+    private static CompletableFuture<Void> salvarFoto(SlashCommandInteractionEvent event, PersonagemService service,
+                                                      String userId, String fotoUrl, String exibicao) {
+        // Prepara o retrato do cartão enquanto a foto é salva, para que a próxima ficha já saia com ele.
+        RetratoCache.get().preCarregar(fotoUrl);
+        return service.alterarFotoAsync(userId, fotoUrl).thenAccept(atualizado -> {
+            if (atualizado.isEmpty()) {
+                event.getHook().sendMessage("Não foi possível salvar a nova foto. Tente novamente em instantes.")
+                        .setEphemeral(true).queue();
+                return;
+            }
+            Personagem personagem = atualizado.get();
+            // 4. Envia uma confirmação visual.
+            EmbedBuilder eb = new EmbedBuilder()
+                    .setTitle("Foto do personagem atualizada!")
+                    .setColor(Color.GREEN)
+                    .setDescription("A nova foto de **" + personagem.getNome() + "** foi salva.")
+                    .setImage(exibicao); // Exibe a nova imagem diretamente no embed.
 
-        event.getHook().sendMessageEmbeds(eb.build()).queue();
+            event.getHook().sendMessageEmbeds(eb.build()).queue();
+        });
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,120 @@
+package com.bot.discord.comandos;
+
+import com.bot.Bot;
+import com.bot.metricas.GravacaoJfr;
+import com.bot.service.PersonagemService;
+import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
+import net.dv8tion.jda.api.interactions.commands.OptionType;
+import net.dv8tion.jda.api.interactions.commands.build.OptionData;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Implementa a lógica para o comando /gravacao, que é restrito a administradores.
+ * <p>
+ * Controla a gravação do Java Flight Recorder ({@link GravacaoJfr}): iniciar, salvar a janela
+ * recente em um arquivo {@code .jfr} no servidor (para analisar com o JDK Mission Control ou
+ * {@code jfr print}) e parar.
+ */
+public class GravacaoCommand implements ICommand {
+
+    @Override
+    public String getName() {
+        return "gravacao";
+    }
+
+    @Override
+    public String getDescription() {
+        return "(Admin) Controla a gravação do Java Flight Recorder para diagnóstico de lentidão.";
+    }
+
+    @Override
+    public List<OptionData> getOptions() {
+        return List.of(
+                new OptionData(OptionType.STRING, "acao", "O que fazer com a gravação.", true)
+                        .addChoice("Ver estado", "estado")
+                        .addChoice("Iniciar", "iniciar")
+                        .addChoice("Salvar em arquivo", "salvar")
+                        .addChoice("Parar", "parar")
+        );
+    }
+
+    @Override
+    public boolean isAdminCommand() {
+        return true;
+    }
+
+    /**
+     * Executa a lógica do comando /gravacao.
+     * Salvar escreve o arquivo em background e a resposta é editada quando ele termina.
+     *
+     * @param event   O objeto do evento de interação.
+     * @param service A instância do serviço de personagem (não utilizada).
+     */
+    @Override
+    public CompletionStage<?> execute(SlashCommandInteractionEvent event, PersonagemService service) {
+        event.deferReply(true).queue();
+
+        GravacaoJfr gravacao = GravacaoJfr.get();
+        return switch (event.getOption("acao").getAsString()) {
+            case "iniciar" -> {
+                try {
+                    boolean iniciada = gravacao.iniciar();
+                    event.getHook().editOriginal((iniciada ? "Gravação iniciada." : "A gravação já estava em andamento.")
+                            + "\n\n" + formatarEstado(gravacao.getEstado())).queue();
+                } catch (IOException e) {
+                    ICommand.registrarFalha(getName(), e);
+                    event.getHook().editOriginal("Não foi possível iniciar a gravação: " + e.getMessage()).queue();
+                }
+                yield CompletableFuture.completedFuture(null);
+            }
+            case "salvar" -> CompletableFuture.supplyAsync(() -> {
+                try {
+                    return gravacao.salvar();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, Bot.EXECUTOR).handle((arquivo, ex) -> {
+                if (ex == null) {
+                    event.getHook().editOriginal(String.format("Gravação salva em `%s` (%d KB).",
+                            arquivo.toAbsolutePath(), tamanho(arquivo) / 1024)).queue();
+                } else if (ex.getCause() instanceof IllegalStateException) {
+                    event.getHook().editOriginal("Não há gravação em andamento. Use a ação **Iniciar** primeiro.").queue();
+                } else {
+                    ICommand.registrarFalha(getName(), ex);
+                    event.getHook().editOriginal("Ocorreu um erro ao salvar a gravação.").queue();
+                }
+                return null;
+            });
+            case "parar" -> {
+                event.getHook().editOriginal(gravacao.parar()
+                        ? "Gravação parada e descartada." : "Não havia gravação em andamento.").queue();
+                yield CompletableFuture.completedFuture(null);
+            }
+            default -> {
+                event.getHook().editOriginal(formatarEstado(gravacao.getEstado())).queue();
+                yield CompletableFuture.completedFuture(null);
+            }
+        };
+    }
+
+    private static String formatarEstado(GravacaoJfr.Estado e) {
+        return String.format("**Gravação do JFR**\n> Em andamento: %s\n> Janela: %d min\n> Tamanho máximo: %d MB\n> Diretório: `%s`\n> Salvas: %d",
+                e.ativa() ? "sim" : "não", e.idadeMaxima().toMinutes(), e.tamanhoMaximo() / (1024 * 1024),
+                e.diretorio().toAbsolutePath(), e.salvas());
+    }
+
+    private static long tamanho(Path arquivo) {
+        try {
+            return Files.size(arquivo);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+}
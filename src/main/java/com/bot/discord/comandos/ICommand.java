@@ -6,6 +6,7 @@ import net.dv8tion.jda.api.interactions.commands.build.OptionData;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletionStage;
 
 /**
  * Interface que define o contrato para todos os slash commands do bot.
@@ -48,13 +49,19 @@ public interface ICommand {
     /**
      * Contém a lógica de negócio a ser executada quando o comando é invocado.
      * Este é o método principal que será chamado pelo {@code ComandosListener}.
+     * <p>
+     * O retorno deve ser a cadeia inteira de trabalho do comando (busca, escrita, renderização,
+     * resposta), não apenas o seu início: a próxima interação do mesmo usuário só começa quando
+     * ele termina. Comandos que respondem na hora devolvem um futuro já completado. Uma falha
+     * inesperada deve chegar ao futuro retornado, que o {@code ComandosListener} registra no log.
      *
      * @param event   O objeto do evento de interação, contendo todas as informações
      * da invocação do comando (usuário, canal, opções fornecidas, etc.).
      * @param service A instância do {@link PersonagemService}, fornecendo acesso à
      * lógica de negócio e à camada de persistência.
+     * @return Uma etapa completada quando o comando terminar.
      */
-    void execute(SlashCommandInteractionEvent event, PersonagemService service);
+    CompletionStage<?> execute(SlashCommandInteractionEvent event, PersonagemService service);
 
     /**
      * Indica se o comando é restrito a administradores do servidor.
@@ -68,4 +75,31 @@ public interface ICommand {
     default boolean isAdminCommand() {
         return false;
     }
+
+    /**
+     * Retorna quantas fichas do limite de uso ({@code LimitadorTaxa}) uma invocação consome.
+     * <p>
+     * Por padrão, comandos públicos custam 1 ficha e comandos de administrador não custam nada.
+     * Comandos que renderizam a ficha, enviam anexos ou baixam imagens devem sobrescrever este
+     * método com um custo maior.
+     *
+     * @return O custo em fichas; {@code 0} isenta o comando do limite.
+     */
+    default int getCusto() {
+        return isAdminCommand() ? 0 : 1;
+    }
+
+    /**
+     * Registra uma falha inesperada no fluxo assíncrono de um comando, quando o próprio comando a trata
+     * (responde ao usuário e completa a cadeia normalmente), para que ela não seja engolida silenciosamente.
+     *
+     * @param comando O nome do comando, para o log.
+     * @param ex      A falha ocorrida.
+     * @return Sempre {@code null}.
+     */
+    static Void registrarFalha(String comando, Throwable ex) {
+        System.err.println("Erro inesperado no comando /" + comando + ": " + ex.getMessage());
+        ex.printStackTrace();
+        return null;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,82 @@
+package com.bot.discord.comandos;
+
+import com.bot.service.ExportacaoPersonagens;
+import com.bot.service.PersonagemService;
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
+import net.dv8tion.jda.api.interactions.commands.OptionType;
+import net.dv8tion.jda.api.interactions.commands.build.OptionData;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Implementa a lógica para o comando /importar, que é restrito a administradores.
+ * <p>
+ * Recebe um arquivo no formato do /exportar (NDJSON ou CSV, compactado com gzip ou não) e grava
+ * todos os personagens de uma vez, substituindo os existentes dos mesmos usuários. No Postgres,
+ * a carga usa {@code COPY} em uma tabela temporária seguido de um único {@code INSERT ... ON CONFLICT}.
+ */
+public class ImportarCommand implements ICommand {
+
+    @Override
+    public String getName() {
+        return "importar";
+    }
+
+    @Override
+    public String getDescription() {
+        return "(Admin) Importa personagens de um arquivo gerado pelo /exportar.";
+    }
+
+    @Override
+    public List<OptionData> getOptions() {
+        return List.of(
+                new OptionData(OptionType.ATTACHMENT, "arquivo", "Arquivo .ndjson, .jsonl ou .csv (pode ser .gz).", true)
+        );
+    }
+
+    @Override
+    public boolean isAdminCommand() {
+        return true;
+    }
+
+    /**
+     * Executa a lógica do comando /importar.
+     * O anexo é baixado e lido em fluxo, direto para o repositório.
+     *
+     * @param event   O objeto do evento de interação.
+     * @param service A instância do serviço de personagem, que faz a importação.
+     */
+    @Override
+    public CompletionStage<?> execute(SlashCommandInteractionEvent event, PersonagemService service) {
+        event.deferReply(true).queue();
+
+        Message.Attachment anexo = event.getOption("arquivo").getAsAttachment();
+        ExportacaoPersonagens.Formato formato = ExportacaoPersonagens.Formato.doNomeDoArquivo(anexo.getFileName());
+        if (formato == null) {
+            event.getHook().sendMessage("Formato não reconhecido. Envie um arquivo .ndjson, .jsonl ou .csv (opcionalmente .gz).").queue();
+            return CompletableFuture.completedFuture(null);
+        }
+
+        long inicio = System.nanoTime();
+        return anexo.getProxy().download()
+                .thenCompose(entrada -> service.importarAsync(formato, entrada))
+                .handle((resultado, ex) -> {
+                    if (ex != null) {
+                        ICommand.registrarFalha(getName(), ex);
+                        event.getHook().sendMessage("Ocorreu um erro ao importar o arquivo.").queue();
+                        return null;
+                    }
+                    long ms = (System.nanoTime() - inicio) / 1_000_000;
+                    String mensagem = String.format("**%d** personagens importados de `%s` em %d ms.",
+                            resultado.importados(), anexo.getFileName(), ms);
+                    if (resultado.ignorados() > 0) {
+                        mensagem += String.format("\n> %d linhas inválidas foram ignoradas.", resultado.ignorados());
+                    }
+                    event.getHook().sendMessage(mensagem).queue();
+                    return null;
+                });
+    }
+}
@@ -1,7 +1,7 @@
 package com.bot.discord.comandos;
 
 import com.bot.discord.EmbedManager;
-import com.bot.discord.ImageGenerator;
+import com.bot.discord.RenderScheduler;
 import com.bot.model.Personagem;
 import com.bot.service.PersonagemService;
 import net.dv8tion.jda.api.entities.MessageEmbed;
@@ -9,8 +9,9 @@ import net.dv8tion.jda.api.entities.User;
 import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
 import net.dv8tion.jda.api.utils.FileUpload;
 
-import java.util.Collections;
-import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
 
 /**
  * Implementa a lógica para o comando /mostrar.
@@ -30,46 +31,64 @@ public class MostrarCommand implements ICommand {
         return "Mostra a ficha do seu personagem publicamente no chat.";
     }
 
+    /**
+     * Renderiza a ficha e a publica no canal como anexo.
+     *
+     * @return 4 fichas do limite de uso.
+     */
+    @Override
+    public int getCusto() {
+        return 4;
+    }
+
     /**
      * Executa a lógica do comando /mostrar.
-     * Gera a imagem e o embed da ficha e os envia como uma resposta pública.
+     * Gera a imagem (pelo {@link RenderScheduler}, na faixa pública) e o embed da ficha e os envia
+     * como uma resposta pública. Se a fila de renderização estiver cheia, a ficha é publicada apenas com texto.
      * Mensagens de erro (ex: personagem não encontrado) são enviadas de forma privada.
      *
      * @param event   O objeto do evento de interação.
      * @param service A instância do serviço de personagem para a lógica de negócio.
      */
     @Override
-    public void execute(SlashCommandInteractionEvent event, PersonagemService service) {
+    public CompletionStage<?> execute(SlashCommandInteractionEvent event, PersonagemService service) {
         // Deferimos a resposta como PÚBLICA (padrão, sem o 'true')
         event.deferReply().queue();
 
         User user = event.getUser();
-        Optional<Personagem> personagemOpt = service.buscarPorUsuario(user.getId());
-
-        personagemOpt.ifPresentOrElse(
-                personagem -> {
-                    try {
-                        byte[] imageBytes = ImageGenerator.generatePersonagemAttributesImage(personagem);
-                        MessageEmbed embed = EmbedManager.buildPersonagemEmbedWithImage(personagem, user);
-
-                        // Edita a resposta original "pensando..." com a ficha completa.
-                        // Como o deferReply foi público, esta resposta também será.
-                        // Não adicionamos .addComponents() aqui.
-                        event.getHook().editOriginal("") // Limpa o texto "pensando..."
-                                .setFiles(FileUpload.fromData(imageBytes, "ficha_atributos.png"))
-                                .setEmbeds(embed)
-                                .queue();
-
-                    } catch (Exception e) {
-                        System.err.println("Erro ao gerar ou enviar a imagem da ficha (comando /mostrar): " + e.getMessage());
-                        e.printStackTrace();
-                        // O erro é enviado de forma privada para não poluir o chat.
-                        event.getHook().sendMessage("Ocorreu um erro ao gerar a imagem da sua ficha.").setEphemeral(true).queue();
-                    }
-                },
+        return service.buscarPorUsuarioAsync(user.getId()).thenCompose(personagemOpt -> {
+            if (personagemOpt.isEmpty()) {
                 // Se o personagem não for encontrado, a mensagem de erro também é privada.
-                () -> event.getHook().sendMessage("Você não possui um personagem. Use `/criar` para começar sua jornada!")
-                        .setEphemeral(true).queue()
-        );
+                event.getHook().sendMessage("Você não possui um personagem. Use `/criar` para começar sua jornada!")
+                        .setEphemeral(true).queue();
+                return CompletableFuture.completedFuture(null);
+            }
+            Personagem personagem = personagemOpt.get();
+            return RenderScheduler.get().renderizar(personagem, RenderScheduler.Faixa.PUBLICO)
+                    .handle((imageBytes, ex) -> {
+                        if (ex == null) {
+                            MessageEmbed embed = EmbedManager.buildPersonagemEmbedWithImage(personagem, user);
+
+                            // Edita a resposta original "pensando..." com a ficha completa.
+                            // Como o deferReply foi público, esta resposta também será.
+                            // Não adicionamos .addComponents() aqui.
+                            event.getHook().editOriginal("") // Limpa o texto "pensando..."
+                                    .setFiles(FileUpload.fromData(imageBytes, "ficha_atributos.png"))
+                                    .setEmbeds(embed)
+                                    .queue();
+                        } else if (RenderScheduler.isRecusa(ex)) {
+                            // Fila de renderização cheia: publica a ficha apenas com texto.
+                            event.getHook().editOriginal("")
+                                    .setEmbeds(EmbedManager.buildPersonagemEmbedTextOnly(personagem, user))
+                                    .queue();
+                        } else {
+                            System.err.println("Erro ao gerar ou enviar a imagem da ficha (comando /mostrar): " + ex.getMessage());
+                            ex.printStackTrace();
+                            // O erro é enviado de forma privada para não poluir o chat.
+                            event.getHook().sendMessage("Ocorreu um erro ao gerar a imagem da sua ficha.").setEphemeral(true).queue();
+                        }
+                        return null;
+                    });
+        });
     }
 }
\ No newline at end of file
@@ -1,13 +1,13 @@
 package com.bot.discord.comandos;
 
-import com.bot.model.Personagem;
 import com.bot.service.PersonagemService;
 import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
 import net.dv8tion.jda.api.interactions.commands.OptionType;
 import net.dv8tion.jda.api.interactions.commands.build.OptionData;
 
 import java.util.List;
-import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 
 /**
  * Implementa a lógica para o comando /nome.
@@ -58,41 +58,43 @@ public class NomeCommand implements ICommand {
      * 1. Adia a resposta para evitar timeouts.
      * 2. Verifica se o usuário possui um personagem. Se não, envia uma mensagem de erro.
      * 3. Obtém o novo nome a partir das opções do comando.
-     * 4. Atualiza o nome no objeto Personagem.
-     * 5. Chama o {@link PersonagemService} para salvar a alteração no banco de dados.
+     * 4. Chama o {@link PersonagemService} para gravar apenas o novo nome no banco de dados.
+     * 5. Informa se a alteração foi salva.
      * 6. Envia uma mensagem de sucesso confirmando a alteração.
      *
      * @param event   O objeto do evento de interação, contendo todas as informações da invocação.
      * @param service A instância do serviço de personagem para a lógica de negócio.
      */
     @Override
-    public void execute(SlashCommandInteractionEvent event, PersonagemService service) {
+    public CompletionStage<?> execute(SlashCommandInteractionEvent event, PersonagemService service) {
         event.deferReply(true).queue();
 
         String userId = event.getUser().getId();
-        Optional<Personagem> personagemOpt = service.buscarPorUsuario(userId);
-
-        // 1. Verifica se o personagem existe.
-        if (personagemOpt.isEmpty()) {
-            event.getHook().sendMessage("Você precisa ter um personagem para alterar o nome. Use `/criar`.")
-                    .setEphemeral(true).queue();
-            return;
-        }
-
-        // 2. Obtém o novo nome. A opção é obrigatória, então não precisamos checar por nulo.
+        // O novo nome é lido ainda na thread de eventos. A opção é obrigatória, então não precisamos checar por nulo.
         String novoNome = event.getOption("novo_nome").getAsString();
 
-        Personagem personagem = personagemOpt.get();
-        String nomeAntigo = personagem.getNome();
+        return service.buscarPorUsuarioAsync(userId).thenCompose(personagemOpt -> {
+            // 1. Verifica se o personagem existe.
+            if (personagemOpt.isEmpty()) {
+                event.getHook().sendMessage("Você precisa ter um personagem para alterar o nome. Use `/criar`.")
+                        .setEphemeral(true).queue();
+                return CompletableFuture.<Void>completedFuture(null);
+            }
 
-        // 3. Atualiza o nome do personagem e salva.
-        personagem.setNome(novoNome);
-        service.salvar(personagem);
+            String nomeAntigo = personagemOpt.get().getNome();
 
-        // 4. Envia a confirmação.
-        String mensagem = String.format("Nome do personagem alterado de **%s** para **%s**!",
-                nomeAntigo, novoNome);
+            // 2. Grava só o nome, sem reescrever o resto da ficha.
+            return service.alterarNomeAsync(userId, novoNome).thenAccept(atualizado -> {
+                if (atualizado.isEmpty()) {
+                    event.getHook().sendMessage("Não foi possível salvar o novo nome. Tente novamente em instantes.").queue();
+                    return;
+                }
+                // 3. Envia a confirmação.
+                String mensagem = String.format("Nome do personagem alterado de **%s** para **%s**!",
+                        nomeAntigo, novoNome);
 
-        event.getHook().sendMessage(mensagem).queue();
+                event.getHook().sendMessage(mensagem).queue();
+            });
+        });
     }
 }
\ No newline at end of file
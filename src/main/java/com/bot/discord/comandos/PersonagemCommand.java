@@ -4,6 +4,8 @@ import com.bot.discord.DisplayManager;
 import com.bot.service.PersonagemService;
 import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
 
+import java.util.concurrent.CompletionStage;
+
 public class PersonagemCommand implements ICommand {
 
     @Override
@@ -17,10 +19,16 @@ public class PersonagemCommand implements ICommand {
     }
 
     @Override
-    public void execute(SlashCommandInteractionEvent event, PersonagemService service) {
+    public int getCusto() {
+        // Renderiza a ficha com imagem.
+        return 3;
+    }
+
+    @Override
+    public CompletionStage<?> execute(SlashCommandInteractionEvent event, PersonagemService service) {
         event.deferReply(true).queue();
         // Simplesmente chama o DisplayManager para fazer todo o trabalho pesado.
         // Passa 'true' para indicar que queremos mostrar os botões se houver pontos.
-        DisplayManager.displayCharacterSheet(event.getHook(), event.getUser(), service, true, "Aqui está sua ficha:");
+        return DisplayManager.displayCharacterSheet(event.getHook(), event.getUser(), service, true, "Aqui está sua ficha:");
     }
 }
\ No newline at end of file
@@ -0,0 +1,85 @@
+package com.bot.discord.comandos;
+
+import com.bot.discord.EmbedManager;
+import com.bot.service.PersonagemService;
+import com.bot.service.RankingPersonagens;
+import net.dv8tion.jda.api.entities.MessageEmbed;
+import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
+import net.dv8tion.jda.api.interactions.commands.OptionMapping;
+import net.dv8tion.jda.api.interactions.commands.OptionType;
+import net.dv8tion.jda.api.interactions.commands.build.OptionData;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Implementa a lógica para o comando /ranking.
+ * <p>
+ * Mostra os primeiros colocados por nível ou por total de atributos, e a posição de quem chamou.
+ * Tudo vem do {@link RankingPersonagens} em memória, sem consultar o banco; o embed dos
+ * primeiros colocados é reaproveitado enquanto o ranking não mudar.
+ */
+public class RankingCommand implements ICommand {
+
+    private static final int TAMANHO_PAGINA = 10;
+
+    private record Pagina(long versao, MessageEmbed embed) {}
+
+    private final Map<RankingPersonagens.Criterio, Pagina> paginas = new EnumMap<>(RankingPersonagens.Criterio.class);
+
+    @Override
+    public String getName() {
+        return "ranking";
+    }
+
+    @Override
+    public String getDescription() {
+        return "Mostra os personagens mais fortes.";
+    }
+
+    @Override
+    public List<OptionData> getOptions() {
+        return List.of(
+                new OptionData(OptionType.STRING, "criterio", "Como ordenar o ranking (padrão: nível).", false)
+                        .addChoice("Nível", "nivel")
+                        .addChoice("Total de atributos", "atributos")
+        );
+    }
+
+    /**
+     * Executa a lógica do comando /ranking.
+     *
+     * @param event   O objeto do evento de interação.
+     * @param service A instância do serviço de personagem, dona do ranking.
+     */
+    @Override
+    public CompletionStage<?> execute(SlashCommandInteractionEvent event, PersonagemService service) {
+        RankingPersonagens ranking = service.getRanking();
+        RankingPersonagens.Criterio criterio = RankingPersonagens.Criterio.valueOf(
+                event.getOption("criterio", "nivel", OptionMapping::getAsString).toUpperCase(Locale.ROOT));
+
+        String minhaPosicao = ranking.posicao(criterio, event.getUser().getId())
+                .map(p -> String.format("Sua posição: **#%d** (%d).", p.posicao(), p.pontuacao()))
+                .orElse("Você ainda não tem um personagem no ranking. Use /criar para começar.");
+
+        event.reply(minhaPosicao).addEmbeds(pagina(ranking, criterio)).queue();
+        return CompletableFuture.completedFuture(null);
+    }
+
+    private MessageEmbed pagina(RankingPersonagens ranking, RankingPersonagens.Criterio criterio) {
+        synchronized (paginas) {
+            long versao = ranking.getVersao();
+            Pagina pagina = paginas.get(criterio);
+            if (pagina == null || pagina.versao() != versao) {
+                MessageEmbed embed = EmbedManager.buildRankingEmbed(criterio, ranking.topo(criterio, TAMANHO_PAGINA), ranking.tamanho());
+                pagina = new Pagina(versao, embed);
+                paginas.put(criterio, pagina);
+            }
+            return pagina.embed();
+        }
+    }
+}
@@ -13,8 +13,7 @@ import net.dv8tion.jda.api.interactions.commands.build.OptionData;
 import net.dv8tion.jda.api.interactions.commands.build.Commands;
 
 import java.util.List;
-import java.util.Map;
-import java.util.Optional;
+import java.util.concurrent.CompletionStage;
 
 /**
  * Implementa a lógica para o comando /reflexo, que é restrito a administradores.
@@ -57,7 +56,10 @@ public class ReflexoCommand implements ICommand {
     }
 
     @Override
-    public void execute(SlashCommandInteractionEvent event, PersonagemService service) {
+    public CompletionStage<?> execute(SlashCommandInteractionEvent event, PersonagemService service) {
+        // A resposta é adiada porque a busca do personagem é assíncrona.
+        event.deferReply(true).queue();
+
         User targetUser = event.getOption("usuario").getAsUser();
         int pontuacao = event.getOption("pontuacao_necessaria").getAsInt();
         int erros = event.getOption("erros_permitidos").getAsInt();
@@ -65,34 +67,35 @@ public class ReflexoCommand implements ICommand {
         String modo = event.getOption("modo", "normal", OptionMapping::getAsString);
         double velocidadeInicial = event.getOption("velocidade_inicial", 2.5, OptionMapping::getAsDouble);
         double tempoLimite = event.getOption("tempo_limite", -1.0, OptionMapping::getAsDouble);
+        String channelId = event.getChannel().getId();
 
-        Optional<Personagem> personagemOpt = service.buscarPorUsuario(targetUser.getId());
-        if (personagemOpt.isEmpty()) {
-            event.reply("O usuário " + targetUser.getAsMention() + " não possui um personagem para o desafio.").setEphemeral(true).queue();
-            return;
-        }
+        return service.buscarPorUsuarioAsync(targetUser.getId()).thenAccept(personagemOpt -> {
+            if (personagemOpt.isEmpty()) {
+                event.getHook().editOriginal("O usuário " + targetUser.getAsMention() + " não possui um personagem para o desafio.").queue();
+                return;
+            }
 
-        Personagem personagem = personagemOpt.get();
-        Map<String, Integer> subAtributos = CalculadoraAtributos.calcularSubAtributos(personagem);
-        int defesa = subAtributos.get("Defesa");
+            Personagem personagem = personagemOpt.get();
+            // A defesa do desafio é a Esquiva (capacidade de evitar dano).
+            int defesa = CalculadoraAtributos.calcularSubAtributos(personagem).esquiva();
 
-        String channelId = event.getChannel().getId();
-        GameManager.ReflexGameSession session = new GameManager.ReflexGameSession(channelId);
-        GameManager.activeReflexGames.put(targetUser.getId(), session);
+            GameManager.ReflexGameSession session = new GameManager.ReflexGameSession(channelId);
+            GameManager.activeReflexGames.put(targetUser.getId(), session);
 
-        // Usamos Locale.US para garantir que números flutuantes usem '.' como separador decimal.
-        String startGameMessage = String.format(java.util.Locale.US,
-                "{\"action\":\"START_GAME\",\"pontuacaoNecessaria\":%d,\"errosPermitidos\":%d,\"defesa\":%d,\"modo\":\"%s\",\"velocidadeInicial\":%.2f,\"tempoLimite\":%.2f}",
-                pontuacao, erros, defesa, modo, velocidadeInicial, tempoLimite
-        );
+            // Usamos Locale.US para garantir que números flutuantes usem '.' como separador decimal.
+            String startGameMessage = String.format(java.util.Locale.US,
+                    "{\"action\":\"START_GAME\",\"pontuacaoNecessaria\":%d,\"errosPermitidos\":%d,\"defesa\":%d,\"modo\":\"%s\",\"velocidadeInicial\":%.2f,\"tempoLimite\":%.2f}",
+                    pontuacao, erros, defesa, modo, velocidadeInicial, tempoLimite
+            );
 
-        boolean sent = WebSocketServerManager.sendMessageToUser(targetUser.getId(), startGameMessage);
+            boolean sent = WebSocketServerManager.sendMessageToUser(targetUser.getId(), startGameMessage);
 
-        if (sent) {
-            event.reply("Desafio de reflexo enviado para " + targetUser.getAsMention() + "!").setEphemeral(true).queue();
-        } else {
-            GameManager.activeReflexGames.remove(targetUser.getId());
-            event.reply("Falha ao enviar desafio: o usuário " + targetUser.getAsMention() + " não está com o cliente de jogo conectado.").setEphemeral(true).queue();
-        }
+            if (sent) {
+                event.getHook().editOriginal("Desafio de reflexo enviado para " + targetUser.getAsMention() + "!").queue();
+            } else {
+                GameManager.activeReflexGames.remove(targetUser.getId());
+                event.getHook().editOriginal("Falha ao enviar desafio: o usuário " + targetUser.getAsMention() + " não está com o cliente de jogo conectado.").queue();
+            }
+        });
     }
 }
\ No newline at end of file
@@ -0,0 +1,109 @@
+package com.bot.discord.comandos;
+
+import com.bot.discord.DespachanteInteracoes;
+import com.bot.discord.LimitadorTaxa;
+import com.bot.service.ArmazemCompacto;
+import com.bot.service.ArquivoPersonagemRepository;
+import com.bot.service.CompactoPersonagemRepository;
+import com.bot.service.ConnectionPool;
+import com.bot.service.MemoriaPersonagemRepository;
+import com.bot.service.PersonagemCache;
+import com.bot.service.PersonagemRepository;
+import com.bot.service.PersonagemService;
+import com.bot.service.PostgresPersonagemRepository;
+import com.bot.service.WriteBehindPersonagemRepository;
+import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
+
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Implementa a lógica para o comando /status-banco, que é restrito a administradores.
+ * Exibe o repositório em uso e o seu estado (pool de conexões e tempos de aquisição no Postgres,
+ * tamanho do log no arquivo), a taxa de acerto do cache de personagens e a fila de interações
+ * do {@link DespachanteInteracoes} e os contadores do {@link LimitadorTaxa}.
+ */
+public class StatusBancoCommand implements ICommand {
+
+    @Override
+    public String getName() {
+        return "status-banco";
+    }
+
+    @Override
+    public String getDescription() {
+        return "(Admin) Mostra o estado do repositório e do cache de personagens.";
+    }
+
+    @Override
+    public boolean isAdminCommand() {
+        return true;
+    }
+
+    /**
+     * Executa a lógica do comando /status-banco.
+     *
+     * @param event   O objeto do evento de interação.
+     * @param service A instância do serviço de personagem, dona do repositório.
+     */
+    @Override
+    public CompletionStage<?> execute(SlashCommandInteractionEvent event, PersonagemService service) {
+        PersonagemCache.Estatisticas c = service.getCache().getEstatisticas();
+        DespachanteInteracoes.Estatisticas d = DespachanteInteracoes.get().getEstatisticas();
+        LimitadorTaxa.Estatisticas l = LimitadorTaxa.get().getEstatisticas();
+        String mensagem = descreverRepositorio(service.getRepositorio()) + String.format(Locale.US,
+                "\n\n**Cache de personagens**\n> Em memória: %d / %d\n> Acertos: %d\n> Faltas: %d\n> Expiradas: %d\n> Taxa de acerto: %.1f%%"
+                        + "\n\n**Interações**\n> Usuários com fila: %d\n> Em execução: %d\n> Executadas: %d\n> Recusadas: %d (fila de %d por usuário)"
+                        + "\n> Falhas: %d\n> Espera média: %.2f ms\n> Espera máxima: %.2f ms"
+                        + "\n\n**Limite de uso**\n> Por usuário: %d fichas, %.0f/min\n> Por servidor: %d fichas, %.0f/min"
+                        + "\n> Permitidas: %d\n> Limitadas (usuário): %d\n> Limitadas (servidor): %d"
+                        + "\n> Baldes ativos: %d usuários, %d servidores\n> Baldes descartados: %d",
+                c.entradas(), c.capacidade(), c.acertos(), c.faltas(), c.expiradas(), c.taxaAcerto() * 100,
+                d.caixasAtivas(), d.emExecucao(), d.executadas(), d.recusadas(), d.capacidadeCaixa(),
+                d.falhas(), d.esperaMediaMs(), d.esperaMaximaMs(),
+                l.limiteUsuario().capacidade(), l.limiteUsuario().porMinuto(),
+                l.limiteServidor().capacidade(), l.limiteServidor().porMinuto(),
+                l.permitidas(), l.limitadasUsuario(), l.limitadasServidor(),
+                l.baldesUsuario(), l.baldesServidor(), l.descartados());
+        event.reply(mensagem).setEphemeral(true).queue();
+        return CompletableFuture.completedFuture(null);
+    }
+
+    private static String descreverRepositorio(PersonagemRepository repositorio) {
+        String titulo = "**Repositório:** " + repositorio.getNome();
+        if (repositorio instanceof WriteBehindPersonagemRepository adiada) {
+            WriteBehindPersonagemRepository.Estatisticas e = adiada.getEstatisticas();
+            titulo += String.format(Locale.US,
+                    "\n\n**Escrita adiada**\n> Pendentes: %d\n> Gravados: %d\n> Coalescidos: %d\n> Lotes: %d\n> Lotes com falha: %d",
+                    e.pendentes(), e.escritas(), e.coalescidas(), e.lotes(), e.falhas());
+            repositorio = adiada.getDestino();
+        }
+        if (repositorio instanceof PostgresPersonagemRepository postgres) {
+            ConnectionPool.Estatisticas e = postgres.getPool().getEstatisticas();
+            return titulo + String.format(Locale.US,
+                    "\n\n**Pool de conexões**\n> Em uso: %d / %d\n> Ociosas: %d\n> Aquisições: %d\n> Timeouts: %d"
+                            + "\n> Conexões criadas: %d\n> Conexões descartadas: %d\n> Espera média: %.2f ms\n> Espera máxima: %.2f ms",
+                    e.emUso(), e.maximo(), e.ociosas(), e.aquisicoes(), e.timeouts(),
+                    e.criadas(), e.descartadas(), e.esperaMediaMs(), e.esperaMaximaMs());
+        }
+        if (repositorio instanceof ArquivoPersonagemRepository arquivo) {
+            ArquivoPersonagemRepository.Estatisticas e = arquivo.getEstatisticas();
+            return titulo + String.format(Locale.US,
+                    "\n\n**Log de personagens**\n> Personagens: %d\n> Bytes usados: %d / %d\n> Bytes substituídos: %d\n> Compactações: %d",
+                    e.personagens(), e.bytesUsados(), e.capacidade(), e.bytesLixo(), e.compactacoes());
+        }
+        if (repositorio instanceof CompactoPersonagemRepository compacto) {
+            ArmazemCompacto.Estatisticas e = compacto.getEstatisticas();
+            return titulo + String.format(Locale.US,
+                    "\n\n**Armazém compacto**\n> Personagens: %d / %d slots\n> Strings distintas: %d\n> Fora do heap: %d bytes"
+                            + "\n> Arena de strings: %d bytes (%d sem uso)\n> No heap: %d bytes\n> Compactações: %d",
+                    e.personagens(), e.slots(), e.textos(), e.bytesForaDoHeap(), e.bytesArena(), e.bytesLixoArena(),
+                    e.bytesHeap(), e.compactacoes());
+        }
+        if (repositorio instanceof MemoriaPersonagemRepository memoria) {
+            return titulo + "\n> Personagens: " + memoria.tamanho();
+        }
+        return titulo;
+    }
+}
@@ -8,7 +8,8 @@ import net.dv8tion.jda.api.interactions.commands.OptionType;
 import net.dv8tion.jda.api.interactions.commands.build.OptionData;
 
 import java.util.List;
-import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 
 /**
  * Implementa a lógica para o comando /upar, que é restrito a administradores.
@@ -73,14 +74,14 @@ public class UparCommand implements ICommand {
      * 2. Obtém o usuário alvo e a quantidade de níveis a adicionar das opções.
      * 3. Valida se a quantidade de níveis é um número positivo.
      * 4. Busca o personagem do usuário alvo. Se não existir, envia um erro.
-     * 5. Se existir, chama o método {@code uparNivel} do {@link PersonagemService}.
+     * 5. Se existir, chama o método {@code uparNivelAsync} do {@link PersonagemService}, sem bloquear a thread de eventos.
      * 6. Envia uma mensagem de sucesso privada para o administrador confirmando a ação.
      *
      * @param event   O objeto do evento de interação, contendo todas as informações da invocação.
      * @param service A instância do serviço de personagem para a lógica de negócio.
      */
     @Override
-    public void execute(SlashCommandInteractionEvent event, PersonagemService service) {
+    public CompletionStage<?> execute(SlashCommandInteractionEvent event, PersonagemService service) {
         // A resposta é efêmera, pois é uma ação administrativa e o feedback
         // deve ser visível apenas para quem executou o comando.
         event.deferReply(true).queue();
@@ -91,32 +92,32 @@ public class UparCommand implements ICommand {
         // 1. Valida os dados de entrada.
         if (niveisParaAdicionar <= 0) {
             event.getHook().sendMessage("A quantidade de níveis para adicionar deve ser um número positivo.").queue();
-            return;
+            return CompletableFuture.completedFuture(null);
         }
 
-        Optional<Personagem> personagemOpt = service.buscarPorUsuario(targetUser.getId());
-
-        // 2. Verifica se o personagem do usuário alvo existe.
-        if (personagemOpt.isEmpty()) {
-            event.getHook().sendMessage("O usuário " + targetUser.getAsMention() + " não possui um personagem.").queue();
-            return;
-        }
-
-        Personagem personagem = personagemOpt.get();
-        int nivelAntigo = personagem.getNivel();
-
-        // 3. Chama o serviço para executar a lógica de negócio.
-        service.uparNivel(personagem, niveisParaAdicionar);
-
-        // 4. Envia a confirmação para o administrador.
-        String mensagem = String.format(
-                "Personagem de %s upado com sucesso!\n> **Nível**: %d -> %d\n> **Pontos Adicionados**: %d",
-                targetUser.getAsMention(),
-                nivelAntigo,
-                personagem.getNivel(),
-                niveisParaAdicionar * 3
-        );
-
-        event.getHook().sendMessage(mensagem).queue();
+        return service.buscarPorUsuarioAsync(targetUser.getId()).thenCompose(personagemOpt -> {
+            // 2. Verifica se o personagem do usuário alvo existe.
+            if (personagemOpt.isEmpty()) {
+                event.getHook().sendMessage("O usuário " + targetUser.getAsMention() + " não possui um personagem.").queue();
+                return CompletableFuture.<Void>completedFuture(null);
+            }
+
+            Personagem personagem = personagemOpt.get();
+            int nivelAntigo = personagem.getNivel();
+
+            // 3. Chama o serviço para executar a lógica de negócio.
+            return service.uparNivelAsync(personagem, niveisParaAdicionar).thenAccept(upado -> {
+                // 4. Envia a confirmação para o administrador.
+                String mensagem = String.format(
+                        "Personagem de %s upado com sucesso!\n> **Nível**: %d -> %d\n> **Pontos Adicionados**: %d",
+                        targetUser.getAsMention(),
+                        nivelAntigo,
+                        upado.getNivel(),
+                        niveisParaAdicionar * 3
+                );
+
+                event.getHook().sendMessage(mensagem).queue();
+            });
+        });
     }
 }
\ No newline at end of file
@@ -0,0 +1,113 @@
+package com.bot.discord.comandos;
+
+import com.bot.discord.EmbedManager;
+import com.bot.service.PersonagemService;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.entities.Role;
+import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
+import net.dv8tion.jda.api.interactions.commands.OptionMapping;
+import net.dv8tion.jda.api.interactions.commands.OptionType;
+import net.dv8tion.jda.api.interactions.commands.build.OptionData;
+import net.dv8tion.jda.api.utils.concurrent.Task;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Implementa a lógica para o comando /upar-grupo, que é restrito a administradores.
+ * <p>
+ * Versão em lote do /upar: aumenta o nível de todos os jogadores de um cargo (ou do servidor
+ * inteiro, se nenhum cargo for informado) com uma única operação no banco, e responde com
+ * um único resumo.
+ */
+public class UparGrupoCommand implements ICommand {
+
+    @Override
+    public String getName() {
+        return "upar-grupo";
+    }
+
+    @Override
+    public String getDescription() {
+        return "(Admin) Aumenta o nível de todos os jogadores de um cargo, ou do servidor.";
+    }
+
+    /**
+     * @return As opções "niveis" (Integer, obrigatória) e "cargo" (Role, opcional).
+     */
+    @Override
+    public List<OptionData> getOptions() {
+        return List.of(
+                new OptionData(OptionType.INTEGER, "niveis", "Quantidade de níveis para adicionar.", true),
+                new OptionData(OptionType.ROLE, "cargo", "O cargo que vai receber o nível. Sem cargo, todo o servidor.", false)
+        );
+    }
+
+    @Override
+    public boolean isAdminCommand() {
+        return true;
+    }
+
+    /**
+     * Executa a lógica do comando /upar-grupo.
+     * <p>
+     * O fluxo de execução é o seguinte:
+     * 1. Adia a resposta de forma efêmera e valida a quantidade de níveis.
+     * 2. Carrega os membros do cargo (ou do servidor), ignorando bots.
+     * 3. Chama {@code uparNivelEmLoteAsync} do {@link PersonagemService} com todos os IDs de uma vez.
+     * 4. Responde com um embed de resumo, ou com o embed de erro se o banco falhar.
+     *
+     * @param event   O objeto do evento de interação.
+     * @param service A instância do serviço de personagem para a lógica de negócio.
+     */
+    @Override
+    public CompletionStage<?> execute(SlashCommandInteractionEvent event, PersonagemService service) {
+        event.deferReply(true).queue();
+
+        Guild guild = event.getGuild();
+        if (guild == null) {
+            event.getHook().sendMessage("Este comando só pode ser usado em um servidor.").queue();
+            return CompletableFuture.completedFuture(null);
+        }
+
+        int niveisParaAdicionar = event.getOption("niveis").getAsInt();
+        if (niveisParaAdicionar <= 0) {
+            event.getHook().sendMessage("A quantidade de níveis para adicionar deve ser um número positivo.").queue();
+            return CompletableFuture.completedFuture(null);
+        }
+
+        OptionMapping opcaoCargo = event.getOption("cargo");
+        Role cargo = opcaoCargo == null ? null : opcaoCargo.getAsRole();
+        boolean servidorInteiro = cargo == null || cargo.isPublicRole();
+        String alvo = servidorInteiro ? "todo o servidor" : cargo.getAsMention();
+
+        // Os membros vêm do gateway (intent GUILD_MEMBERS), sem bloquear a thread de eventos.
+        CompletableFuture<Void> concluido = new CompletableFuture<>();
+        Task<List<Member>> membros = servidorInteiro ? guild.loadMembers() : guild.findMembersWithRoles(cargo);
+        membros.onSuccess(lista -> {
+            List<String> ids = lista.stream()
+                    .filter(m -> !m.getUser().isBot())
+                    .map(Member::getId)
+                    .toList();
+
+            service.uparNivelEmLoteAsync(ids, niveisParaAdicionar).whenComplete((upados, ex) -> {
+                if (ex != null) {
+                    ICommand.registrarFalha(getName(), ex);
+                    event.getHook().sendMessageEmbeds(EmbedManager.buildErroEmbed(
+                            "Não foi possível conceder os níveis a " + alvo + ".")).queue();
+                    return;
+                }
+                event.getHook()
+                        .sendMessageEmbeds(EmbedManager.buildUparGrupoEmbed(alvo, niveisParaAdicionar, upados, ids.size()))
+                        .queue();
+            }).whenComplete((ok, ex) -> concluido.complete(null));
+        }).onError(ex -> {
+            ICommand.registrarFalha(getName(), ex);
+            event.getHook().sendMessage("Não foi possível carregar os membros de " + alvo + ".").queue();
+            concluido.complete(null);
+        });
+        return concluido;
+    }
+}
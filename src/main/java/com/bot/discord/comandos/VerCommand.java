@@ -1,7 +1,7 @@
 package com.bot.discord.comandos;
 
 import com.bot.discord.EmbedManager;
-import com.bot.discord.ImageGenerator;
+import com.bot.discord.RenderScheduler;
 import com.bot.model.Personagem;
 import com.bot.service.PersonagemService;
 import net.dv8tion.jda.api.entities.MessageEmbed;
@@ -12,7 +12,8 @@ import net.dv8tion.jda.api.interactions.commands.build.OptionData;
 import net.dv8tion.jda.api.utils.FileUpload;
 
 import java.util.List;
-import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 
 /**
  * Implementa a lógica para o comando /ver, que é restrito a administradores.
@@ -43,43 +44,43 @@ public class VerCommand implements ICommand {
     /**
      * Executa a lógica do comando /ver.
      * Busca o personagem do usuário alvo. Se encontrado, gera a imagem e o embed
-     * da ficha e os envia como resposta.
+     * da ficha e os envia como resposta (apenas o embed de texto, se a fila de renderização estiver cheia).
      *
      * @param event   O objeto do evento de interação.
      * @param service A instância do serviço de personagem para a lógica de negócio.
      */
     @Override
-    public void execute(SlashCommandInteractionEvent event, PersonagemService service) {
-        // Não usamos o fluxo assíncrono aqui para manter o comando de admin simples e direto.
+    public CompletionStage<?> execute(SlashCommandInteractionEvent event, PersonagemService service) {
+        // A imagem é gerada na faixa de menor prioridade do agendador de renderização.
         event.deferReply(true).queue();
 
         User targetUser = event.getOption("usuario").getAsUser();
-        Optional<Personagem> personagemOpt = service.buscarPorUsuario(targetUser.getId());
+        return service.buscarPorUsuarioAsync(targetUser.getId()).thenCompose(personagemOpt -> {
+            if (personagemOpt.isEmpty()) {
+                String mensagem = "O usuário " + targetUser.getAsMention() + " não possui um personagem.";
+                event.getHook().sendMessage(mensagem).setEphemeral(true).queue();
+                return CompletableFuture.completedFuture(null);
+            }
+            Personagem personagem = personagemOpt.get();
+            return RenderScheduler.get().renderizar(personagem, RenderScheduler.Faixa.ADMIN)
+                    .handle((imageBytes, ex) -> {
+                        if (ex == null) {
+                            MessageEmbed embed = EmbedManager.buildPersonagemEmbedWithImage(personagem, targetUser);
 
-        personagemOpt.ifPresentOrElse(
-                personagem -> {
-                    try {
-                        byte[] imageBytes = ImageGenerator.generatePersonagemAttributesImage(personagem);
-
-
-                        // Chamamos o método com o nome correto: buildPersonagemEmbedWithImage
-                        // Ele não precisa mais dos bytes da imagem como parâmetro.
-                        MessageEmbed embed = EmbedManager.buildPersonagemEmbedWithImage(personagem, targetUser);
-
-                        event.getHook().sendFiles(FileUpload.fromData(imageBytes, "ficha_atributos.png"))
-                                .addEmbeds(embed)
-                                .queue();
-
-                    } catch (Exception e) {
-                        System.err.println("Erro ao gerar ou enviar a imagem da ficha (comando /ver): " + e.getMessage());
-                        e.printStackTrace();
-                        event.getHook().sendMessage("Ocorreu um erro ao gerar a imagem da ficha.").setEphemeral(true).queue();
-                    }
-                },
-                () -> {
-                    String mensagem = "O usuário " + targetUser.getAsMention() + " não possui um personagem.";
-                    event.getHook().sendMessage(mensagem).setEphemeral(true).queue();
-                }
-        );
+                            event.getHook().sendFiles(FileUpload.fromData(imageBytes, "ficha_atributos.png"))
+                                    .addEmbeds(embed)
+                                    .queue();
+                        } else if (RenderScheduler.isRecusa(ex)) {
+                            // Fila de renderização cheia: mostra a ficha apenas com texto.
+                            event.getHook().sendMessageEmbeds(EmbedManager.buildPersonagemEmbedTextOnly(personagem, targetUser))
+                                    .queue();
+                        } else {
+                            System.err.println("Erro ao gerar ou enviar a imagem da ficha (comando /ver): " + ex.getMessage());
+                            ex.printStackTrace();
+                            event.getHook().sendMessage("Ocorreu um erro ao gerar a imagem da ficha.").setEphemeral(true).queue();
+                        }
+                        return null;
+                    });
+        });
     }
 }
\ No newline at end of file
@@ -1,5 +1,6 @@
 package com.bot.discord.games;
 
+import com.bot.metricas.Eventos;
 import net.dv8tion.jda.api.JDA;
 import net.dv8tion.jda.api.entities.User;
 import net.dv8tion.jda.api.entities.channel.middleman.MessageChannel;
@@ -14,6 +15,9 @@ import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Gerencia o servidor WebSocket para os mini-jogos interativos.
+ * <p>
+ * O tratamento de cada mensagem recebida é emitido como evento do JFR ({@link Eventos.MensagemWebSocket})
+ * durante uma gravação.
  */
 public class WebSocketServerManager extends WebSocketServer {
 
@@ -34,6 +38,13 @@ public class WebSocketServerManager extends WebSocketServer {
         return token;
     }
 
+    /**
+     * @return Quantidade de usuários com uma conexão autenticada (jogos prontos para receber eventos).
+     */
+    public static int getConexoesAutenticadas() {
+        return activeConnections.size();
+    }
+
     public static boolean sendMessageToUser(String userId, String message) {
         WebSocket conn = activeConnections.get(userId);
         if (conn != null && conn.isOpen()) {
@@ -61,6 +72,8 @@ public class WebSocketServerManager extends WebSocketServer {
     public void onMessage(WebSocket conn, String message) {
         System.out.println("Mensagem recebida de " + conn.getRemoteSocketAddress() + ": " + message);
 
+        Eventos.MensagemWebSocket evento = new Eventos.MensagemWebSocket();
+        evento.begin();
         try {
             if (message.startsWith("AUTH:")) {
                 String token = message.substring(5);
@@ -111,6 +124,15 @@ public class WebSocketServerManager extends WebSocketServer {
         } catch (Exception e) {
             System.err.println("Erro ao processar mensagem WebSocket: " + e.getMessage());
             e.printStackTrace();
+        } finally {
+            evento.end();
+            if (evento.shouldCommit()) {
+                evento.usuario = reverseConnections.get(conn);
+                evento.tipo = message.startsWith("AUTH:") ? "AUTH"
+                        : message.contains("\"action\":\"GAME_RESULT\"") ? "GAME_RESULT" : "OUTRA";
+                evento.caracteres = message.length();
+                evento.commit();
+            }
         }
     }
 
@@ -0,0 +1,124 @@
+package com.bot.metricas;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Eventos do Java Flight Recorder emitidos pelo bot, para correlacionar pausas do coletor, disputa
+ * de locks e renderizações lentas com as interações exatas que as sofreram.
+ * <p>
+ * Fora de uma gravação (veja {@link GravacaoJfr}) os eventos ficam desligados: criar e iniciar um
+ * evento é praticamente gratuito, e quem o emite só preenche os campos quando
+ * {@link Event#shouldCommit()} indica que ele será gravado. Nenhum evento guarda a pilha de chamadas.
+ */
+public final class Eventos {
+
+    private static final String CATEGORIA = "Bot de Personagem";
+
+    private Eventos() {}
+
+    @Name("com.bot.Interacao")
+    @Label("Interação")
+    @Description("Execução do handler de um comando ou botão, da saída da fila do usuário até o futuro devolvido por ele completar.")
+    @Category({CATEGORIA, "Discord"})
+    @StackTrace(false)
+    public static final class Interacao extends Event {
+        @Label("Interação")
+        public String interacao;
+
+        @Label("Usuário")
+        public String usuario;
+
+        @Label("Servidor")
+        public String servidor;
+
+        @Label("Falhou")
+        public boolean falhou;
+    }
+
+    @Name("com.bot.Render")
+    @Label("Renderização da ficha")
+    @Description("Montagem da imagem da ficha (substituição no template e transcodificação, ou desenho em camadas) e codificação do PNG.")
+    @Category({CATEGORIA, "Imagem"})
+    @StackTrace(false)
+    public static final class Render extends Event {
+        @Label("Usuário")
+        public String usuario;
+
+        @Label("Modo")
+        @Description("cartao, camadas ou batik.")
+        public String modo;
+
+        @Label("Acerto no cache")
+        @Description("A imagem veio do cache de fichas, sem renderizar.")
+        public boolean acertoCache;
+
+        @Label("Tamanho do PNG")
+        @DataAmount
+        public long bytes;
+    }
+
+    @Name("com.bot.Sql")
+    @Label("Operação no banco")
+    @Description("Uma operação do repositório no Postgres, incluindo a espera por uma conexão do pool.")
+    @Category({CATEGORIA, "Banco"})
+    @StackTrace(false)
+    public static final class Sql extends Event {
+        @Label("Operação")
+        public String operacao;
+
+        @Label("Usuário")
+        @Description("O personagem afetado, nas operações sobre um único personagem.")
+        public String usuario;
+
+        @Label("Itens")
+        @Description("Personagens enviados ao banco (lotes) ou 1 nas operações individuais.")
+        public int itens;
+
+        @Label("Falhou")
+        public boolean falhou;
+    }
+
+    @Name("com.bot.EdicaoFicha")
+    @Label("Edição da ficha")
+    @Description("Da submissão da edição final da ficha (imagem e botões) até a resposta do Discord.")
+    @Category({CATEGORIA, "Discord"})
+    @StackTrace(false)
+    public static final class EdicaoFicha extends Event {
+        @Label("Usuário")
+        public String usuario;
+
+        @Label("Com imagem")
+        public boolean comImagem;
+
+        @Label("Tamanho do anexo")
+        @DataAmount
+        public long bytes;
+
+        @Label("Falhou")
+        public boolean falhou;
+    }
+
+    @Name("com.bot.MensagemWebSocket")
+    @Label("Mensagem WebSocket")
+    @Description("Tratamento de uma mensagem recebida do cliente dos mini-jogos.")
+    @Category({CATEGORIA, "Mini-jogos"})
+    @StackTrace(false)
+    public static final class MensagemWebSocket extends Event {
+        @Label("Usuário")
+        @Description("O usuário autenticado na conexão, se houver.")
+        public String usuario;
+
+        @Label("Tipo")
+        @Description("AUTH, GAME_RESULT ou OUTRA.")
+        public String tipo;
+
+        @Label("Caracteres")
+        public int caracteres;
+    }
+}
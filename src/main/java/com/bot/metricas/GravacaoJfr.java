@@ -0,0 +1,137 @@
+package com.bot.metricas;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Event;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Gravação contínua e limitada do Java Flight Recorder, salva em arquivo sob demanda (pelo /gravacao).
+ * <p>
+ * A gravação usa a configuração {@code default} do JDK (feita para rodar em produção, com custo
+ * em torno de 1%) mais os {@link Eventos} do bot, e guarda só a janela mais recente: eventos mais
+ * antigos que a idade máxima, ou além do tamanho máximo, são descartados pelo próprio JFR.
+ * Salvar copia essa janela para um arquivo {@code .jfr} no diretório configurado, para abrir no
+ * JDK Mission Control ou com {@code jfr print}.
+ */
+public final class GravacaoJfr {
+
+    /**
+     * Fotografia da gravação.
+     *
+     * @param ativa         Se a gravação está em andamento.
+     * @param idadeMaxima   A janela de tempo mantida.
+     * @param tamanhoMaximo O limite de bytes mantidos.
+     * @param salvas        Quantas vezes a gravação foi salva desde o início do processo.
+     */
+    public record Estado(boolean ativa, Duration idadeMaxima, long tamanhoMaximo, Path diretorio, int salvas) {}
+
+    private static final DateTimeFormatter FORMATO_ARQUIVO = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private static volatile GravacaoJfr instancia =
+            new GravacaoJfr(Duration.ofMinutes(10), 64L * 1024 * 1024, Path.of("dados/jfr"));
+
+    private final Duration idadeMaxima;
+    private final long tamanhoMaximo;
+    private final Path diretorio;
+    private Recording gravacao;
+    private int salvas;
+
+    /**
+     * @param idadeMaxima   A janela de tempo mantida na gravação.
+     * @param tamanhoMaximo O limite de bytes mantidos na gravação.
+     * @param diretorio     Onde os arquivos salvos são criados.
+     */
+    public GravacaoJfr(Duration idadeMaxima, long tamanhoMaximo, Path diretorio) {
+        this.idadeMaxima = idadeMaxima;
+        this.tamanhoMaximo = tamanhoMaximo;
+        this.diretorio = diretorio;
+    }
+
+    public static GravacaoJfr get() {
+        return instancia;
+    }
+
+    /**
+     * Substitui a gravação global, parando a anterior.
+     */
+    public static void configurar(GravacaoJfr nova) {
+        GravacaoJfr antiga = instancia;
+        instancia = nova;
+        antiga.parar();
+    }
+
+    /**
+     * Inicia a gravação, se ainda não estiver em andamento.
+     *
+     * @return {@code false} se ela já estava em andamento.
+     * @throws IOException Se a configuração do JFR não puder ser lida.
+     */
+    public synchronized boolean iniciar() throws IOException {
+        if (gravacao != null && gravacao.getState() == RecordingState.RUNNING) {
+            return false;
+        }
+        Recording nova;
+        try {
+            nova = new Recording(Configuration.getConfiguration("default"));
+        } catch (ParseException e) {
+            throw new IOException("Configuração 'default' do JFR inválida.", e);
+        }
+        nova.setName("bot-personagem");
+        nova.setToDisk(true);
+        nova.setMaxAge(idadeMaxima);
+        nova.setMaxSize(tamanhoMaximo);
+        for (Class<?> evento : Eventos.class.getDeclaredClasses()) {
+            nova.enable(evento.asSubclass(Event.class)).withoutStackTrace().withoutThreshold();
+        }
+        nova.start();
+        gravacao = nova;
+        return true;
+    }
+
+    /**
+     * Copia a janela atual da gravação para um novo arquivo.
+     *
+     * @return O arquivo criado.
+     * @throws IllegalStateException Se não houver gravação em andamento.
+     * @throws IOException           Se o arquivo não puder ser escrito.
+     */
+    public synchronized Path salvar() throws IOException {
+        if (gravacao == null || gravacao.getState() != RecordingState.RUNNING) {
+            throw new IllegalStateException("Não há gravação em andamento.");
+        }
+        Files.createDirectories(diretorio);
+        Path arquivo = diretorio.resolve("bot-" + LocalDateTime.now().format(FORMATO_ARQUIVO) + ".jfr");
+        gravacao.dump(arquivo);
+        salvas++;
+        return arquivo;
+    }
+
+    /**
+     * Para a gravação e descarta o que ela guardava.
+     *
+     * @return {@code false} se não havia gravação em andamento.
+     */
+    public synchronized boolean parar() {
+        if (gravacao == null) {
+            return false;
+        }
+        boolean ativa = gravacao.getState() == RecordingState.RUNNING;
+        gravacao.close();
+        gravacao = null;
+        return ativa;
+    }
+
+    public synchronized Estado getEstado() {
+        boolean ativa = gravacao != null && gravacao.getState() == RecordingState.RUNNING;
+        return new Estado(ativa, idadeMaxima, tamanhoMaximo, diretorio, salvas);
+    }
+}
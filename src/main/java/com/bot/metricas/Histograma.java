@@ -0,0 +1,86 @@
+package com.bot.metricas;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histograma de latências com faixas fixas, no formato dos histogramas do Prometheus.
+ * <p>
+ * Registrar uma medida não aloca nem trava: é uma busca linear em um array de poucos limites
+ * e dois {@link LongAdder#add}, que se espalham por células próprias quando há disputa entre threads.
+ * A leitura (na coleta) soma as células e não é um retrato atômico, o que o Prometheus tolera.
+ */
+public final class Histograma {
+
+    /**
+     * Limites superiores das faixas, em segundos (a faixa {@code +Inf} é implícita).
+     */
+    public static final double[] LIMITES_PADRAO = {
+            0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10
+    };
+
+    private final double[] limitesSegundos;
+    private final long[] limitesNanos;
+    private final LongAdder[] contagens;
+    private final LongAdder somaNanos = new LongAdder();
+
+    public Histograma() {
+        this(LIMITES_PADRAO);
+    }
+
+    /**
+     * @param limitesSegundos Limites superiores das faixas, em ordem crescente.
+     */
+    public Histograma(double[] limitesSegundos) {
+        this.limitesSegundos = limitesSegundos.clone();
+        this.limitesNanos = new long[limitesSegundos.length];
+        for (int i = 0; i < limitesSegundos.length; i++) {
+            limitesNanos[i] = (long) (limitesSegundos[i] * TimeUnit.SECONDS.toNanos(1));
+        }
+        this.contagens = new LongAdder[limitesSegundos.length + 1];
+        for (int i = 0; i < contagens.length; i++) {
+            contagens[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Registra uma duração.
+     *
+     * @param nanos A duração em nanossegundos (ex: a diferença entre dois {@link System#nanoTime()}).
+     */
+    public void registrar(long nanos) {
+        int i = 0;
+        while (i < limitesNanos.length && nanos > limitesNanos[i]) {
+            i++;
+        }
+        contagens[i].increment();
+        somaNanos.add(nanos);
+    }
+
+    /**
+     * Registra o tempo decorrido desde {@code inicioNanos}.
+     */
+    public void registrarDesde(long inicioNanos) {
+        registrar(System.nanoTime() - inicioNanos);
+    }
+
+    /**
+     * Escreve as linhas {@code _bucket}, {@code _sum} e {@code _count} da série.
+     *
+     * @param rotulos Os rótulos da série já formatados (ex: {@code comando="ver"}), ou vazio.
+     */
+    void escrever(StringBuilder saida, String nome, String rotulos) {
+        String separador = rotulos.isEmpty() ? "" : rotulos + ",";
+        long acumulado = 0;
+        for (int i = 0; i < contagens.length; i++) {
+            acumulado += contagens[i].sum();
+            String limite = i < limitesSegundos.length ? Metricas.formatar(limitesSegundos[i]) : "+Inf";
+            saida.append(nome).append("_bucket{").append(separador).append("le=\"").append(limite).append("\"} ")
+                    .append(acumulado).append('\n');
+        }
+        String chaves = rotulos.isEmpty() ? "" : "{" + rotulos + "}";
+        saida.append(nome).append("_sum").append(chaves).append(' ')
+                .append(Metricas.formatar(somaNanos.sum() / 1e9)).append('\n');
+        saida.append(nome).append("_count").append(chaves).append(' ').append(acumulado).append('\n');
+    }
+}
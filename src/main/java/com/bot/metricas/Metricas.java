@@ -0,0 +1,224 @@
+package com.bot.metricas;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Registro das métricas do bot, exportadas no formato de texto do Prometheus
+ * ({@link #handler()}, servido em {@value #CAMINHO_HTTP} pelo servidor HTTP embutido).
+ * <p>
+ * Há dois tipos de série:
+ * <ul>
+ *     <li>Medidas registradas no momento em que acontecem: {@link Histograma}s de latência e contadores
+ *     ({@link LongAdder}), opcionalmente separados por um rótulo ({@link Familia}). Quem mede guarda a
+ *     referência à série uma única vez (ex: em um campo {@code static final}), e registrar não aloca.</li>
+ *     <li>Valores lidos só na coleta ({@link #medidor}, {@link #contadorLido}): usados para expor os
+ *     contadores que os componentes já mantêm nas suas {@code Estatisticas}, sem duplicá-los.</li>
+ * </ul>
+ */
+public final class Metricas {
+
+    /**
+     * Caminho, no servidor HTTP, em que as métricas são servidas.
+     */
+    public static final String CAMINHO_HTTP = "/metrics";
+
+    private static final String TIPO_CONTEUDO = "text/plain; version=0.0.4; charset=utf-8";
+
+    /**
+     * Um conjunto de séries do mesmo nome, separadas pelo valor de um rótulo (ex: o nome do comando).
+     * As séries são criadas na primeira consulta de cada valor.
+     */
+    public static final class Familia<T> {
+        private final String rotulo;
+        private final Function<String, T> criar;
+        private final Map<String, T> series = new ConcurrentHashMap<>();
+
+        private Familia(String rotulo, Function<String, T> criar) {
+            this.rotulo = rotulo;
+            this.criar = criar;
+        }
+
+        /**
+         * @return A série do valor de rótulo, criando-a se necessário. Guarde o resultado em vez de
+         * chamar este método a cada medida.
+         */
+        public T com(String valor) {
+            T serie = series.get(valor);
+            return serie != null ? serie : series.computeIfAbsent(valor, criar);
+        }
+    }
+
+    private interface Serie {
+        void escrever(StringBuilder saida, String nome);
+    }
+
+    /**
+     * @param medida O objeto de medida da série (histograma ou família), devolvido a quem registrar o nome de novo.
+     */
+    private record Registro(String nome, String ajuda, String tipo, Serie serie, Object medida) {}
+
+    private static final Metricas INSTANCIA = new Metricas();
+
+    private final Map<String, Registro> registros = new LinkedHashMap<>();
+    private final List<Runnable> antesDaColeta = new CopyOnWriteArrayList<>();
+
+    public static Metricas get() {
+        return INSTANCIA;
+    }
+
+    /**
+     * Registra (ou devolve, se já existir) um histograma de latências sem rótulos.
+     */
+    public Histograma histograma(String nome, String ajuda) {
+        Histograma histograma = new Histograma();
+        return (Histograma) registrarSeAusente(new Registro(nome, ajuda, "histogram",
+                (s, n) -> histograma.escrever(s, n, ""), histograma));
+    }
+
+    /**
+     * Registra (ou devolve, se já existir) uma família de histogramas separados pelo {@code rotulo}.
+     */
+    public Familia<Histograma> histogramas(String nome, String ajuda, String rotulo) {
+        Familia<Histograma> familia = new Familia<>(rotulo, v -> new Histograma());
+        return registrarSeAusente(new Registro(nome, ajuda, "histogram", (s, n) -> familia.series.forEach(
+                (valor, h) -> h.escrever(s, n, rotulo(familia.rotulo, valor))), familia));
+    }
+
+    /**
+     * Registra (ou devolve, se já existir) uma família de contadores separados pelo {@code rotulo}.
+     * O nome deve terminar em {@code _total}.
+     */
+    public Familia<LongAdder> contadores(String nome, String ajuda, String rotulo) {
+        Familia<LongAdder> familia = new Familia<>(rotulo, v -> new LongAdder());
+        return registrarSeAusente(new Registro(nome, ajuda, "counter", (s, n) -> familia.series.forEach(
+                (valor, c) -> s.append(n).append('{').append(rotulo(familia.rotulo, valor)).append("} ")
+                        .append(c.sum()).append('\n')), familia));
+    }
+
+    /**
+     * Registra um valor instantâneo, lido a cada coleta. Um registro com o mesmo nome é substituído.
+     */
+    public void medidor(String nome, String ajuda, DoubleSupplier valor) {
+        registrar(new Registro(nome, ajuda, "gauge",
+                (s, n) -> s.append(n).append(' ').append(formatar(valor.getAsDouble())).append('\n'), null));
+    }
+
+    /**
+     * Registra um contador mantido por outro componente, lido a cada coleta. Um registro com o mesmo
+     * nome é substituído. O nome deve terminar em {@code _total}.
+     */
+    public void contadorLido(String nome, String ajuda, LongSupplier valor) {
+        registrar(new Registro(nome, ajuda, "counter",
+                (s, n) -> s.append(n).append(' ').append(valor.getAsLong()).append('\n'), null));
+    }
+
+    /**
+     * Registra uma ação executada antes de cada coleta (ex: consolidar medidas pendentes).
+     */
+    public void antesDaColeta(Runnable acao) {
+        antesDaColeta.add(acao);
+    }
+
+    /**
+     * @return Todas as métricas no formato de texto do Prometheus.
+     */
+    public String coletar() {
+        for (Runnable acao : antesDaColeta) {
+            acao.run();
+        }
+        List<Registro> atuais;
+        synchronized (registros) {
+            atuais = new ArrayList<>(registros.values());
+        }
+        StringBuilder saida = new StringBuilder(16 * 1024);
+        for (Registro r : atuais) {
+            saida.append("# HELP ").append(r.nome()).append(' ').append(r.ajuda()).append('\n');
+            saida.append("# TYPE ").append(r.nome()).append(' ').append(r.tipo()).append('\n');
+            try {
+                r.serie().escrever(saida, r.nome());
+            } catch (RuntimeException e) {
+                // Um componente com problema não deve derrubar a coleta das demais métricas.
+                System.err.println("Erro ao coletar a métrica " + r.nome() + ": " + e.getMessage());
+            }
+        }
+        return saida.toString();
+    }
+
+    /**
+     * Atende {@code GET /metrics}.
+     */
+    public HttpHandler handler() {
+        return this::atender;
+    }
+
+    private void atender(HttpExchange troca) throws IOException {
+        try (troca) {
+            if (!troca.getRequestMethod().equals("GET")) {
+                troca.sendResponseHeaders(405, -1);
+                return;
+            }
+            byte[] corpo = coletar().getBytes(StandardCharsets.UTF_8);
+            troca.getResponseHeaders().set("Content-Type", TIPO_CONTEUDO);
+            troca.sendResponseHeaders(200, corpo.length);
+            try (OutputStream saida = troca.getResponseBody()) {
+                saida.write(corpo);
+            }
+        }
+    }
+
+    /**
+     * Formata um número como o Prometheus espera (ponto decimal, sem notação de locale).
+     */
+    static String formatar(double valor) {
+        if (valor == Math.rint(valor) && Math.abs(valor) < 1e15) {
+            return Long.toString((long) valor);
+        }
+        return Double.toString(valor);
+    }
+
+    private static String rotulo(String nome, String valor) {
+        StringBuilder s = new StringBuilder(nome.length() + valor.length() + 3).append(nome).append("=\"");
+        for (int i = 0; i < valor.length(); i++) {
+            char c = valor.charAt(i);
+            switch (c) {
+                case '\\' -> s.append("\\\\");
+                case '"' -> s.append("\\\"");
+                case '\n' -> s.append("\\n");
+                default -> s.append(c);
+            }
+        }
+        return s.append('"').toString();
+    }
+
+    private void registrar(Registro registro) {
+        synchronized (registros) {
+            registros.put(registro.nome(), registro);
+        }
+    }
+
+    /**
+     * @return O objeto de medida do registro já existente com o mesmo nome, ou o do novo registro.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T registrarSeAusente(Registro registro) {
+        synchronized (registros) {
+            Registro existente = registros.putIfAbsent(registro.nome(), registro);
+            return (T) (existente != null ? existente : registro).medida();
+        }
+    }
+}
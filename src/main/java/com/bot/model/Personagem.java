@@ -80,6 +80,24 @@ public class Personagem {
         this.fotoUrl = FOTOS_PADRAO.get(indexSorteado);
     }
 
+    /**
+     * Construtor de cópia. Cria um personagem independente com os mesmos dados de {@code outro},
+     * para que alterações em um não afetem o outro.
+     *
+     * @param outro O personagem a ser copiado.
+     */
+    public Personagem(Personagem outro) {
+        this.userId = outro.userId;
+        this.nome = outro.nome;
+        this.nivel = outro.nivel;
+        this.fotoUrl = outro.fotoUrl;
+        this.corpo = outro.corpo;
+        this.destreza = outro.destreza;
+        this.mente = outro.mente;
+        this.vontade = outro.vontade;
+        this.pontosDisponiveis = outro.pontosDisponiveis;
+    }
+
     // --- Getters e Setters ---
 
     public String getUserId() {
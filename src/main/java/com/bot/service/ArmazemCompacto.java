@@ -0,0 +1,593 @@
+package com.bot.service;
+
+import com.bot.model.Personagem;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Armazém de personagens fora do heap, para populações grandes (centenas de milhares de fichas)
+ * sem pressionar o coletor de lixo.
+ * <p>
+ * Os campos numéricos ficam em slots de largura fixa ({@link #TAMANHO_SLOT} bytes) de um único
+ * {@link ByteBuffer#allocateDirect buffer direto}, em uma tabela de endereçamento aberto (sondagem
+ * linear, remoção por deslocamento, sem lápides) indexada pelo snowflake do Discord como {@code long}.
+ * Nomes e URLs ficam em uma arena de strings, também fora do heap, com deduplicação e contagem
+ * de referências: as poucas fotos padrão são guardadas uma única vez. Strings sem referências
+ * viram lixo na arena, que é compactada quando o lixo passa da metade.
+ * <p>
+ * No heap ficam apenas a tabela de deduplicação da arena ({@code int[]}) e alguns campos,
+ * independentemente da quantidade de personagens.
+ * <p>
+ * Leituras rodam em paralelo sob o lock de leitura e recebem uma {@link Visao} que lê direto
+ * do buffer, sem copiar o personagem; escritas são serializadas pelo lock de escrita, o que também
+ * torna atômicas as operações de leitura e escrita feitas com {@link #alterar}.
+ */
+public final class ArmazemCompacto implements AutoCloseable {
+
+    // Layout de um slot. ID 0 marca o slot vazio (nenhum snowflake é 0).
+    private static final int OFF_ID = 0;
+    private static final int OFF_NIVEL = 8;
+    private static final int OFF_CORPO = 12;
+    private static final int OFF_DESTREZA = 16;
+    private static final int OFF_MENTE = 20;
+    private static final int OFF_VONTADE = 24;
+    private static final int OFF_PONTOS = 28;
+    private static final int OFF_NOME = 32;
+    private static final int OFF_FOTO = 36;
+    static final int TAMANHO_SLOT = 40;
+
+    private static final int SEM_TEXTO = -1;
+    // Cabeçalho de uma string na arena: [referências:int][tamanho:int], seguido dos bytes UTF-8.
+    private static final int CABECALHO_TEXTO = 8;
+    private static final int ARENA_INICIAL = 64 * 1024;
+
+    /**
+     * Fotografia do uso de memória do armazém.
+     *
+     * @param bytesForaDoHeap Bytes reservados nos buffers diretos (tabela e arena).
+     * @param bytesLixoArena  Bytes da arena ocupados por strings sem referências.
+     * @param bytesHeap       Bytes aproximados ocupados no heap (tabela de deduplicação).
+     */
+    public record Estatisticas(int personagens, int slots, int textos, long bytesForaDoHeap,
+                               long bytesArena, long bytesLixoArena, long bytesHeap, long compactacoes) {}
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private ByteBuffer tabela;
+    private int slots;
+    private int tamanho;
+
+    private ByteBuffer arena;
+    private int arenaUsada;
+    private int arenaLixo;
+    // Offsets na arena + 1 (0 = vazio), em endereçamento aberto pelo hash dos bytes.
+    private int[] dedup;
+    private int textos;
+    private long compactacoes;
+
+    /**
+     * @param capacidadeInicial Quantidade de personagens esperada; a tabela cresce se necessário.
+     */
+    public ArmazemCompacto(int capacidadeInicial) {
+        this.slots = (int) Math.min(Integer.MAX_VALUE / TAMANHO_SLOT, Math.max(16, capacidadeInicial * 4L / 3 + 1));
+        this.tabela = ByteBuffer.allocateDirect(slots * TAMANHO_SLOT);
+        // Nomes curtos e fotos deduplicadas: cerca de 32 bytes por personagem.
+        this.arena = ByteBuffer.allocateDirect((int) Math.min(1 << 30, Math.max(ARENA_INICIAL, capacidadeInicial * 32L)));
+        this.dedup = new int[1024];
+    }
+
+    /**
+     * Converte o ID do usuário para a chave da tabela.
+     *
+     * @return O snowflake como {@code long}, ou 0 se o ID não for um número positivo na forma canônica
+     * (sem zeros à esquerda), que não teria como ser reconstruído a partir da chave.
+     */
+    public static long chave(String userId) {
+        if (userId == null || userId.isEmpty() || userId.length() > 20 || userId.charAt(0) == '0') {
+            return 0;
+        }
+        for (int i = 0; i < userId.length(); i++) {
+            char c = userId.charAt(i);
+            if (c < '0' || c > '9') {
+                return 0;
+            }
+        }
+        try {
+            return Long.parseUnsignedLong(userId);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Visão de um personagem que lê os campos direto do buffer, sem cópia. Só é válida dentro
+     * do callback que a recebeu: depois dele, o slot pode ser movido ou reaproveitado.
+     */
+    public final class Visao {
+        private final ByteBuffer t;
+        private final int slot;
+
+        private Visao(ByteBuffer t, int slot) {
+            this.t = t;
+            this.slot = slot;
+        }
+
+        public long id() {
+            return t.getLong(slot + OFF_ID);
+        }
+
+        public String userId() {
+            return Long.toUnsignedString(id());
+        }
+
+        public int nivel() {
+            return t.getInt(slot + OFF_NIVEL);
+        }
+
+        public int corpo() {
+            return t.getInt(slot + OFF_CORPO);
+        }
+
+        public int destreza() {
+            return t.getInt(slot + OFF_DESTREZA);
+        }
+
+        public int mente() {
+            return t.getInt(slot + OFF_MENTE);
+        }
+
+        public int vontade() {
+            return t.getInt(slot + OFF_VONTADE);
+        }
+
+        public int pontosDisponiveis() {
+            return t.getInt(slot + OFF_PONTOS);
+        }
+
+        /**
+         * Decodifica o nome da arena (a única leitura que aloca).
+         */
+        public String nome() {
+            return texto(t.getInt(slot + OFF_NOME));
+        }
+
+        public String fotoUrl() {
+            return texto(t.getInt(slot + OFF_FOTO));
+        }
+
+        /**
+         * @return Uma cópia independente, válida fora do callback.
+         */
+        public Personagem paraPersonagem() {
+            Personagem p = new Personagem();
+            p.setUserId(userId());
+            p.setNome(nome());
+            p.setNivel(nivel());
+            p.setFotoUrl(fotoUrl());
+            p.setCorpo(corpo());
+            p.setDestreza(destreza());
+            p.setMente(mente());
+            p.setVontade(vontade());
+            p.setPontosDisponiveis(pontosDisponiveis());
+            return p;
+        }
+    }
+
+    /**
+     * Lê um personagem sem copiá-lo.
+     *
+     * @param leitor Recebe a visão do personagem; não deve guardá-la.
+     * @return O resultado do leitor, ou {@code null} se o personagem não existir.
+     */
+    public <T> T ler(long id, Function<Visao, T> leitor) {
+        lock.readLock().lock();
+        try {
+            int slot = localizar(id);
+            return slot < 0 ? null : leitor.apply(new Visao(tabela, slot));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Percorre todos os personagens, em ordem arbitrária. As escritas esperam o fim do percurso.
+     */
+    public void paraCada(Consumer<Visao> consumidor) {
+        lock.readLock().lock();
+        try {
+            ByteBuffer t = tabela;
+            for (int slot = 0; slot < slots; slot++) {
+                int off = slot * TAMANHO_SLOT;
+                if (t.getLong(off + OFF_ID) != 0) {
+                    consumidor.accept(new Visao(t, off));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Insere ou substitui um personagem.
+     *
+     * @throws IllegalArgumentException Se o ID do usuário não for um snowflake válido.
+     */
+    public void gravar(Personagem p) {
+        long id = exigirChave(p.getUserId());
+        lock.writeLock().lock();
+        try {
+            gravarBloqueado(id, p);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Lê, altera e grava um personagem como uma única operação.
+     *
+     * @param alteracao Recebe uma cópia do personagem e devolve o valor a gravar, ou {@code null}
+     *                  para não alterar nada.
+     * @return O personagem gravado, ou {@code null} se ele não existir ou a alteração o recusar.
+     */
+    public Personagem alterar(long id, Function<Personagem, Personagem> alteracao) {
+        lock.writeLock().lock();
+        try {
+            int slot = localizar(id);
+            if (slot < 0) {
+                return null;
+            }
+            Personagem novo = alteracao.apply(new Visao(tabela, slot).paraPersonagem());
+            if (novo != null) {
+                gravarBloqueado(id, novo);
+            }
+            return novo;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return {@code true} se o personagem existia.
+     */
+    public boolean remover(long id) {
+        lock.writeLock().lock();
+        try {
+            int slot = localizar(id);
+            if (slot < 0) {
+                return false;
+            }
+            liberar(tabela.getInt(slot + OFF_NOME));
+            liberar(tabela.getInt(slot + OFF_FOTO));
+            removerSlot(slot / TAMANHO_SLOT);
+            tamanho--;
+            compactarArenaSeNecessario();
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int tamanho() {
+        lock.readLock().lock();
+        try {
+            return tamanho;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Estatisticas getEstatisticas() {
+        lock.readLock().lock();
+        try {
+            return new Estatisticas(tamanho, slots, textos, (long) tabela.capacity() + arena.capacity(),
+                    arenaUsada, arenaLixo, 16L + dedup.length * 4L, compactacoes);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Descarta o conteúdo. A memória dos buffers diretos é devolvida quando o coletor os recolher.
+     */
+    @Override
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            slots = 16;
+            tabela = ByteBuffer.allocateDirect(slots * TAMANHO_SLOT);
+            tamanho = 0;
+            arena = ByteBuffer.allocateDirect(ARENA_INICIAL);
+            arenaUsada = 0;
+            arenaLixo = 0;
+            dedup = new int[1024];
+            textos = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    static long exigirChave(String userId) {
+        long id = chave(userId);
+        if (id == 0) {
+            throw new IllegalArgumentException("ID de usuário inválido para o armazém compacto: " + userId);
+        }
+        return id;
+    }
+
+    // --- Tabela de slots (sob o lock de escrita, exceto localizar) ---
+
+    /**
+     * @return O slot ideal do ID em uma tabela com {@code slots} posições.
+     */
+    private static int ideal(long id, int slots) {
+        // Finalizador do MurmurHash3 (os snowflakes têm os bits baixos pouco variados), reduzido ao
+        // intervalo por multiplicação: a tabela não precisa ter tamanho potência de 2.
+        id ^= id >>> 33;
+        id *= 0xff51afd7ed558ccdL;
+        id ^= id >>> 33;
+        id *= 0xc4ceb9fe1a85ec53L;
+        id ^= id >>> 33;
+        return (int) (((id & 0xffffffffL) * slots) >>> 32);
+    }
+
+    private int proximo(int i) {
+        return ++i == slots ? 0 : i;
+    }
+
+    /**
+     * @return O offset do slot do personagem, ou -1.
+     */
+    private int localizar(long id) {
+        ByteBuffer t = tabela;
+        int i = ideal(id, slots);
+        while (true) {
+            int off = i * TAMANHO_SLOT;
+            long atual = t.getLong(off + OFF_ID);
+            if (atual == id) {
+                return off;
+            }
+            if (atual == 0) {
+                return -1;
+            }
+            i = proximo(i);
+        }
+    }
+
+    private void gravarBloqueado(long id, Personagem p) {
+        // Interna as strings novas antes de liberar as antigas, para reaproveitar as iguais.
+        int nome = internar(p.getNome());
+        int foto = internar(p.getFotoUrl());
+
+        int off = localizar(id);
+        if (off < 0) {
+            if ((tamanho + 1) * 4L > slots * 3L) {
+                crescerTabela();
+            }
+            int i = ideal(id, slots);
+            while (tabela.getLong(i * TAMANHO_SLOT + OFF_ID) != 0) {
+                i = proximo(i);
+            }
+            off = i * TAMANHO_SLOT;
+            tabela.putLong(off + OFF_ID, id);
+            tamanho++;
+        } else {
+            liberar(tabela.getInt(off + OFF_NOME));
+            liberar(tabela.getInt(off + OFF_FOTO));
+        }
+        tabela.putInt(off + OFF_NIVEL, p.getNivel());
+        tabela.putInt(off + OFF_CORPO, p.getCorpo());
+        tabela.putInt(off + OFF_DESTREZA, p.getDestreza());
+        tabela.putInt(off + OFF_MENTE, p.getMente());
+        tabela.putInt(off + OFF_VONTADE, p.getVontade());
+        tabela.putInt(off + OFF_PONTOS, p.getPontosDisponiveis());
+        tabela.putInt(off + OFF_NOME, nome);
+        tabela.putInt(off + OFF_FOTO, foto);
+        compactarArenaSeNecessario();
+    }
+
+    private void crescerTabela() {
+        ByteBuffer antiga = tabela;
+        int slotsAntigos = slots;
+        slots = (int) Math.min(Integer.MAX_VALUE / TAMANHO_SLOT, slotsAntigos * 2L);
+        tabela = ByteBuffer.allocateDirect(slots * TAMANHO_SLOT);
+        for (int s = 0; s < slotsAntigos; s++) {
+            long id = antiga.getLong(s * TAMANHO_SLOT + OFF_ID);
+            if (id == 0) {
+                continue;
+            }
+            int i = ideal(id, slots);
+            while (tabela.getLong(i * TAMANHO_SLOT + OFF_ID) != 0) {
+                i = proximo(i);
+            }
+            tabela.put(i * TAMANHO_SLOT, antiga, s * TAMANHO_SLOT, TAMANHO_SLOT);
+        }
+    }
+
+    /**
+     * Esvazia um slot e desloca para trás os slots seguintes do mesmo agrupamento que ficariam
+     * inalcançáveis, mantendo a sondagem linear sem lápides.
+     */
+    private void removerSlot(int vazio) {
+        int j = vazio;
+        while (true) {
+            j = proximo(j);
+            long id = tabela.getLong(j * TAMANHO_SLOT + OFF_ID);
+            if (id == 0) {
+                break;
+            }
+            int ideal = ideal(id, slots);
+            // O slot j pode ocupar o vazio se o seu lugar ideal não estiver entre (vazio, j].
+            boolean podeMover = vazio <= j ? (ideal <= vazio || ideal > j) : (ideal <= vazio && ideal > j);
+            if (podeMover) {
+                tabela.put(vazio * TAMANHO_SLOT, tabela, j * TAMANHO_SLOT, TAMANHO_SLOT);
+                vazio = j;
+            }
+        }
+        tabela.putLong(vazio * TAMANHO_SLOT + OFF_ID, 0);
+    }
+
+    // --- Arena de strings (sob o lock de escrita, exceto texto) ---
+
+    private String texto(int ref) {
+        if (ref == SEM_TEXTO) {
+            return null;
+        }
+        ByteBuffer a = arena;
+        byte[] bytes = new byte[a.getInt(ref + 4)];
+        a.get(ref + CABECALHO_TEXTO, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return A referência da string na arena, já contando mais um uso.
+     */
+    private int internar(String s) {
+        if (s == null) {
+            return SEM_TEXTO;
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        int h = hashBytes(bytes);
+        int m = dedup.length - 1;
+        int i = h & m;
+        while (dedup[i] != 0) {
+            int ref = dedup[i] - 1;
+            if (iguais(ref, bytes)) {
+                int refs = arena.getInt(ref);
+                if (refs == 0) {
+                    arenaLixo -= CABECALHO_TEXTO + bytes.length;
+                }
+                arena.putInt(ref, refs + 1);
+                return ref;
+            }
+            i = (i + 1) & m;
+        }
+
+        int necessario = CABECALHO_TEXTO + bytes.length;
+        if (arenaUsada + necessario > arena.capacity()) {
+            ByteBuffer nova = ByteBuffer.allocateDirect(Math.max(arena.capacity() * 2, arenaUsada + necessario));
+            nova.put(0, arena, 0, arenaUsada);
+            arena = nova;
+        }
+        int ref = arenaUsada;
+        arena.putInt(ref, 1);
+        arena.putInt(ref + 4, bytes.length);
+        arena.put(ref + CABECALHO_TEXTO, bytes);
+        arenaUsada += necessario;
+
+        dedup[i] = ref + 1;
+        textos++;
+        if (textos * 2 > dedup.length) {
+            dedup = reconstruirDedup(arena, dedup.length * 2);
+        }
+        return ref;
+    }
+
+    private void liberar(int ref) {
+        if (ref == SEM_TEXTO) {
+            return;
+        }
+        int refs = arena.getInt(ref) - 1;
+        arena.putInt(ref, refs);
+        if (refs == 0) {
+            // Continua na tabela de deduplicação e pode ser reaproveitada até a próxima compactação.
+            arenaLixo += CABECALHO_TEXTO + arena.getInt(ref + 4);
+        }
+    }
+
+    private void compactarArenaSeNecessario() {
+        if (arenaLixo <= ARENA_INICIAL || arenaLixo * 2 < arenaUsada) {
+            return;
+        }
+        ByteBuffer antiga = arena;
+        ByteBuffer nova = ByteBuffer.allocateDirect(Math.max(ARENA_INICIAL, (arenaUsada - arenaLixo) * 2));
+        int usada = 0;
+        int vivos = 0;
+        int[] campos = {OFF_NOME, OFF_FOTO};
+        for (int s = 0; s < slots; s++) {
+            int off = s * TAMANHO_SLOT;
+            if (tabela.getLong(off + OFF_ID) == 0) {
+                continue;
+            }
+            for (int campo : campos) {
+                int ref = tabela.getInt(off + campo);
+                if (ref == SEM_TEXTO) {
+                    continue;
+                }
+                int refs = antiga.getInt(ref);
+                if (refs < 0) {
+                    // Já copiada: o contador da arena antiga guarda o novo endereço.
+                    tabela.putInt(off + campo, -refs - 1);
+                    continue;
+                }
+                int len = antiga.getInt(ref + 4);
+                nova.putInt(usada, refs);
+                nova.put(usada + 4, antiga, ref + 4, 4 + len);
+                antiga.putInt(ref, -usada - 1);
+                tabela.putInt(off + campo, usada);
+                usada += CABECALHO_TEXTO + len;
+                vivos++;
+            }
+        }
+        arena = nova;
+        arenaUsada = usada;
+        arenaLixo = 0;
+        textos = vivos;
+        int capacidade = 1024;
+        while (capacidade < vivos * 2) {
+            capacidade <<= 1;
+        }
+        dedup = reconstruirDedup(nova, capacidade);
+        compactacoes++;
+    }
+
+    /**
+     * Reindexa todas as strings da arena (vivas ou não) em uma tabela de deduplicação nova.
+     */
+    private int[] reconstruirDedup(ByteBuffer a, int capacidade) {
+        int[] novo = new int[capacidade];
+        int m = capacidade - 1;
+        for (int ref = 0; ref < arenaUsada; ) {
+            int len = a.getInt(ref + 4);
+            byte[] bytes = new byte[len];
+            a.get(ref + CABECALHO_TEXTO, bytes);
+            int i = hashBytes(bytes) & m;
+            while (novo[i] != 0) {
+                i = (i + 1) & m;
+            }
+            novo[i] = ref + 1;
+            ref += CABECALHO_TEXTO + len;
+        }
+        return novo;
+    }
+
+    private boolean iguais(int ref, byte[] bytes) {
+        if (arena.getInt(ref + 4) != bytes.length) {
+            return false;
+        }
+        int base = ref + CABECALHO_TEXTO;
+        for (int k = 0; k < bytes.length; k++) {
+            if (arena.get(base + k) != bytes[k]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int hashBytes(byte[] bytes) {
+        int h = 1;
+        for (byte b : bytes) {
+            h = 31 * h + b;
+        }
+        // Finalizador do MurmurHash3: nomes parecidos ("Aventureiro 1", "Aventureiro 2") têm hashes
+        // vizinhos, que formariam longos agrupamentos na sondagem linear.
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,550 @@
+package com.bot.service;
+
+import com.bot.model.Personagem;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Repositório de personagens embutido: um log local, apenas de acréscimo, mapeado em memória.
+ * Não depende de nenhum serviço externo e atende leituras em microssegundos.
+ * <p>
+ * Formato do arquivo: cabeçalho ({@link #MAGIC}, {@link #VERSAO}) seguido de registros
+ * {@code [tamanho:int][tipo:byte][dados][crc32:int]}, onde o tipo é {@link #TIPO_SALVAR}
+ * (personagem completo) ou {@link #TIPO_DELETAR} (apenas o ID). Cada escrita acrescenta um registro
+ * ao final; o índice em memória aponta cada ID para o offset do seu registro mais recente.
+ * <ul>
+ *     <li>Leituras não usam locks: decodificam o registro diretamente do arquivo mapeado.</li>
+ *     <li>Escritas são serializadas por um único lock, o que também torna atômicas as operações
+ *     de verificação e escrita ({@link #uparNivel}, {@link #gastarPontos}).</li>
+ *     <li>O mapeamento é sincronizado com o disco a cada {@link #INTERVALO_SINCRONIZACAO_MS};
+ *     uma queda do sistema pode perder as escritas desse último intervalo.</li>
+ *     <li>Quando registros substituídos ocupam mais da metade do arquivo, ele é compactado:
+ *     os registros vivos são copiados para um arquivo novo, que substitui o antigo atomicamente.</li>
+ *     <li>Ao abrir, o log é percorrido e a leitura para no primeiro registro incompleto ou com
+ *     CRC inválido (uma escrita interrompida); as próximas escritas o sobrescrevem.</li>
+ * </ul>
+ */
+public final class ArquivoPersonagemRepository implements PersonagemRepository {
+
+    static final int MAGIC = 0x504C4F47; // "PLOG"
+    static final int VERSAO = 1;
+    private static final int CABECALHO = 8;
+    static final byte TIPO_SALVAR = 1;
+    static final byte TIPO_DELETAR = 2;
+    // tamanho + tipo + crc
+    private static final int SOBRECARGA_REGISTRO = 4 + 1 + 4;
+
+    private static final long TAMANHO_INICIAL = 1 << 20;
+    static final long INTERVALO_SINCRONIZACAO_MS = 1_000;
+    private static final long INTERVALO_COMPACTACAO_MS = 60_000;
+    private static final long LIXO_MINIMO_PARA_COMPACTAR = 256 * 1024;
+
+    /**
+     * Fotografia do arquivo.
+     */
+    public record Estatisticas(int personagens, long bytesUsados, long bytesLixo, long capacidade, long compactacoes) {}
+
+    /**
+     * O mapeamento atual e o índice correspondente. É trocado por inteiro quando o arquivo cresce
+     * ou é compactado, para que um leitor nunca combine o índice de um arquivo com o mapa de outro.
+     */
+    private record Estado(FileChannel canal, MappedByteBuffer mapa, ConcurrentHashMap<String, Integer> indice) {}
+
+    private final Path arquivo;
+    private final ReentrantLock escrita = new ReentrantLock();
+    private final ScheduledExecutorService manutencao;
+    private volatile Estado estado;
+
+    // Protegidos por 'escrita'.
+    private int posicao;
+    private long bytesLixo;
+    private long compactacoes;
+
+    /**
+     * Abre (ou cria) o log e reconstrói o índice.
+     *
+     * @param arquivo O caminho do arquivo de log.
+     * @throws IOException Se o arquivo não puder ser aberto ou não for um log de personagens.
+     */
+    public ArquivoPersonagemRepository(Path arquivo) throws IOException {
+        this.arquivo = arquivo;
+        Path diretorio = arquivo.toAbsolutePath().getParent();
+        if (diretorio != null) {
+            Files.createDirectories(diretorio);
+        }
+
+        FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.CREATE);
+        long tamanho = canal.size();
+        MappedByteBuffer mapa = canal.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(TAMANHO_INICIAL, tamanho));
+        ConcurrentHashMap<String, Integer> indice = new ConcurrentHashMap<>();
+
+        if (tamanho < CABECALHO || mapa.getInt(0) == 0) {
+            mapa.putInt(0, MAGIC);
+            mapa.putInt(4, VERSAO);
+            posicao = CABECALHO;
+        } else {
+            if (mapa.getInt(0) != MAGIC || mapa.getInt(4) != VERSAO) {
+                canal.close();
+                throw new IOException("O arquivo " + arquivo + " não é um log de personagens (versão " + VERSAO + ").");
+            }
+            posicao = reconstruirIndice(mapa, indice);
+        }
+        this.estado = new Estado(canal, mapa, indice);
+        System.out.println("Repositório em arquivo aberto: " + indice.size() + " personagens em " + arquivo + ".");
+
+        this.manutencao = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "repositorio-arquivo");
+            t.setDaemon(true);
+            return t;
+        });
+        manutencao.scheduleWithFixedDelay(() -> estado.mapa().force(),
+                INTERVALO_SINCRONIZACAO_MS, INTERVALO_SINCRONIZACAO_MS, TimeUnit.MILLISECONDS);
+        manutencao.scheduleWithFixedDelay(this::compactarSeNecessario,
+                INTERVALO_COMPACTACAO_MS, INTERVALO_COMPACTACAO_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Percorre os registros válidos, preenchendo o índice e contabilizando os bytes substituídos.
+     *
+     * @return O offset logo após o último registro válido.
+     */
+    private int reconstruirIndice(MappedByteBuffer mapa, ConcurrentHashMap<String, Integer> indice) {
+        int offset = CABECALHO;
+        while (true) {
+            byte[] dados = lerDados(mapa, offset);
+            if (dados == null) {
+                return offset;
+            }
+            String userId = decodificarUserId(dados);
+            Integer anterior = dados[0] == TIPO_SALVAR ? indice.put(userId, offset) : indice.remove(userId);
+            if (anterior != null) {
+                bytesLixo += tamanhoRegistro(mapa, anterior);
+            }
+            if (dados[0] == TIPO_DELETAR) {
+                bytesLixo += dados.length - 1 + SOBRECARGA_REGISTRO;
+            }
+            offset += dados.length - 1 + SOBRECARGA_REGISTRO;
+        }
+    }
+
+    @Override
+    public Optional<Personagem> buscar(String userId) {
+        while (true) {
+            Estado e = estado;
+            Integer offset = e.indice().get(userId);
+            if (offset == null) {
+                return Optional.empty();
+            }
+            byte[] dados = lerDados(e.mapa(), offset);
+            if (dados != null) {
+                return Optional.of(decodificar(dados));
+            }
+            // O registro está além deste mapeamento: o arquivo cresceu depois de lermos o estado.
+        }
+    }
+
+    @Override
+    public void salvar(Personagem personagem) throws PersistenciaException {
+        escrita.lock();
+        try {
+            anexar(TIPO_SALVAR, personagem.getUserId(), codificar(personagem));
+        } catch (IOException e) {
+            throw new PersistenciaException("Erro ao gravar personagem no arquivo", e);
+        } finally {
+            escrita.unlock();
+        }
+    }
+
+    /**
+     * Grava o lote inteiro com uma única aquisição do lock de escrita.
+     */
+    @Override
+    public void salvarTodos(Collection<Personagem> personagens) throws PersistenciaException {
+        escrita.lock();
+        try {
+            for (Personagem personagem : personagens) {
+                anexar(TIPO_SALVAR, personagem.getUserId(), codificar(personagem));
+            }
+        } catch (IOException e) {
+            throw new PersistenciaException("Erro ao gravar lote de personagens no arquivo", e);
+        } finally {
+            escrita.unlock();
+        }
+    }
+
+    @Override
+    public void deletar(String userId) throws PersistenciaException {
+        escrita.lock();
+        try {
+            if (estado.indice().containsKey(userId)) {
+                anexar(TIPO_DELETAR, userId, codificarDelecao(userId));
+            }
+        } catch (IOException e) {
+            throw new PersistenciaException("Erro ao deletar personagem no arquivo", e);
+        } finally {
+            escrita.unlock();
+        }
+    }
+
+    @Override
+    public Optional<Personagem> uparNivel(String userId, int niveis, int pontos) throws PersistenciaException {
+        escrita.lock();
+        try {
+            Optional<Personagem> atual = buscar(userId);
+            if (atual.isEmpty()) {
+                return atual;
+            }
+            Personagem p = atual.get();
+            p.setNivel(p.getNivel() + niveis);
+            p.setPontosDisponiveis(p.getPontosDisponiveis() + pontos);
+            anexar(TIPO_SALVAR, userId, codificar(p));
+            return Optional.of(p);
+        } catch (IOException e) {
+            throw new PersistenciaException("Erro ao upar personagem no arquivo", e);
+        } finally {
+            escrita.unlock();
+        }
+    }
+
+    /**
+     * Todos os personagens com uma única aquisição do lock de escrita.
+     */
+    @Override
+    public List<Personagem> uparNivelEmLote(Collection<String> userIds, int niveis, int pontos) throws PersistenciaException {
+        escrita.lock();
+        try {
+            List<Personagem> upados = new ArrayList<>(userIds.size());
+            for (String userId : userIds) {
+                Optional<Personagem> atual = buscar(userId);
+                if (atual.isPresent()) {
+                    Personagem p = atual.get();
+                    p.setNivel(p.getNivel() + niveis);
+                    p.setPontosDisponiveis(p.getPontosDisponiveis() + pontos);
+                    anexar(TIPO_SALVAR, userId, codificar(p));
+                    upados.add(p);
+                }
+            }
+            return upados;
+        } catch (IOException e) {
+            throw new PersistenciaException("Erro ao upar lote de personagens no arquivo", e);
+        } finally {
+            escrita.unlock();
+        }
+    }
+
+    @Override
+    public Optional<Personagem> gastarPontos(String userId, int[] deltas) throws PersistenciaException {
+        escrita.lock();
+        try {
+            Optional<Personagem> atual = buscar(userId);
+            if (atual.isEmpty() || !PersonagemService.gastoPermitido(atual.get(), deltas)) {
+                return Optional.empty();
+            }
+            Personagem p = atual.get();
+            PersonagemService.aplicarGasto(p, deltas);
+            anexar(TIPO_SALVAR, userId, codificar(p));
+            return Optional.of(p);
+        } catch (IOException e) {
+            throw new PersistenciaException("Erro ao gastar pontos no arquivo", e);
+        } finally {
+            escrita.unlock();
+        }
+    }
+
+    @Override
+    public Optional<Personagem> alterarNome(String userId, String nome) throws PersistenciaException {
+        return alterar(userId, p -> p.setNome(nome));
+    }
+
+    @Override
+    public Optional<Personagem> alterarFoto(String userId, String fotoUrl) throws PersistenciaException {
+        return alterar(userId, p -> p.setFotoUrl(fotoUrl));
+    }
+
+    private Optional<Personagem> alterar(String userId, Consumer<Personagem> alteracao) throws PersistenciaException {
+        escrita.lock();
+        try {
+            Optional<Personagem> atual = buscar(userId);
+            if (atual.isEmpty()) {
+                return atual;
+            }
+            Personagem p = atual.get();
+            alteracao.accept(p);
+            anexar(TIPO_SALVAR, userId, codificar(p));
+            return Optional.of(p);
+        } catch (IOException e) {
+            throw new PersistenciaException("Erro ao alterar personagem no arquivo", e);
+        } finally {
+            escrita.unlock();
+        }
+    }
+
+    /**
+     * Acrescenta um registro ao log e atualiza o índice. Deve ser chamado com o lock de escrita.
+     */
+    private void anexar(byte tipo, String userId, byte[] dados) throws IOException {
+        int tamanho = dados.length + SOBRECARGA_REGISTRO;
+        garantirCapacidade((long) posicao + tamanho);
+
+        Estado e = estado;
+        MappedByteBuffer mapa = e.mapa();
+        int inicio = posicao;
+        mapa.putInt(inicio, dados.length);
+        mapa.put(inicio + 4, tipo);
+        mapa.put(inicio + 5, dados);
+        mapa.putInt(inicio + 5 + dados.length, crc(tipo, dados, 0, dados.length));
+        posicao += tamanho;
+
+        // O índice só é atualizado depois que o registro está completo no mapa.
+        Integer anterior = tipo == TIPO_SALVAR ? e.indice().put(userId, inicio) : e.indice().remove(userId);
+        if (anterior != null) {
+            bytesLixo += tamanhoRegistro(mapa, anterior);
+        }
+        if (tipo == TIPO_DELETAR) {
+            bytesLixo += tamanho;
+        }
+    }
+
+    private void garantirCapacidade(long necessario) throws IOException {
+        Estado e = estado;
+        if (necessario <= e.mapa().capacity()) {
+            return;
+        }
+        long novaCapacidade = Math.max(necessario, (long) e.mapa().capacity() * 2);
+        if (novaCapacidade > Integer.MAX_VALUE) {
+            throw new IOException("O log de personagens atingiu o tamanho máximo de um mapeamento (2 GB).");
+        }
+        // Publica o mapa maior antes de qualquer offset além do mapa antigo entrar no índice.
+        estado = new Estado(e.canal(), e.canal().map(FileChannel.MapMode.READ_WRITE, 0, novaCapacidade), e.indice());
+    }
+
+    private void compactarSeNecessario() {
+        escrita.lock();
+        try {
+            long usados = posicao - CABECALHO;
+            if (bytesLixo >= LIXO_MINIMO_PARA_COMPACTAR && bytesLixo * 2 > usados) {
+                compactar();
+            }
+        } catch (IOException e) {
+            System.err.println("Erro ao compactar o log de personagens: " + e.getMessage());
+            e.printStackTrace();
+        } finally {
+            escrita.unlock();
+        }
+    }
+
+    /**
+     * Reescreve o log apenas com os registros vivos e troca o arquivo atomicamente.
+     * Leitores em andamento continuam lendo o mapeamento antigo, que segue válido.
+     */
+    public void compactar() throws IOException {
+        escrita.lock();
+        try {
+            Estado antigo = estado;
+            long vivos = posicao - CABECALHO - bytesLixo;
+            Path temporario = arquivo.resolveSibling(arquivo.getFileName() + ".compactando");
+            FileChannel canal = FileChannel.open(temporario, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+            MappedByteBuffer mapa = canal.map(FileChannel.MapMode.READ_WRITE, 0,
+                    Math.max(TAMANHO_INICIAL, CABECALHO + vivos + vivos / 2));
+            ConcurrentHashMap<String, Integer> indice = new ConcurrentHashMap<>();
+
+            mapa.putInt(0, MAGIC);
+            mapa.putInt(4, VERSAO);
+            int destino = CABECALHO;
+            for (Map.Entry<String, Integer> entrada : antigo.indice().entrySet()) {
+                int origem = entrada.getValue();
+                int tamanho = tamanhoRegistro(antigo.mapa(), origem);
+                mapa.put(destino, antigo.mapa(), origem, tamanho);
+                indice.put(entrada.getKey(), destino);
+                destino += tamanho;
+            }
+            mapa.force();
+
+            try {
+                Files.move(temporario, arquivo, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporario, arquivo, StandardCopyOption.REPLACE_EXISTING);
+            }
+
+            long liberados = bytesLixo;
+            estado = new Estado(canal, mapa, indice);
+            posicao = destino;
+            bytesLixo = 0;
+            compactacoes++;
+            antigo.canal().close();
+            System.out.println("Log de personagens compactado: " + liberados + " bytes liberados.");
+        } finally {
+            escrita.unlock();
+        }
+    }
+
+    /**
+     * Percorre o índice do momento, sem bloquear as escritas.
+     */
+    @Override
+    public void exportar(Consumer<Personagem> consumidor) {
+        for (String userId : estado.indice().keySet()) {
+            buscar(userId).ifPresent(consumidor);
+        }
+    }
+
+    public Estatisticas getEstatisticas() {
+        escrita.lock();
+        try {
+            Estado e = estado;
+            return new Estatisticas(e.indice().size(), posicao, bytesLixo, e.mapa().capacity(), compactacoes);
+        } finally {
+            escrita.unlock();
+        }
+    }
+
+    @Override
+    public String getNome() {
+        return "arquivo";
+    }
+
+    /**
+     * Sincroniza o mapeamento com o disco e fecha o arquivo.
+     */
+    @Override
+    public void close() {
+        manutencao.shutdownNow();
+        escrita.lock();
+        try {
+            Estado e = estado;
+            e.mapa().force();
+            e.canal().close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            escrita.unlock();
+        }
+    }
+
+    // --- Codificação dos registros ---
+
+    /**
+     * Lê o tipo e os dados de um registro (o tipo no primeiro byte do array devolvido).
+     *
+     * @return {@code null} se o registro estiver fora do mapa, incompleto ou com CRC inválido.
+     */
+    private static byte[] lerDados(MappedByteBuffer mapa, int offset) {
+        if (offset + SOBRECARGA_REGISTRO > mapa.capacity()) {
+            return null;
+        }
+        int tamanho = mapa.getInt(offset);
+        byte tipo = mapa.get(offset + 4);
+        if (tamanho <= 0 || (tipo != TIPO_SALVAR && tipo != TIPO_DELETAR)
+                || (long) offset + SOBRECARGA_REGISTRO + tamanho > mapa.capacity()) {
+            return null;
+        }
+        byte[] dados = new byte[tamanho + 1];
+        dados[0] = tipo;
+        mapa.get(offset + 5, dados, 1, tamanho);
+        if (mapa.getInt(offset + 5 + tamanho) != crc(tipo, dados, 1, tamanho)) {
+            return null;
+        }
+        return dados;
+    }
+
+    private static int tamanhoRegistro(MappedByteBuffer mapa, int offset) {
+        return mapa.getInt(offset) + SOBRECARGA_REGISTRO;
+    }
+
+    private static int crc(byte tipo, byte[] dados, int inicio, int tamanho) {
+        CRC32 crc = new CRC32();
+        crc.update(tipo);
+        crc.update(dados, inicio, tamanho);
+        return (int) crc.getValue();
+    }
+
+    private static byte[] codificar(Personagem p) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeUTF(p.getUserId());
+            escreverOpcional(out, p.getNome());
+            escreverOpcional(out, p.getFotoUrl());
+            out.writeInt(p.getNivel());
+            out.writeInt(p.getCorpo());
+            out.writeInt(p.getDestreza());
+            out.writeInt(p.getMente());
+            out.writeInt(p.getVontade());
+            out.writeInt(p.getPontosDisponiveis());
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] codificarDelecao(String userId) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(32);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeUTF(userId);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @param dados O tipo seguido dos dados de um registro {@link #TIPO_SALVAR}, como devolvido por {@link #lerDados}.
+     */
+    private static Personagem decodificar(byte[] dados) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(dados, 1, dados.length - 1))) {
+            Personagem p = new Personagem();
+            p.setUserId(in.readUTF());
+            p.setNome(lerOpcional(in));
+            p.setFotoUrl(lerOpcional(in));
+            p.setNivel(in.readInt());
+            p.setCorpo(in.readInt());
+            p.setDestreza(in.readInt());
+            p.setMente(in.readInt());
+            p.setVontade(in.readInt());
+            p.setPontosDisponiveis(in.readInt());
+            return p;
+        } catch (IOException e) {
+            // O CRC já foi conferido; só acontece com um registro de outra versão do formato.
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String decodificarUserId(byte[] dados) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(dados, 1, dados.length - 1))) {
+            return in.readUTF();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void escreverOpcional(DataOutputStream out, String valor) throws IOException {
+        out.writeBoolean(valor != null);
+        if (valor != null) {
+            out.writeUTF(valor);
+        }
+    }
+
+    private static String lerOpcional(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
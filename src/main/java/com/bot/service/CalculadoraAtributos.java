@@ -1,8 +1,6 @@
 package com.bot.service;
 
 import com.bot.model.Personagem;
-import java.util.LinkedHashMap;
-import java.util.Map;
 
 /**
  * Classe utilitária e sem estado (stateless) para realizar cálculos relacionados
@@ -28,42 +26,16 @@ public final class CalculadoraAtributos {
      * Calcula os sub-atributos de um personagem com base em seus atributos principais.
      * Os sub-atributos são valores derivados que representam as capacidades
      * específicas do personagem em combate ou outras situações de jogo.
+     * <p>
+     * As fórmulas ficam em {@code formulas.properties} e são aplicadas pelo {@link MotorFormulas}
+     * global, que pode recarregá-las sem reiniciar o bot.
      *
      * @param personagem O objeto {@link Personagem} cujos sub-atributos serão calculados.
      * Este objeto deve ser válido e não-nulo.
-     * @return Um {@code Map<String, Integer>} contendo o nome de cada sub-atributo
-     * como chave e seu valor calculado como valor. A ordem de inserção dos
-     * atributos no mapa é preservada para uma exibição consistente.
+     * @return Um {@link SubAtributos} com cada sub-atributo em um campo primitivo.
+     * A ordem de exibição é a de {@link SubAtributos.Campo}.
      */
-    public static Map<String, Integer> calcularSubAtributos(Personagem personagem) {
-        // Usamos LinkedHashMap para garantir que a ordem dos atributos seja mantida
-        // ao exibi-los para o usuário.
-        Map<String, Integer> subAtributos = new LinkedHashMap<>();
-
-        // --- Atributos derivados de CORPO ---
-        // Força: Influencia o dano físico. Proporção 1:1 com Corpo.
-        subAtributos.put("Força", personagem.getCorpo() * 1);
-        // Vida: Pontos de vida totais do personagem. Proporção 4:1 com Corpo.
-        subAtributos.put("Vida", 10 + (personagem.getCorpo() * 4));
-
-        // --- Atributos derivados de DESTREZA ---
-        // Esquiva: Capacidade de evitar ou reduzir dano. Proporção 1:1 com Destreza.
-        subAtributos.put("Esquiva", personagem.getDestreza() * 1);
-        // Deslocamento: Distância que o personagem pode se mover. Proporção 1:2 com Destreza.
-        subAtributos.put("Deslocamento", 4 + (personagem.getDestreza() * 2));
-
-        // --- Atributos derivados de MENTE ---
-        // Intelecto: Capacidade de raciocínio e conhecimento. Proporção 1:1 com Mente.
-        subAtributos.put("Intelecto", personagem.getMente() * 1);
-        // Percepção: Capacidade de notar detalhes no ambiente. Proporção 1:1 com Mente.
-        subAtributos.put("Percepção", personagem.getMente() * 1);
-
-        // --- Atributos derivados de VONTADE ---
-        // Foco: Recurso para usar habilidades especiais. Proporção 2:1 com Vontade.
-        subAtributos.put("Foco", 3 + (personagem.getVontade() * 2));
-        // Resistência Mental (MR): Defesa contra ataques mentais. Proporção 1:1 com Vontade.
-        subAtributos.put("Resistência Mental (MR)", personagem.getVontade() * 1);
-
-        return subAtributos;
+    public static SubAtributos calcularSubAtributos(Personagem personagem) {
+        return MotorFormulas.get().calcular(personagem);
     }
-}
\ No newline at end of file
+}
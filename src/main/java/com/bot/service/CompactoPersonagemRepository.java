@@ -0,0 +1,127 @@
+package com.bot.service;
+
+import com.bot.model.Personagem;
+
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Repositório de personagens em memória, como o {@link MemoriaPersonagemRepository}, mas guardado
+ * fora do heap em um {@link ArmazemCompacto}: o heap não cresce com a quantidade de personagens,
+ * o que evita pausas longas do coletor de lixo em implantações com muitos servidores.
+ * Os dados se perdem ao desligar o bot.
+ * <p>
+ * Só aceita IDs de usuário que sejam snowflakes do Discord, pois a chave é o ID como {@code long}.
+ */
+public class CompactoPersonagemRepository implements PersonagemRepository {
+
+    private final ArmazemCompacto armazem;
+
+    /**
+     * @param capacidadeInicial Quantidade de personagens esperada; o armazém cresce se necessário.
+     */
+    public CompactoPersonagemRepository(int capacidadeInicial) {
+        this.armazem = new ArmazemCompacto(capacidadeInicial);
+    }
+
+    @Override
+    public Optional<Personagem> buscar(String userId) {
+        long id = ArmazemCompacto.chave(userId);
+        return id == 0 ? Optional.empty() : Optional.ofNullable(armazem.ler(id, ArmazemCompacto.Visao::paraPersonagem));
+    }
+
+    /**
+     * Lê um personagem sem copiá-lo para o heap.
+     *
+     * @return O resultado do leitor, ou {@code null} se o personagem não existir.
+     */
+    public <T> T ler(String userId, Function<ArmazemCompacto.Visao, T> leitor) {
+        long id = ArmazemCompacto.chave(userId);
+        return id == 0 ? null : armazem.ler(id, leitor);
+    }
+
+    @Override
+    public void salvar(Personagem personagem) throws PersistenciaException {
+        try {
+            armazem.gravar(personagem);
+        } catch (IllegalArgumentException e) {
+            throw new PersistenciaException("Erro ao salvar o personagem " + personagem.getUserId(), e);
+        }
+    }
+
+    @Override
+    public void deletar(String userId) {
+        long id = ArmazemCompacto.chave(userId);
+        if (id != 0) {
+            armazem.remover(id);
+        }
+    }
+
+    @Override
+    public Optional<Personagem> uparNivel(String userId, int niveis, int pontos) {
+        return alterar(userId, p -> {
+            p.setNivel(p.getNivel() + niveis);
+            p.setPontosDisponiveis(p.getPontosDisponiveis() + pontos);
+            return p;
+        });
+    }
+
+    @Override
+    public Optional<Personagem> gastarPontos(String userId, int[] deltas) {
+        return alterar(userId, p -> {
+            if (!PersonagemService.gastoPermitido(p, deltas)) {
+                return null;
+            }
+            PersonagemService.aplicarGasto(p, deltas);
+            return p;
+        });
+    }
+
+    @Override
+    public Optional<Personagem> alterarNome(String userId, String nome) {
+        return alterar(userId, p -> {
+            p.setNome(nome);
+            return p;
+        });
+    }
+
+    @Override
+    public Optional<Personagem> alterarFoto(String userId, String fotoUrl) {
+        return alterar(userId, p -> {
+            p.setFotoUrl(fotoUrl);
+            return p;
+        });
+    }
+
+    /**
+     * Percorre todos os personagens sob o lock de leitura do armazém: as escritas esperam o fim da exportação.
+     */
+    @Override
+    public void exportar(Consumer<Personagem> consumidor) {
+        armazem.paraCada(v -> consumidor.accept(v.paraPersonagem()));
+    }
+
+    public int tamanho() {
+        return armazem.tamanho();
+    }
+
+    public ArmazemCompacto.Estatisticas getEstatisticas() {
+        return armazem.getEstatisticas();
+    }
+
+    @Override
+    public String getNome() {
+        return "compacto";
+    }
+
+    @Override
+    public void close() {
+        armazem.close();
+    }
+
+    private Optional<Personagem> alterar(String userId, Function<Personagem, Personagem> alteracao) {
+        long id = ArmazemCompacto.chave(userId);
+        return id == 0 ? Optional.empty() : Optional.ofNullable(armazem.alterar(id, alteracao));
+    }
+}
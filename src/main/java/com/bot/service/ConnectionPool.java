@@ -0,0 +1,314 @@
+package com.bot.service;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pool de conexões JDBC usado pelo {@link PostgresPersonagemRepository}.
+ * <p>
+ * Mantém entre {@link Configuracao#minimo()} e {@link Configuracao#maximo()} conexões físicas abertas.
+ * As conexões entregues por {@link #getConnection()} são envelopes: chamar {@code close()} devolve a
+ * conexão ao pool em vez de fechá-la, então o padrão try-with-resources do repositório continua valendo.
+ * <ul>
+ *     <li>Uma conexão ociosa há mais de {@link #VALIDAR_APOS_OCIOSA_MS} é validada com
+ *     {@link Connection#isValid(int)} antes de ser entregue.</li>
+ *     <li>Conexões mais velhas que {@link Configuracao#vidaMaximaMs()} são recicladas ao voltar ao pool
+ *     ou na manutenção periódica.</li>
+ *     <li>Se todas as conexões estiverem em uso, a espera é limitada por {@link Configuracao#timeoutMs()};
+ *     ao estourar, {@link #getConnection()} lança {@link SQLTimeoutException}.</li>
+ * </ul>
+ */
+public final class ConnectionPool implements AutoCloseable {
+
+    /**
+     * Parâmetros do pool.
+     *
+     * @param minimo       Conexões mantidas abertas mesmo sem uso.
+     * @param maximo       Limite de conexões abertas ao mesmo tempo.
+     * @param timeoutMs    Espera máxima por uma conexão livre.
+     * @param vidaMaximaMs Idade a partir da qual uma conexão é fechada e substituída.
+     */
+    public record Configuracao(int minimo, int maximo, long timeoutMs, long vidaMaximaMs) {
+
+        public static final Configuracao PADRAO = new Configuracao(2, 10, 5_000, 30 * 60_000);
+
+        public Configuracao {
+            maximo = Math.max(1, maximo);
+            minimo = Math.max(0, Math.min(minimo, maximo));
+            timeoutMs = Math.max(0, timeoutMs);
+            vidaMaximaMs = Math.max(1_000, vidaMaximaMs);
+        }
+    }
+
+    /**
+     * Fotografia do pool e dos tempos de aquisição.
+     */
+    public record Estatisticas(int emUso, int ociosas, int maximo, long aquisicoes, long timeouts,
+                               long criadas, long descartadas, double esperaMediaMs, double esperaMaximaMs) {}
+
+    static final long VALIDAR_APOS_OCIOSA_MS = 1_000;
+    private static final int VALIDACAO_TIMEOUT_SEG = 2;
+    private static final long MANUTENCAO_INTERVALO_MS = 30_000;
+
+    /**
+     * Uma conexão física e os instantes usados para reciclagem e validação.
+     */
+    private static final class Conexao {
+        final Connection fisica;
+        final long criadaEm = System.currentTimeMillis();
+        long devolvidaEm = criadaEm;
+
+        Conexao(Connection fisica) {
+            this.fisica = fisica;
+        }
+    }
+
+    private final String url;
+    private final String usuario;
+    private final String senha;
+    private final Configuracao config;
+
+    private final ConcurrentLinkedDeque<Conexao> ociosas = new ConcurrentLinkedDeque<>();
+    // Uma permissão por conexão que ainda pode ser entregue (ociosa ou a criar).
+    private final Semaphore permissoes;
+    private final AtomicInteger abertas = new AtomicInteger();
+    private final ScheduledExecutorService manutencao;
+    private volatile boolean fechado;
+
+    private final LongAdder aquisicoes = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder criadas = new LongAdder();
+    private final LongAdder descartadas = new LongAdder();
+    private final LongAdder esperaTotalNanos = new LongAdder();
+    private final AtomicLong esperaMaximaNanos = new AtomicLong();
+
+    public ConnectionPool(String url, String usuario, String senha, Configuracao config) {
+        this.url = url;
+        this.usuario = usuario;
+        this.senha = senha;
+        this.config = config;
+        this.permissoes = new Semaphore(config.maximo(), true);
+
+        this.manutencao = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "pool-conexoes");
+            t.setDaemon(true);
+            return t;
+        });
+        // O preenchimento inicial também roda em background para não atrasar a inicialização.
+        manutencao.scheduleWithFixedDelay(this::manter, 0, MANUTENCAO_INTERVALO_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Obtém uma conexão do pool, esperando no máximo {@link Configuracao#timeoutMs()}.
+     * O {@code close()} da conexão retornada a devolve ao pool.
+     *
+     * @throws SQLTimeoutException Se nenhuma conexão ficar livre a tempo.
+     * @throws SQLException        Se o pool estiver fechado ou uma nova conexão não puder ser aberta.
+     */
+    public Connection getConnection() throws SQLException {
+        if (fechado) {
+            throw new SQLException("O pool de conexões está fechado.");
+        }
+        long inicio = System.nanoTime();
+        try {
+            if (!permissoes.tryAcquire(config.timeoutMs(), TimeUnit.MILLISECONDS)) {
+                timeouts.increment();
+                throw new SQLTimeoutException("Nenhuma conexão livre após " + config.timeoutMs() + " ms ("
+                        + config.maximo() + " em uso).");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrompido aguardando uma conexão.", e);
+        }
+
+        Conexao conexao;
+        try {
+            conexao = emprestar();
+        } catch (SQLException | RuntimeException e) {
+            permissoes.release();
+            throw e;
+        }
+
+        long espera = System.nanoTime() - inicio;
+        aquisicoes.increment();
+        esperaTotalNanos.add(espera);
+        esperaMaximaNanos.accumulateAndGet(espera, Math::max);
+        return envelopar(conexao);
+    }
+
+    private Conexao emprestar() throws SQLException {
+        long agora = System.currentTimeMillis();
+        Conexao conexao;
+        while ((conexao = ociosas.pollFirst()) != null) {
+            if (expirada(conexao, agora)) {
+                descartar(conexao);
+            } else if (agora - conexao.devolvidaEm > VALIDAR_APOS_OCIOSA_MS && !valida(conexao)) {
+                descartar(conexao);
+            } else {
+                return conexao;
+            }
+        }
+        return abrir();
+    }
+
+    private Conexao abrir() throws SQLException {
+        Conexao conexao = new Conexao(DriverManager.getConnection(url, usuario, senha));
+        abertas.incrementAndGet();
+        criadas.increment();
+        return conexao;
+    }
+
+    private void devolver(Conexao conexao) {
+        try {
+            if (fechado || conexao.fisica.isClosed() || expirada(conexao, System.currentTimeMillis())) {
+                descartar(conexao);
+            } else {
+                if (!conexao.fisica.getAutoCommit()) {
+                    conexao.fisica.rollback();
+                    conexao.fisica.setAutoCommit(true);
+                }
+                conexao.devolvidaEm = System.currentTimeMillis();
+                // LIFO: a conexão mais recente é a mais provável de estar válida.
+                ociosas.offerFirst(conexao);
+            }
+        } catch (SQLException e) {
+            System.err.println("Erro ao devolver conexão ao pool: " + e.getMessage());
+            descartar(conexao);
+        } finally {
+            permissoes.release();
+        }
+    }
+
+    private boolean expirada(Conexao conexao, long agora) {
+        return agora - conexao.criadaEm >= config.vidaMaximaMs();
+    }
+
+    private static boolean valida(Conexao conexao) {
+        try {
+            return conexao.fisica.isValid(VALIDACAO_TIMEOUT_SEG);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void descartar(Conexao conexao) {
+        abertas.decrementAndGet();
+        descartadas.increment();
+        try {
+            conexao.fisica.close();
+        } catch (SQLException e) {
+            // A conexão já estava quebrada; não há o que fazer.
+        }
+    }
+
+    /**
+     * Recicla as conexões ociosas expiradas e repõe o mínimo configurado.
+     */
+    private void manter() {
+        if (fechado) {
+            return;
+        }
+        long agora = System.currentTimeMillis();
+        for (Conexao conexao : ociosas) {
+            if (expirada(conexao, agora) && ociosas.removeFirstOccurrence(conexao)) {
+                descartar(conexao);
+            }
+        }
+        while (!fechado && abertas.get() < config.minimo() && permissoes.tryAcquire()) {
+            try {
+                ociosas.offerLast(abrir());
+            } catch (SQLException e) {
+                System.err.println("Erro ao abrir conexão para o pool: " + e.getMessage());
+                break;
+            } finally {
+                permissoes.release();
+            }
+        }
+    }
+
+    public Estatisticas getEstatisticas() {
+        long total = aquisicoes.sum();
+        double media = total == 0 ? 0 : esperaTotalNanos.sum() / (double) total / 1_000_000;
+        return new Estatisticas(config.maximo() - permissoes.availablePermits(), ociosas.size(), config.maximo(),
+                total, timeouts.sum(), criadas.sum(), descartadas.sum(), media, esperaMaximaNanos.get() / 1_000_000.0);
+    }
+
+    /**
+     * Fecha as conexões ociosas e passa a fechar as demais assim que forem devolvidas.
+     */
+    @Override
+    public void close() {
+        fechado = true;
+        manutencao.shutdownNow();
+        Conexao conexao;
+        while ((conexao = ociosas.pollFirst()) != null) {
+            descartar(conexao);
+        }
+    }
+
+    private Connection envelopar(Conexao conexao) {
+        InvocationHandler handler = new InvocationHandler() {
+            private boolean devolvida;
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                switch (method.getName()) {
+                    case "close" -> {
+                        synchronized (this) {
+                            if (devolvida) {
+                                return null;
+                            }
+                            devolvida = true;
+                        }
+                        // Fora do bloco sincronizado, para não prender uma thread virtual durante o rollback.
+                        devolver(conexao);
+                        return null;
+                    }
+                    case "isClosed" -> {
+                        synchronized (this) {
+                            if (devolvida) {
+                                return true;
+                            }
+                        }
+                        return conexao.fisica.isClosed();
+                    }
+                    case "equals" -> {
+                        return proxy == args[0];
+                    }
+                    case "hashCode" -> {
+                        return System.identityHashCode(proxy);
+                    }
+                    case "toString" -> {
+                        return "ConnectionPool$Conexao[" + conexao.fisica + "]";
+                    }
+                }
+                synchronized (this) {
+                    if (devolvida) {
+                        throw new SQLException("A conexão já foi devolvida ao pool.");
+                    }
+                }
+                try {
+                    return method.invoke(conexao.fisica, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            }
+        };
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, handler);
+    }
+}
@@ -0,0 +1,360 @@
+package com.bot.service;
+
+import com.bot.model.Personagem;
+import net.dv8tion.jda.api.utils.data.DataObject;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Formatos de exportação e importação de personagens: NDJSON (um objeto JSON por linha) ou CSV
+ * com cabeçalho. Os dois são lidos e escritos em fluxo, um personagem por vez, sem nunca
+ * montar a lista inteira em memória.
+ * <p>
+ * As colunas (e as chaves do JSON) são as mesmas da tabela {@code personagens}.
+ */
+public final class ExportacaoPersonagens {
+
+    private ExportacaoPersonagens() {}
+
+    static final String[] COLUNAS = {
+            "user_id", "nome", "nivel", "foto_url", "corpo", "destreza", "mente", "vontade", "pontos_disponiveis"
+    };
+
+    public enum Formato {
+        NDJSON("ndjson"),
+        CSV("csv");
+
+        private final String extensao;
+
+        Formato(String extensao) {
+            this.extensao = extensao;
+        }
+
+        public String extensao() {
+            return extensao;
+        }
+
+        /**
+         * Descobre o formato pelo nome do arquivo ({@code .csv}, {@code .ndjson}, {@code .jsonl} ou
+         * {@code .json}, opcionalmente seguidos de {@code .gz}).
+         *
+         * @return O formato, ou {@code null} se a extensão não for reconhecida.
+         */
+        public static Formato doNomeDoArquivo(String nome) {
+            String n = nome.toLowerCase(Locale.ROOT);
+            if (n.endsWith(".gz")) {
+                n = n.substring(0, n.length() - 3);
+            }
+            if (n.endsWith(".csv")) return CSV;
+            if (n.endsWith(".ndjson") || n.endsWith(".jsonl") || n.endsWith(".json")) return NDJSON;
+            return null;
+        }
+    }
+
+    /**
+     * Resultado de uma importação.
+     *
+     * @param importados Personagens gravados.
+     * @param ignorados  Linhas descartadas por estarem malformadas ou com valores inválidos.
+     */
+    public record Resultado(int importados, int ignorados) {}
+
+    /**
+     * Escreve personagens em um fluxo, um por vez.
+     */
+    public static final class Escritor implements Closeable {
+        private final Formato formato;
+        private final Writer saida;
+        private int escritos;
+
+        Escritor(Formato formato, OutputStream saida) throws IOException {
+            this.formato = formato;
+            this.saida = new BufferedWriter(new OutputStreamWriter(saida, StandardCharsets.UTF_8), 64 * 1024);
+            if (formato == Formato.CSV) {
+                this.saida.write(String.join(",", COLUNAS));
+                this.saida.write('\n');
+            }
+        }
+
+        /**
+         * @throws UncheckedIOException Se a escrita falhar (para uso direto como {@code Consumer}).
+         */
+        public void escrever(Personagem p) {
+            try {
+                if (formato == Formato.CSV) {
+                    escreverCsv(saida, p);
+                } else {
+                    saida.write(paraJson(p).toString());
+                }
+                saida.write('\n');
+                escritos++;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        public int getEscritos() {
+            return escritos;
+        }
+
+        @Override
+        public void close() throws IOException {
+            saida.close();
+        }
+    }
+
+    /**
+     * Lê personagens de um fluxo sob demanda. Linhas inválidas são puladas e contadas.
+     * Erros de leitura do fluxo são lançados como {@link UncheckedIOException}.
+     */
+    public static final class Leitor implements Iterator<Personagem>, Closeable {
+        private final Formato formato;
+        private final BufferedReader entrada;
+        private Personagem proximo;
+        private int ignorados;
+
+        Leitor(Formato formato, InputStream entrada) throws IOException {
+            this.formato = formato;
+            this.entrada = new BufferedReader(new InputStreamReader(descompactarSeNecessario(entrada), StandardCharsets.UTF_8), 64 * 1024);
+            if (formato == Formato.CSV) {
+                // Cabeçalho.
+                this.entrada.readLine();
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            try {
+                while (proximo == null) {
+                    String linha = entrada.readLine();
+                    if (linha == null) {
+                        return false;
+                    }
+                    if (linha.isBlank()) {
+                        continue;
+                    }
+                    proximo = formato == Formato.CSV ? lerCsv(linha) : lerJson(linha);
+                    if (proximo == null) {
+                        ignorados++;
+                    }
+                }
+                return true;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public Personagem next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Personagem p = proximo;
+            proximo = null;
+            return p;
+        }
+
+        public int getIgnorados() {
+            return ignorados;
+        }
+
+        @Override
+        public void close() throws IOException {
+            entrada.close();
+        }
+
+        private Personagem lerCsv(String linha) throws IOException {
+            List<String> campos = new ArrayList<>(COLUNAS.length);
+            // Um campo entre aspas pode conter quebras de linha: continua na linha seguinte.
+            while (!separarCsv(linha, campos)) {
+                String continuacao = entrada.readLine();
+                if (continuacao == null) {
+                    return null;
+                }
+                linha = linha + "\n" + continuacao;
+                campos.clear();
+            }
+            if (campos.size() != COLUNAS.length) {
+                return null;
+            }
+            try {
+                return validar(campos.get(0), campos.get(1), campos.get(3),
+                        Integer.parseInt(campos.get(2)), Integer.parseInt(campos.get(4)), Integer.parseInt(campos.get(5)),
+                        Integer.parseInt(campos.get(6)), Integer.parseInt(campos.get(7)), Integer.parseInt(campos.get(8)));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+        private static Personagem lerJson(String linha) {
+            try {
+                DataObject o = DataObject.fromJson(linha);
+                return validar(o.getString("user_id", null), o.getString("nome", null), o.getString("foto_url", null),
+                        o.getInt("nivel"), o.getInt("corpo"), o.getInt("destreza"),
+                        o.getInt("mente"), o.getInt("vontade"), o.getInt("pontos_disponiveis"));
+            } catch (RuntimeException e) {
+                // ParsingException, chave ausente ou tipo errado.
+                return null;
+            }
+        }
+    }
+
+    /**
+     * @param saida O fluxo de destino; é fechado junto com o escritor.
+     */
+    public static Escritor escritor(Formato formato, OutputStream saida) throws IOException {
+        return new Escritor(formato, saida);
+    }
+
+    /**
+     * @param entrada O fluxo de origem, compactado com gzip ou não; é fechado junto com o leitor.
+     */
+    public static Leitor leitor(Formato formato, InputStream entrada) throws IOException {
+        return new Leitor(formato, entrada);
+    }
+
+    /**
+     * Reconhece o gzip pelos dois primeiros bytes, para aceitar arquivos compactados ou não.
+     */
+    static InputStream descompactarSeNecessario(InputStream entrada) throws IOException {
+        BufferedInputStream buffer = new BufferedInputStream(entrada, 64 * 1024);
+        buffer.mark(2);
+        int b1 = buffer.read();
+        int b2 = buffer.read();
+        buffer.reset();
+        boolean gzip = b1 == (GZIPInputStream.GZIP_MAGIC & 0xff) && b2 == (GZIPInputStream.GZIP_MAGIC >> 8);
+        return gzip ? new GZIPInputStream(buffer, 64 * 1024) : buffer;
+    }
+
+    private static DataObject paraJson(Personagem p) {
+        return DataObject.empty()
+                .put("user_id", p.getUserId())
+                .put("nome", p.getNome())
+                .put("nivel", p.getNivel())
+                .put("foto_url", p.getFotoUrl())
+                .put("corpo", p.getCorpo())
+                .put("destreza", p.getDestreza())
+                .put("mente", p.getMente())
+                .put("vontade", p.getVontade())
+                .put("pontos_disponiveis", p.getPontosDisponiveis());
+    }
+
+    /**
+     * Escreve uma linha CSV (sem a quebra de linha final), na ordem de {@link #COLUNAS}.
+     */
+    static void escreverCsv(Writer saida, Personagem p) throws IOException {
+        saida.write(campoCsv(p.getUserId()));
+        saida.write(',');
+        saida.write(campoCsv(p.getNome()));
+        saida.write(',');
+        saida.write(Integer.toString(p.getNivel()));
+        saida.write(',');
+        saida.write(campoCsv(p.getFotoUrl()));
+        saida.write(',');
+        saida.write(Integer.toString(p.getCorpo()));
+        saida.write(',');
+        saida.write(Integer.toString(p.getDestreza()));
+        saida.write(',');
+        saida.write(Integer.toString(p.getMente()));
+        saida.write(',');
+        saida.write(Integer.toString(p.getVontade()));
+        saida.write(',');
+        saida.write(Integer.toString(p.getPontosDisponiveis()));
+    }
+
+    /**
+     * Campo CSV no padrão do {@code COPY ... (FORMAT csv)} do Postgres: {@code null} vira vazio
+     * sem aspas, e uma string vazia vira {@code ""}.
+     */
+    private static String campoCsv(String valor) {
+        if (valor == null) {
+            return "";
+        }
+        if (valor.isEmpty() || valor.indexOf(',') >= 0 || valor.indexOf('"') >= 0
+                || valor.indexOf('\n') >= 0 || valor.indexOf('\r') >= 0) {
+            return '"' + valor.replace("\"", "\"\"") + '"';
+        }
+        return valor;
+    }
+
+    /**
+     * Separa uma linha CSV em campos. Um campo vazio sem aspas vira {@code null}.
+     *
+     * @return {@code false} se a linha terminar dentro de um campo entre aspas.
+     */
+    private static boolean separarCsv(String linha, List<String> campos) {
+        StringBuilder atual = new StringBuilder();
+        boolean entreAspas = false;
+        boolean citado = false;
+        for (int i = 0; i < linha.length(); i++) {
+            char c = linha.charAt(i);
+            if (entreAspas) {
+                if (c == '"') {
+                    if (i + 1 < linha.length() && linha.charAt(i + 1) == '"') {
+                        atual.append('"');
+                        i++;
+                    } else {
+                        entreAspas = false;
+                    }
+                } else {
+                    atual.append(c);
+                }
+            } else if (c == '"') {
+                entreAspas = true;
+                citado = true;
+            } else if (c == ',') {
+                campos.add(atual.isEmpty() && !citado ? null : atual.toString());
+                atual.setLength(0);
+                citado = false;
+            } else {
+                atual.append(c);
+            }
+        }
+        if (entreAspas) {
+            return false;
+        }
+        campos.add(atual.isEmpty() && !citado ? null : atual.toString());
+        return true;
+    }
+
+    /**
+     * @return O personagem, ou {@code null} se algum valor for inválido.
+     */
+    private static Personagem validar(String userId, String nome, String fotoUrl, int nivel,
+                                      int corpo, int destreza, int mente, int vontade, int pontos) {
+        if (userId == null || !userId.matches("\\d{1,20}") || nome == null || nome.isBlank()) {
+            return null;
+        }
+        if (nivel < 0 || corpo < 0 || destreza < 0 || mente < 0 || vontade < 0 || pontos < 0) {
+            return null;
+        }
+        Personagem p = new Personagem();
+        p.setUserId(userId);
+        p.setNome(nome);
+        p.setNivel(nivel);
+        p.setFotoUrl(fotoUrl == null || fotoUrl.isEmpty() ? null : fotoUrl);
+        p.setCorpo(corpo);
+        p.setDestreza(destreza);
+        p.setMente(mente);
+        p.setVontade(vontade);
+        p.setPontosDisponiveis(pontos);
+        return p;
+    }
+}
@@ -0,0 +1,140 @@
+package com.bot.service;
+
+import com.bot.model.Personagem;
+
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Repositório de personagens apenas em memória, sem nenhum serviço externo.
+ * Os dados se perdem ao desligar o bot; serve para testes, benchmarks e desenvolvimento local.
+ * <p>
+ * Cada personagem é guardado como um {@link Registro} imutável. As operações atômicas
+ * ({@link #uparNivel}, {@link #gastarPontos}) leem o registro atual, calculam o novo e o publicam
+ * com {@link ConcurrentHashMap#replace(Object, Object, Object)}, repetindo se outro thread
+ * tiver alterado o personagem no meio do caminho. Nenhuma operação usa locks.
+ */
+public class MemoriaPersonagemRepository implements PersonagemRepository {
+
+    /**
+     * Fotografia imutável de um personagem.
+     */
+    record Registro(String userId, String nome, int nivel, String fotoUrl,
+                    int corpo, int destreza, int mente, int vontade, int pontosDisponiveis) {
+
+        static Registro de(Personagem p) {
+            return new Registro(p.getUserId(), p.getNome(), p.getNivel(), p.getFotoUrl(),
+                    p.getCorpo(), p.getDestreza(), p.getMente(), p.getVontade(), p.getPontosDisponiveis());
+        }
+
+        Personagem paraPersonagem() {
+            Personagem p = new Personagem();
+            p.setUserId(userId);
+            p.setNome(nome);
+            p.setNivel(nivel);
+            p.setFotoUrl(fotoUrl);
+            p.setCorpo(corpo);
+            p.setDestreza(destreza);
+            p.setMente(mente);
+            p.setVontade(vontade);
+            p.setPontosDisponiveis(pontosDisponiveis);
+            return p;
+        }
+    }
+
+    private final ConcurrentHashMap<String, Registro> registros = new ConcurrentHashMap<>();
+
+    @Override
+    public Optional<Personagem> buscar(String userId) {
+        Registro r = registros.get(userId);
+        return r == null ? Optional.empty() : Optional.of(r.paraPersonagem());
+    }
+
+    @Override
+    public void salvar(Personagem personagem) {
+        registros.put(personagem.getUserId(), Registro.de(personagem));
+    }
+
+    @Override
+    public void deletar(String userId) {
+        registros.remove(userId);
+    }
+
+    @Override
+    public Optional<Personagem> uparNivel(String userId, int niveis, int pontos) {
+        while (true) {
+            Registro atual = registros.get(userId);
+            if (atual == null) {
+                return Optional.empty();
+            }
+            Personagem p = atual.paraPersonagem();
+            p.setNivel(p.getNivel() + niveis);
+            p.setPontosDisponiveis(p.getPontosDisponiveis() + pontos);
+            if (registros.replace(userId, atual, Registro.de(p))) {
+                return Optional.of(p);
+            }
+        }
+    }
+
+    @Override
+    public Optional<Personagem> gastarPontos(String userId, int[] deltas) {
+        while (true) {
+            Registro atual = registros.get(userId);
+            if (atual == null) {
+                return Optional.empty();
+            }
+            Personagem p = atual.paraPersonagem();
+            if (!PersonagemService.gastoPermitido(p, deltas)) {
+                return Optional.empty();
+            }
+            PersonagemService.aplicarGasto(p, deltas);
+            if (registros.replace(userId, atual, Registro.de(p))) {
+                return Optional.of(p);
+            }
+        }
+    }
+
+    @Override
+    public Optional<Personagem> alterarNome(String userId, String nome) {
+        return alterar(userId, p -> p.setNome(nome));
+    }
+
+    @Override
+    public Optional<Personagem> alterarFoto(String userId, String fotoUrl) {
+        return alterar(userId, p -> p.setFotoUrl(fotoUrl));
+    }
+
+    private Optional<Personagem> alterar(String userId, Consumer<Personagem> alteracao) {
+        while (true) {
+            Registro atual = registros.get(userId);
+            if (atual == null) {
+                return Optional.empty();
+            }
+            Personagem p = atual.paraPersonagem();
+            alteracao.accept(p);
+            if (registros.replace(userId, atual, Registro.de(p))) {
+                return Optional.of(p);
+            }
+        }
+    }
+
+    @Override
+    public void exportar(Consumer<Personagem> consumidor) {
+        for (Registro r : registros.values()) {
+            consumidor.accept(r.paraPersonagem());
+        }
+    }
+
+    /**
+     * @return A quantidade de personagens armazenados.
+     */
+    public int tamanho() {
+        return registros.size();
+    }
+
+    @Override
+    public String getNome() {
+        return "memoria";
+    }
+}
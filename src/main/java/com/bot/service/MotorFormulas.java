@@ -0,0 +1,464 @@
+package com.bot.service;
+
+import com.bot.model.Personagem;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * Motor das fórmulas dos sub-atributos, definidas em um arquivo {@code .properties}
+ * ({@code forca = corpo}, {@code vida = 10 + corpo * 4}, ...) em vez de fixas no código.
+ * <p>
+ * Cada fórmula é analisada uma única vez e compilada em uma árvore de lambdas ({@link Formula}),
+ * com as constantes já dobradas: o cálculo de uma ficha não interpreta texto nem consulta mapas.
+ * As fórmulas padrão ficam em {@code formulas.properties} no classpath. Com um arquivo externo,
+ * {@link #observar()} o recarrega a cada alteração; a troca das fórmulas é atômica e um arquivo
+ * inválido (sintaxe, variável desconhecida, sub-atributo faltando) é recusado, mantendo as anteriores.
+ */
+public final class MotorFormulas {
+
+    /**
+     * Uma fórmula compilada. Os parâmetros são os atributos principais e o nível.
+     */
+    @FunctionalInterface
+    public interface Formula {
+        int avaliar(int corpo, int destreza, int mente, int vontade, int nivel);
+    }
+
+    /**
+     * Uma fórmula ou um arquivo de fórmulas inválido.
+     */
+    public static final class FormulaException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        public FormulaException(String mensagem) {
+            super(mensagem);
+        }
+    }
+
+    /**
+     * As variáveis aceitas nas fórmulas, na ordem dos parâmetros de {@link Formula#avaliar}.
+     */
+    public static final List<String> VARIAVEIS = List.of("corpo", "destreza", "mente", "vontade", "nivel");
+
+    private static final String RECURSO_PADRAO = "/formulas.properties";
+    private static final SubAtributos.Campo[] CAMPOS = SubAtributos.Campo.values();
+
+    /**
+     * Um conjunto completo de fórmulas, indexado por {@link SubAtributos.Campo#ordinal()}.
+     */
+    private record Regras(Formula[] formulas, long versao) {}
+
+    private static volatile MotorFormulas instancia = padrao();
+
+    private final Path arquivo;
+    private volatile Regras regras;
+
+    private MotorFormulas(Path arquivo, Formula[] formulas) {
+        this.arquivo = arquivo;
+        this.regras = new Regras(formulas, 1);
+    }
+
+    /**
+     * @return O motor global usado pela {@link CalculadoraAtributos}.
+     */
+    public static MotorFormulas get() {
+        return instancia;
+    }
+
+    /**
+     * Substitui o motor global.
+     */
+    public static void configurar(MotorFormulas novo) {
+        instancia = novo;
+    }
+
+    /**
+     * @return Um motor com as fórmulas padrão do classpath.
+     */
+    public static MotorFormulas padrao() {
+        try (InputStream in = MotorFormulas.class.getResourceAsStream(RECURSO_PADRAO)) {
+            if (in == null) {
+                throw new IllegalStateException("Recurso " + RECURSO_PADRAO + " não encontrado.");
+            }
+            return new MotorFormulas(null, compilarTodas(new InputStreamReader(in, StandardCharsets.UTF_8)));
+        } catch (IOException | FormulaException e) {
+            throw new IllegalStateException("As fórmulas padrão são inválidas: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Cria um motor com as fórmulas de um arquivo externo. Se o arquivo não existir, ele é criado
+     * com as fórmulas padrão, para servir de ponto de partida.
+     *
+     * @throws FormulaException Se o arquivo existir mas for inválido.
+     */
+    public static MotorFormulas deArquivo(Path arquivo) throws IOException, FormulaException {
+        if (Files.notExists(arquivo)) {
+            Path diretorio = arquivo.toAbsolutePath().getParent();
+            if (diretorio != null) {
+                Files.createDirectories(diretorio);
+            }
+            try (InputStream in = MotorFormulas.class.getResourceAsStream(RECURSO_PADRAO)) {
+                Files.copy(in, arquivo);
+            }
+        }
+        return new MotorFormulas(arquivo, lerArquivo(arquivo));
+    }
+
+    /**
+     * Calcula os sub-atributos de um personagem com as fórmulas atuais.
+     */
+    public SubAtributos calcular(Personagem p) {
+        Formula[] f = regras.formulas();
+        int c = p.getCorpo();
+        int d = p.getDestreza();
+        int m = p.getMente();
+        int v = p.getVontade();
+        int n = p.getNivel();
+        return new SubAtributos(
+                f[0].avaliar(c, d, m, v, n),
+                f[1].avaliar(c, d, m, v, n),
+                f[2].avaliar(c, d, m, v, n),
+                f[3].avaliar(c, d, m, v, n),
+                f[4].avaliar(c, d, m, v, n),
+                f[5].avaliar(c, d, m, v, n),
+                f[6].avaliar(c, d, m, v, n),
+                f[7].avaliar(c, d, m, v, n));
+    }
+
+    /**
+     * @return Um número que muda a cada recarga bem-sucedida das fórmulas.
+     */
+    public long getVersao() {
+        return regras.versao();
+    }
+
+    /**
+     * Relê o arquivo externo e troca as fórmulas de uma vez. Se o arquivo for inválido,
+     * as fórmulas atuais continuam valendo.
+     *
+     * @throws FormulaException Se o arquivo for inválido.
+     */
+    public synchronized void recarregar() throws IOException, FormulaException {
+        if (arquivo == null) {
+            return;
+        }
+        Formula[] formulas = lerArquivo(arquivo);
+        regras = new Regras(formulas, regras.versao() + 1);
+    }
+
+    /**
+     * Inicia um thread daemon que recarrega as fórmulas sempre que o arquivo externo muda.
+     * Não faz nada com as fórmulas padrão do classpath.
+     */
+    public void observar() throws IOException {
+        if (arquivo == null) {
+            return;
+        }
+        Path diretorio = arquivo.toAbsolutePath().getParent();
+        Path nome = arquivo.getFileName();
+        WatchService observador = diretorio.getFileSystem().newWatchService();
+        diretorio.register(observador, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+
+        Thread t = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                WatchKey chave;
+                try {
+                    chave = observador.take();
+                    // Editores costumam gravar em mais de uma etapa; espera o arquivo assentar.
+                    Thread.sleep(200);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                boolean alterado = false;
+                for (WatchEvent<?> evento : chave.pollEvents()) {
+                    alterado |= nome.equals(evento.context());
+                }
+                chave.reset();
+                if (alterado) {
+                    try {
+                        recarregar();
+                        System.out.println("Fórmulas dos sub-atributos recarregadas de " + arquivo + " (versão " + getVersao() + ").");
+                    } catch (IOException | FormulaException e) {
+                        System.err.println("Fórmulas de " + arquivo + " recusadas; as anteriores continuam valendo: " + e.getMessage());
+                    }
+                }
+            }
+        }, "formulas-observador");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    private static Formula[] lerArquivo(Path arquivo) throws IOException, FormulaException {
+        try (Reader leitor = Files.newBufferedReader(arquivo, StandardCharsets.UTF_8)) {
+            return compilarTodas(leitor);
+        }
+    }
+
+    /**
+     * Lê e compila um arquivo de fórmulas inteiro. Exige exatamente uma fórmula por sub-atributo.
+     */
+    static Formula[] compilarTodas(Reader leitor) throws IOException, FormulaException {
+        Properties propriedades = new Properties();
+        propriedades.load(leitor);
+
+        Formula[] formulas = new Formula[CAMPOS.length];
+        Set<String> conhecidas = new HashSet<>();
+        for (SubAtributos.Campo campo : CAMPOS) {
+            String chave = campo.name().toLowerCase(Locale.ROOT);
+            conhecidas.add(chave);
+            String expressao = propriedades.getProperty(chave);
+            if (expressao == null || expressao.isBlank()) {
+                throw new FormulaException("Falta a fórmula de '" + chave + "'.");
+            }
+            try {
+                formulas[campo.ordinal()] = compilar(expressao);
+            } catch (FormulaException e) {
+                throw new FormulaException("Fórmula de '" + chave + "': " + e.getMessage());
+            }
+        }
+        for (String chave : propriedades.stringPropertyNames()) {
+            if (!conhecidas.contains(chave)) {
+                throw new FormulaException("Sub-atributo desconhecido: '" + chave + "'. Use: " + conhecidas + ".");
+            }
+        }
+        return formulas;
+    }
+
+    /**
+     * Analisa e compila uma expressão.
+     *
+     * @throws FormulaException Se a expressão tiver erro de sintaxe ou usar uma variável ou função desconhecida.
+     */
+    public static Formula compilar(String expressao) throws FormulaException {
+        Analisador analisador = new Analisador(expressao);
+        No raiz = analisador.expressao();
+        analisador.exigirFim();
+        return raiz.compilar();
+    }
+
+    // --- Árvore sintática ---
+
+    private sealed interface No permits Constante, Variavel, Negacao, Binaria {
+        Formula compilar();
+    }
+
+    private record Constante(int valor) implements No {
+        @Override
+        public Formula compilar() {
+            int k = valor;
+            return (c, d, m, v, n) -> k;
+        }
+    }
+
+    private record Variavel(int indice) implements No {
+        @Override
+        public Formula compilar() {
+            return switch (indice) {
+                case 0 -> (c, d, m, v, n) -> c;
+                case 1 -> (c, d, m, v, n) -> d;
+                case 2 -> (c, d, m, v, n) -> m;
+                case 3 -> (c, d, m, v, n) -> v;
+                default -> (c, d, m, v, n) -> n;
+            };
+        }
+    }
+
+    private record Negacao(No operando) implements No {
+        @Override
+        public Formula compilar() {
+            Formula a = operando.compilar();
+            return (c, d, m, v, n) -> -a.avaliar(c, d, m, v, n);
+        }
+    }
+
+    /**
+     * Operação com dois operandos: {@code + - * / %}, {@code min} ({@code 'm'}) ou {@code max} ({@code 'M'}).
+     */
+    private record Binaria(char operador, No esquerda, No direita) implements No {
+
+        static No de(char operador, No esquerda, No direita) {
+            // Dobra de constantes: "10 + 2 * 3" vira uma única constante.
+            if (esquerda instanceof Constante a && direita instanceof Constante b) {
+                return new Constante(aplicar(operador, a.valor(), b.valor()));
+            }
+            return new Binaria(operador, esquerda, direita);
+        }
+
+        static int aplicar(char operador, int a, int b) {
+            return switch (operador) {
+                case '+' -> a + b;
+                case '-' -> a - b;
+                case '*' -> a * b;
+                case '/' -> b == 0 ? 0 : a / b;
+                case '%' -> b == 0 ? 0 : a % b;
+                case 'm' -> Math.min(a, b);
+                default -> Math.max(a, b);
+            };
+        }
+
+        @Override
+        public Formula compilar() {
+            Formula a = esquerda.compilar();
+            // Operando direito constante (o caso comum: "corpo * 4"): sem a chamada extra.
+            if (direita instanceof Constante(int k)) {
+                return switch (operador) {
+                    case '+' -> (c, d, m, v, n) -> a.avaliar(c, d, m, v, n) + k;
+                    case '-' -> (c, d, m, v, n) -> a.avaliar(c, d, m, v, n) - k;
+                    case '*' -> (c, d, m, v, n) -> a.avaliar(c, d, m, v, n) * k;
+                    case '/' -> k == 0 ? (c, d, m, v, n) -> 0 : (c, d, m, v, n) -> a.avaliar(c, d, m, v, n) / k;
+                    case '%' -> k == 0 ? (c, d, m, v, n) -> 0 : (c, d, m, v, n) -> a.avaliar(c, d, m, v, n) % k;
+                    case 'm' -> (c, d, m, v, n) -> Math.min(a.avaliar(c, d, m, v, n), k);
+                    default -> (c, d, m, v, n) -> Math.max(a.avaliar(c, d, m, v, n), k);
+                };
+            }
+            if (esquerda instanceof Constante && (operador == '+' || operador == '*')) {
+                // Comutativa: reaproveita o caso acima.
+                return new Binaria(operador, direita, esquerda).compilar();
+            }
+            Formula b = direita.compilar();
+            return switch (operador) {
+                case '+' -> (c, d, m, v, n) -> a.avaliar(c, d, m, v, n) + b.avaliar(c, d, m, v, n);
+                case '-' -> (c, d, m, v, n) -> a.avaliar(c, d, m, v, n) - b.avaliar(c, d, m, v, n);
+                case '*' -> (c, d, m, v, n) -> a.avaliar(c, d, m, v, n) * b.avaliar(c, d, m, v, n);
+                default -> {
+                    char op = operador;
+                    yield (c, d, m, v, n) -> aplicar(op, a.avaliar(c, d, m, v, n), b.avaliar(c, d, m, v, n));
+                }
+            };
+        }
+    }
+
+    /**
+     * Analisador descendente recursivo:
+     * <pre>
+     * expressao := termo (('+' | '-') termo)*
+     * termo     := fator (('*' | '/' | '%') fator)*
+     * fator     := '-' fator | numero | variavel | ('min' | 'max') '(' expressao ',' expressao ')' | '(' expressao ')'
+     * </pre>
+     */
+    private static final class Analisador {
+        private final String texto;
+        private int posicao;
+
+        Analisador(String texto) {
+            this.texto = texto;
+        }
+
+        No expressao() throws FormulaException {
+            No no = termo();
+            while (true) {
+                char c = proximo();
+                if (c != '+' && c != '-') {
+                    return no;
+                }
+                posicao++;
+                no = Binaria.de(c, no, termo());
+            }
+        }
+
+        private No termo() throws FormulaException {
+            No no = fator();
+            while (true) {
+                char c = proximo();
+                if (c != '*' && c != '/' && c != '%') {
+                    return no;
+                }
+                posicao++;
+                no = Binaria.de(c, no, fator());
+            }
+        }
+
+        private No fator() throws FormulaException {
+            char c = proximo();
+            if (c == '-') {
+                posicao++;
+                No operando = fator();
+                return operando instanceof Constante(int k) ? new Constante(-k) : new Negacao(operando);
+            }
+            if (c == '(') {
+                posicao++;
+                No no = expressao();
+                exigir(')');
+                return no;
+            }
+            if (Character.isDigit(c)) {
+                int inicio = posicao;
+                while (posicao < texto.length() && Character.isDigit(texto.charAt(posicao))) {
+                    posicao++;
+                }
+                try {
+                    return new Constante(Integer.parseInt(texto.substring(inicio, posicao)));
+                } catch (NumberFormatException e) {
+                    throw erro(inicio, "número grande demais");
+                }
+            }
+            if (Character.isLetter(c)) {
+                int inicio = posicao;
+                while (posicao < texto.length() && (Character.isLetterOrDigit(texto.charAt(posicao)) || texto.charAt(posicao) == '_')) {
+                    posicao++;
+                }
+                String nome = texto.substring(inicio, posicao).toLowerCase(Locale.ROOT);
+                if (nome.equals("min") || nome.equals("max")) {
+                    exigir('(');
+                    No a = expressao();
+                    exigir(',');
+                    No b = expressao();
+                    exigir(')');
+                    return Binaria.de(nome.equals("min") ? 'm' : 'M', a, b);
+                }
+                int indice = VARIAVEIS.indexOf(nome);
+                if (indice < 0 && proximo() == '(') {
+                    throw erro(inicio, "função desconhecida '" + nome + "' (use min ou max)");
+                }
+                if (indice < 0) {
+                    throw erro(inicio, "variável desconhecida '" + nome + "' (use " + String.join(", ", VARIAVEIS) + ")");
+                }
+                return new Variavel(indice);
+            }
+            throw erro(posicao, c == 0 ? "a expressão terminou antes do esperado" : "caractere inesperado '" + c + "'");
+        }
+
+        void exigirFim() throws FormulaException {
+            if (proximo() != 0) {
+                throw erro(posicao, "caractere inesperado '" + texto.charAt(posicao) + "'");
+            }
+        }
+
+        private void exigir(char esperado) throws FormulaException {
+            if (proximo() != esperado) {
+                throw erro(posicao, "esperava '" + esperado + "'");
+            }
+            posicao++;
+        }
+
+        /**
+         * Pula os espaços e devolve o próximo caractere sem consumi-lo (0 no fim do texto).
+         */
+        private char proximo() {
+            while (posicao < texto.length() && Character.isWhitespace(texto.charAt(posicao))) {
+                posicao++;
+            }
+            return posicao < texto.length() ? texto.charAt(posicao) : 0;
+        }
+
+        private FormulaException erro(int onde, String mensagem) {
+            return new FormulaException(mensagem + " na posição " + (onde + 1) + " de \"" + texto.trim() + "\"");
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.bot.service;
+
+/**
+ * Falha de um {@link PersonagemRepository} ao ler ou gravar personagens.
+ * Envolve a causa específica do backend (ex: {@link java.sql.SQLException}, {@link java.io.IOException}).
+ */
+public class PersistenciaException extends Exception {
+
+    private static final long serialVersionUID = 1L;
+
+    public PersistenciaException(String mensagem, Throwable causa) {
+        super(mensagem, causa);
+    }
+}
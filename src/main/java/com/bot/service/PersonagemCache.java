@@ -0,0 +1,165 @@
+package com.bot.service;
+
+import com.bot.model.Personagem;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache em memória dos personagens, indexado pelo ID do usuário do Discord.
+ * <p>
+ * É usado pelo {@link PersonagemService} como cache de leitura: {@code buscarPorUsuario} consulta
+ * o cache antes do banco, e {@code salvar}/{@code deletar} atualizam ou invalidam a entrada.
+ * As entradas são descartadas por tamanho (LRU) e por ociosidade: um personagem que não é
+ * lido nem salvo há mais de {@code ociosidadeMaximaMs} volta a ser buscado no banco.
+ * <p>
+ * O cache guarda e devolve cópias, de modo que os chamadores podem alterar livremente
+ * o objeto recebido sem corromper o estado cacheado.
+ */
+public final class PersonagemCache {
+
+    /**
+     * Fotografia dos contadores do cache.
+     */
+    public record Estatisticas(long acertos, long faltas, long expiradas, int entradas, int capacidade) {
+
+        /**
+         * @return A fração de buscas atendidas pelo cache, entre 0 e 1.
+         */
+        public double taxaAcerto() {
+            long total = acertos + faltas;
+            return total == 0 ? 0 : (double) acertos / total;
+        }
+    }
+
+    private static final class Entrada {
+        final Personagem personagem;
+        long ultimoAcesso;
+
+        Entrada(Personagem personagem, long agora) {
+            this.personagem = personagem;
+            this.ultimoAcesso = agora;
+        }
+    }
+
+    private final int capacidade;
+    private final long ociosidadeMaximaMs;
+    private final Map<String, Entrada> entradas;
+    // Incrementado a cada escrita; impede que uma leitura do banco iniciada antes de uma
+    // escrita concorrente guarde no cache o valor antigo.
+    private long geracao;
+    private long ultimaLimpeza = System.currentTimeMillis();
+
+    private final LongAdder acertos = new LongAdder();
+    private final LongAdder faltas = new LongAdder();
+    private final LongAdder expiradas = new LongAdder();
+
+    /**
+     * @param capacidade         Quantidade máxima de personagens em memória.
+     * @param ociosidadeMaximaMs Tempo sem acesso após o qual a entrada é descartada.
+     */
+    public PersonagemCache(int capacidade, long ociosidadeMaximaMs) {
+        this.capacidade = Math.max(1, capacidade);
+        this.ociosidadeMaximaMs = Math.max(1, ociosidadeMaximaMs);
+        // LinkedHashMap em ordem de acesso: a entrada mais antiga é a menos usada recentemente.
+        this.entradas = new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entrada> eldest) {
+                return size() > PersonagemCache.this.capacidade;
+            }
+        };
+    }
+
+    /**
+     * Busca um personagem no cache.
+     *
+     * @return Uma cópia do personagem, ou {@code null} em caso de falta.
+     */
+    public synchronized Personagem buscar(String userId) {
+        long agora = System.currentTimeMillis();
+        Entrada entrada = entradas.get(userId);
+        if (entrada != null && agora - entrada.ultimoAcesso > ociosidadeMaximaMs) {
+            entradas.remove(userId);
+            expiradas.increment();
+            entrada = null;
+        }
+        if (entrada == null) {
+            faltas.increment();
+            return null;
+        }
+        acertos.increment();
+        entrada.ultimoAcesso = agora;
+        return new Personagem(entrada.personagem);
+    }
+
+    /**
+     * @return O marcador a ser passado para {@link #guardarLido} após a leitura do banco.
+     */
+    public synchronized long iniciarLeitura() {
+        return geracao;
+    }
+
+    /**
+     * Guarda um personagem lido do banco, desde que nenhuma escrita tenha ocorrido desde
+     * {@link #iniciarLeitura()} (caso em que o valor lido pode já estar desatualizado).
+     */
+    public synchronized void guardarLido(Personagem personagem, long marcador) {
+        if (marcador == geracao) {
+            inserir(personagem);
+        }
+    }
+
+    /**
+     * Atualiza a entrada após um salvamento bem-sucedido no banco.
+     */
+    public synchronized void atualizar(Personagem personagem) {
+        geracao++;
+        inserir(personagem);
+    }
+
+    /**
+     * Remove a entrada de um usuário (após deletar o personagem ou em caso de falha ao salvar).
+     */
+    public synchronized void invalidar(String userId) {
+        geracao++;
+        entradas.remove(userId);
+    }
+
+    /**
+     * Remove todas as entradas (ex: após uma importação em massa).
+     */
+    public synchronized void limpar() {
+        geracao++;
+        entradas.clear();
+    }
+
+    /**
+     * Remove todas as entradas ociosas há mais tempo que o limite configurado.
+     * Também é chamado automaticamente nas inserções, no máximo uma vez por período de ociosidade.
+     */
+    public synchronized void removerOciosas() {
+        long agora = System.currentTimeMillis();
+        ultimaLimpeza = agora;
+        Iterator<Entrada> it = entradas.values().iterator();
+        while (it.hasNext()) {
+            if (agora - it.next().ultimoAcesso > ociosidadeMaximaMs) {
+                it.remove();
+                expiradas.increment();
+            }
+        }
+    }
+
+    public synchronized Estatisticas getEstatisticas() {
+        return new Estatisticas(acertos.sum(), faltas.sum(), expiradas.sum(), entradas.size(), capacidade);
+    }
+
+    private void inserir(Personagem personagem) {
+        long agora = System.currentTimeMillis();
+        if (agora - ultimaLimpeza > ociosidadeMaximaMs) {
+            removerOciosas();
+        }
+        entradas.put(personagem.getUserId(), new Entrada(new Personagem(personagem), agora));
+    }
+}
@@ -0,0 +1,138 @@
+package com.bot.service;
+
+import com.bot.model.Personagem;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Contrato de persistência dos personagens, usado pelo {@link PersonagemService}.
+ * <p>
+ * O serviço concentra as regras de negócio, o cache e as variantes assíncronas; o repositório
+ * apenas lê e grava. Há três implementações, escolhidas pela variável {@code REPOSITORIO} do .env:
+ * <ul>
+ *     <li>{@link PostgresPersonagemRepository} ({@code postgres}, padrão): a tabela {@code personagens}.</li>
+ *     <li>{@link MemoriaPersonagemRepository} ({@code memoria}): apenas em memória, para testes e benchmarks.</li>
+ *     <li>{@link ArquivoPersonagemRepository} ({@code arquivo}): um log local mapeado em memória,
+ *     para servidores pequenos sem banco externo.</li>
+ * </ul>
+ * As operações {@link #uparNivel}, {@link #gastarPontos}, {@link #alterarNome} e {@link #alterarFoto}
+ * devem ser atômicas: a verificação e a escrita acontecem como uma única operação, sem janela para
+ * escritas concorrentes, e só as colunas envolvidas são alteradas.
+ * Todos os objetos recebidos e devolvidos são cópias independentes do estado armazenado.
+ */
+public interface PersonagemRepository extends AutoCloseable {
+
+    /**
+     * @return O personagem do usuário, ou vazio se não existir.
+     */
+    Optional<Personagem> buscar(String userId) throws PersistenciaException;
+
+    /**
+     * Insere ou substitui o personagem.
+     */
+    void salvar(Personagem personagem) throws PersistenciaException;
+
+    /**
+     * Insere ou substitui vários personagens de uma vez. Usado pela escrita adiada
+     * ({@link WriteBehindPersonagemRepository}); os backends que suportam lotes devem sobrescrever.
+     */
+    default void salvarTodos(Collection<Personagem> personagens) throws PersistenciaException {
+        for (Personagem personagem : personagens) {
+            salvar(personagem);
+        }
+    }
+
+    /**
+     * Remove o personagem do usuário, se existir.
+     */
+    void deletar(String userId) throws PersistenciaException;
+
+    /**
+     * Soma níveis e pontos disponíveis de forma atômica.
+     *
+     * @return O personagem atualizado, ou vazio se não existir.
+     */
+    Optional<Personagem> uparNivel(String userId, int niveis, int pontos) throws PersistenciaException;
+
+    /**
+     * Soma níveis e pontos disponíveis de vários personagens de uma vez. Cada personagem é
+     * incrementado atomicamente; os backends que suportam operações em conjunto devem sobrescrever.
+     *
+     * @return Os personagens atualizados. Usuários sem personagem são ignorados.
+     */
+    default List<Personagem> uparNivelEmLote(Collection<String> userIds, int niveis, int pontos) throws PersistenciaException {
+        List<Personagem> upados = new ArrayList<>(userIds.size());
+        for (String userId : userIds) {
+            uparNivel(userId, niveis, pontos).ifPresent(upados::add);
+        }
+        return upados;
+    }
+
+    /**
+     * Gasta pontos disponíveis nos atributos de forma atômica, desde que haja saldo e que o resultado
+     * respeite a regra de equilíbrio (ver {@link PersonagemService#gastoPermitido}).
+     *
+     * @param deltas Pontos a somar em cada atributo, na ordem de {@link PersonagemService#ATRIBUTOS}.
+     *               Todos não negativos e com soma positiva.
+     * @return O personagem atualizado, ou vazio se não existir ou se o gasto for recusado.
+     */
+    Optional<Personagem> gastarPontos(String userId, int[] deltas) throws PersistenciaException;
+
+    /**
+     * Altera apenas o nome do personagem. Ao contrário de {@link #salvar}, não regrava nível,
+     * pontos e atributos, então não desfaz um gasto ou uma upada concorrente.
+     *
+     * @return O personagem atualizado, ou vazio se não existir.
+     */
+    Optional<Personagem> alterarNome(String userId, String nome) throws PersistenciaException;
+
+    /**
+     * Altera apenas a foto do personagem, como {@link #alterarNome}.
+     *
+     * @return O personagem atualizado, ou vazio se não existir.
+     */
+    Optional<Personagem> alterarFoto(String userId, String fotoUrl) throws PersistenciaException;
+
+    /**
+     * Entrega todos os personagens ao consumidor, um por vez, sem carregá-los todos em memória.
+     * Exceções lançadas pelo consumidor interrompem a exportação e são propagadas.
+     */
+    void exportar(Consumer<Personagem> consumidor) throws PersistenciaException;
+
+    /**
+     * Insere ou substitui todos os personagens do iterador, consumido sob demanda.
+     * Os backends com carga em massa (ex: {@code COPY} no Postgres) devem sobrescrever.
+     *
+     * @return A quantidade de personagens gravados.
+     */
+    default int importar(Iterator<Personagem> personagens) throws PersistenciaException {
+        List<Personagem> lote = new ArrayList<>(500);
+        int total = 0;
+        while (personagens.hasNext()) {
+            lote.add(personagens.next());
+            if (lote.size() == 500) {
+                salvarTodos(lote);
+                total += lote.size();
+                lote.clear();
+            }
+        }
+        salvarTodos(lote);
+        return total + lote.size();
+    }
+
+    /**
+     * @return Um nome curto do backend, para logs e para o /status-banco.
+     */
+    String getNome();
+
+    /**
+     * Libera os recursos do backend (conexões, arquivos). Chamado no desligamento do bot.
+     */
+    @Override
+    default void close() {}
+}
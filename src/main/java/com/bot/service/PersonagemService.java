@@ -2,91 +2,172 @@ package com.bot.service;
 
 import com.bot.model.Personagem;
 
-import java.sql.*;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * Camada de serviço responsável por toda a lógica de negócio dos personagens.
- * ESTA VERSÃO UTILIZA JDBC PURO para comunicação com o banco de dados.
+ * <p>
+ * A persistência é delegada a um {@link PersonagemRepository} (Postgres, memória ou arquivo local),
+ * com um {@link PersonagemCache} de leitura na frente. Falhas do repositório são registradas no log
+ * e tratadas como "não encontrado"/"não alterado", como sempre foi feito com o JDBC.
+ * <p>
+ * Cada operação de banco tem uma variante {@code ...Async} que roda em uma thread virtual
+ * e devolve um {@link CompletableFuture}. Os comandos do Discord devem usar sempre as variantes
+ * assíncronas, para que a thread de eventos da JDA nunca fique bloqueada esperando o banco.
+ * <p>
+ * As escritas de um mesmo usuário são serializadas: a escrita no repositório e a atualização do
+ * cache e do ranking acontecem sob a mesma trava (uma entre {@value #TRAVAS_ESCRITA}, escolhida pelo
+ * ID), então duas escritas simultâneas nunca deixam o cache ou o ranking com a versão mais antiga.
  */
 public class PersonagemService {
 
-    private final String dbUrl;
-    private final String dbUser;
-    private final String dbPass;
+    /**
+     * Os atributos que recebem pontos, na ordem usada por {@link #gastarPontos}.
+     * Os nomes coincidem com as colunas da tabela.
+     */
+    public static final List<String> ATRIBUTOS = List.of("corpo", "destreza", "mente", "vontade");
+
+    private static final int TRAVAS_ESCRITA = 256;
+
+    /**
+     * Uma alteração atômica de um personagem no repositório.
+     */
+    private interface AlteracaoRepositorio {
+        Optional<Personagem> executar() throws PersistenciaException;
+    }
+
+    private final PersonagemRepository repositorio;
+    private final PersonagemCache cache;
+    private final RankingPersonagens ranking = new RankingPersonagens();
+    private final List<Consumer<String>> ouvintesAlteracao = new CopyOnWriteArrayList<>();
+    // ReentrantLock em vez de synchronized: as escritas rodam em threads virtuais e esperam pelo banco.
+    private final ReentrantLock[] travasEscrita = new ReentrantLock[TRAVAS_ESCRITA];
+    // Uma thread virtual por operação: a concorrência real é limitada pelo repositório (ex: pool de conexões).
+    private final ExecutorService executorIo = Executors.newVirtualThreadPerTaskExecutor();
 
     /**
-     * Constrói uma nova instância de PersonagemService com as credenciais do banco.
+     * Constrói uma nova instância de PersonagemService sobre o Postgres, com as credenciais do banco,
+     * usando um pool de conexões e um cache de personagens com a configuração padrão.
      */
     public PersonagemService(String dbUrl, String dbUser, String dbPass) {
-        this.dbUrl = dbUrl;
-        this.dbUser = dbUser;
-        this.dbPass = dbPass;
+        this(new PostgresPersonagemRepository(new ConnectionPool(dbUrl, dbUser, dbPass, ConnectionPool.Configuracao.PADRAO)),
+                new PersonagemCache(1000, 10 * 60_000));
     }
 
-    private Connection getConnection() throws SQLException {
-        return DriverManager.getConnection(dbUrl, dbUser, dbPass);
+    /**
+     * Constrói uma nova instância de PersonagemService sobre um repositório e um cache já configurados.
+     */
+    public PersonagemService(PersonagemRepository repositorio, PersonagemCache cache) {
+        this.repositorio = repositorio;
+        this.cache = cache;
+        Arrays.setAll(travasEscrita, i -> new ReentrantLock());
+    }
+
+    /**
+     * @return O repositório usado pelo serviço.
+     */
+    public PersonagemRepository getRepositorio() {
+        return repositorio;
+    }
+
+    /**
+     * @return O cache de personagens usado pelo serviço.
+     */
+    public PersonagemCache getCache() {
+        return cache;
+    }
+
+    /**
+     * @return O ranking dos personagens, mantido a cada escrita feita por este serviço.
+     */
+    public RankingPersonagens getRanking() {
+        return ranking;
     }
 
     /**
-     * Busca um personagem no banco de dados pelo ID do usuário do Discord.
+     * Registra um ouvinte avisado sempre que este serviço altera ou deleta um personagem (ou tenta,
+     * e o resultado é incerto), para que caches de outras camadas descartem o valor antigo.
+     * Recebe o ID do usuário, ou {@code null} quando qualquer personagem pode ter mudado (importação).
+     */
+    public void aoAlterar(Consumer<String> ouvinte) {
+        ouvintesAlteracao.add(ouvinte);
+    }
+
+    /**
+     * Carrega o ranking com todos os personagens do repositório. Chamado na inicialização do bot,
+     * antes de qualquer comando, e após uma importação.
+     */
+    public void carregarRanking() {
+        try {
+            ranking.carregar(repositorio);
+        } catch (PersistenciaException e) {
+            registrar(e);
+        }
+    }
+
+    /**
+     * Busca um personagem pelo ID do usuário do Discord, consultando o cache antes do repositório.
+     * O objeto retornado é uma cópia e pode ser alterado livremente; as alterações só valem após {@link #salvar}.
      */
     public Optional<Personagem> buscarPorUsuario(String userId) {
-        final String sql = "SELECT * FROM personagens WHERE user_id = ?";
-        try (Connection conn = getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, userId);
-            try (ResultSet rs = pstmt.executeQuery()) {
-                if (rs.next()) {
-                    return Optional.of(mapRowToPersonagem(rs));
-                }
-            }
-        } catch (SQLException e) {
-            System.err.println("Erro ao buscar personagem por usuário: " + e.getMessage());
-            e.printStackTrace();
+        Personagem emCache = cache.buscar(userId);
+        if (emCache != null) {
+            return Optional.of(emCache);
+        }
+
+        long marcador = cache.iniciarLeitura();
+        try {
+            Optional<Personagem> encontrado = repositorio.buscar(userId);
+            encontrado.ifPresent(p -> cache.guardarLido(p, marcador));
+            return encontrado;
+        } catch (PersistenciaException e) {
+            registrar(e);
+            return Optional.empty();
         }
-        return Optional.empty();
     }
 
     /**
-     * Salva (insere ou atualiza) uma entidade Personagem no banco de dados.
+     * Salva (insere ou atualiza) uma entidade Personagem.
      */
     public void salvar(Personagem personagem) {
-        final String sql = """
-            INSERT INTO personagens (user_id, nome, nivel, foto_url, corpo, destreza, mente, vontade, pontos_disponiveis)
-            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)
-            ON CONFLICT (user_id) DO UPDATE SET
-                nome = EXCLUDED.nome,
-                nivel = EXCLUDED.nivel,
-                foto_url = EXCLUDED.foto_url,
-                corpo = EXCLUDED.corpo,
-                destreza = EXCLUDED.destreza,
-                mente = EXCLUDED.mente,
-                vontade = EXCLUDED.vontade,
-                pontos_disponiveis = EXCLUDED.pontos_disponiveis
-            """;
-        try (Connection conn = getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, personagem.getUserId());
-            pstmt.setString(2, personagem.getNome());
-            pstmt.setInt(3, personagem.getNivel());
-            pstmt.setString(4, personagem.getFotoUrl());
-            pstmt.setInt(5, personagem.getCorpo());
-            pstmt.setInt(6, personagem.getDestreza());
-            pstmt.setInt(7, personagem.getMente());
-            pstmt.setInt(8, personagem.getVontade());
-            pstmt.setInt(9, personagem.getPontosDisponiveis());
-            pstmt.executeUpdate();
-        } catch (SQLException e) {
-            System.err.println("Erro ao salvar personagem: " + e.getMessage());
-            e.printStackTrace();
-        }
-    }
-
-    /**
-     * Cria um novo personagem com valores padrão e o persiste no banco de dados.
+        ReentrantLock trava = travaDe(personagem.getUserId());
+        trava.lock();
+        try {
+            repositorio.salvar(personagem);
+            cache.atualizar(personagem);
+            notificarAlteracao(personagem.getUserId());
+            ranking.atualizar(personagem);
+        } catch (PersistenciaException e) {
+            // Não se sabe se a escrita chegou ao repositório; a próxima leitura busca o valor real.
+            cache.invalidar(personagem.getUserId());
+            notificarAlteracao(personagem.getUserId());
+            registrar(e);
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    /**
+     * Cria um novo personagem com valores padrão e o persiste.
      */
     public Personagem criarPersonagem(String userId, String nome, int nivel) {
         Personagem novoPersonagem = new Personagem(userId, nome, nivel);
@@ -95,29 +176,419 @@ public class PersonagemService {
     }
 
     /**
-     * Deleta um personagem do banco de dados com base no ID do usuário do Discord.
+     * Deleta um personagem com base no ID do usuário do Discord.
      */
     public void deletar(String userId) {
-        final String sql = "DELETE FROM personagens WHERE user_id = ?";
-        try (Connection conn = getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, userId);
-            pstmt.executeUpdate();
-        } catch (SQLException e) {
-            System.err.println("Erro ao deletar personagem: " + e.getMessage());
-            e.printStackTrace();
+        ReentrantLock trava = travaDe(userId);
+        trava.lock();
+        try {
+            repositorio.deletar(userId);
+            ranking.remover(userId);
+        } catch (PersistenciaException e) {
+            registrar(e);
+        } finally {
+            cache.invalidar(userId);
+            notificarAlteracao(userId);
+            trava.unlock();
         }
     }
 
     /**
      * Aumenta o nível de um personagem e adiciona os pontos de atributo correspondentes.
+     * <p>
+     * O incremento é atômico no repositório, então upadas simultâneas nunca se perdem.
+     * O objeto recebido é atualizado com os valores resultantes.
      */
     public void uparNivel(Personagem personagem, int niveisParaAdicionar) {
         if (niveisParaAdicionar <= 0) return;
 
-        personagem.setNivel(personagem.getNivel() + niveisParaAdicionar);
-        personagem.setPontosDisponiveis(personagem.getPontosDisponiveis() + (niveisParaAdicionar * 3));
-        salvar(personagem);
+        ReentrantLock trava = travaDe(personagem.getUserId());
+        trava.lock();
+        try {
+            Optional<Personagem> atualizado = repositorio.uparNivel(personagem.getUserId(), niveisParaAdicionar, niveisParaAdicionar * 3);
+            if (atualizado.isPresent()) {
+                cache.atualizar(atualizado.get());
+                notificarAlteracao(atualizado.get().getUserId());
+                ranking.atualizar(atualizado.get());
+                personagem.setNivel(atualizado.get().getNivel());
+                personagem.setPontosDisponiveis(atualizado.get().getPontosDisponiveis());
+            } else {
+                cache.invalidar(personagem.getUserId());
+                notificarAlteracao(personagem.getUserId());
+            }
+        } catch (PersistenciaException e) {
+            cache.invalidar(personagem.getUserId());
+            notificarAlteracao(personagem.getUserId());
+            registrar(e);
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    /**
+     * Aumenta o nível de vários personagens de uma vez, com os mesmos pontos de atributo de {@link #uparNivel}.
+     * No Postgres é um único {@code UPDATE}, em vez de uma busca e uma escrita por jogador.
+     * <p>
+     * Como {@link #exportar}, lança as falhas: uma lista vazia significaria "ninguém tem personagem",
+     * e o resumo do comando não pode confundir isso com o banco fora do ar.
+     *
+     * @return Os personagens upados, já atualizados. Usuários sem personagem são ignorados.
+     */
+    public List<Personagem> uparNivelEmLote(Collection<String> userIds, int niveisParaAdicionar) throws PersistenciaException {
+        if (niveisParaAdicionar <= 0 || userIds.isEmpty()) return List.of();
+
+        List<ReentrantLock> travas = travarTodos(userIds);
+        try {
+            List<Personagem> upados = repositorio.uparNivelEmLote(userIds, niveisParaAdicionar, niveisParaAdicionar * 3);
+            for (Personagem p : upados) {
+                cache.atualizar(p);
+                notificarAlteracao(p.getUserId());
+                ranking.atualizar(p);
+            }
+            return upados;
+        } catch (PersistenciaException e) {
+            // Não se sabe quais incrementos chegaram ao repositório.
+            for (String userId : userIds) {
+                cache.invalidar(userId);
+                notificarAlteracao(userId);
+            }
+            throw e;
+        } finally {
+            travas.forEach(ReentrantLock::unlock);
+        }
+    }
+
+    /**
+     * Gasta um ponto disponível em um atributo.
+     *
+     * @see #gastarPontos(String, int, int, int, int)
+     */
+    public Optional<Personagem> gastarPontoAtributo(String userId, String atributo) {
+        int[] deltas = new int[ATRIBUTOS.size()];
+        int indice = indiceAtributo(atributo);
+        if (indice < 0) {
+            return Optional.empty();
+        }
+        deltas[indice] = 1;
+        return gastarPontos(userId, deltas[0], deltas[1], deltas[2], deltas[3]);
+    }
+
+    /**
+     * Gasta pontos disponíveis em vários atributos de uma só vez.
+     * <p>
+     * A verificação do saldo de pontos e da regra de equilíbrio ({@link #gastoPermitido}) e a escrita
+     * acontecem no repositório como uma única operação atômica (no Postgres, um único
+     * {@code UPDATE ... WHERE ... RETURNING}), sem leitura prévia: dois gastos simultâneos nunca
+     * usam o mesmo ponto.
+     *
+     * @return O personagem atualizado, ou vazio se o personagem não existir, não tiver pontos
+     *         suficientes ou o gasto violar a regra de equilíbrio.
+     */
+    public Optional<Personagem> gastarPontos(String userId, int corpo, int destreza, int mente, int vontade) {
+        int[] deltas = {corpo, destreza, mente, vontade};
+        int total = 0;
+        for (int d : deltas) {
+            if (d < 0) return Optional.empty();
+            total += d;
+        }
+        if (total == 0) {
+            return buscarPorUsuario(userId);
+        }
+
+        ReentrantLock trava = travaDe(userId);
+        trava.lock();
+        try {
+            Optional<Personagem> atualizado = repositorio.gastarPontos(userId, deltas);
+            if (atualizado.isPresent()) {
+                cache.atualizar(atualizado.get());
+                notificarAlteracao(atualizado.get().getUserId());
+                ranking.atualizar(atualizado.get());
+                return atualizado;
+            }
+            // Nada foi alterado: o valor em cache (usado na validação do chamador) pode estar desatualizado.
+            cache.invalidar(userId);
+            notificarAlteracao(userId);
+        } catch (PersistenciaException e) {
+            cache.invalidar(userId);
+            notificarAlteracao(userId);
+            registrar(e);
+        } finally {
+            trava.unlock();
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Altera apenas o nome do personagem, sem regravar nível, pontos e atributos: ao contrário de
+     * buscar, alterar e {@link #salvar}, não desfaz um gasto de pontos ou uma upada concorrente.
+     *
+     * @return O personagem atualizado, ou vazio se ele não existir ou a escrita falhar.
+     */
+    public Optional<Personagem> alterarNome(String userId, String nome) {
+        return alterarColuna(userId, () -> repositorio.alterarNome(userId, nome));
+    }
+
+    /**
+     * Altera apenas a foto do personagem, como {@link #alterarNome}.
+     *
+     * @return O personagem atualizado, ou vazio se ele não existir ou a escrita falhar.
+     */
+    public Optional<Personagem> alterarFoto(String userId, String fotoUrl) {
+        return alterarColuna(userId, () -> repositorio.alterarFoto(userId, fotoUrl));
+    }
+
+    private Optional<Personagem> alterarColuna(String userId, AlteracaoRepositorio alteracao) {
+        ReentrantLock trava = travaDe(userId);
+        trava.lock();
+        try {
+            Optional<Personagem> atualizado = alteracao.executar();
+            if (atualizado.isPresent()) {
+                cache.atualizar(atualizado.get());
+                ranking.atualizar(atualizado.get());
+            } else {
+                cache.invalidar(userId);
+            }
+            notificarAlteracao(userId);
+            return atualizado;
+        } catch (PersistenciaException e) {
+            cache.invalidar(userId);
+            notificarAlteracao(userId);
+            registrar(e);
+            return Optional.empty();
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    /**
+     * Exporta todos os personagens para um arquivo compactado com gzip, em fluxo: os personagens
+     * vão do repositório para o arquivo um por vez, sem passar por uma lista em memória.
+     * <p>
+     * Ao contrário das demais operações, as falhas são lançadas, para que uma cópia de segurança
+     * incompleta nunca pareça bem-sucedida.
+     *
+     * @return A quantidade de personagens exportados.
+     */
+    public int exportar(ExportacaoPersonagens.Formato formato, Path arquivo) throws PersistenciaException {
+        try (ExportacaoPersonagens.Escritor escritor = ExportacaoPersonagens.escritor(formato,
+                new GZIPOutputStream(Files.newOutputStream(arquivo), 64 * 1024))) {
+            repositorio.exportar(escritor::escrever);
+            return escritor.getEscritos();
+        } catch (IOException | UncheckedIOException e) {
+            throw new PersistenciaException("Erro ao escrever a exportação de personagens", e);
+        }
+    }
+
+    /**
+     * Importa personagens de um fluxo NDJSON ou CSV (compactado com gzip ou não), substituindo
+     * os personagens existentes dos mesmos usuários. O fluxo é lido sob demanda e fechado ao final.
+     * Como {@link #exportar}, lança as falhas.
+     */
+    public ExportacaoPersonagens.Resultado importar(ExportacaoPersonagens.Formato formato, InputStream entrada) throws PersistenciaException {
+        try (ExportacaoPersonagens.Leitor leitor = ExportacaoPersonagens.leitor(formato, entrada)) {
+            int importados = repositorio.importar(leitor);
+            return new ExportacaoPersonagens.Resultado(importados, leitor.getIgnorados());
+        } catch (IOException | UncheckedIOException e) {
+            throw new PersistenciaException("Erro ao ler o arquivo de importação", e);
+        } finally {
+            // Qualquer personagem pode ter sido substituído.
+            cache.limpar();
+            notificarAlteracao(null);
+            carregarRanking();
+        }
+    }
+
+    /**
+     * Regra de equilíbrio para um gasto de vários pontos: há saldo suficiente e, para cada atributo
+     * aumentado, o valor final não fica 3 ou mais pontos acima do valor final de qualquer outro.
+     * Equivale a aplicar os pontos um a um, em alguma ordem, respeitando {@link #podeAumentarAtributo}.
+     * Usada pelos repositórios que não fazem essa verificação em SQL.
+     *
+     * @param atual  O estado atual do personagem.
+     * @param deltas Pontos a somar em cada atributo, na ordem de {@link #ATRIBUTOS}.
+     */
+    static boolean gastoPermitido(Personagem atual, int[] deltas) {
+        int[] finais = {
+                atual.getCorpo() + deltas[0],
+                atual.getDestreza() + deltas[1],
+                atual.getMente() + deltas[2],
+                atual.getVontade() + deltas[3]
+        };
+        int total = 0;
+        for (int d : deltas) {
+            total += d;
+        }
+        if (atual.getPontosDisponiveis() < total) {
+            return false;
+        }
+        for (int a = 0; a < finais.length; a++) {
+            if (deltas[a] == 0) continue;
+            for (int b = 0; b < finais.length; b++) {
+                if (a != b && finais[a] - finais[b] >= 3) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Aplica um gasto já validado por {@link #gastoPermitido} ao personagem.
+     */
+    static void aplicarGasto(Personagem p, int[] deltas) {
+        p.setCorpo(p.getCorpo() + deltas[0]);
+        p.setDestreza(p.getDestreza() + deltas[1]);
+        p.setMente(p.getMente() + deltas[2]);
+        p.setVontade(p.getVontade() + deltas[3]);
+        p.setPontosDisponiveis(p.getPontosDisponiveis() - (deltas[0] + deltas[1] + deltas[2] + deltas[3]));
+    }
+
+    private ReentrantLock travaDe(String userId) {
+        return travasEscrita[Math.floorMod(userId.hashCode(), TRAVAS_ESCRITA)];
+    }
+
+    /**
+     * Trava as escritas de vários usuários, sempre na ordem das travas, para que dois lotes
+     * simultâneos não se bloqueiem mutuamente.
+     *
+     * @return As travas adquiridas, a liberar ao final.
+     */
+    private List<ReentrantLock> travarTodos(Collection<String> userIds) {
+        boolean[] usadas = new boolean[TRAVAS_ESCRITA];
+        for (String userId : userIds) {
+            usadas[Math.floorMod(userId.hashCode(), TRAVAS_ESCRITA)] = true;
+        }
+        List<ReentrantLock> travas = new ArrayList<>();
+        for (int i = 0; i < TRAVAS_ESCRITA; i++) {
+            if (usadas[i]) {
+                travasEscrita[i].lock();
+                travas.add(travasEscrita[i]);
+            }
+        }
+        return travas;
+    }
+
+    private void notificarAlteracao(String userId) {
+        for (Consumer<String> ouvinte : ouvintesAlteracao) {
+            ouvinte.accept(userId);
+        }
+    }
+
+    private static void registrar(PersistenciaException e) {
+        Throwable causa = e.getCause() != null ? e.getCause() : e;
+        System.err.println(e.getMessage() + ": " + causa.getMessage());
+        causa.printStackTrace();
+    }
+
+    // --- Variantes assíncronas (threads virtuais) ---
+
+    /**
+     * Versão assíncrona de {@link #buscarPorUsuario}.
+     */
+    public CompletableFuture<Optional<Personagem>> buscarPorUsuarioAsync(String userId) {
+        return assincrono(() -> buscarPorUsuario(userId));
+    }
+
+    /**
+     * Versão assíncrona de {@link #salvar}.
+     */
+    public CompletableFuture<Void> salvarAsync(Personagem personagem) {
+        return CompletableFuture.runAsync(() -> salvar(personagem), executorIo);
+    }
+
+    /**
+     * Versão assíncrona de {@link #criarPersonagem}.
+     */
+    public CompletableFuture<Personagem> criarPersonagemAsync(String userId, String nome, int nivel) {
+        return assincrono(() -> criarPersonagem(userId, nome, nivel));
+    }
+
+    /**
+     * Versão assíncrona de {@link #deletar}.
+     */
+    public CompletableFuture<Void> deletarAsync(String userId) {
+        return CompletableFuture.runAsync(() -> deletar(userId), executorIo);
+    }
+
+    /**
+     * Versão assíncrona de {@link #uparNivel}. O futuro é completado com o próprio objeto recebido, já atualizado.
+     */
+    public CompletableFuture<Personagem> uparNivelAsync(Personagem personagem, int niveisParaAdicionar) {
+        return assincrono(() -> {
+            uparNivel(personagem, niveisParaAdicionar);
+            return personagem;
+        });
+    }
+
+    /**
+     * Versão assíncrona de {@link #uparNivelEmLote}. Uma falha completa o futuro com uma {@link PersistenciaException}.
+     */
+    public CompletableFuture<List<Personagem>> uparNivelEmLoteAsync(Collection<String> userIds, int niveisParaAdicionar) {
+        return assincrono(() -> {
+            try {
+                return uparNivelEmLote(userIds, niveisParaAdicionar);
+            } catch (PersistenciaException e) {
+                throw new CompletionException(e);
+            }
+        });
+    }
+
+    /**
+     * Versão assíncrona de {@link #gastarPontos}.
+     */
+    public CompletableFuture<Optional<Personagem>> gastarPontosAsync(String userId, int corpo, int destreza, int mente, int vontade) {
+        return assincrono(() -> gastarPontos(userId, corpo, destreza, mente, vontade));
+    }
+
+    /**
+     * Versão assíncrona de {@link #alterarNome}.
+     */
+    public CompletableFuture<Optional<Personagem>> alterarNomeAsync(String userId, String nome) {
+        return assincrono(() -> alterarNome(userId, nome));
+    }
+
+    /**
+     * Versão assíncrona de {@link #alterarFoto}.
+     */
+    public CompletableFuture<Optional<Personagem>> alterarFotoAsync(String userId, String fotoUrl) {
+        return assincrono(() -> alterarFoto(userId, fotoUrl));
+    }
+
+    /**
+     * Versão assíncrona de {@link #exportar}. Uma falha completa o futuro com uma {@link PersistenciaException}.
+     */
+    public CompletableFuture<Integer> exportarAsync(ExportacaoPersonagens.Formato formato, Path arquivo) {
+        return assincrono(() -> {
+            try {
+                return exportar(formato, arquivo);
+            } catch (PersistenciaException e) {
+                throw new CompletionException(e);
+            }
+        });
+    }
+
+    /**
+     * Versão assíncrona de {@link #importar}. Uma falha completa o futuro com uma {@link PersistenciaException}.
+     */
+    public CompletableFuture<ExportacaoPersonagens.Resultado> importarAsync(ExportacaoPersonagens.Formato formato, InputStream entrada) {
+        return assincrono(() -> {
+            try {
+                return importar(formato, entrada);
+            } catch (PersistenciaException e) {
+                throw new CompletionException(e);
+            }
+        });
+    }
+
+    private <T> CompletableFuture<T> assincrono(Supplier<T> operacao) {
+        return CompletableFuture.supplyAsync(operacao, executorIo);
+    }
+
+    /**
+     * @return A posição do atributo em {@link #ATRIBUTOS}, ou -1 se o nome for inválido.
+     */
+    public static int indiceAtributo(String atributo) {
+        return ATRIBUTOS.indexOf(atributo.toLowerCase());
     }
 
     /**
@@ -172,18 +643,4 @@ public class PersonagemService {
 
         return true; // A regra foi respeitada para todos os atributos.
     }
-
-    private Personagem mapRowToPersonagem(ResultSet rs) throws SQLException {
-        Personagem p = new Personagem();
-        p.setUserId(rs.getString("user_id"));
-        p.setNome(rs.getString("nome"));
-        p.setNivel(rs.getInt("nivel"));
-        p.setFotoUrl(rs.getString("foto_url"));
-        p.setCorpo(rs.getInt("corpo"));
-        p.setDestreza(rs.getInt("destreza"));
-        p.setMente(rs.getInt("mente"));
-        p.setVontade(rs.getInt("vontade"));
-        p.setPontosDisponiveis(rs.getInt("pontos_disponiveis"));
-        return p;
-    }
-}
\ No newline at end of file
+}
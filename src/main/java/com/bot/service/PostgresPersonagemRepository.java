@@ -0,0 +1,504 @@
+package com.bot.service;
+
+import com.bot.metricas.Eventos;
+import com.bot.metricas.Histograma;
+import com.bot.metricas.Metricas;
+import com.bot.model.Personagem;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Repositório de personagens na tabela {@code personagens} do Postgres, via JDBC puro
+ * sobre um {@link ConnectionPool}.
+ * <p>
+ * Cada operação tem o seu tempo (incluindo a espera por uma conexão do pool) e os seus erros
+ * exportados nas {@link Metricas}, separados pelo rótulo {@code operacao}, e é emitida como evento
+ * do JFR ({@link Eventos.Sql}) durante uma gravação.
+ */
+public class PostgresPersonagemRepository implements PersonagemRepository {
+
+    private static final String SQL_SALVAR = """
+        INSERT INTO personagens (user_id, nome, nivel, foto_url, corpo, destreza, mente, vontade, pontos_disponiveis)
+        VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)
+        ON CONFLICT (user_id) DO UPDATE SET
+            nome = EXCLUDED.nome,
+            nivel = EXCLUDED.nivel,
+            foto_url = EXCLUDED.foto_url,
+            corpo = EXCLUDED.corpo,
+            destreza = EXCLUDED.destreza,
+            mente = EXCLUDED.mente,
+            vontade = EXCLUDED.vontade,
+            pontos_disponiveis = EXCLUDED.pontos_disponiveis
+        """;
+
+    /**
+     * As séries de uma operação nas métricas {@code bot_sql_segundos} e {@code bot_sql_erros_total},
+     * e o seu evento do JFR.
+     */
+    private static final class Operacao {
+        private static final Metricas.Familia<Histograma> TEMPOS = Metricas.get().histogramas(
+                "bot_sql_segundos", "Tempo das operações no Postgres, incluindo a espera por uma conexão.", "operacao");
+        private static final Metricas.Familia<LongAdder> ERROS = Metricas.get().contadores(
+                "bot_sql_erros_total", "Operações no Postgres que terminaram com erro.", "operacao");
+
+        private final String nome;
+        private final Histograma tempo;
+        private final LongAdder erros;
+
+        private Operacao(String nome) {
+            this.nome = nome;
+            this.tempo = TEMPOS.com(nome);
+            this.erros = ERROS.com(nome);
+        }
+
+        private Eventos.Sql iniciar() {
+            Eventos.Sql evento = new Eventos.Sql();
+            evento.begin();
+            return evento;
+        }
+
+        private void falhou(Eventos.Sql evento) {
+            erros.increment();
+            evento.falhou = true;
+        }
+
+        /**
+         * @param usuario O personagem afetado, ou {@code null} nas operações em lote.
+         * @param itens   Quantos personagens foram enviados ao banco.
+         */
+        private void concluir(Eventos.Sql evento, long inicio, String usuario, int itens) {
+            tempo.registrarDesde(inicio);
+            evento.end();
+            if (evento.shouldCommit()) {
+                evento.operacao = nome;
+                evento.usuario = usuario;
+                evento.itens = itens;
+                evento.commit();
+            }
+        }
+    }
+
+    private static final Operacao BUSCAR = new Operacao("buscar");
+    private static final Operacao SALVAR = new Operacao("salvar");
+    private static final Operacao SALVAR_LOTE = new Operacao("salvar_lote");
+    private static final Operacao DELETAR = new Operacao("deletar");
+    private static final Operacao UPAR_NIVEL = new Operacao("upar_nivel");
+    private static final Operacao UPAR_NIVEL_LOTE = new Operacao("upar_nivel_lote");
+    private static final Operacao GASTAR_PONTOS = new Operacao("gastar_pontos");
+    private static final Operacao ALTERAR_NOME = new Operacao("alterar_nome");
+    private static final Operacao ALTERAR_FOTO = new Operacao("alterar_foto");
+    private static final Operacao EXPORTAR = new Operacao("exportar");
+    private static final Operacao IMPORTAR = new Operacao("importar");
+
+    // Linhas trazidas do cursor por ida ao banco durante a exportação.
+    private static final int TAMANHO_BUSCA_EXPORTACAO = 500;
+
+    private final ConnectionPool pool;
+
+    public PostgresPersonagemRepository(ConnectionPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * @return O pool de conexões usado pelo repositório.
+     */
+    public ConnectionPool getPool() {
+        return pool;
+    }
+
+    @Override
+    public Optional<Personagem> buscar(String userId) throws PersistenciaException {
+        final String sql = "SELECT * FROM personagens WHERE user_id = ?";
+        long inicio = System.nanoTime();
+        Eventos.Sql evento = BUSCAR.iniciar();
+        try (Connection conn = pool.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, userId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    return Optional.of(mapRowToPersonagem(rs));
+                }
+            }
+            return Optional.empty();
+        } catch (SQLException e) {
+            BUSCAR.falhou(evento);
+            throw new PersistenciaException("Erro ao buscar personagem por usuário", e);
+        } finally {
+            BUSCAR.concluir(evento, inicio, userId, 1);
+        }
+    }
+
+    @Override
+    public void salvar(Personagem personagem) throws PersistenciaException {
+        long inicio = System.nanoTime();
+        Eventos.Sql evento = SALVAR.iniciar();
+        try (Connection conn = pool.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(SQL_SALVAR)) {
+            preencherSalvar(pstmt, personagem);
+            pstmt.executeUpdate();
+        } catch (SQLException e) {
+            SALVAR.falhou(evento);
+            throw new PersistenciaException("Erro ao salvar personagem", e);
+        } finally {
+            SALVAR.concluir(evento, inicio, personagem.getUserId(), 1);
+        }
+    }
+
+    /**
+     * Todos os upserts em um único lote JDBC e uma única transação.
+     * Com {@code reWriteBatchedInserts=true} na URL, o driver ainda os junta em poucos INSERTs multi-linha.
+     */
+    @Override
+    public void salvarTodos(Collection<Personagem> personagens) throws PersistenciaException {
+        if (personagens.isEmpty()) {
+            return;
+        }
+        long inicio = System.nanoTime();
+        Eventos.Sql evento = SALVAR_LOTE.iniciar();
+        try (Connection conn = pool.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(SQL_SALVAR)) {
+            conn.setAutoCommit(false);
+            try {
+                for (Personagem personagem : personagens) {
+                    preencherSalvar(pstmt, personagem);
+                    pstmt.addBatch();
+                }
+                pstmt.executeBatch();
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+            // O autocommit é restaurado pelo pool na devolução da conexão.
+        } catch (SQLException e) {
+            SALVAR_LOTE.falhou(evento);
+            throw new PersistenciaException("Erro ao salvar lote de " + personagens.size() + " personagens", e);
+        } finally {
+            SALVAR_LOTE.concluir(evento, inicio, null, personagens.size());
+        }
+    }
+
+    private static void preencherSalvar(PreparedStatement pstmt, Personagem personagem) throws SQLException {
+        pstmt.setString(1, personagem.getUserId());
+        pstmt.setString(2, personagem.getNome());
+        pstmt.setInt(3, personagem.getNivel());
+        pstmt.setString(4, personagem.getFotoUrl());
+        pstmt.setInt(5, personagem.getCorpo());
+        pstmt.setInt(6, personagem.getDestreza());
+        pstmt.setInt(7, personagem.getMente());
+        pstmt.setInt(8, personagem.getVontade());
+        pstmt.setInt(9, personagem.getPontosDisponiveis());
+    }
+
+    @Override
+    public void deletar(String userId) throws PersistenciaException {
+        final String sql = "DELETE FROM personagens WHERE user_id = ?";
+        long inicio = System.nanoTime();
+        Eventos.Sql evento = DELETAR.iniciar();
+        try (Connection conn = pool.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, userId);
+            pstmt.executeUpdate();
+        } catch (SQLException e) {
+            DELETAR.falhou(evento);
+            throw new PersistenciaException("Erro ao deletar personagem", e);
+        } finally {
+            DELETAR.concluir(evento, inicio, userId, 1);
+        }
+    }
+
+    /**
+     * Incremento atômico em um único {@code UPDATE ... RETURNING}.
+     */
+    @Override
+    public Optional<Personagem> uparNivel(String userId, int niveis, int pontos) throws PersistenciaException {
+        final String sql = """
+            UPDATE personagens
+            SET nivel = nivel + ?, pontos_disponiveis = pontos_disponiveis + ?
+            WHERE user_id = ?
+            RETURNING *
+            """;
+        long inicio = System.nanoTime();
+        Eventos.Sql evento = UPAR_NIVEL.iniciar();
+        try (Connection conn = pool.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, niveis);
+            pstmt.setInt(2, pontos);
+            pstmt.setString(3, userId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? Optional.of(mapRowToPersonagem(rs)) : Optional.empty();
+            }
+        } catch (SQLException e) {
+            UPAR_NIVEL.falhou(evento);
+            throw new PersistenciaException("Erro ao upar personagem", e);
+        } finally {
+            UPAR_NIVEL.concluir(evento, inicio, userId, 1);
+        }
+    }
+
+    /**
+     * Todos os personagens em um único {@code UPDATE ... WHERE user_id = ANY(?) RETURNING}.
+     */
+    @Override
+    public List<Personagem> uparNivelEmLote(Collection<String> userIds, int niveis, int pontos) throws PersistenciaException {
+        List<Personagem> upados = new ArrayList<>(userIds.size());
+        if (userIds.isEmpty()) {
+            return upados;
+        }
+        final String sql = """
+            UPDATE personagens
+            SET nivel = nivel + ?, pontos_disponiveis = pontos_disponiveis + ?
+            WHERE user_id = ANY(?)
+            RETURNING *
+            """;
+        long inicio = System.nanoTime();
+        Eventos.Sql evento = UPAR_NIVEL_LOTE.iniciar();
+        try (Connection conn = pool.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, niveis);
+            pstmt.setInt(2, pontos);
+            pstmt.setArray(3, conn.createArrayOf("text", userIds.toArray()));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    upados.add(mapRowToPersonagem(rs));
+                }
+            }
+            return upados;
+        } catch (SQLException e) {
+            UPAR_NIVEL_LOTE.falhou(evento);
+            throw new PersistenciaException("Erro ao upar lote de " + userIds.size() + " personagens", e);
+        } finally {
+            UPAR_NIVEL_LOTE.concluir(evento, inicio, null, userIds.size());
+        }
+    }
+
+    /**
+     * Saldo, regra de equilíbrio e escrita em um único {@code UPDATE ... WHERE ... RETURNING}.
+     * Para cada atributo aumentado, a regra é comparada com os valores finais dos demais.
+     */
+    @Override
+    public Optional<Personagem> gastarPontos(String userId, int[] deltas) throws PersistenciaException {
+        int total = 0;
+        for (int d : deltas) {
+            total += d;
+        }
+
+        StringBuilder sql = new StringBuilder("UPDATE personagens SET ");
+        for (String coluna : PersonagemService.ATRIBUTOS) {
+            sql.append(coluna).append(" = ").append(coluna).append(" + ?, ");
+        }
+        sql.append("pontos_disponiveis = pontos_disponiveis - ? WHERE user_id = ? AND pontos_disponiveis >= ?");
+        int quantidade = PersonagemService.ATRIBUTOS.size();
+        for (int a = 0; a < quantidade; a++) {
+            if (deltas[a] == 0) continue;
+            for (int b = 0; b < quantidade; b++) {
+                if (a == b) continue;
+                sql.append(" AND (").append(PersonagemService.ATRIBUTOS.get(a)).append(" + ?) - (")
+                        .append(PersonagemService.ATRIBUTOS.get(b)).append(" + ?) < 3");
+            }
+        }
+        sql.append(" RETURNING *");
+
+        long inicio = System.nanoTime();
+        Eventos.Sql evento = GASTAR_PONTOS.iniciar();
+        try (Connection conn = pool.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql.toString())) {
+            int i = 1;
+            for (int d : deltas) {
+                pstmt.setInt(i++, d);
+            }
+            pstmt.setInt(i++, total);
+            pstmt.setString(i++, userId);
+            pstmt.setInt(i++, total);
+            for (int a = 0; a < quantidade; a++) {
+                if (deltas[a] == 0) continue;
+                for (int b = 0; b < quantidade; b++) {
+                    if (a == b) continue;
+                    pstmt.setInt(i++, deltas[a]);
+                    pstmt.setInt(i++, deltas[b]);
+                }
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? Optional.of(mapRowToPersonagem(rs)) : Optional.empty();
+            }
+        } catch (SQLException e) {
+            GASTAR_PONTOS.falhou(evento);
+            throw new PersistenciaException("Erro ao gastar pontos de atributo", e);
+        } finally {
+            GASTAR_PONTOS.concluir(evento, inicio, userId, 1);
+        }
+    }
+
+    @Override
+    public Optional<Personagem> alterarNome(String userId, String nome) throws PersistenciaException {
+        return alterarColuna(ALTERAR_NOME, "UPDATE personagens SET nome = ? WHERE user_id = ? RETURNING *",
+                userId, nome, "Erro ao alterar o nome do personagem");
+    }
+
+    @Override
+    public Optional<Personagem> alterarFoto(String userId, String fotoUrl) throws PersistenciaException {
+        return alterarColuna(ALTERAR_FOTO, "UPDATE personagens SET foto_url = ? WHERE user_id = ? RETURNING *",
+                userId, fotoUrl, "Erro ao alterar a foto do personagem");
+    }
+
+    private Optional<Personagem> alterarColuna(Operacao operacao, String sql, String userId, String valor, String erro)
+            throws PersistenciaException {
+        long inicio = System.nanoTime();
+        Eventos.Sql evento = operacao.iniciar();
+        try (Connection conn = pool.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, valor);
+            pstmt.setString(2, userId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? Optional.of(mapRowToPersonagem(rs)) : Optional.empty();
+            }
+        } catch (SQLException e) {
+            operacao.falhou(evento);
+            throw new PersistenciaException(erro, e);
+        } finally {
+            operacao.concluir(evento, inicio, userId, 1);
+        }
+    }
+
+    /**
+     * Lê a tabela por um cursor do servidor: com o autocommit desligado, o driver traz
+     * {@link #TAMANHO_BUSCA_EXPORTACAO} linhas por vez em vez do resultado inteiro.
+     */
+    @Override
+    public void exportar(Consumer<Personagem> consumidor) throws PersistenciaException {
+        final String sql = "SELECT * FROM personagens ORDER BY user_id";
+        long inicio = System.nanoTime();
+        Eventos.Sql evento = EXPORTAR.iniciar();
+        try (Connection conn = pool.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement pstmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                pstmt.setFetchSize(TAMANHO_BUSCA_EXPORTACAO);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        consumidor.accept(mapRowToPersonagem(rs));
+                    }
+                }
+            }
+            conn.commit();
+        } catch (SQLException e) {
+            EXPORTAR.falhou(evento);
+            throw new PersistenciaException("Erro ao exportar personagens", e);
+        } finally {
+            EXPORTAR.concluir(evento, inicio, null, 0);
+        }
+    }
+
+    /**
+     * Carrega os personagens com {@code COPY ... FROM STDIN} em uma tabela temporária e os aplica
+     * com um único {@code INSERT ... ON CONFLICT}, tudo em uma transação. Se o arquivo repetir um
+     * usuário, vale a última linha.
+     */
+    @Override
+    public int importar(Iterator<Personagem> personagens) throws PersistenciaException {
+        String colunas = String.join(", ", ExportacaoPersonagens.COLUNAS);
+        // "ordem" numera as linhas na sequência em que o COPY as recebe: a ordem física da tabela não é garantida.
+        final String sqlTemporaria = "CREATE TEMP TABLE personagens_importacao (LIKE personagens INCLUDING DEFAULTS, ordem bigserial) ON COMMIT DROP";
+        final String sqlCopy = "COPY personagens_importacao (" + colunas + ") FROM STDIN WITH (FORMAT csv)";
+        final String sqlAplicar = """
+            INSERT INTO personagens (%1$s)
+            SELECT DISTINCT ON (user_id) %1$s FROM personagens_importacao ORDER BY user_id, ordem DESC
+            ON CONFLICT (user_id) DO UPDATE SET
+                nome = EXCLUDED.nome,
+                nivel = EXCLUDED.nivel,
+                foto_url = EXCLUDED.foto_url,
+                corpo = EXCLUDED.corpo,
+                destreza = EXCLUDED.destreza,
+                mente = EXCLUDED.mente,
+                vontade = EXCLUDED.vontade,
+                pontos_disponiveis = EXCLUDED.pontos_disponiveis
+            """.formatted(colunas);
+
+        long inicio = System.nanoTime();
+        Eventos.Sql evento = IMPORTAR.iniciar();
+        try (Connection conn = pool.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                try (PreparedStatement pstmt = conn.prepareStatement(sqlTemporaria)) {
+                    pstmt.execute();
+                }
+                copiar(conn.unwrap(PGConnection.class).getCopyAPI().copyIn(sqlCopy), personagens);
+                int importados;
+                try (PreparedStatement pstmt = conn.prepareStatement(sqlAplicar)) {
+                    importados = pstmt.executeUpdate();
+                }
+                conn.commit();
+                return importados;
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException | UncheckedIOException e) {
+            IMPORTAR.falhou(evento);
+            throw new PersistenciaException("Erro ao importar personagens", e);
+        } finally {
+            IMPORTAR.concluir(evento, inicio, null, 0);
+        }
+    }
+
+    private static void copiar(CopyIn copy, Iterator<Personagem> personagens) throws SQLException {
+        try {
+            StringWriter linha = new StringWriter(256);
+            while (personagens.hasNext()) {
+                linha.getBuffer().setLength(0);
+                ExportacaoPersonagens.escreverCsv(linha, personagens.next());
+                linha.write('\n');
+                byte[] bytes = linha.toString().getBytes(StandardCharsets.UTF_8);
+                copy.writeToCopy(bytes, 0, bytes.length);
+            }
+            copy.endCopy();
+        } catch (IOException e) {
+            // StringWriter não lança IOException.
+            throw new UncheckedIOException(e);
+        } finally {
+            if (copy.isActive()) {
+                copy.cancelCopy();
+            }
+        }
+    }
+
+    @Override
+    public String getNome() {
+        return "postgres";
+    }
+
+    @Override
+    public void close() {
+        pool.close();
+    }
+
+    private Personagem mapRowToPersonagem(ResultSet rs) throws SQLException {
+        Personagem p = new Personagem();
+        p.setUserId(rs.getString("user_id"));
+        p.setNome(rs.getString("nome"));
+        p.setNivel(rs.getInt("nivel"));
+        p.setFotoUrl(rs.getString("foto_url"));
+        p.setCorpo(rs.getInt("corpo"));
+        p.setDestreza(rs.getInt("destreza"));
+        p.setMente(rs.getInt("mente"));
+        p.setVontade(rs.getInt("vontade"));
+        p.setPontosDisponiveis(rs.getInt("pontos_disponiveis"));
+        return p;
+    }
+}
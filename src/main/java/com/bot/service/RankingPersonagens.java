@@ -0,0 +1,302 @@
+package com.bot.service;
+
+import com.bot.model.Personagem;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Índice em memória do ranking dos personagens, mantido incrementalmente pelo {@link PersonagemService}.
+ * <p>
+ * É carregado uma vez na inicialização (em fluxo, via {@link PersonagemRepository#exportar}) e depois
+ * atualizado a cada escrita, sem nunca consultar o banco. Para cada {@link Criterio} há uma árvore
+ * de estatística de ordem (treap com o tamanho de cada subárvore), ordenada por pontuação decrescente
+ * e, no empate, pelo ID do usuário; atualizações, a posição de um jogador e o início do top-K custam O(log n).
+ * <p>
+ * A {@link #getVersao() versão} muda a cada alteração, o que permite guardar páginas já montadas do ranking.
+ */
+public final class RankingPersonagens {
+
+    public enum Criterio {
+        NIVEL("Nível"),
+        ATRIBUTOS("Total de atributos");
+
+        private final String descricao;
+
+        Criterio(String descricao) {
+            this.descricao = descricao;
+        }
+
+        public String descricao() {
+            return descricao;
+        }
+
+        int pontuacao(Entrada e) {
+            return this == NIVEL ? e.nivel() : e.totalAtributos();
+        }
+    }
+
+    /**
+     * Uma linha do ranking.
+     *
+     * @param posicao    A posição, começando em 1. Empatados na pontuação dividem a mesma posição.
+     * @param pontuacao  O nível ou o total de atributos, conforme o critério.
+     */
+    public record Posicao(int posicao, String userId, String nome, int pontuacao) {}
+
+    private record Entrada(String nome, int nivel, int totalAtributos) {
+
+        static Entrada de(Personagem p) {
+            return new Entrada(p.getNome(), p.getNivel(), p.getCorpo() + p.getDestreza() + p.getMente() + p.getVontade());
+        }
+    }
+
+    private final Map<String, Entrada> entradas = new HashMap<>();
+    private final Arvore[] arvores = new Arvore[Criterio.values().length];
+    private long versao;
+
+    public RankingPersonagens() {
+        for (int i = 0; i < arvores.length; i++) {
+            arvores[i] = new Arvore();
+        }
+    }
+
+    /**
+     * Substitui o conteúdo do índice por todos os personagens do repositório.
+     */
+    public void carregar(PersonagemRepository repositorio) throws PersistenciaException {
+        RankingPersonagens novo = new RankingPersonagens();
+        repositorio.exportar(novo::atualizar);
+        synchronized (this) {
+            entradas.clear();
+            entradas.putAll(novo.entradas);
+            System.arraycopy(novo.arvores, 0, arvores, 0, arvores.length);
+            versao++;
+        }
+    }
+
+    /**
+     * Insere ou reposiciona um personagem. Não faz nada se nada que aparece no ranking mudou.
+     */
+    public synchronized void atualizar(Personagem p) {
+        Entrada nova = Entrada.de(p);
+        Entrada antiga = entradas.put(p.getUserId(), nova);
+        if (nova.equals(antiga)) {
+            return;
+        }
+        for (Criterio c : Criterio.values()) {
+            if (antiga != null) {
+                arvores[c.ordinal()].remover(c.pontuacao(antiga), p.getUserId());
+            }
+            arvores[c.ordinal()].inserir(c.pontuacao(nova), p.getUserId());
+        }
+        versao++;
+    }
+
+    public synchronized void remover(String userId) {
+        Entrada antiga = entradas.remove(userId);
+        if (antiga == null) {
+            return;
+        }
+        for (Criterio c : Criterio.values()) {
+            arvores[c.ordinal()].remover(c.pontuacao(antiga), userId);
+        }
+        versao++;
+    }
+
+    /**
+     * @return Os {@code k} primeiros colocados, em ordem.
+     */
+    public synchronized List<Posicao> topo(Criterio criterio, int k) {
+        Arvore arvore = arvores[criterio.ordinal()];
+        List<Posicao> topo = new ArrayList<>(Math.min(k, arvore.tamanho()));
+        int anterior = Integer.MIN_VALUE;
+        int posicao = 0;
+        for (No no : arvore.primeiros(k)) {
+            if (no.pontuacao != anterior) {
+                posicao = topo.size() + 1;
+                anterior = no.pontuacao;
+            }
+            topo.add(new Posicao(posicao, no.userId, entradas.get(no.userId).nome(), no.pontuacao));
+        }
+        return topo;
+    }
+
+    /**
+     * @return A posição do jogador, ou vazio se ele não tiver personagem.
+     */
+    public synchronized Optional<Posicao> posicao(Criterio criterio, String userId) {
+        Entrada e = entradas.get(userId);
+        if (e == null) {
+            return Optional.empty();
+        }
+        int pontuacao = criterio.pontuacao(e);
+        return Optional.of(new Posicao(arvores[criterio.ordinal()].contarAcima(pontuacao) + 1, userId, e.nome(), pontuacao));
+    }
+
+    public synchronized int tamanho() {
+        return entradas.size();
+    }
+
+    /**
+     * @return Um número que muda a cada alteração do índice.
+     */
+    public synchronized long getVersao() {
+        return versao;
+    }
+
+    // --- Árvore de estatística de ordem ---
+
+    private static final class No {
+        final int pontuacao;
+        final String userId;
+        final int prioridade = ThreadLocalRandom.current().nextInt();
+        int tamanho = 1;
+        No esquerda;
+        No direita;
+
+        No(int pontuacao, String userId) {
+            this.pontuacao = pontuacao;
+            this.userId = userId;
+        }
+    }
+
+    /**
+     * Treap ordenada por pontuação decrescente e userId crescente, com o tamanho de cada subárvore.
+     */
+    private static final class Arvore {
+        private No raiz;
+
+        int tamanho() {
+            return tamanho(raiz);
+        }
+
+        void inserir(int pontuacao, String userId) {
+            raiz = inserir(raiz, new No(pontuacao, userId));
+        }
+
+        void remover(int pontuacao, String userId) {
+            raiz = remover(raiz, pontuacao, userId);
+        }
+
+        /**
+         * @return Quantos nós têm pontuação estritamente maior.
+         */
+        int contarAcima(int pontuacao) {
+            int contagem = 0;
+            No no = raiz;
+            while (no != null) {
+                if (no.pontuacao > pontuacao) {
+                    contagem += tamanho(no.esquerda) + 1;
+                    no = no.direita;
+                } else {
+                    no = no.esquerda;
+                }
+            }
+            return contagem;
+        }
+
+        /**
+         * Percurso em ordem que para após {@code k} nós.
+         */
+        List<No> primeiros(int k) {
+            List<No> nos = new ArrayList<>(Math.min(k, tamanho()));
+            Deque<No> pilha = new ArrayDeque<>();
+            No no = raiz;
+            while ((no != null || !pilha.isEmpty()) && nos.size() < k) {
+                while (no != null) {
+                    pilha.push(no);
+                    no = no.esquerda;
+                }
+                no = pilha.pop();
+                nos.add(no);
+                no = no.direita;
+            }
+            return nos;
+        }
+
+        private static int comparar(int pontuacaoA, String userIdA, int pontuacaoB, String userIdB) {
+            int c = Integer.compare(pontuacaoB, pontuacaoA);
+            return c != 0 ? c : userIdA.compareTo(userIdB);
+        }
+
+        private static No inserir(No no, No novo) {
+            if (no == null) {
+                return novo;
+            }
+            if (novo.prioridade > no.prioridade) {
+                No[] partes = dividir(no, novo.pontuacao, novo.userId);
+                novo.esquerda = partes[0];
+                novo.direita = partes[1];
+                return atualizar(novo);
+            }
+            if (comparar(novo.pontuacao, novo.userId, no.pontuacao, no.userId) < 0) {
+                no.esquerda = inserir(no.esquerda, novo);
+            } else {
+                no.direita = inserir(no.direita, novo);
+            }
+            return atualizar(no);
+        }
+
+        private static No remover(No no, int pontuacao, String userId) {
+            if (no == null) {
+                return null;
+            }
+            int c = comparar(pontuacao, userId, no.pontuacao, no.userId);
+            if (c == 0) {
+                return juntar(no.esquerda, no.direita);
+            }
+            if (c < 0) {
+                no.esquerda = remover(no.esquerda, pontuacao, userId);
+            } else {
+                no.direita = remover(no.direita, pontuacao, userId);
+            }
+            return atualizar(no);
+        }
+
+        /**
+         * @return Os nós antes da chave e os nós a partir dela.
+         */
+        private static No[] dividir(No no, int pontuacao, String userId) {
+            if (no == null) {
+                return new No[]{null, null};
+            }
+            if (comparar(no.pontuacao, no.userId, pontuacao, userId) < 0) {
+                No[] partes = dividir(no.direita, pontuacao, userId);
+                no.direita = partes[0];
+                partes[0] = atualizar(no);
+                return partes;
+            }
+            No[] partes = dividir(no.esquerda, pontuacao, userId);
+            no.esquerda = partes[1];
+            partes[1] = atualizar(no);
+            return partes;
+        }
+
+        private static No juntar(No a, No b) {
+            if (a == null) return b;
+            if (b == null) return a;
+            if (a.prioridade > b.prioridade) {
+                a.direita = juntar(a.direita, b);
+                return atualizar(a);
+            }
+            b.esquerda = juntar(a, b.esquerda);
+            return atualizar(b);
+        }
+
+        private static No atualizar(No no) {
+            no.tamanho = tamanho(no.esquerda) + tamanho(no.direita) + 1;
+            return no;
+        }
+
+        private static int tamanho(No no) {
+            return no == null ? 0 : no.tamanho;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.bot.service;
+
+/**
+ * Os sub-atributos de um personagem, calculados por {@link CalculadoraAtributos#calcularSubAtributos}.
+ * <p>
+ * Valores primitivos com acessores nomeados: quem precisa de um sub-atributo específico o acessa
+ * diretamente (ex: {@code esquiva()}), verificado em tempo de compilação. Para exibir todos em
+ * ordem, use {@link Campo}.
+ */
+public record SubAtributos(int forca, int vida, int esquiva, int deslocamento,
+                           int intelecto, int percepcao, int foco, int resistenciaMental) {
+
+    /**
+     * Os sub-atributos na ordem de exibição, com o rótulo mostrado ao usuário.
+     */
+    public enum Campo {
+        FORCA("Força"),
+        VIDA("Vida"),
+        ESQUIVA("Esquiva"),
+        DESLOCAMENTO("Deslocamento"),
+        INTELECTO("Intelecto"),
+        PERCEPCAO("Percepção"),
+        FOCO("Foco"),
+        RESISTENCIA_MENTAL("Resistência Mental (MR)");
+
+        private final String rotulo;
+
+        Campo(String rotulo) {
+            this.rotulo = rotulo;
+        }
+
+        public String rotulo() {
+            return rotulo;
+        }
+
+        public int valor(SubAtributos s) {
+            return switch (this) {
+                case FORCA -> s.forca;
+                case VIDA -> s.vida;
+                case ESQUIVA -> s.esquiva;
+                case DESLOCAMENTO -> s.deslocamento;
+                case INTELECTO -> s.intelecto;
+                case PERCEPCAO -> s.percepcao;
+                case FOCO -> s.foco;
+                case RESISTENCIA_MENTAL -> s.resistenciaMental;
+            };
+        }
+    }
+}
@@ -0,0 +1,335 @@
+package com.bot.service;
+
+import com.bot.model.Personagem;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Escrita adiada (write-behind) na frente de outro {@link PersonagemRepository}.
+ * <p>
+ * {@link #salvar} apenas marca o personagem como sujo em um mapa por usuário; várias alterações
+ * seguidas do mesmo personagem (nome, foto, cliques em atributos) viram uma única escrita.
+ * Um thread de descarga grava os personagens sujos em lotes ({@link PersonagemRepository#salvarTodos})
+ * a cada {@code intervaloMs}, ou antes disso quando o mapa chega a {@code loteMaximo} entradas.
+ * <ul>
+ *     <li>{@link #buscar} enxerga as escritas pendentes: um personagem sujo é lido do mapa,
+ *     como se a descarga já tivesse acontecido.</li>
+ *     <li>As operações atômicas ({@link #uparNivel}, {@link #gastarPontos}, {@link #alterarNome},
+ *     {@link #alterarFoto}) e {@link #deletar} primeiro
+ *     gravam a escrita pendente do usuário e só então chegam ao destino, e nunca rodam durante
+ *     a gravação de um lote; assim um lote atrasado não sobrescreve o resultado delas.</li>
+ *     <li>Enquanto {@link #deletar} não termina, um {@link #salvar} do mesmo usuário é descartado (fica
+ *     ordenado antes da exclusão), para que a próxima descarga não traga o personagem de volta.</li>
+ *     <li>Um lote que falha continua sujo e é tentado de novo na próxima descarga.</li>
+ *     <li>{@link #close()} descarrega tudo antes de fechar o destino.</li>
+ * </ul>
+ * Se o processo morrer sem passar pelo {@link #close()}, as escritas do último intervalo se perdem.
+ */
+public final class WriteBehindPersonagemRepository implements PersonagemRepository {
+
+    /**
+     * Fotografia dos contadores da escrita adiada.
+     *
+     * @param pendentes   Personagens sujos aguardando a descarga.
+     * @param escritas    Personagens gravados no destino.
+     * @param coalescidas Alterações absorvidas por outra escrita pendente do mesmo personagem.
+     * @param lotes       Lotes gravados.
+     * @param falhas      Lotes que falharam e ficaram para a próxima descarga.
+     */
+    public record Estatisticas(int pendentes, long escritas, long coalescidas, long lotes, long falhas) {}
+
+    private final PersonagemRepository destino;
+    private final int loteMaximo;
+    // Cada valor é uma cópia nunca alterada: a remoção após a gravação compara por identidade.
+    private final ConcurrentHashMap<String, Personagem> sujos = new ConcurrentHashMap<>();
+    // Usuários com uma exclusão em andamento (e quantas), consultados dentro do compute de sujos.
+    private final ConcurrentHashMap<String, Integer> excluindo = new ConcurrentHashMap<>();
+    // Lote de descarga = escrita; operações que vão direto ao destino = leitura.
+    private final ReentrantReadWriteLock travaLotes = new ReentrantReadWriteLock();
+    private final ScheduledExecutorService descarga;
+    private final AtomicBoolean descargaAgendada = new AtomicBoolean();
+    private volatile boolean fechado;
+
+    private final LongAdder escritas = new LongAdder();
+    private final LongAdder coalescidas = new LongAdder();
+    private final LongAdder lotes = new LongAdder();
+    private final LongAdder falhas = new LongAdder();
+
+    /**
+     * @param destino     O repositório que recebe as escritas.
+     * @param intervaloMs Tempo máximo que uma alteração fica pendente.
+     * @param loteMaximo  Personagens por lote; ao acumular essa quantidade, a descarga é antecipada.
+     */
+    public WriteBehindPersonagemRepository(PersonagemRepository destino, long intervaloMs, int loteMaximo) {
+        this.destino = destino;
+        this.loteMaximo = Math.max(1, loteMaximo);
+        long intervalo = Math.max(10, intervaloMs);
+
+        this.descarga = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "escrita-adiada");
+            t.setDaemon(true);
+            return t;
+        });
+        descarga.scheduleWithFixedDelay(this::descarregar, intervalo, intervalo, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return O repositório que recebe as escritas.
+     */
+    public PersonagemRepository getDestino() {
+        return destino;
+    }
+
+    @Override
+    public Optional<Personagem> buscar(String userId) throws PersistenciaException {
+        Personagem pendente = sujos.get(userId);
+        if (pendente != null) {
+            return Optional.of(new Personagem(pendente));
+        }
+        // Um lote só sai do mapa depois de gravado, então aqui o destino já está atualizado.
+        return destino.buscar(userId);
+    }
+
+    @Override
+    public void salvar(Personagem personagem) throws PersistenciaException {
+        String userId = personagem.getUserId();
+        if (fechado) {
+            travaLotes.readLock().lock();
+            try {
+                if (excluindo.containsKey(userId)) {
+                    return;
+                }
+                sujos.remove(userId);
+                destino.salvar(personagem);
+            } finally {
+                travaLotes.readLock().unlock();
+            }
+            return;
+        }
+        // A leitura da trava ordena o salvamento em relação a uma importação (que segura a escrita):
+        // um salvamento que chegue durante a importação só fica sujo depois dela, e não antes.
+        // O compute o ordena em relação a uma exclusão: ou fica sujo antes de ela o remover, ou é descartado.
+        Personagem copia = new Personagem(personagem);
+        travaLotes.readLock().lock();
+        try {
+            sujos.compute(userId, (id, anterior) -> {
+                if (excluindo.containsKey(id)) {
+                    return anterior;
+                }
+                if (anterior != null) {
+                    coalescidas.increment();
+                }
+                return copia;
+            });
+        } finally {
+            travaLotes.readLock().unlock();
+        }
+        if (sujos.size() >= loteMaximo) {
+            agendarDescarga();
+        }
+    }
+
+    @Override
+    public void deletar(String userId) throws PersistenciaException {
+        travaLotes.readLock().lock();
+        excluindo.merge(userId, 1, Integer::sum);
+        try {
+            sujos.remove(userId);
+            destino.deletar(userId);
+        } finally {
+            excluindo.computeIfPresent(userId, (id, n) -> n == 1 ? null : n - 1);
+            travaLotes.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Optional<Personagem> uparNivel(String userId, int niveis, int pontos) throws PersistenciaException {
+        travaLotes.readLock().lock();
+        try {
+            gravarPendente(userId);
+            return destino.uparNivel(userId, niveis, pontos);
+        } finally {
+            travaLotes.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Personagem> uparNivelEmLote(Collection<String> userIds, int niveis, int pontos) throws PersistenciaException {
+        travaLotes.readLock().lock();
+        try {
+            for (String userId : userIds) {
+                gravarPendente(userId);
+            }
+            return destino.uparNivelEmLote(userIds, niveis, pontos);
+        } finally {
+            travaLotes.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Optional<Personagem> gastarPontos(String userId, int[] deltas) throws PersistenciaException {
+        travaLotes.readLock().lock();
+        try {
+            gravarPendente(userId);
+            return destino.gastarPontos(userId, deltas);
+        } finally {
+            travaLotes.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Optional<Personagem> alterarNome(String userId, String nome) throws PersistenciaException {
+        travaLotes.readLock().lock();
+        try {
+            gravarPendente(userId);
+            return destino.alterarNome(userId, nome);
+        } finally {
+            travaLotes.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Optional<Personagem> alterarFoto(String userId, String fotoUrl) throws PersistenciaException {
+        travaLotes.readLock().lock();
+        try {
+            gravarPendente(userId);
+            return destino.alterarFoto(userId, fotoUrl);
+        } finally {
+            travaLotes.readLock().unlock();
+        }
+    }
+
+    /**
+     * Descarrega as escritas pendentes antes, para que a exportação inclua as alterações recentes.
+     */
+    @Override
+    public void exportar(Consumer<Personagem> consumidor) throws PersistenciaException {
+        descarregar();
+        destino.exportar(consumidor);
+    }
+
+    /**
+     * Descarrega as escritas pendentes antes da importação, para que uma alteração anterior
+     * não sobrescreva o personagem importado na próxima descarga.
+     */
+    @Override
+    public int importar(Iterator<Personagem> personagens) throws PersistenciaException {
+        travaLotes.writeLock().lock();
+        try {
+            descarregar();
+            return destino.importar(personagens);
+        } finally {
+            travaLotes.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Grava a escrita pendente de um usuário, para que uma operação atômica parta do estado mais recente.
+     */
+    private void gravarPendente(String userId) throws PersistenciaException {
+        Personagem pendente = sujos.get(userId);
+        if (pendente != null) {
+            destino.salvar(pendente);
+            sujos.remove(userId, pendente);
+            escritas.increment();
+        }
+    }
+
+    private void agendarDescarga() {
+        if (!fechado && descargaAgendada.compareAndSet(false, true)) {
+            descarga.execute(() -> {
+                descargaAgendada.set(false);
+                descarregar();
+            });
+        }
+    }
+
+    /**
+     * Grava agora todos os personagens sujos, em lotes de até {@code loteMaximo}.
+     * Para no primeiro lote que falhar; o que sobrou continua sujo.
+     */
+    public void descarregar() {
+        travaLotes.writeLock().lock();
+        try {
+            List<Personagem> lote = new ArrayList<>(Math.min(sujos.size(), loteMaximo));
+            for (Personagem p : sujos.values()) {
+                lote.add(p);
+                if (lote.size() == loteMaximo) {
+                    if (!gravarLote(lote)) {
+                        return;
+                    }
+                    lote.clear();
+                }
+            }
+            if (!lote.isEmpty()) {
+                gravarLote(lote);
+            }
+        } catch (RuntimeException e) {
+            // Não deixa uma falha inesperada cancelar as próximas descargas agendadas.
+            falhas.increment();
+            System.err.println("Erro inesperado na descarga da escrita adiada: " + e.getMessage());
+            e.printStackTrace();
+        } finally {
+            travaLotes.writeLock().unlock();
+        }
+    }
+
+    private boolean gravarLote(List<Personagem> lote) {
+        try {
+            destino.salvarTodos(lote);
+        } catch (PersistenciaException e) {
+            falhas.increment();
+            Throwable causa = e.getCause() != null ? e.getCause() : e;
+            System.err.println(e.getMessage() + " (" + lote.size() + " personagens ficam para a próxima descarga): " + causa.getMessage());
+            causa.printStackTrace();
+            return false;
+        }
+        for (Personagem p : lote) {
+            // Se o personagem foi alterado de novo durante a gravação, a versão nova continua suja.
+            sujos.remove(p.getUserId(), p);
+        }
+        lotes.increment();
+        escritas.add(lote.size());
+        return true;
+    }
+
+    public Estatisticas getEstatisticas() {
+        return new Estatisticas(sujos.size(), escritas.sum(), coalescidas.sum(), lotes.sum(), falhas.sum());
+    }
+
+    @Override
+    public String getNome() {
+        return destino.getNome() + " (escrita adiada)";
+    }
+
+    /**
+     * Descarrega as escritas pendentes e fecha o destino. Chamado pelo hook de desligamento do bot.
+     */
+    @Override
+    public void close() {
+        fechado = true;
+        descarga.shutdown();
+        try {
+            descarga.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        descarregar();
+        if (!sujos.isEmpty()) {
+            System.err.println("ATENÇÃO: " + sujos.size() + " personagens não puderam ser gravados no desligamento.");
+        }
+        destino.close();
+    }
+}
@@ -0,0 +1,145 @@
+package com.bot.service;
+
+import com.bot.model.Personagem;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.Reference;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.function.LongSupplier;
+
+/**
+ * Compara a memória ocupada por N personagens em um {@code HashMap<String, Personagem>} comum
+ * e no {@link ArmazemCompacto}, e o tempo das leituras nos dois.
+ * <p>
+ * Fica nas fontes de teste, fora do jar do bot. Uso: {@code mvn test-compile} e
+ * {@code java -cp target/classes:target/test-classes com.bot.service.BenchmarkArmazemCompacto [N]} (padrão: 200000).
+ * Para números estáveis, rode com um heap fixo, ex: {@code -Xms1g -Xmx1g}.
+ */
+public final class BenchmarkArmazemCompacto {
+
+    private BenchmarkArmazemCompacto() {}
+
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        Personagem[] personagens = gerar(n);
+        String[] ids = new String[n];
+        for (int i = 0; i < n; i++) {
+            ids[i] = personagens[i].getUserId();
+        }
+        System.out.printf("%d personagens%n%n", n);
+
+        // Os personagens de origem ficam vivos durante as duas medições; só o acréscimo é contado.
+        medirHashMap(personagens, ids);
+
+        long base = heapUsado();
+        long diretoAntes = bytesDiretos();
+        ArmazemCompacto armazem = new ArmazemCompacto(n);
+        for (Personagem p : personagens) {
+            armazem.gravar(p);
+        }
+        long heapArmazem = heapUsado() - base;
+        long foraDoHeap = bytesDiretos() - diretoAntes;
+        long[] chaves = new long[n];
+        for (int i = 0; i < n; i++) {
+            chaves[i] = ArmazemCompacto.chave(ids[i]);
+        }
+        long nanosArmazem = medirLeituras(() -> {
+            long soma = 0;
+            for (long id : chaves) {
+                soma += armazem.ler(id, ArmazemCompacto.Visao::nivel);
+            }
+            return soma;
+        });
+        ArmazemCompacto.Estatisticas e = armazem.getEstatisticas();
+        System.out.printf("ArmazemCompacto:             heap %,d bytes (%.1f por personagem), leitura %.1f ns%n",
+                heapArmazem, (double) heapArmazem / n, (double) nanosArmazem / n);
+        System.out.printf("                             fora do heap %,d bytes (%.1f por personagem): %,d slots, %,d strings em %,d bytes%n",
+                foraDoHeap, (double) foraDoHeap / n, e.slots(), e.textos(), e.bytesArena());
+        armazem.close();
+        Reference.reachabilityFence(personagens);
+    }
+
+    /**
+     * Mede o mapa em um método próprio, para que ele já não esteja alcançável na medição seguinte.
+     */
+    private static void medirHashMap(Personagem[] personagens, String[] ids) {
+        int n = personagens.length;
+        long base = heapUsado();
+        Map<String, Personagem> mapa = new HashMap<>();
+        for (Personagem p : personagens) {
+            Personagem copia = new Personagem(p);
+            // Strings próprias, como se tivessem vindo do banco.
+            copia.setUserId(new String(p.getUserId()));
+            copia.setNome(new String(p.getNome()));
+            copia.setFotoUrl(p.getFotoUrl() == null ? null : new String(p.getFotoUrl()));
+            mapa.put(copia.getUserId(), copia);
+        }
+        long heapMapa = heapUsado() - base;
+        long nanosMapa = medirLeituras(() -> {
+            long soma = 0;
+            for (String id : ids) {
+                soma += mapa.get(id).getNivel();
+            }
+            return soma;
+        });
+        System.out.printf("HashMap<String, Personagem>: heap %,d bytes (%.1f por personagem), leitura %.1f ns%n",
+                heapMapa, (double) heapMapa / n, (double) nanosMapa / n);
+    }
+
+    private static Personagem[] gerar(int n) {
+        SplittableRandom random = new SplittableRandom(42);
+        Personagem[] personagens = new Personagem[n];
+        for (int i = 0; i < n; i++) {
+            // Snowflakes de 18 dígitos, como os IDs reais do Discord.
+            String userId = Long.toString(100_000_000_000_000_000L + random.nextLong(800_000_000_000_000_000L));
+            Personagem p = new Personagem(userId, "Aventureiro " + Integer.toString(i, 36), 1 + random.nextInt(30));
+            p.setCorpo(random.nextInt(20));
+            p.setDestreza(random.nextInt(20));
+            p.setMente(random.nextInt(20));
+            p.setVontade(random.nextInt(20));
+            p.setPontosDisponiveis(random.nextInt(6));
+            personagens[i] = p;
+        }
+        return personagens;
+    }
+
+    private static long medirLeituras(LongSupplier leituras) {
+        // Aquecimento para o JIT.
+        long soma = 0;
+        for (int i = 0; i < 5; i++) {
+            soma += leituras.getAsLong();
+        }
+        long inicio = System.nanoTime();
+        soma += leituras.getAsLong();
+        long nanos = System.nanoTime() - inicio;
+        if (soma == 42) {
+            System.out.println();
+        }
+        return nanos;
+    }
+
+    private static long heapUsado() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static long bytesDiretos() {
+        for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+            if (pool.getName().equals("direct")) {
+                return pool.getMemoryUsed();
+            }
+        }
+        return 0;
+    }
+}